@@ -35,7 +35,9 @@ CREATE TABLE IF NOT EXISTS courses (
     end_date DATE NOT NULL,
     fee DECIMAL(10, 2) NOT NULL,
     capacity INT NOT NULL DEFAULT 50,
-    enrolled_count INT DEFAULT 0
+    enrolled_count INT DEFAULT 0,
+    INDEX idx_courses_name_seats (course_name, enrolled_count, capacity),
+    INDEX idx_courses_end_date (end_date)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- Create enrollments table
@@ -47,7 +49,10 @@ CREATE TABLE IF NOT EXISTS enrollments (
     status VARCHAR(20) NOT NULL DEFAULT 'ACTIVE',
     FOREIGN KEY (student_id) REFERENCES students(student_id) ON DELETE CASCADE,
     FOREIGN KEY (course_id) REFERENCES courses(course_id) ON DELETE CASCADE,
-    UNIQUE KEY unique_enrollment (student_id, course_id)
+    UNIQUE KEY unique_enrollment (student_id, course_id),
+    INDEX idx_enrollments_student_date (student_id, enrollment_date),
+    INDEX idx_enrollments_course_status (course_id, status),
+    INDEX idx_enrollments_date (enrollment_date)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- Create payments table
@@ -61,9 +66,131 @@ CREATE TABLE IF NOT EXISTS payments (
     status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
     transaction_id VARCHAR(100),
     FOREIGN KEY (student_id) REFERENCES students(student_id) ON DELETE CASCADE,
-    FOREIGN KEY (course_id) REFERENCES courses(course_id) ON DELETE CASCADE
+    FOREIGN KEY (course_id) REFERENCES courses(course_id) ON DELETE CASCADE,
+    INDEX idx_payments_student_date (student_id, payment_date),
+    INDEX idx_payments_course_date (course_id, payment_date),
+    INDEX idx_payments_date (payment_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Create outbox table (domain events written with the change they describe;
+-- needed on the primary and on every enrollment/payment shard)
+CREATE TABLE IF NOT EXISTS outbox_events (
+    event_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(40) NOT NULL,
+    aggregate_type VARCHAR(30) NOT NULL,
+    aggregate_id BIGINT NOT NULL,
+    payload VARCHAR(1000),
+    created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    published_at TIMESTAMP(3) NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    claimed_until TIMESTAMP(3) NULL,
+    parked_at TIMESTAMP(3) NULL,
+    INDEX idx_outbox_unpublished (published_at, event_id),
+    INDEX idx_outbox_claimable (published_at, parked_at, event_id, claimed_until)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
+-- Create cache invalidation change log (primary only; polled by every app node)
+CREATE TABLE IF NOT EXISTS cache_invalidations (
+    invalidation_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    entity_type VARCHAR(20) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    origin_node VARCHAR(64) NOT NULL,
+    created_millis BIGINT NOT NULL,
+    INDEX idx_cache_invalidations_created (created_millis)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Create archive tables for old enrollment and payment history (on the primary
+-- and on every enrollment/payment shard; no foreign keys, rows are only read)
+CREATE TABLE IF NOT EXISTS enrollments_archive (
+    enrollment_id BIGINT PRIMARY KEY,
+    student_id BIGINT NOT NULL,
+    course_id BIGINT NOT NULL,
+    enrollment_date TIMESTAMP NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    archived_at TIMESTAMP NOT NULL,
+    INDEX idx_enrollments_archive_student_date (student_id, enrollment_date),
+    INDEX idx_enrollments_archive_course (course_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE IF NOT EXISTS payments_archive (
+    payment_id BIGINT PRIMARY KEY,
+    student_id BIGINT NOT NULL,
+    course_id BIGINT NOT NULL,
+    amount DECIMAL(10, 2) NOT NULL,
+    payment_date TIMESTAMP NOT NULL,
+    payment_method VARCHAR(50) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    transaction_id VARCHAR(100),
+    archived_at TIMESTAMP NOT NULL,
+    INDEX idx_payments_archive_student_date (student_id, payment_date),
+    INDEX idx_payments_archive_course (course_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Create batch job checkpoints (primary only)
+CREATE TABLE IF NOT EXISTS job_checkpoints (
+    job_name VARCHAR(64) PRIMARY KEY,
+    checkpoint_value VARCHAR(255),
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Create scheduler leases and run history (primary only)
+CREATE TABLE IF NOT EXISTS job_leases (
+    job_name VARCHAR(64) PRIMARY KEY,
+    owner_node VARCHAR(64) NOT NULL,
+    lease_until BIGINT NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE IF NOT EXISTS job_runs (
+    run_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    job_name VARCHAR(64) NOT NULL,
+    node VARCHAR(64) NOT NULL,
+    started_at TIMESTAMP NOT NULL,
+    duration_millis BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    message VARCHAR(500),
+    INDEX idx_job_runs_started (started_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- =====================================================
+-- Indexes for DAO query shapes
+-- =====================================================
+-- The CREATE TABLE statements above already declare these indexes.
+-- For a database created before they were added, run once:
+--
+-- ALTER TABLE courses
+--     ADD INDEX idx_courses_name_seats (course_name, enrolled_count, capacity),
+--     ADD INDEX idx_courses_end_date (end_date);
+-- ALTER TABLE enrollments
+--     ADD INDEX idx_enrollments_student_date (student_id, enrollment_date),
+--     ADD INDEX idx_enrollments_course_status (course_id, status),
+--     ADD INDEX idx_enrollments_date (enrollment_date);
+-- ALTER TABLE payments
+--     ADD INDEX idx_payments_student_date (student_id, payment_date),
+--     ADD INDEX idx_payments_course_date (course_id, payment_date),
+--     ADD INDEX idx_payments_date (payment_date);
+-- ALTER TABLE outbox_events
+--     ADD COLUMN claimed_until TIMESTAMP(3) NULL,
+--     ADD COLUMN parked_at TIMESTAMP(3) NULL,
+--     ADD INDEX idx_outbox_claimable (published_at, parked_at, event_id, claimed_until);
+--
+-- Query shape -> index:
+--   Enrollment WHERE student_id = ? ORDER BY enrollment_date DESC -> idx_enrollments_student_date
+--   Enrollment WHERE student_id = ? AND course_id = ?            -> unique_enrollment
+--   COUNT(*) Enrollment WHERE course_id = ? AND status = 'ACTIVE' -> idx_enrollments_course_status (covering)
+--   Enrollment ORDER BY enrollment_date DESC                      -> idx_enrollments_date
+--   Payment WHERE student_id = ? ORDER BY payment_date DESC       -> idx_payments_student_date
+--   Payment WHERE course_id = ? ORDER BY payment_date DESC        -> idx_payments_course_date
+--   Payment ORDER BY payment_date DESC                            -> idx_payments_date
+--   Outbox WHERE published_at IS NULL AND parked_at IS NULL
+--     AND (claimed_until IS NULL OR claimed_until < ?) ORDER BY event_id -> idx_outbox_claimable
+--   Course ORDER BY course_name (optionally enrolled_count < capacity) -> idx_courses_name_seats (covering filter)
+--   Student WHERE email = ?                                       -> email UNIQUE
+--   Course WHERE end_date >= ? AND end_date < ? ORDER BY end_date -> idx_courses_end_date
+--
+-- Run `mvn -q compile exec:java -Dexec.mainClass=com.example.onlinecourse.tools.QueryPlanChecker`
+-- (or the class from an IDE) against a seeded database to verify the plans; it
+-- EXPLAINs the statements the DAO methods actually issue.
+
 -- =====================================================
 -- Dummy Data Insertion
 -- =====================================================
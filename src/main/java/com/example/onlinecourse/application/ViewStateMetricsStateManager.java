@@ -0,0 +1,82 @@
+package com.example.onlinecourse.application;
+
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.MetricsRegistry;
+import jakarta.faces.application.StateManager;
+import jakarta.faces.application.StateManagerWrapper;
+import jakarta.faces.component.UIViewRoot;
+import jakarta.faces.context.FacesContext;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * StateManager that measures the saved view state per view.
+ * Every n-th saved state (jsf.viewState.sampleEvery) is serialized into a
+ * byte counter and recorded as jsf.viewState./view/id (count, total, max).
+ * States above jsf.viewState.maxBytes are counted in jsf.viewState.overLimit and
+ * logged, so views that should be made transient or slimmer show up.
+ * Transient views save no state and are only counted.
+ */
+public class ViewStateMetricsStateManager extends StateManagerWrapper {
+    private static final AtomicLong saves = new AtomicLong();
+
+    private final int sampleEvery;
+    private final long maxBytes;
+
+    public ViewStateMetricsStateManager(StateManager wrapped) {
+        super(wrapped);
+        this.sampleEvery = Math.max(1, AppConfig.getInt("jsf.viewState.sampleEvery", 10));
+        this.maxBytes = AppConfig.getLong("jsf.viewState.maxBytes", 32768);
+    }
+
+    @Override
+    public Object saveView(FacesContext context) {
+        Object state = super.saveView(context);
+        UIViewRoot viewRoot = context.getViewRoot();
+        if (viewRoot == null) {
+            return state;
+        }
+        if (viewRoot.isTransient() || state == null) {
+            MetricsRegistry.increment("jsf.viewState.transient");
+            return state;
+        }
+        if (saves.incrementAndGet() % sampleEvery == 0 && state instanceof Serializable) {
+            long size = serializedSize((Serializable) state);
+            MetricsRegistry.recordValue("jsf.viewState." + viewRoot.getViewId(), size);
+            if (size > maxBytes) {
+                MetricsRegistry.increment("jsf.viewState.overLimit");
+                System.err.println("View state of " + viewRoot.getViewId() + " is " + size
+                        + " bytes (limit " + maxBytes + ")");
+            }
+        }
+        return state;
+    }
+
+    private static long serializedSize(Serializable state) {
+        CountingOutputStream counter = new CountingOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(counter)) {
+            out.writeObject(state);
+        } catch (IOException e) {
+            return -1;
+        }
+        return counter.count;
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
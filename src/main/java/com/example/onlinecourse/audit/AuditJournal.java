@@ -0,0 +1,369 @@
+package com.example.onlinecourse.audit;
+
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.MetricsRegistry;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local append-only journal of enrollment and payment status changes.
+ *
+ * The DAOs call enrollmentChanged / paymentChanged after their transaction has
+ * committed. The call only offers the record to a bounded queue: request threads
+ * never wait for the disk, and when the queue is full the record is dropped and
+ * counted (audit.dropped) rather than slowing down enrollments. One writer thread
+ * drains the queue in batches, assigns sequence numbers, chains each record's
+ * SHA-256 to the previous one and copies it into a memory-mapped segment file of
+ * audit.segmentRecords fixed-size slots (see AuditRecord). A full segment is
+ * forced to disk and a new one is started, named after its first sequence number.
+ * If a segment cannot be written, the rest of the batch is written once more to a
+ * new segment; records that fail again are counted as dropped.
+ *
+ * The fsync policy (audit.fsync) decides when the mapped pages are forced:
+ * "batch" forces after every drained batch, so many records share one fsync
+ * (group commit); "interval" forces at most every audit.fsyncIntervalMillis;
+ * "none" leaves it to the operating system. Records still in the queue or not
+ * yet forced are lost if the machine crashes.
+ *
+ * The chain alone only shows that records were not changed one at a time: whoever
+ * can write the files can also recompute every hash after an edit. So the writer
+ * publishes the head of the chain outside the journal, as an "Audit journal anchor"
+ * log line with the last sequence number and its hash, every
+ * audit.anchorIntervalMillis while records are written and when it stops. Logs are
+ * expected to be shipped off the node; the published anchors are passed to the
+ * verifier, which then also detects a rewritten or truncated journal.
+ *
+ * Each node writes its own journal under audit.dir. AuditJournalVerifier reads
+ * and verifies it offline.
+ *
+ * Metrics: audit.appended, audit.dropped, audit.fsync (time), audit.queueDepth (gauge),
+ * audit.anchors and audit.errors.
+ */
+public class AuditJournal {
+    private static final int MAX_SEGMENT_RECORDS = Integer.MAX_VALUE / AuditRecord.SIZE;
+
+    private static volatile BlockingQueue<AuditRecord> queue;
+    private static volatile boolean running;
+    private static Thread writerThread;
+
+    private AuditJournal() {
+    }
+
+    /**
+     * Open the journal and start the writer thread.
+     * A journal that cannot be opened is logged and left disabled.
+     */
+    public static synchronized void start() {
+        if (running || !AppConfig.getBoolean("audit.enabled", true)) {
+            return;
+        }
+        Writer writer;
+        try {
+            writer = new Writer(Paths.get(AppConfig.get("audit.dir", "audit")));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Audit journal disabled: " + e.getMessage());
+            return;
+        }
+        BlockingQueue<AuditRecord> records = new ArrayBlockingQueue<>(AppConfig.getInt("audit.queueCapacity", 65536));
+        MetricsRegistry.gauge("audit.queueDepth", records::size);
+        queue = records;
+        running = true;
+        writerThread = new Thread(() -> writer.run(records), "audit-journal-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Stop accepting records, write and force the queued ones and close the segment.
+     */
+    public static synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        queue = null;
+        try {
+            writerThread.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writerThread = null;
+    }
+
+    /**
+     * Journal an enrollment reaching a status.
+     *
+     * @param enrollmentId Enrollment ID
+     * @param studentId Student ID (may be null)
+     * @param courseId Course ID (may be null)
+     * @param status New status
+     */
+    public static void enrollmentChanged(Long enrollmentId, Long studentId, Long courseId, String status) {
+        append(new AuditRecord(0, System.currentTimeMillis(), AuditRecord.ENROLLMENT,
+                idOf(enrollmentId), idOf(studentId), idOf(courseId), 0, status));
+    }
+
+    /**
+     * Journal a payment reaching a status.
+     *
+     * @param paymentId Payment ID
+     * @param studentId Student ID (may be null)
+     * @param courseId Course ID (may be null)
+     * @param amount Amount (may be null)
+     * @param status New status
+     */
+    public static void paymentChanged(Long paymentId, Long studentId, Long courseId, BigDecimal amount,
+                                      String status) {
+        long cents = amount != null ? amount.movePointRight(2).longValue() : 0;
+        append(new AuditRecord(0, System.currentTimeMillis(), AuditRecord.PAYMENT,
+                idOf(paymentId), idOf(studentId), idOf(courseId), cents, status));
+    }
+
+    private static void append(AuditRecord record) {
+        BlockingQueue<AuditRecord> records = queue;
+        if (records == null) {
+            return;
+        }
+        if (!records.offer(record)) {
+            MetricsRegistry.increment("audit.dropped");
+        }
+    }
+
+    private static long idOf(Long id) {
+        return id != null ? id : 0;
+    }
+
+    /**
+     * State of the open segment; only touched by the writer thread.
+     */
+    private static final class Writer {
+        private final Path dir;
+        private final int segmentRecords;
+        private final String fsyncPolicy;
+        private final long fsyncIntervalMillis;
+        private final int batchSize;
+        private final long anchorIntervalMillis;
+        private final MessageDigest digest = AuditJournalReader.sha256();
+
+        private FileChannel channel;
+        private MappedByteBuffer buffer;
+        private int slots;
+        private int slot;
+        private long nextSeq;
+        private byte[] lastHash;
+        private boolean dirty;
+        private long lastForce = System.currentTimeMillis();
+        private long lastAnchor = System.currentTimeMillis();
+        private long anchoredSeq;
+
+        Writer(Path dir) throws IOException {
+            this.dir = dir;
+            this.segmentRecords = Math.max(1, Math.min(MAX_SEGMENT_RECORDS,
+                    AppConfig.getInt("audit.segmentRecords", 65536)));
+            this.fsyncPolicy = AppConfig.get("audit.fsync", "batch").trim().toLowerCase();
+            this.fsyncIntervalMillis = AppConfig.getLong("audit.fsyncIntervalMillis", 100);
+            this.batchSize = Math.max(1, AppConfig.getInt("audit.batchSize", 4096));
+            this.anchorIntervalMillis = AppConfig.getLong("audit.anchorIntervalMillis", 60000);
+            Files.createDirectories(dir);
+            recover();
+            anchoredSeq = nextSeq - 1;
+        }
+
+        /**
+         * Continue the journal after its last record.
+         * The last segment is verified: a final record whose hash does not match is a
+         * write torn by a crash and is overwritten; a break further back is left in
+         * place for the verifier to report, and writing continues after the last record.
+         */
+        private void recover() throws IOException {
+            List<Path> segments = AuditJournalReader.segments(dir);
+            if (segments.isEmpty()) {
+                nextSeq = 1;
+                lastHash = new byte[AuditRecord.HASH_SIZE];
+                return;
+            }
+            Path last = segments.get(segments.size() - 1);
+            byte[] previous = segments.size() > 1
+                    ? lastStoredHash(segments.get(segments.size() - 2)) : new byte[AuditRecord.HASH_SIZE];
+            AuditJournalReader.Result result =
+                    new AuditJournalReader.Result(AuditJournalReader.firstSeqOf(last), previous);
+            AuditJournalReader.scan(last, result, null);
+            map(last, Files.size(last) / AuditRecord.SIZE);
+
+            int lastUsed = lastUsedSlot(buffer, slots);
+            if (result.isValid()) {
+                slot = result.freeSlot;
+                nextSeq = result.getNextSeq();
+                lastHash = result.getLastHash();
+            } else if (result.failedSlot == lastUsed) {
+                System.err.println("Audit journal: discarding torn record at seq " + result.getProblemSeq());
+                for (int i = 0; i < AuditRecord.SIZE; i++) {
+                    buffer.put(result.failedSlot * AuditRecord.SIZE + i, (byte) 0);
+                }
+                slot = result.failedSlot;
+                nextSeq = result.getNextSeq();
+                lastHash = result.getLastHash();
+            } else {
+                System.err.println("Audit journal chain broken: " + result.getProblem());
+                MetricsRegistry.increment("audit.errors");
+                int offset = lastUsed * AuditRecord.SIZE;
+                slot = lastUsed + 1;
+                nextSeq = buffer.getLong(offset) + 1;
+                lastHash = AuditRecord.readHash(buffer, offset);
+            }
+        }
+
+        void run(BlockingQueue<AuditRecord> records) {
+            List<AuditRecord> batch = new ArrayList<>(batchSize);
+            while (running || !records.isEmpty()) {
+                try {
+                    AuditRecord first = records.poll(fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+                    if (first != null) {
+                        batch.add(first);
+                        records.drainTo(batch, batchSize - 1);
+                        writeBatch(batch);
+                    }
+                    if (dirty && ("batch".equals(fsyncPolicy) || ("interval".equals(fsyncPolicy)
+                            && System.currentTimeMillis() - lastForce >= fsyncIntervalMillis))) {
+                        force();
+                    }
+                    if (System.currentTimeMillis() - lastAnchor >= anchorIntervalMillis) {
+                        anchor();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (RuntimeException e) {
+                    System.err.println("Audit journal force failed: " + e.getMessage());
+                    MetricsRegistry.increment("audit.errors");
+                    // The next write starts a new segment
+                    close();
+                } finally {
+                    batch.clear();
+                }
+            }
+            close();
+            anchor();
+        }
+
+        /**
+         * Publish the head of the chain if records were written since the last anchor.
+         */
+        private void anchor() {
+            lastAnchor = System.currentTimeMillis();
+            if (nextSeq - 1 == anchoredSeq) {
+                return;
+            }
+            anchoredSeq = nextSeq - 1;
+            System.err.println("Audit journal anchor for " + dir.toAbsolutePath() + ": "
+                    + anchoredSeq + ":" + AuditRecord.toHex(lastHash));
+            MetricsRegistry.increment("audit.anchors");
+        }
+
+        /**
+         * Write a batch, retrying the records after a failed write once on a new segment.
+         */
+        private void writeBatch(List<AuditRecord> batch) {
+            int written = 0;
+            for (int attempt = 0; attempt < 2 && written < batch.size(); attempt++) {
+                try {
+                    while (written < batch.size()) {
+                        write(batch.get(written));
+                        written++;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Audit journal write failed: " + e.getMessage());
+                    MetricsRegistry.increment("audit.errors");
+                    // Forces the records written so far; the next write starts a new segment
+                    close();
+                }
+            }
+            MetricsRegistry.add("audit.appended", written);
+            if (written < batch.size()) {
+                MetricsRegistry.add("audit.dropped", batch.size() - written);
+            }
+        }
+
+        private void write(AuditRecord record) throws IOException {
+            if (buffer == null || slot == slots) {
+                roll();
+            }
+            int offset = slot * AuditRecord.SIZE;
+            record.writeBody(buffer, offset, nextSeq);
+            byte[] hash = AuditRecord.hash(digest, lastHash, buffer, offset);
+            AuditRecord.writeHash(buffer, offset, hash);
+            lastHash = hash;
+            nextSeq++;
+            slot++;
+            dirty = true;
+        }
+
+        /**
+         * Force and close the current segment and start a new one at the next sequence number.
+         */
+        private void roll() throws IOException {
+            close();
+            map(dir.resolve(AuditJournalReader.segmentName(nextSeq)), segmentRecords);
+            slot = 0;
+        }
+
+        private void map(Path segment, long records) throws IOException {
+            channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            slots = (int) records;
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) slots * AuditRecord.SIZE);
+        }
+
+        private void force() {
+            long start = System.nanoTime();
+            buffer.force();
+            dirty = false;
+            lastForce = System.currentTimeMillis();
+            MetricsRegistry.recordTime("audit.fsync", System.nanoTime() - start);
+        }
+
+        private void close() {
+            try {
+                if (buffer != null && dirty) {
+                    force();
+                }
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Audit journal segment not closed cleanly: " + e.getMessage());
+            }
+            channel = null;
+            buffer = null;
+        }
+
+        private static int lastUsedSlot(MappedByteBuffer buffer, int slots) {
+            int slot = slots - 1;
+            while (slot >= 0 && buffer.getLong(slot * AuditRecord.SIZE) == 0) {
+                slot--;
+            }
+            return slot;
+        }
+
+        private static byte[] lastStoredHash(Path segment) throws IOException {
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                int slot = lastUsedSlot(buffer, (int) (channel.size() / AuditRecord.SIZE));
+                return slot >= 0 ? AuditRecord.readHash(buffer, slot * AuditRecord.SIZE) : new byte[AuditRecord.HASH_SIZE];
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.onlinecourse.audit;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Sequential reader of the audit journal's segment files.
+ * Each segment is mapped read-only and walked slot by slot; every record is
+ * checked for the expected sequence number and its hash is recomputed from the
+ * previous one, so one pass both reads and verifies the chain.
+ */
+public class AuditJournalReader {
+    static final String SEGMENT_PREFIX = "audit-";
+    static final String SEGMENT_SUFFIX = ".seg";
+
+    private AuditJournalReader() {
+    }
+
+    /**
+     * List the segment files of a journal directory.
+     *
+     * @param dir Journal directory
+     * @return Segment files in sequence order (empty if the directory does not exist)
+     */
+    public static List<Path> segments(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            // Names carry the zero-padded first sequence number, so name order is sequence order
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    static String segmentName(long firstSeq) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX);
+    }
+
+    static long firstSeqOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Read and verify a whole journal.
+     *
+     * @param dir Journal directory
+     * @param consumer Receives every verified record in order (may be null)
+     * @return Outcome; stops at the first problem
+     */
+    public static Result verify(Path dir, Consumer<AuditRecord> consumer) throws IOException {
+        return verify(dir, Map.of(), consumer);
+    }
+
+    /**
+     * Read and verify a whole journal against published anchors (see AuditJournal).
+     * A journal whose chain was rebuilt after editing verifies on its own, but no
+     * longer matches the head hashes published while it was written.
+     *
+     * @param dir Journal directory
+     * @param anchors Published hash (hex) per sequence number
+     * @param consumer Receives every verified record in order (may be null)
+     * @return Outcome; stops at the first problem
+     */
+    public static Result verify(Path dir, Map<Long, String> anchors, Consumer<AuditRecord> consumer)
+            throws IOException {
+        Result result = new Result(1, new byte[AuditRecord.HASH_SIZE]);
+        result.anchors = anchors;
+        for (Path segment : segments(dir)) {
+            if (firstSeqOf(segment) != result.nextSeq) {
+                result.fail(result.nextSeq, segment.getFileName() + " starts at " + firstSeqOf(segment)
+                        + ", expected " + result.nextSeq);
+                return result;
+            }
+            scan(segment, result, consumer);
+            result.segments++;
+            if (result.problem != null) {
+                return result;
+            }
+        }
+        for (Long seq : anchors.keySet()) {
+            if (seq >= result.nextSeq) {
+                result.fail(seq, "journal ends at seq " + (result.nextSeq - 1) + " before anchored seq " + seq);
+                return result;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Read and verify one segment, continuing a result.
+     * Reading stops at the first free slot or the first record that breaks the chain.
+     *
+     * @param segment Segment file
+     * @param result Chain state so far; updated with the segment's records
+     * @param consumer Receives every verified record in order (may be null)
+     */
+    static void scan(Path segment, Result result, Consumer<AuditRecord> consumer) throws IOException {
+        MessageDigest digest = sha256();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int slots = (int) (channel.size() / AuditRecord.SIZE);
+            for (int slot = 0; slot < slots; slot++) {
+                int offset = slot * AuditRecord.SIZE;
+                long seq = buffer.getLong(offset);
+                if (seq == 0) {
+                    result.freeSlot = slot;
+                    return;
+                }
+                if (seq != result.nextSeq) {
+                    result.fail(result.nextSeq, segment.getFileName() + " slot " + slot + " holds seq " + seq
+                            + ", expected " + result.nextSeq);
+                    result.failedSlot = slot;
+                    return;
+                }
+                byte[] hash = AuditRecord.hash(digest, result.lastHash, buffer, offset);
+                if (!Arrays.equals(hash, AuditRecord.readHash(buffer, offset))) {
+                    result.fail(seq, segment.getFileName() + " slot " + slot + ": hash of seq " + seq
+                            + " does not match the chain");
+                    result.failedSlot = slot;
+                    return;
+                }
+                String anchor = result.anchors.get(seq);
+                if (anchor != null && !anchor.equalsIgnoreCase(AuditRecord.toHex(hash))) {
+                    result.fail(seq, segment.getFileName() + " slot " + slot + ": hash of seq " + seq
+                            + " does not match its published anchor");
+                    result.failedSlot = slot;
+                    return;
+                }
+                if (consumer != null) {
+                    consumer.accept(AuditRecord.read(buffer, offset));
+                }
+                result.lastHash = hash;
+                result.nextSeq++;
+                result.records++;
+            }
+            result.freeSlot = slots;
+        }
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Outcome of reading a journal: how far the chain verified and where it broke.
+     */
+    public static final class Result {
+        private long nextSeq;
+        private byte[] lastHash;
+        private long records;
+        private int segments;
+        private String problem;
+        private long problemSeq;
+        private Map<Long, String> anchors = Map.of();
+        // Position within the last segment read
+        int freeSlot = -1;
+        int failedSlot = -1;
+
+        Result(long nextSeq, byte[] lastHash) {
+            this.nextSeq = nextSeq;
+            this.lastHash = lastHash;
+        }
+
+        private void fail(long seq, String description) {
+            this.problemSeq = seq;
+            this.problem = description;
+        }
+
+        /**
+         * @return Sequence number the next record must have
+         */
+        public long getNextSeq() {
+            return nextSeq;
+        }
+
+        byte[] getLastHash() {
+            return lastHash;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        public int getSegments() {
+            return segments;
+        }
+
+        public boolean isValid() {
+            return problem == null;
+        }
+
+        /**
+         * @return Description of the first problem, or null if the chain verified
+         */
+        public String getProblem() {
+            return problem;
+        }
+
+        public long getProblemSeq() {
+            return problemSeq;
+        }
+    }
+}
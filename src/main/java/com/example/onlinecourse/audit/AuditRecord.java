@@ -0,0 +1,190 @@
+package com.example.onlinecourse.audit;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * One entry of the audit journal: an enrollment or payment reaching a status.
+ *
+ * Records are stored as fixed-size 128-byte slots, so a segment is an array that
+ * can be read with plain offset arithmetic:
+ *
+ * <pre>
+ *   0  seq          long   1-based, contiguous across segments (0 marks a free slot)
+ *   8  timestamp    long   epoch milliseconds
+ *  16  kind         byte   1 = enrollment, 2 = payment
+ *  24  entityId     long   enrollment or payment ID
+ *  32  studentId    long   0 if unknown
+ *  40  courseId     long   0 if unknown
+ *  48  amountCents  long   payments only
+ *  56  status       16 bytes ASCII, zero-padded
+ *  96  hash         32 bytes SHA-256(previous hash + bytes 0..95)
+ * </pre>
+ *
+ * The hash of the first record is computed over 32 zero bytes as its previous hash.
+ */
+public final class AuditRecord {
+    public static final int SIZE = 128;
+    public static final int HASH_OFFSET = 96;
+    public static final int HASH_SIZE = 32;
+
+    public static final byte ENROLLMENT = 1;
+    public static final byte PAYMENT = 2;
+
+    private static final int STATUS_OFFSET = 56;
+    private static final int STATUS_SIZE = 16;
+
+    private final long seq;
+    private final long timestamp;
+    private final byte kind;
+    private final long entityId;
+    private final long studentId;
+    private final long courseId;
+    private final long amountCents;
+    private final String status;
+
+    public AuditRecord(long seq, long timestamp, byte kind, long entityId, long studentId, long courseId,
+                       long amountCents, String status) {
+        this.seq = seq;
+        this.timestamp = timestamp;
+        this.kind = kind;
+        this.entityId = entityId;
+        this.studentId = studentId;
+        this.courseId = courseId;
+        this.amountCents = amountCents;
+        this.status = status;
+    }
+
+    /**
+     * Write the record's fields (bytes 0..95) at an offset; the hash is written separately.
+     *
+     * @param buffer Target buffer
+     * @param offset Offset of the slot
+     * @param seq Sequence number assigned by the journal writer
+     */
+    void writeBody(ByteBuffer buffer, int offset, long seq) {
+        buffer.putLong(offset, seq);
+        buffer.putLong(offset + 8, timestamp);
+        buffer.put(offset + 16, kind);
+        for (int i = 17; i < 24; i++) {
+            buffer.put(offset + i, (byte) 0);
+        }
+        buffer.putLong(offset + 24, entityId);
+        buffer.putLong(offset + 32, studentId);
+        buffer.putLong(offset + 40, courseId);
+        buffer.putLong(offset + 48, amountCents);
+        byte[] statusBytes = status != null ? status.getBytes(StandardCharsets.US_ASCII) : new byte[0];
+        for (int i = 0; i < HASH_OFFSET - STATUS_OFFSET; i++) {
+            buffer.put(offset + STATUS_OFFSET + i,
+                    i < Math.min(statusBytes.length, STATUS_SIZE) ? statusBytes[i] : 0);
+        }
+    }
+
+    /**
+     * Read the record in a slot.
+     *
+     * @param buffer Source buffer
+     * @param offset Offset of the slot
+     * @return Record (seq 0 for a free slot)
+     */
+    public static AuditRecord read(ByteBuffer buffer, int offset) {
+        byte[] statusBytes = new byte[STATUS_SIZE];
+        int length = 0;
+        for (; length < STATUS_SIZE; length++) {
+            statusBytes[length] = buffer.get(offset + STATUS_OFFSET + length);
+            if (statusBytes[length] == 0) {
+                break;
+            }
+        }
+        return new AuditRecord(buffer.getLong(offset), buffer.getLong(offset + 8), buffer.get(offset + 16),
+                buffer.getLong(offset + 24), buffer.getLong(offset + 32), buffer.getLong(offset + 40),
+                buffer.getLong(offset + 48), new String(Arrays.copyOf(statusBytes, length), StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Compute the chain hash of the record in a slot.
+     *
+     * @param digest SHA-256 digest (reset after use)
+     * @param previous Hash of the previous record
+     * @param buffer Buffer holding the slot
+     * @param offset Offset of the slot
+     * @return Hash of the slot's bytes 0..95 chained to the previous hash
+     */
+    static byte[] hash(MessageDigest digest, byte[] previous, ByteBuffer buffer, int offset) {
+        ByteBuffer body = buffer.duplicate();
+        body.limit(offset + HASH_OFFSET).position(offset);
+        digest.update(previous);
+        digest.update(body);
+        return digest.digest();
+    }
+
+    static byte[] readHash(ByteBuffer buffer, int offset) {
+        byte[] hash = new byte[HASH_SIZE];
+        for (int i = 0; i < HASH_SIZE; i++) {
+            hash[i] = buffer.get(offset + HASH_OFFSET + i);
+        }
+        return hash;
+    }
+
+    static void writeHash(ByteBuffer buffer, int offset, byte[] hash) {
+        for (int i = 0; i < HASH_SIZE; i++) {
+            buffer.put(offset + HASH_OFFSET + i, hash[i]);
+        }
+    }
+
+    static String toHex(byte[] hash) {
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public byte getKind() {
+        return kind;
+    }
+
+    public long getEntityId() {
+        return entityId;
+    }
+
+    public long getStudentId() {
+        return studentId;
+    }
+
+    public long getCourseId() {
+        return courseId;
+    }
+
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return "AuditRecord{" +
+                "seq=" + seq +
+                ", timestamp=" + timestamp +
+                ", kind=" + (kind == ENROLLMENT ? "ENROLLMENT" : kind == PAYMENT ? "PAYMENT" : String.valueOf(kind)) +
+                ", entityId=" + entityId +
+                ", studentId=" + studentId +
+                ", courseId=" + courseId +
+                ", amountCents=" + amountCents +
+                ", status='" + status + '\'' +
+                '}';
+    }
+}
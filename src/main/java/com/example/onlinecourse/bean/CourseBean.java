@@ -1,7 +1,15 @@
 package com.example.onlinecourse.bean;
 
+import com.example.onlinecourse.cache.CatalogVersions;
 import com.example.onlinecourse.entity.Course;
+import com.example.onlinecourse.service.CourseFacetIndex;
 import com.example.onlinecourse.service.CourseService;
+import com.example.onlinecourse.service.FacetedCourses;
+import com.example.onlinecourse.service.TrendingCourse;
+import com.example.onlinecourse.service.TrendingCourses;
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.session.CatalogCursor;
+import com.example.onlinecourse.session.SessionStateCodec;
 import com.example.onlinecourse.util.DateFormatter;
 
 import jakarta.faces.application.FacesMessage;
@@ -9,37 +17,55 @@ import jakarta.faces.context.FacesContext;
 import jakarta.faces.event.ComponentSystemEvent;
 import jakarta.inject.Named;
 import jakarta.enterprise.context.SessionScoped;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * JSF Managed Bean for Course operations.
- * Handles course listing, details, and search.
+ * Handles course listing, details, search and facet filters.
+ * The session keeps only the catalog cursor (search, facet filters and open course);
+ * the course list and selected course are reloaded from it after replication.
  */
 @Named("courseBean")
 @jakarta.enterprise.context.SessionScoped
 public class CourseBean implements Serializable {
     private static final long serialVersionUID = 1L;
 
-    private CourseService courseService;
-    private List<Course> courses;
-    private Course selectedCourse;
-    private String searchTerm;
-    private Long courseId;
+    // All fields are transient: writeObject stores the catalog cursor,
+    // everything else is form input or reloaded on demand
+    private transient CourseService courseService;
+    private transient List<Course> courses;
+    private transient Course selectedCourse;
+    private transient String searchTerm;
+    private transient Long courseId;
+
+    // Catalog version the course list was loaded at and how it was loaded,
+    // so the list can be refreshed when the catalog changes
+    private transient long coursesVersion;
+    private transient String loadedSearchTerm;
+    private transient Map<String, String> facetFilters;
+    // Facet counts for facetFilters, loaded with the course list or on first access
+    private transient FacetedCourses facetedCourses;
 
     // For course creation (admin functionality)
-    private String courseName;
-    private String description;
-    private String instructor;
-    private Date startDate;
-    private Date endDate;
-    private BigDecimal fee;
-    private Integer capacity;
+    private transient String courseName;
+    private transient String description;
+    private transient String instructor;
+    private transient Date startDate;
+    private transient Date endDate;
+    private transient BigDecimal fee;
+    private transient Integer capacity;
 
     public CourseBean() {
         this.courseService = new CourseService();
+        this.facetFilters = new LinkedHashMap<>();
         loadCourses();
     }
 
@@ -63,8 +89,13 @@ public class CourseBean implements Serializable {
             }
         }
         
-        if (courseId != null && (selectedCourse == null || !selectedCourse.getCourseId().equals(courseId))) {
+        // Always look up the course: the lookup is coalesced and cached, and the
+        // details page caches markup per course version, so it must render current data
+        if (courseId != null) {
             selectedCourse = courseService.getCourseById(courseId);
+            if (selectedCourse != null && !FacesContext.getCurrentInstance().isPostback()) {
+                TrendingCourses.courseViewed(courseId);
+            }
             if (selectedCourse == null) {
                 FacesContext.getCurrentInstance().addMessage(null,
                         new FacesMessage(FacesMessage.SEVERITY_ERROR, "Error", "Course not found with ID: " + courseId));
@@ -79,14 +110,92 @@ public class CourseBean implements Serializable {
      * Load all courses.
      */
     public void loadCourses() {
-        courses = courseService.getAllCourses();
+        facetFilters.clear();
+        applyFacetFilters();
     }
 
     /**
      * Load available courses only.
      */
     public void loadAvailableCourses() {
-        courses = courseService.getAvailableCourses();
+        facetFilters.clear();
+        facetFilters.put(CourseFacetIndex.AVAILABILITY, CourseFacetIndex.OPEN);
+        applyFacetFilters();
+    }
+
+    /**
+     * Select a facet value, or clear it if it is already selected.
+     * Facet filters apply to the whole catalog, so an active search is cleared.
+     *
+     * @param facet Facet name
+     * @param key Value key
+     */
+    public void toggleFacet(String facet, String key) {
+        if (key.equals(facetFilters.get(facet))) {
+            facetFilters.remove(facet);
+        } else {
+            facetFilters.put(facet, key);
+        }
+        applyFacetFilters();
+    }
+
+    /**
+     * Get the values of a facet with their course counts.
+     *
+     * @param facet Facet name
+     * @return Facet values
+     */
+    public List<FacetedCourses.Value> getFacetValues(String facet) {
+        refreshCoursesIfChanged();
+        if (facetedCourses == null) {
+            facetedCourses = courseService.getFacetedCourses(facetFilters);
+        }
+        return facetedCourses.getValues(facet);
+    }
+
+    public boolean isFiltered() {
+        return !facetFilters.isEmpty();
+    }
+
+    /**
+     * Whether the courses shown may be out of date because the database is unavailable.
+     *
+     * @return true if the last catalog snapshot is served
+     */
+    public boolean isCatalogStale() {
+        return CourseService.isCatalogStale();
+    }
+
+    /**
+     * Get the courses that students of the selected course also enrolled in.
+     *
+     * @return Recommended courses, empty if there are none yet
+     */
+    public List<Course> getRecommendedCourses() {
+        Course course = getSelectedCourse();
+        if (course == null) {
+            return List.of();
+        }
+        return courseService.getRecommendedCourses(course.getCourseId(),
+                AppConfig.getInt("recommendations.count", 4));
+    }
+
+    /**
+     * Get the trending courses for the home page.
+     *
+     * @return Trending courses, at most trending.homeCount
+     */
+    public List<TrendingCourse> getTrendingCourses() {
+        return courseService.getTrendingCourses(AppConfig.getInt("trending.homeCount", 4));
+    }
+
+    /**
+     * Get the full trending ranking with its counts for the admin page.
+     *
+     * @return Trending courses
+     */
+    public List<TrendingCourse> getTrendingRanking() {
+        return courseService.getTrendingCourses(Integer.MAX_VALUE);
     }
 
     /**
@@ -94,6 +203,10 @@ public class CourseBean implements Serializable {
      */
     public void searchCourses() {
         if (searchTerm != null && !searchTerm.trim().isEmpty()) {
+            coursesVersion = CatalogVersions.getCatalogVersion();
+            loadedSearchTerm = searchTerm;
+            facetFilters.clear();
+            facetedCourses = null;
             courses = courseService.searchCourses(searchTerm);
         } else {
             loadCourses();
@@ -106,9 +219,7 @@ public class CourseBean implements Serializable {
      * @return Total course count
      */
     public int getTotalCoursesCount() {
-        if (courses == null) {
-            loadCourses();
-        }
+        refreshCoursesIfChanged();
         return courses != null ? courses.size() : 0;
     }
 
@@ -118,9 +229,7 @@ public class CourseBean implements Serializable {
      * @return Available course count
      */
     public int getAvailableCoursesCount() {
-        if (courses == null) {
-            loadCourses();
-        }
+        refreshCoursesIfChanged();
         if (courses == null) {
             return 0;
         }
@@ -230,13 +339,15 @@ public class CourseBean implements Serializable {
                 return null;
             }
 
-            Course course = courseService.getCourseById(courseId);
-            if (course == null) {
+            if (courseService.getCourseById(courseId) == null) {
                 FacesContext.getCurrentInstance().addMessage(null,
                         new FacesMessage(FacesMessage.SEVERITY_ERROR, "Error", "Course not found"));
                 return null;
             }
 
+            // Only the edited details; the course row itself is loaded by the update
+            Course course = new Course();
+            course.setCourseId(courseId);
             course.setCourseName(courseName);
             course.setDescription(description);
             course.setInstructor(instructor);
@@ -272,6 +383,14 @@ public class CourseBean implements Serializable {
                     .getRequestParameterMap().get("courseId");
             if (courseIdParam != null && !courseIdParam.isEmpty()) {
                 Long id = Long.parseLong(courseIdParam);
+                long dependents = courseService.countDependents(id);
+                if (dependents > AppConfig.getLong("delete.backgroundThreshold", 5000)) {
+                    courseService.deleteCourseInBackground(id, dependents);
+                    FacesContext.getCurrentInstance().addMessage(null,
+                            new FacesMessage(FacesMessage.SEVERITY_INFO, "Deletion started",
+                                    "The course and its " + dependents + " enrollments and payments are being deleted in the background."));
+                    return "admin?faces-redirect=true";
+                }
                 courseService.deleteCourse(id);
                 FacesContext.getCurrentInstance().addMessage(null,
                         new FacesMessage(FacesMessage.SEVERITY_INFO, "Success", "Course deleted successfully!"));
@@ -317,8 +436,36 @@ public class CourseBean implements Serializable {
         capacity = null;
     }
 
+    /**
+     * Reload the course list the same way it was last loaded if the catalog
+     * has changed since then.
+     */
+    private void refreshCoursesIfChanged() {
+        if (courses != null && coursesVersion == CatalogVersions.getCatalogVersion()) {
+            return;
+        }
+        if (loadedSearchTerm != null) {
+            coursesVersion = CatalogVersions.getCatalogVersion();
+            facetedCourses = null;
+            courses = courseService.searchCourses(loadedSearchTerm);
+        } else {
+            applyFacetFilters();
+        }
+    }
+
+    /**
+     * Load the courses matching the facet filters from the facet index.
+     */
+    private void applyFacetFilters() {
+        coursesVersion = CatalogVersions.getCatalogVersion();
+        loadedSearchTerm = null;
+        facetedCourses = courseService.getFacetedCourses(facetFilters);
+        courses = facetedCourses.getCourses();
+    }
+
     // Getters and Setters
     public List<Course> getCourses() {
+        refreshCoursesIfChanged();
         return courses;
     }
 
@@ -327,6 +474,9 @@ public class CourseBean implements Serializable {
     }
 
     public Course getSelectedCourse() {
+        if (selectedCourse == null && courseId != null) {
+            selectedCourse = courseService.getCourseById(courseId);
+        }
         return selectedCourse;
     }
 
@@ -415,5 +565,27 @@ public class CourseBean implements Serializable {
     public void setCourseId(Long courseId) {
         this.courseId = courseId;
     }
-}
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        // available_only is still written for nodes that do not know the facet filters
+        boolean availableOnly = facetFilters.size() == 1
+                && CourseFacetIndex.OPEN.equals(facetFilters.get(CourseFacetIndex.AVAILABILITY));
+        SessionStateCodec.writeBlock(out, SessionStateCodec.encodeCatalogCursor(
+                new CatalogCursor(searchTerm, loadedSearchTerm, availableOnly, courseId, facetFilters)));
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        CatalogCursor cursor = SessionStateCodec.decodeCatalogCursor(SessionStateCodec.readBlock(in));
+        searchTerm = cursor.getSearchTerm();
+        loadedSearchTerm = cursor.getLoadedSearchTerm();
+        facetFilters = new LinkedHashMap<>(cursor.getFacetFilters());
+        if (cursor.isAvailableOnly() && facetFilters.isEmpty()) {
+            facetFilters.put(CourseFacetIndex.AVAILABILITY, CourseFacetIndex.OPEN);
+        }
+        courseId = cursor.getCourseId();
+        // The course list is reloaded on first access
+        courseService = new CourseService();
+    }
+}
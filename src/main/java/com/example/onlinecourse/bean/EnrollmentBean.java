@@ -1,9 +1,16 @@
 package com.example.onlinecourse.bean;
 
+import com.example.onlinecourse.dao.BulkEnrollmentResult;
+import com.example.onlinecourse.dao.ScheduleConflict;
+import com.example.onlinecourse.entity.Course;
 import com.example.onlinecourse.entity.Enrollment;
 import com.example.onlinecourse.entity.Student;
+import com.example.onlinecourse.service.CourseService;
+import com.example.onlinecourse.service.EnrollmentIntent;
+import com.example.onlinecourse.service.EnrollmentIntents;
 import com.example.onlinecourse.service.EnrollmentService;
 import com.example.onlinecourse.service.StudentService;
+import com.example.onlinecourse.util.CircuitBreaker;
 import com.example.onlinecourse.util.DateFormatter;
 import com.example.onlinecourse.bean.CourseBean;
 
@@ -12,8 +19,14 @@ import jakarta.faces.view.ViewScoped;
 import jakarta.faces.context.FacesContext;
 import jakarta.inject.Named;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * JSF Managed Bean for Enrollment operations.
@@ -30,6 +43,13 @@ public class EnrollmentBean implements Serializable {
     private List<Enrollment> allEnrollments;
     private Long selectedCourseId;
     private Long selectedEnrollmentId;
+    private boolean includeHistory;
+    private Long cohortCourseId;
+    private String cohortRoster;
+    private BulkEnrollmentResult cohortResult;
+    private List<String> cohortProblems;
+    private List<ScheduleConflict> scheduleConflicts;
+    private boolean enrollmentsUnavailable;
 
     public EnrollmentBean() {
         this.enrollmentService = new EnrollmentService();
@@ -42,6 +62,16 @@ public class EnrollmentBean implements Serializable {
      * @return Student entity
      */
     private Student getCurrentStudent() {
+        StudentBean studentBean = getStudentBean();
+        return studentBean != null ? studentBean.getCurrentStudent() : null;
+    }
+
+    /**
+     * Get the session's StudentBean.
+     *
+     * @return StudentBean or null
+     */
+    private StudentBean getStudentBean() {
         try {
             StudentBean studentBean = (StudentBean) FacesContext.getCurrentInstance()
                     .getExternalContext().getSessionMap().get("studentBean");
@@ -50,7 +80,7 @@ public class EnrollmentBean implements Serializable {
                 studentBean = FacesContext.getCurrentInstance().getApplication()
                         .evaluateExpressionGet(FacesContext.getCurrentInstance(), "#{studentBean}", StudentBean.class);
             }
-            return studentBean != null ? studentBean.getCurrentStudent() : null;
+            return studentBean;
         } catch (Exception e) {
             return null;
         }
@@ -58,12 +88,81 @@ public class EnrollmentBean implements Serializable {
 
     /**
      * Load enrollments for current student.
+     * While the database is unreachable the list is left empty and flagged, so the
+     * dashboard can still show pending enrollment requests.
      */
     public void loadEnrollments() {
         Student student = getCurrentStudent();
         if (student != null) {
-            enrollments = enrollmentService.getEnrollmentsByStudent(student.getStudentId());
+            try {
+                enrollments = enrollmentService.getEnrollmentsByStudent(student.getStudentId(), includeHistory);
+                enrollmentsUnavailable = false;
+            } catch (RuntimeException e) {
+                if (!CircuitBreaker.isDatabaseFailure(e)) {
+                    throw e;
+                }
+                System.err.println("Enrollments not loaded: " + e.getMessage());
+                enrollments = new ArrayList<>();
+                enrollmentsUnavailable = true;
+            }
+        }
+    }
+
+    public boolean isEnrollmentsUnavailable() {
+        return enrollmentsUnavailable;
+    }
+
+    /**
+     * Get the current student's enrollment requests waiting to be written.
+     *
+     * @return Pending intents, oldest first
+     */
+    public List<EnrollmentIntent> getPendingIntents() {
+        Student student = getCurrentStudent();
+        return student != null ? EnrollmentIntents.getPending(student.getStudentId()) : new ArrayList<>();
+    }
+
+    /**
+     * Get the current student's queued requests that could not be enrolled.
+     *
+     * @return Rejected intents of the last day
+     */
+    public List<EnrollmentIntent> getRejectedIntents() {
+        Student student = getCurrentStudent();
+        return student != null ? EnrollmentIntents.getRecentlyRejected(student.getStudentId()) : new ArrayList<>();
+    }
+
+    /**
+     * Get a course's name for display, from the course cache.
+     *
+     * @param courseId Course ID
+     * @return Course name, or a placeholder if the course cannot be loaded
+     */
+    public String courseNameOf(Long courseId) {
+        try {
+            Course course = new CourseService().getCourseById(courseId);
+            if (course != null) {
+                return course.getCourseName();
+            }
+        } catch (RuntimeException e) {
+            // Database unavailable and course not cached
         }
+        return "Course #" + courseId;
+    }
+
+    /**
+     * Show or hide archived enrollments in the student's list.
+     *
+     * @return Navigation outcome
+     */
+    public String toggleHistory() {
+        includeHistory = !includeHistory;
+        enrollments = null;
+        return null;
+    }
+
+    public boolean isIncludeHistory() {
+        return includeHistory;
     }
 
     /**
@@ -104,19 +203,37 @@ public class EnrollmentBean implements Serializable {
                 return null;
             }
 
-            Enrollment enrollment = enrollmentService.enrollStudent(student.getStudentId(), courseId);
+            Enrollment enrollment = enrollmentService.enrollStudentOrQueue(student.getStudentId(), courseId);
+            if (enrollment == null) {
+                FacesContext.getCurrentInstance().getExternalContext().getSessionMap()
+                    .put("enrollmentSuccess", true);
+                FacesContext.getCurrentInstance().getExternalContext().getSessionMap()
+                    .put("enrollmentMessage", "Your enrollment in " + courseNameOf(courseId)
+                            + " is pending: we are experiencing high load and will confirm it within a few minutes."
+                            + " You can follow it on your dashboard.");
+                return "dashboard?faces-redirect=true";
+            }
+            StudentBean studentBean = getStudentBean();
+            if (studentBean != null) {
+                studentBean.markEnrolled(courseId);
+            }
             
             // Get course name for success message
             com.example.onlinecourse.service.CourseService courseService = 
                 new com.example.onlinecourse.service.CourseService();
-            com.example.onlinecourse.entity.Course course = courseService.getCourseById(courseId);
+            Course course = courseService.getCourseById(courseId);
             String courseName = course != null ? course.getCourseName() : "the course";
-            
+            String message = "You have successfully enrolled in " + courseName + "! Proceed to payment. Enjoy learning! 🎓";
+            String conflicts = findConflictWarning(student.getStudentId(), courseId);
+            if (conflicts != null) {
+                message += " Note: its dates overlap with " + conflicts + ".";
+            }
+
             // Store success message in session for toast notification
             FacesContext.getCurrentInstance().getExternalContext().getSessionMap()
                 .put("enrollmentSuccess", true);
             FacesContext.getCurrentInstance().getExternalContext().getSessionMap()
-                .put("enrollmentMessage", "You have successfully enrolled in " + courseName + "! Proceed to payment. Enjoy learning! 🎓");
+                .put("enrollmentMessage", message);
 
             // Reload enrollments to update the list
             enrollments = null;
@@ -153,7 +270,11 @@ public class EnrollmentBean implements Serializable {
             }
 
             Long enrollmentId = Long.parseLong(enrollmentIdParam);
-            enrollmentService.cancelEnrollment(enrollmentId);
+            Enrollment cancelled = enrollmentService.cancelEnrollment(enrollmentId);
+            StudentBean studentBean = getStudentBean();
+            if (studentBean != null && cancelled.getCourse() != null) {
+                studentBean.markUnenrolled(cancelled.getCourse().getCourseId());
+            }
             
             FacesContext.getCurrentInstance().addMessage(null,
                     new FacesMessage(FacesMessage.SEVERITY_INFO, "Success", "Enrollment cancelled successfully!"));
@@ -172,6 +293,129 @@ public class EnrollmentBean implements Serializable {
         }
     }
 
+    /**
+     * Enroll the students of the roster in the chosen course (admin function).
+     * The roster lists student IDs or emails separated by commas, spaces or new lines.
+     *
+     * @return Navigation outcome
+     */
+    public String enrollCohort() {
+        StudentBean studentBean = getStudentBean();
+        if (studentBean == null || !studentBean.isAdmin()) {
+            FacesContext.getCurrentInstance().addMessage(null,
+                    new FacesMessage(FacesMessage.SEVERITY_ERROR, "Error", "Access denied"));
+            return null;
+        }
+        if (cohortCourseId == null) {
+            FacesContext.getCurrentInstance().addMessage(null,
+                    new FacesMessage(FacesMessage.SEVERITY_ERROR, "Error", "Course ID is required"));
+            return null;
+        }
+
+        List<String> problems = new ArrayList<>();
+        List<Long> studentIds = new ArrayList<>();
+        Set<String> emails = new LinkedHashSet<>();
+        List<String> entries = new ArrayList<>();
+        for (String entry : (cohortRoster != null ? cohortRoster : "").split("[,;\\s]+")) {
+            if (!entry.isEmpty()) {
+                entries.add(entry);
+                if (entry.indexOf('@') > 0) {
+                    emails.add(entry.toLowerCase());
+                }
+            }
+        }
+        Map<String, Long> idsByEmail = new HashMap<>();
+        for (Map.Entry<String, Long> found : enrollmentService.findStudentIdsByEmails(emails).entrySet()) {
+            idsByEmail.put(found.getKey().toLowerCase(), found.getValue());
+        }
+        // Keep the roster order, which decides who gets the last seats
+        for (String entry : entries) {
+            if (entry.indexOf('@') > 0) {
+                Long studentId = idsByEmail.get(entry.toLowerCase());
+                if (studentId != null) {
+                    studentIds.add(studentId);
+                } else {
+                    problems.add(entry + ": no student with this email");
+                }
+            } else {
+                try {
+                    studentIds.add(Long.parseLong(entry));
+                } catch (NumberFormatException e) {
+                    problems.add(entry + ": not a student ID or email");
+                }
+            }
+        }
+
+        try {
+            cohortResult = studentIds.isEmpty() ? null : enrollmentService.enrollStudents(cohortCourseId, studentIds);
+        } catch (Exception e) {
+            FacesContext.getCurrentInstance().addMessage(null,
+                    new FacesMessage(FacesMessage.SEVERITY_ERROR, "Error", e.getMessage()));
+            return null;
+        }
+        if (cohortResult != null) {
+            for (Map.Entry<Long, BulkEnrollmentResult.Outcome> rejection : cohortResult.getRejections().entrySet()) {
+                List<ScheduleConflict> conflicts = cohortResult.getConflicts().get(rejection.getKey());
+                problems.add("Student " + rejection.getKey() + ": " + rejection.getValue()
+                        + (conflicts != null ? " (overlaps " + conflicts.stream()
+                        .map(ScheduleConflict::getOtherCourseName).collect(Collectors.joining(", ")) + ")" : ""));
+            }
+        }
+        cohortProblems = problems;
+        int enrolled = cohortResult != null ? cohortResult.getEnrolledCount() : 0;
+        FacesContext.getCurrentInstance().addMessage(null, new FacesMessage(
+                problems.isEmpty() ? FacesMessage.SEVERITY_INFO : FacesMessage.SEVERITY_WARN,
+                problems.isEmpty() ? "Success" : "Partly done",
+                enrolled + " student(s) enrolled" + (problems.isEmpty() ? "" : ", " + problems.size() + " not enrolled")));
+        if (enrolled > 0) {
+            cohortRoster = null;
+            allEnrollments = null;
+        }
+        return null;
+    }
+
+    /**
+     * Get the schedule conflict warning for a new enrollment.
+     * The enrollment is already stored, so a failed check only loses the warning.
+     *
+     * @param studentId Student ID
+     * @param courseId Course ID
+     * @return Names of the overlapping courses, or null
+     */
+    private String findConflictWarning(Long studentId, Long courseId) {
+        try {
+            return enrollmentService.describeScheduleConflicts(studentId, courseId);
+        } catch (Exception e) {
+            System.err.println("Schedule conflict check failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Run the schedule conflict report over all active enrollments (admin only).
+     *
+     * @return Navigation outcome
+     */
+    public String findScheduleConflicts() {
+        StudentBean studentBean = getStudentBean();
+        if (studentBean == null || !studentBean.isAdmin()) {
+            return null;
+        }
+        try {
+            scheduleConflicts = enrollmentService.findAllScheduleConflicts();
+            FacesContext.getCurrentInstance().addMessage(null, new FacesMessage(FacesMessage.SEVERITY_INFO,
+                    "Done", scheduleConflicts.size() + " schedule conflict(s) found"));
+        } catch (Exception e) {
+            FacesContext.getCurrentInstance().addMessage(null,
+                    new FacesMessage(FacesMessage.SEVERITY_ERROR, "Error", e.getMessage()));
+        }
+        return null;
+    }
+
+    public List<ScheduleConflict> getScheduleConflicts() {
+        return scheduleConflicts;
+    }
+
     /**
      * Check if student is enrolled in a course.
      *
@@ -179,11 +423,8 @@ public class EnrollmentBean implements Serializable {
      * @return true if enrolled
      */
     public boolean isEnrolled(Long courseId) {
-        Student student = getCurrentStudent();
-        if (student == null) {
-            return false;
-        }
-        return enrollmentService.isEnrolled(student.getStudentId(), courseId);
+        StudentBean studentBean = getStudentBean();
+        return studentBean != null && studentBean.isEnrolledIn(courseId);
     }
 
     /**
@@ -235,6 +476,30 @@ public class EnrollmentBean implements Serializable {
         this.selectedCourseId = selectedCourseId;
     }
 
+    public Long getCohortCourseId() {
+        return cohortCourseId;
+    }
+
+    public void setCohortCourseId(Long cohortCourseId) {
+        this.cohortCourseId = cohortCourseId;
+    }
+
+    public String getCohortRoster() {
+        return cohortRoster;
+    }
+
+    public void setCohortRoster(String cohortRoster) {
+        this.cohortRoster = cohortRoster;
+    }
+
+    public BulkEnrollmentResult getCohortResult() {
+        return cohortResult;
+    }
+
+    public List<String> getCohortProblems() {
+        return cohortProblems;
+    }
+
     public Long getSelectedEnrollmentId() {
         return selectedEnrollmentId;
     }
@@ -1,5 +1,6 @@
 package com.example.onlinecourse.bean;
 
+import com.example.onlinecourse.dao.FetchPlan;
 import com.example.onlinecourse.dao.PaymentDAO;
 import com.example.onlinecourse.entity.Course;
 import com.example.onlinecourse.entity.Payment;
@@ -38,6 +39,7 @@ public class PaymentBean implements Serializable {
     private String transactionId;
     private Long paymentId;
     private Payment confirmedPayment;
+    private boolean includeHistory;
 
     public PaymentBean() {
         this.paymentDAO = new PaymentDAO();
@@ -110,10 +112,25 @@ public class PaymentBean implements Serializable {
     public void loadPayments() {
         Student student = getCurrentStudent();
         if (student != null) {
-            payments = paymentDAO.findByStudentId(student.getStudentId());
+            payments = paymentDAO.findByStudentId(student.getStudentId(), FetchPlan.WITH_COURSE, includeHistory);
         }
     }
 
+    /**
+     * Show or hide archived payments in the student's history.
+     *
+     * @return Navigation outcome
+     */
+    public String toggleHistory() {
+        includeHistory = !includeHistory;
+        payments = null;
+        return null;
+    }
+
+    public boolean isIncludeHistory() {
+        return includeHistory;
+    }
+
     /**
      * Process payment.
      *
@@ -282,17 +299,11 @@ public class PaymentBean implements Serializable {
             return java.math.BigDecimal.ZERO;
         }
         
-        // Get active enrollments for the student
+        // Get the course IDs of the student's active enrollments (ID projection, no entities)
         com.example.onlinecourse.service.EnrollmentService enrollmentService = 
             new com.example.onlinecourse.service.EnrollmentService();
-        java.util.List<com.example.onlinecourse.entity.Enrollment> activeEnrollments = 
-            enrollmentService.getEnrollmentsByStudent(student.getStudentId());
-        
-        // Create a set of course IDs for active enrollments
-        java.util.Set<Long> activeCourseIds = activeEnrollments.stream()
-            .filter(e -> e.getStatus() == com.example.onlinecourse.entity.Enrollment.EnrollmentStatus.ACTIVE)
-            .map(e -> e.getCourse().getCourseId())
-            .collect(java.util.stream.Collectors.toSet());
+        com.example.onlinecourse.util.LongHashSet activeCourseIds =
+            enrollmentService.getActiveCourseIds(student.getStudentId());
         
         // Sum payments only for active enrollments
         return payments.stream()
@@ -336,7 +347,7 @@ public class PaymentBean implements Serializable {
         if (paymentIdParam != null && !paymentIdParam.isEmpty()) {
             try {
                 paymentId = Long.parseLong(paymentIdParam);
-                confirmedPayment = paymentDAO.findById(paymentId);
+                confirmedPayment = paymentDAO.findById(paymentId, FetchPlan.WITH_COURSE);
                 if (confirmedPayment == null) {
                     FacesContext.getCurrentInstance().addMessage(null,
                             new FacesMessage(FacesMessage.SEVERITY_ERROR, "Error", "Payment not found with ID: " + paymentId));
@@ -349,7 +360,7 @@ public class PaymentBean implements Serializable {
             // Try to get the most recent payment for current student
             Student student = getCurrentStudent();
             if (student != null) {
-                List<Payment> studentPayments = paymentDAO.findByStudentId(student.getStudentId());
+                List<Payment> studentPayments = paymentDAO.findByStudentId(student.getStudentId(), FetchPlan.WITH_COURSE);
                 if (studentPayments != null && !studentPayments.isEmpty()) {
                     confirmedPayment = studentPayments.get(studentPayments.size() - 1);
                 }
@@ -1,13 +1,26 @@
 package com.example.onlinecourse.bean;
 
 import com.example.onlinecourse.entity.Student;
+import com.example.onlinecourse.scheduler.JobScheduler;
+import com.example.onlinecourse.scheduler.ScheduledJob;
+import com.example.onlinecourse.service.DeletionJob;
+import com.example.onlinecourse.service.DeletionJobs;
+import com.example.onlinecourse.service.EnrollmentService;
 import com.example.onlinecourse.service.StudentService;
+import com.example.onlinecourse.session.SessionStateCodec;
+import com.example.onlinecourse.session.StudentPrincipal;
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.ConsistencyTokens;
+import com.example.onlinecourse.util.LongHashSet;
 
 import jakarta.faces.application.FacesMessage;
 import jakarta.faces.context.FacesContext;
 import jakarta.faces.event.ComponentSystemEvent;
 import jakarta.inject.Named;
 import jakarta.enterprise.context.SessionScoped;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -15,32 +28,44 @@ import java.util.stream.Collectors;
 /**
  * JSF Managed Bean for Student operations.
  * Handles student registration and authentication.
+ * The session keeps only the student's principal, enrolled course IDs and
+ * read-your-writes token; they are serialized in the compact protobuf session
+ * encoding for replication.
  */
 @Named("studentBean")
 @SessionScoped
 public class StudentBean implements Serializable {
     private static final long serialVersionUID = 1L;
-
-    private StudentService studentService;
-    private Student currentStudent;
-    private Student newStudent;
-    private List<Student> allStudents;
+    private static final String ENROLLED_IDS_LOADED = StudentBean.class.getName() + ".enrolledIdsLoaded";
+
+    // All fields are transient: writeObject stores the principal, the enrolled
+    // course IDs and the token, everything else is form input or reloaded on demand
+    private transient StudentService studentService;
+    private transient StudentPrincipal principal;
+    // Student reference built from the principal
+    private transient Student currentStudent;
+    private transient List<Student> allStudents;
+    // IDs of the courses the logged-in student is actively enrolled in, loaded
+    // once per request: enrollments also change without this session (course
+    // completion, admin edits, other sessions of the student)
+    private transient LongHashSet enrolledCourseIds;
+    // Read-your-writes token of the logged-in student, see ConsistencyTokens
+    private transient ConsistencyTokens.Token consistencyToken;
 
     // Registration form fields
-    private String firstName;
-    private String lastName;
-    private String email;
-    private String password;
-    private String phone;
-    private String address;
+    private transient String firstName;
+    private transient String lastName;
+    private transient String email;
+    private transient String password;
+    private transient String phone;
+    private transient String address;
 
     // Login form fields
-    private String loginEmail;
-    private String loginPassword;
+    private transient String loginEmail;
+    private transient String loginPassword;
 
     public StudentBean() {
         this.studentService = new StudentService();
-        this.newStudent = new Student();
     }
 
     /**
@@ -50,6 +75,7 @@ public class StudentBean implements Serializable {
      */
     public String register() {
         try {
+            Student newStudent = new Student();
             newStudent.setFirstName(firstName);
             newStudent.setLastName(lastName);
             newStudent.setEmail(email);
@@ -58,7 +84,8 @@ public class StudentBean implements Serializable {
             newStudent.setAddress(address);
 
             Student registered = studentService.registerStudent(newStudent);
-            currentStudent = registered;
+            setCurrentStudent(registered);
+            enrolledCourseIds = new LongHashSet();
 
             // Store success message in session for toast notification
             FacesContext.getCurrentInstance().getExternalContext().getSessionMap()
@@ -85,8 +112,11 @@ public class StudentBean implements Serializable {
     public String login() {
         try {
             Student student = studentService.authenticate(loginEmail, loginPassword);
+            loginPassword = null;
             if (student != null) {
-                currentStudent = student;
+                setCurrentStudent(student);
+                // Loaded by the first request that asks
+                enrolledCourseIds = null;
                 FacesContext.getCurrentInstance().addMessage(null,
                         new FacesMessage(FacesMessage.SEVERITY_INFO, "Success", "Login successful!"));
                 return "dashboard?faces-redirect=true";
@@ -108,7 +138,9 @@ public class StudentBean implements Serializable {
      * @return Navigation outcome
      */
     public String logout() {
+        principal = null;
         currentStudent = null;
+        enrolledCourseIds = null;
         FacesContext.getCurrentInstance().getExternalContext().invalidateSession();
         allStudents = null;
         return "home?faces-redirect=true";
@@ -120,7 +152,7 @@ public class StudentBean implements Serializable {
      * @return true if logged in
      */
     public boolean isLoggedIn() {
-        return currentStudent != null;
+        return principal != null;
     }
 
     /**
@@ -130,7 +162,50 @@ public class StudentBean implements Serializable {
      * @return true if current user is admin
      */
     public boolean isAdmin() {
-        return currentStudent != null && "admin@course.com".equalsIgnoreCase(currentStudent.getEmail());
+        return principal != null && principal.isAdmin();
+    }
+
+    /**
+     * Check if the logged-in student is actively enrolled in a course.
+     * The course ID set is loaded with one query per request, so a page that
+     * checks many courses does not query per course.
+     *
+     * @param courseId Course ID
+     * @return true if enrolled
+     */
+    public boolean isEnrolledIn(Long courseId) {
+        if (principal == null || courseId == null) {
+            return false;
+        }
+        FacesContext context = FacesContext.getCurrentInstance();
+        boolean firstInRequest = context != null
+                && context.getAttributes().putIfAbsent(ENROLLED_IDS_LOADED, Boolean.TRUE) == null;
+        if (enrolledCourseIds == null || firstInRequest) {
+            enrolledCourseIds = new EnrollmentService().getActiveCourseIds(principal.getStudentId());
+        }
+        return enrolledCourseIds.contains(courseId);
+    }
+
+    /**
+     * Record a new active enrollment of the logged-in student for the rest of the request.
+     *
+     * @param courseId Course ID
+     */
+    public void markEnrolled(Long courseId) {
+        if (enrolledCourseIds != null && courseId != null) {
+            enrolledCourseIds.add(courseId);
+        }
+    }
+
+    /**
+     * Record a cancelled enrollment of the logged-in student for the rest of the request.
+     *
+     * @param courseId Course ID
+     */
+    public void markUnenrolled(Long courseId) {
+        if (enrolledCourseIds != null && courseId != null) {
+            enrolledCourseIds.remove(courseId);
+        }
     }
 
     /**
@@ -156,16 +231,46 @@ public class StudentBean implements Serializable {
         password = "";
         phone = "";
         address = "";
-        newStudent = new Student();
     }
 
     // Getters and Setters
+
+    /**
+     * Get the logged-in student as a reference carrying ID, name and email.
+     * Load the entity through StudentService for other fields.
+     *
+     * @return Student reference, or null if not logged in
+     */
     public Student getCurrentStudent() {
+        if (currentStudent == null && principal != null) {
+            currentStudent = principal.toStudentReference();
+        }
         return currentStudent;
     }
 
-    public void setCurrentStudent(Student currentStudent) {
-        this.currentStudent = currentStudent;
+    public void setCurrentStudent(Student student) {
+        this.principal = student != null ? StudentPrincipal.of(student) : null;
+        this.currentStudent = null;
+        this.consistencyToken = null;
+    }
+
+    /**
+     * Get the read-your-writes token of the logged-in student.
+     *
+     * @return Token, or null if not logged in
+     */
+    public ConsistencyTokens.Token getConsistencyToken() {
+        if (principal == null) {
+            return null;
+        }
+        if (consistencyToken == null) {
+            consistencyToken = new ConsistencyTokens.Token(principal.getStudentId(), 0);
+        }
+        return consistencyToken;
+    }
+
+    public StudentPrincipal getPrincipal() {
+        return principal;
     }
 
     public String getFirstName() {
@@ -239,18 +344,19 @@ public class StudentBean implements Serializable {
      */
     public String updateProfile() {
         try {
-            if (currentStudent == null) {
+            Student student = principal != null ? studentService.getStudentById(principal.getStudentId()) : null;
+            if (student == null) {
                 FacesContext.getCurrentInstance().addMessage(null,
                         new FacesMessage(FacesMessage.SEVERITY_ERROR, "Error", "Please login first"));
                 return null;
             }
 
-            currentStudent.setFirstName(firstName);
-            currentStudent.setLastName(lastName);
-            currentStudent.setPhone(phone);
-            currentStudent.setAddress(address);
+            student.setFirstName(firstName);
+            student.setLastName(lastName);
+            student.setPhone(phone);
+            student.setAddress(address);
 
-            studentService.updateStudent(currentStudent);
+            setCurrentStudent(studentService.updateStudent(student));
 
             FacesContext.getCurrentInstance().addMessage(null,
                     new FacesMessage(FacesMessage.SEVERITY_INFO, "Success", "Profile updated successfully!"));
@@ -267,11 +373,12 @@ public class StudentBean implements Serializable {
      * Load profile data for editing.
      */
     public void loadProfileData() {
-        if (currentStudent != null) {
-            firstName = currentStudent.getFirstName();
-            lastName = currentStudent.getLastName();
-            phone = currentStudent.getPhone();
-            address = currentStudent.getAddress();
+        Student student = principal != null ? studentService.getStudentById(principal.getStudentId()) : null;
+        if (student != null) {
+            firstName = student.getFirstName();
+            lastName = student.getLastName();
+            phone = student.getPhone();
+            address = student.getAddress();
         }
     }
 
@@ -347,6 +454,14 @@ public class StudentBean implements Serializable {
                 return null;
             }
 
+            long dependents = studentService.countDependents(studentId);
+            if (dependents > AppConfig.getLong("delete.backgroundThreshold", 5000)) {
+                studentService.deleteStudentInBackground(student, dependents);
+                FacesContext.getCurrentInstance().addMessage(null,
+                        new FacesMessage(FacesMessage.SEVERITY_INFO, "Deletion started",
+                                "The student and their " + dependents + " enrollments and payments are being deleted in the background."));
+                return "manageUsers?faces-redirect=true";
+            }
             studentService.deleteStudent(studentId);
             FacesContext.getCurrentInstance().addMessage(null,
                     new FacesMessage(FacesMessage.SEVERITY_INFO, "Success", "Student deleted successfully."));
@@ -363,6 +478,24 @@ public class StudentBean implements Serializable {
         }
     }
 
+    /**
+     * Get recent background deletions (admin only).
+     *
+     * @return Deletion jobs, newest first
+     */
+    public List<DeletionJob> getDeletionJobs() {
+        return isAdmin() ? DeletionJobs.getRecentJobs() : List.of();
+    }
+
+    /**
+     * Get the scheduled maintenance jobs with their latest run on this node (admin only).
+     *
+     * @return Scheduled jobs
+     */
+    public List<ScheduledJob> getScheduledJobs() {
+        return isAdmin() ? JobScheduler.getJobs() : List.of();
+    }
+
     /**
      * Helper to check admin email.
      *
@@ -370,7 +503,31 @@ public class StudentBean implements Serializable {
      * @return true if email belongs to admin
      */
     private boolean isAdminEmail(String email) {
-        return "admin@course.com".equalsIgnoreCase(email);
+        return StudentPrincipal.isAdminEmail(email);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        SessionStateCodec.writeBlock(out, SessionStateCodec.encodeStudentState(principal,
+                enrolledCourseIds != null ? enrolledCourseIds.toArray() : null,
+                consistencyToken != null ? consistencyToken.getLastWriteMillis() : 0));
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        SessionStateCodec.StudentState state = SessionStateCodec.decodeStudentState(SessionStateCodec.readBlock(in));
+        principal = state.getPrincipal();
+        if (principal != null && state.getLastWriteMillis() != 0) {
+            consistencyToken = new ConsistencyTokens.Token(principal.getStudentId(), state.getLastWriteMillis());
+        }
+        long[] ids = state.getEnrolledCourseIds();
+        if (ids != null) {
+            enrolledCourseIds = new LongHashSet(ids.length);
+            for (long id : ids) {
+                enrolledCourseIds.add(id);
+            }
+        }
+        studentService = new StudentService();
     }
 }
 
@@ -0,0 +1,58 @@
+package com.example.onlinecourse.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counters for the course catalog.
+ * Every change to a course row or its enrolled count bumps that course's version
+ * and the global catalog version, so anything derived from a course can be keyed
+ * by (course id, version) and never needs explicit cleanup to stay correct.
+ */
+public class CatalogVersions {
+    private static final AtomicLong catalogVersion = new AtomicLong(1);
+    private static final ConcurrentMap<Long, AtomicLong> courseVersions = new ConcurrentHashMap<>();
+
+    private CatalogVersions() {
+    }
+
+    /**
+     * Get the current version of a course.
+     *
+     * @param courseId Course ID
+     * @return Course version
+     */
+    public static long getCourseVersion(Long courseId) {
+        AtomicLong version = courseVersions.get(courseId);
+        return version != null ? version.get() : 0;
+    }
+
+    /**
+     * Get the current version of the whole catalog.
+     *
+     * @return Catalog version
+     */
+    public static long getCatalogVersion() {
+        return catalogVersion.get();
+    }
+
+    /**
+     * Record a change to a course.
+     *
+     * @param courseId Course ID
+     */
+    public static void bumpCourse(Long courseId) {
+        if (courseId != null) {
+            courseVersions.computeIfAbsent(courseId, k -> new AtomicLong()).incrementAndGet();
+        }
+        catalogVersion.incrementAndGet();
+    }
+
+    /**
+     * Record a change to the catalog that is not tied to one course (e.g. a new course).
+     */
+    public static void bumpCatalog() {
+        catalogVersion.incrementAndGet();
+    }
+}
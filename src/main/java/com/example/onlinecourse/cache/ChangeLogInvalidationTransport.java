@@ -0,0 +1,115 @@
+package com.example.onlinecourse.cache;
+
+import com.example.onlinecourse.entity.CacheInvalidation;
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.HibernateUtil;
+import com.example.onlinecourse.util.MetricsRegistry;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transports invalidations through the cache_invalidations table on the primary.
+ * Every node inserts its batches and reads new rows by ID. The row ID is the
+ * message version.
+ *
+ * IDs are assigned at insert but become visible at commit, so a row can appear
+ * after rows with higher IDs. When the rows read skip an ID, reading stops before
+ * the gap until it is filled or older than cache.invalidation.gapWaitMillis (then
+ * it is taken to be a rolled-back insert).
+ */
+public class ChangeLogInvalidationTransport implements InvalidationTransport {
+    private static final long PURGE_INTERVAL_MILLIS = 600_000;
+
+    private final long gapWaitMillis = AppConfig.getLong("cache.invalidation.gapWaitMillis", 2000);
+    private final long retentionMillis = AppConfig.getLong("cache.invalidation.retentionMinutes", 60) * 60_000L;
+    private Long cursor;
+    private long lastPurge = System.currentTimeMillis();
+
+    @Override
+    public void send(List<Invalidation> batch) {
+        Session session = sessionFactory().openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            for (Invalidation invalidation : batch) {
+                session.save(new CacheInvalidation(invalidation.getType().name(), invalidation.getEntityId(),
+                        invalidation.getOriginNode(), invalidation.getCreatedMillis()));
+            }
+            transaction.commit();
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw new RuntimeException("Error writing cache invalidations: " + e.getMessage(), e);
+        } finally {
+            session.close();
+        }
+    }
+
+    @Override
+    public List<Invalidation> receive(int maxMessages) {
+        Session session = sessionFactory().openSession();
+        try {
+            if (cursor == null) {
+                // Start at the end of the log: earlier changes predate this node's caches
+                Long max = session.createQuery("SELECT MAX(invalidationId) FROM CacheInvalidation", Long.class)
+                        .uniqueResult();
+                cursor = max != null ? max : 0L;
+                return List.of();
+            }
+            List<CacheInvalidation> rows = session.createQuery(
+                            "FROM CacheInvalidation WHERE invalidationId > :cursor ORDER BY invalidationId",
+                            CacheInvalidation.class)
+                    .setParameter("cursor", cursor)
+                    .setMaxResults(maxMessages)
+                    .list();
+
+            List<Invalidation> received = new ArrayList<>(rows.size());
+            long now = System.currentTimeMillis();
+            for (CacheInvalidation row : rows) {
+                long id = row.getInvalidationId();
+                if (id != cursor + 1 && now - row.getCreatedMillis() < gapWaitMillis) {
+                    MetricsRegistry.increment("cache.invalidation.gapWaits");
+                    break;
+                }
+                cursor = id;
+                received.add(new Invalidation(InvalidationType.valueOf(row.getEntityType()), row.getEntityId(),
+                        id, row.getOriginNode(), row.getCreatedMillis()));
+            }
+            return received;
+        } finally {
+            session.close();
+            if (System.currentTimeMillis() - lastPurge > PURGE_INTERVAL_MILLIS) {
+                lastPurge = System.currentTimeMillis();
+                purge();
+            }
+        }
+    }
+
+    private void purge() {
+        Session session = sessionFactory().openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            session.createQuery("DELETE FROM CacheInvalidation WHERE createdMillis < :cutoff")
+                    .setParameter("cutoff", System.currentTimeMillis() - retentionMillis)
+                    .executeUpdate();
+            transaction.commit();
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            System.err.println("Error purging cache invalidations: " + e.getMessage());
+        } finally {
+            session.close();
+        }
+    }
+
+    private static SessionFactory sessionFactory() {
+        return HibernateUtil.getSessionFactory();
+    }
+}
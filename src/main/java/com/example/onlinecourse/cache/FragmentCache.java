@@ -0,0 +1,76 @@
+package com.example.onlinecourse.cache;
+
+import com.example.onlinecourse.util.MetricsRegistry;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of rendered markup fragments keyed by fragment name and course id.
+ * Each entry remembers the course version it was rendered at; an entry whose
+ * version no longer matches {@link CatalogVersions} is treated as a miss and
+ * overwritten on the next render.
+ */
+public class FragmentCache {
+    private static final ConcurrentMap<String, Entry> fragments = new ConcurrentHashMap<>();
+
+    static {
+        MetricsRegistry.gauge("fragment.entries", fragments::size);
+    }
+
+    private FragmentCache() {
+    }
+
+    /**
+     * Get rendered markup if it is still current.
+     *
+     * @param name Fragment name
+     * @param courseId Course ID
+     * @return Markup, or null on a miss
+     */
+    public static String get(String name, Long courseId) {
+        Entry entry = fragments.get(key(name, courseId));
+        if (entry != null && entry.version == CatalogVersions.getCourseVersion(courseId)) {
+            MetricsRegistry.increment("fragment.hits");
+            return entry.markup;
+        }
+        MetricsRegistry.increment("fragment.misses");
+        return null;
+    }
+
+    /**
+     * Store rendered markup.
+     *
+     * @param name Fragment name
+     * @param courseId Course ID
+     * @param version Course version the markup was rendered from
+     * @param markup Rendered markup
+     */
+    public static void put(String name, Long courseId, long version, String markup) {
+        fragments.put(key(name, courseId), new Entry(version, markup));
+    }
+
+    /**
+     * Drop all fragments of a course (e.g. when it is deleted).
+     *
+     * @param courseId Course ID
+     */
+    public static void evictCourse(Long courseId) {
+        String suffix = ":" + courseId;
+        fragments.keySet().removeIf(key -> key.endsWith(suffix));
+    }
+
+    private static String key(String name, Long courseId) {
+        return name + ":" + courseId;
+    }
+
+    private static final class Entry {
+        private final long version;
+        private final String markup;
+
+        private Entry(long version, String markup) {
+            this.version = version;
+            this.markup = markup;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.onlinecourse.cache;
+
+/**
+ * Message telling a node to drop cached data of one entity.
+ * The version is assigned by the transport and increases with every message,
+ * so a node can ignore a message older than one it already applied for the
+ * same entity.
+ */
+public final class Invalidation {
+    private final InvalidationType type;
+    private final long entityId;
+    private final long version;
+    private final String originNode;
+    private final long createdMillis;
+
+    public Invalidation(InvalidationType type, long entityId, long version, String originNode, long createdMillis) {
+        this.type = type;
+        this.entityId = entityId;
+        this.version = version;
+        this.originNode = originNode;
+        this.createdMillis = createdMillis;
+    }
+
+    public InvalidationType getType() {
+        return type;
+    }
+
+    public long getEntityId() {
+        return entityId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getOriginNode() {
+        return originNode;
+    }
+
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    /**
+     * @return Key identifying the invalidated entity
+     */
+    public String getKey() {
+        return type + ":" + entityId;
+    }
+
+    @Override
+    public String toString() {
+        return "Invalidation{" + getKey() + ", version=" + version + ", origin=" + originNode + '}';
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.onlinecourse.cache;
+
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.MetricsRegistry;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongConsumer;
+
+/**
+ * Propagates cache invalidations to the other application nodes.
+ * The node that changes data evicts its own caches directly and publishes an
+ * invalidation; a background thread sends pending invalidations in batches
+ * (repeated invalidations of one entity within a batch are sent once), receives
+ * those of other nodes and runs the handlers registered for their type.
+ * A message whose version is not newer than the last one applied for the same
+ * entity is dropped, so redelivered or reordered messages do no extra work.
+ *
+ * Transport (cache.invalidation.transport): "changelog" (database table, default),
+ * "local" (in-process stand-in) or "none".
+ *
+ * Metrics: cache.invalidation.latency (change on the origin node to eviction here),
+ * cache.invalidation.sent, .applied and .dropped.
+ */
+public class InvalidationBus {
+    private static final String NODE_ID = AppConfig.get("cache.invalidation.nodeId",
+            UUID.randomUUID().toString());
+    private static final Map<InvalidationType, List<LongConsumer>> handlers = new EnumMap<>(InvalidationType.class);
+    private static final Map<String, Invalidation> pending = new ConcurrentHashMap<>();
+    private static final Object signal = new Object();
+    private static InvalidationTransport transport;
+    private static Thread thread;
+    private static volatile boolean running;
+    private static boolean wakeRequested;
+
+    static {
+        for (InvalidationType type : InvalidationType.values()) {
+            handlers.put(type, new CopyOnWriteArrayList<>());
+        }
+    }
+
+    private InvalidationBus() {
+    }
+
+    /**
+     * Register the local eviction for invalidations of one type received from other nodes.
+     *
+     * @param type Invalidation type
+     * @param handler Handler receiving the entity ID
+     */
+    public static void register(InvalidationType type, LongConsumer handler) {
+        handlers.get(type).add(handler);
+    }
+
+    /**
+     * Announce a change to other nodes. The caller evicts its own caches itself.
+     * Does nothing while the bus is not running.
+     *
+     * @param type Invalidation type
+     * @param entityId Entity ID, or null for catalog-wide invalidations
+     */
+    public static void publish(InvalidationType type, Long entityId) {
+        if (!running) {
+            return;
+        }
+        long id = entityId != null ? entityId : 0L;
+        Invalidation invalidation = new Invalidation(type, id, 0, NODE_ID, System.currentTimeMillis());
+        // Keep the first pending change so latency is measured from it
+        pending.putIfAbsent(invalidation.getKey(), invalidation);
+        synchronized (signal) {
+            wakeRequested = true;
+            signal.notifyAll();
+        }
+    }
+
+    /**
+     * Start the bus with the configured transport.
+     */
+    public static synchronized void start() {
+        if (running) {
+            return;
+        }
+        String name = AppConfig.get("cache.invalidation.transport", "changelog");
+        if ("changelog".equals(name)) {
+            transport = new ChangeLogInvalidationTransport();
+        } else if ("local".equals(name)) {
+            transport = new LocalInvalidationTransport();
+        } else {
+            return;
+        }
+        running = true;
+        thread = new Thread(InvalidationBus::run, "cache-invalidation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop the bus after sending what is pending.
+     */
+    public static synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (transport instanceof LocalInvalidationTransport) {
+            ((LocalInvalidationTransport) transport).close();
+        }
+        thread = null;
+        transport = null;
+    }
+
+    private static void run() {
+        long pollMillis = AppConfig.getLong("cache.invalidation.pollMillis", 200);
+        int batchSize = AppConfig.getInt("cache.invalidation.batchSize", 500);
+        int remembered = AppConfig.getInt("cache.invalidation.versionsRemembered", 10000);
+        // Last applied version per entity; only used by this thread
+        Map<String, Long> appliedVersions = new LinkedHashMap<String, Long>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > remembered;
+            }
+        };
+
+        while (true) {
+            boolean more = false;
+            try {
+                sendPending();
+                List<Invalidation> received = transport.receive(batchSize);
+                apply(received, appliedVersions);
+                more = received.size() == batchSize;
+            } catch (RuntimeException e) {
+                MetricsRegistry.increment("cache.invalidation.errors");
+                System.err.println("Cache invalidation error: " + e.getMessage());
+            }
+            if (!running) {
+                break;
+            }
+            if (!more) {
+                awaitWakeUp(pollMillis);
+            }
+        }
+        try {
+            sendPending();
+        } catch (RuntimeException e) {
+            System.err.println("Cache invalidations not sent on shutdown: " + e.getMessage());
+        }
+    }
+
+    private static void sendPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Invalidation> batch = new ArrayList<>();
+        for (String key : new ArrayList<>(pending.keySet())) {
+            Invalidation invalidation = pending.remove(key);
+            if (invalidation != null) {
+                batch.add(invalidation);
+            }
+        }
+        try {
+            transport.send(batch);
+            MetricsRegistry.add("cache.invalidation.sent", batch.size());
+        } catch (RuntimeException e) {
+            // Put the batch back unless newer changes were queued meanwhile
+            for (Invalidation invalidation : batch) {
+                pending.putIfAbsent(invalidation.getKey(), invalidation);
+            }
+            throw e;
+        }
+    }
+
+    private static void apply(List<Invalidation> received, Map<String, Long> appliedVersions) {
+        long now = System.currentTimeMillis();
+        for (Invalidation invalidation : received) {
+            if (NODE_ID.equals(invalidation.getOriginNode())) {
+                continue;
+            }
+            Long applied = appliedVersions.get(invalidation.getKey());
+            if (applied != null && applied >= invalidation.getVersion()) {
+                MetricsRegistry.increment("cache.invalidation.dropped");
+                continue;
+            }
+            appliedVersions.put(invalidation.getKey(), invalidation.getVersion());
+            for (LongConsumer handler : handlers.get(invalidation.getType())) {
+                try {
+                    handler.accept(invalidation.getEntityId());
+                } catch (RuntimeException e) {
+                    System.err.println("Error applying " + invalidation + ": " + e.getMessage());
+                }
+            }
+            MetricsRegistry.increment("cache.invalidation.applied");
+            MetricsRegistry.recordTime("cache.invalidation.latency",
+                    Math.max(0, now - invalidation.getCreatedMillis()) * 1_000_000L);
+        }
+    }
+
+    private static void awaitWakeUp(long millis) {
+        synchronized (signal) {
+            if (!wakeRequested && running) {
+                try {
+                    signal.wait(millis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                }
+            }
+            wakeRequested = false;
+        }
+    }
+}
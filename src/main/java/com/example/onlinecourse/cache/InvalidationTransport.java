@@ -0,0 +1,26 @@
+package com.example.onlinecourse.cache;
+
+import java.util.List;
+
+/**
+ * Carries invalidation messages between application nodes.
+ * Used only by the InvalidationBus thread, so implementations need not be thread-safe.
+ */
+public interface InvalidationTransport {
+
+    /**
+     * Deliver a batch of messages to all nodes, including this one.
+     * Versions of the given messages are ignored; the transport assigns them.
+     *
+     * @param batch Messages to send
+     */
+    void send(List<Invalidation> batch);
+
+    /**
+     * Get messages that arrived since the previous call.
+     *
+     * @param maxMessages Maximum number of messages
+     * @return Messages, in the order they were sent where the transport knows it
+     */
+    List<Invalidation> receive(int maxMessages);
+}
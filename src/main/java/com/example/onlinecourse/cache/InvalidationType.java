@@ -0,0 +1,13 @@
+package com.example.onlinecourse.cache;
+
+/**
+ * Kinds of cached data that can be invalidated across nodes.
+ */
+public enum InvalidationType {
+    /** One course row or its enrolled count; the ID is the course ID. */
+    COURSE,
+    /** The course list as a whole (e.g. a course was added); the ID is 0. */
+    CATALOG,
+    /** One student row; the ID is the student ID. */
+    STUDENT
+}
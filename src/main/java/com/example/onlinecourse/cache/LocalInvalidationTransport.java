@@ -0,0 +1,54 @@
+package com.example.onlinecourse.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for a multicast transport.
+ * Every instance receives the messages sent by all instances in the same JVM,
+ * which is enough to run several buses side by side (e.g. one per web application
+ * on a shared server) without a database table.
+ */
+public class LocalInvalidationTransport implements InvalidationTransport {
+    private static final List<LocalInvalidationTransport> members = new CopyOnWriteArrayList<>();
+    private static final AtomicLong versions = new AtomicLong();
+
+    private final Queue<Invalidation> inbox = new ConcurrentLinkedQueue<>();
+
+    public LocalInvalidationTransport() {
+        members.add(this);
+    }
+
+    @Override
+    public void send(List<Invalidation> batch) {
+        for (Invalidation invalidation : batch) {
+            Invalidation versioned = new Invalidation(invalidation.getType(), invalidation.getEntityId(),
+                    versions.incrementAndGet(), invalidation.getOriginNode(), invalidation.getCreatedMillis());
+            for (LocalInvalidationTransport member : members) {
+                member.inbox.add(versioned);
+            }
+        }
+    }
+
+    @Override
+    public List<Invalidation> receive(int maxMessages) {
+        List<Invalidation> received = new ArrayList<>();
+        Invalidation invalidation;
+        while (received.size() < maxMessages && (invalidation = inbox.poll()) != null) {
+            received.add(invalidation);
+        }
+        return received;
+    }
+
+    /**
+     * Stop receiving messages.
+     */
+    public void close() {
+        members.remove(this);
+        inbox.clear();
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.onlinecourse.cache;
+
+import com.example.onlinecourse.util.MetricsRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Coalescing loader for keyed lookups.
+ * Concurrent misses for the same key share one in-flight load through a future,
+ * so a burst of requests for one course issues a single SELECT.
+ * Optionally keeps the last loaded value for a short time: within the fresh window
+ * it is returned directly, within the stale window it is returned while one
+ * background reload refreshes it (stale-while-revalidate).
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public class SingleFlightLoader<K, V> {
+    private static final ExecutorService REFRESH_EXECUTOR = Executors.newFixedThreadPool(2, r -> {
+        Thread thread = new Thread(r, "single-flight-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String name;
+    private final Function<K, V> loader;
+    private final long freshMillis;
+    private final long staleMillis;
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentMap<K, Entry<V>> values = new ConcurrentHashMap<>();
+    // Bumped on invalidation so a load that started before it does not store an old value
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Create a pure coalescing loader that never serves previous values.
+     *
+     * @param name Metrics name prefix
+     * @param loader Function loading a value from the database
+     */
+    public SingleFlightLoader(String name, Function<K, V> loader) {
+        this(name, loader, 0, 0);
+    }
+
+    /**
+     * Create a coalescing loader with stale-while-revalidate serving.
+     *
+     * @param name Metrics name prefix
+     * @param loader Function loading a value from the database
+     * @param freshMillis How long a loaded value is served without reloading
+     * @param staleMillis How long after loading a value may still be served while it is refreshed
+     */
+    public SingleFlightLoader(String name, Function<K, V> loader, long freshMillis, long staleMillis) {
+        this.name = name;
+        this.loader = loader;
+        this.freshMillis = freshMillis;
+        this.staleMillis = Math.max(freshMillis, staleMillis);
+    }
+
+    /**
+     * Stop the background reloads on undeploy. Values are still loaded by the
+     * calling thread afterwards.
+     */
+    public static void stopRefreshes() {
+        REFRESH_EXECUTOR.shutdownNow();
+    }
+
+    /**
+     * Get the value for a key.
+     *
+     * @param key Lookup key
+     * @return Loaded value, may be null if the loader returns null
+     */
+    public V get(K key) {
+        if (key == null) {
+            return null;
+        }
+        Entry<V> entry = values.get(key);
+        if (entry != null) {
+            long age = System.currentTimeMillis() - entry.loadedAt;
+            if (age < freshMillis) {
+                MetricsRegistry.increment(name + ".hits");
+                return entry.value;
+            }
+            if (age < staleMillis) {
+                MetricsRegistry.increment(name + ".stale");
+                if (!inFlight.containsKey(key)) {
+                    try {
+                        REFRESH_EXECUTOR.execute(() -> load(key));
+                    } catch (RejectedExecutionException e) {
+                        // Undeploying: the value is reloaded by the next caller after the stale window
+                    }
+                }
+                return entry.value;
+            }
+        }
+        return load(key);
+    }
+
+    /**
+     * Drop the remembered value for a key so the next call reloads it.
+     *
+     * @param key Lookup key
+     */
+    public void invalidate(K key) {
+        if (key != null) {
+            generation.incrementAndGet();
+            values.remove(key);
+        }
+    }
+
+    /**
+     * Drop all remembered values.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        values.clear();
+    }
+
+    private V load(K key) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            MetricsRegistry.increment(name + ".collapsed");
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw unwrap(e);
+            }
+        }
+
+        MetricsRegistry.increment(name + ".loads");
+        long startGeneration = generation.get();
+        try {
+            V value = loader.apply(key);
+            if (value != null && staleMillis > 0 && generation.get() == startGeneration) {
+                values.put(key, new Entry<>(value, System.currentTimeMillis()));
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private static RuntimeException unwrap(CompletionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new RuntimeException(cause != null ? cause.getMessage() : e.getMessage(), cause);
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long loadedAt;
+
+        private Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.onlinecourse.component;
+
+import com.example.onlinecourse.cache.CatalogVersions;
+import com.example.onlinecourse.cache.FragmentCache;
+
+import jakarta.faces.component.FacesComponent;
+import jakarta.faces.component.UIComponent;
+import jakarta.faces.component.UIComponentBase;
+import jakarta.faces.context.FacesContext;
+import jakarta.faces.context.ResponseWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * JSF component that caches the markup rendered by its children.
+ * Usage: {@code <oc:cachedFragment name="courseCard" courseId="#{course.courseId}">...</oc:cachedFragment>}
+ * The children are rendered once per course version and then served as pre-rendered
+ * markup, so they must only contain output that is the same for every visitor
+ * (no forms, no per-user state). The course they render must be read from the
+ * primary (course lookups, the facet index, search): markup rendered from a replica
+ * that has not applied the latest change would be cached under the new version.
+ */
+@FacesComponent(value = CachedFragment.COMPONENT_TYPE, createTag = true,
+        tagName = "cachedFragment", namespace = "http://example.com/onlinecourse/ui")
+public class CachedFragment extends UIComponentBase {
+    public static final String COMPONENT_TYPE = "com.example.onlinecourse.CachedFragment";
+    public static final String COMPONENT_FAMILY = "com.example.onlinecourse";
+
+    @Override
+    public String getFamily() {
+        return COMPONENT_FAMILY;
+    }
+
+    @Override
+    public boolean getRendersChildren() {
+        return true;
+    }
+
+    @Override
+    public void encodeChildren(FacesContext context) throws IOException {
+        String name = (String) getAttributes().get("name");
+        Long courseId = toLong(getAttributes().get("courseId"));
+        if (name == null || courseId == null) {
+            super.encodeChildren(context);
+            return;
+        }
+
+        ResponseWriter writer = context.getResponseWriter();
+        String cached = FragmentCache.get(name, courseId);
+        if (cached != null) {
+            writer.write(cached);
+            return;
+        }
+
+        // Capture the version before rendering so a concurrent change is not cached as current
+        long version = CatalogVersions.getCourseVersion(courseId);
+        StringWriter buffer = new StringWriter();
+        context.setResponseWriter(writer.cloneWithWriter(buffer));
+        try {
+            for (UIComponent child : getChildren()) {
+                child.encodeAll(context);
+            }
+        } finally {
+            context.setResponseWriter(writer);
+        }
+        String markup = buffer.toString();
+        FragmentCache.put(name, courseId, version, markup);
+        writer.write(markup);
+    }
+
+    private static Long toLong(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String && !((String) value).isEmpty()) {
+            try {
+                return Long.parseLong((String) value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.onlinecourse.dao;
+
+import com.example.onlinecourse.audit.AuditJournal;
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.HibernateUtil;
+import com.example.onlinecourse.util.MetricsRegistry;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Moves old enrollment and payment history out of the hot tables.
+ * Completed and cancelled enrollments, and payments that are no longer pending
+ * and do not belong to an active enrollment, are moved to enrollments_archive and
+ * payments_archive once they are older than the cutoff. Each batch copies the rows
+ * and deletes the originals in one transaction, so a row is always in exactly one
+ * of the two tables and an interrupted run just continues on the next one.
+ * Batches are throttled by archive.batchSize and archive.pauseMillis. Every moved
+ * row is journaled as ARCHIVED once its batch has committed.
+ *
+ * Metrics: archive.enrollments, archive.payments and archive.batch (time per batch).
+ */
+public class ArchiveDAO {
+    private static final String ENROLLMENT_COLUMNS = "enrollment_id, student_id, course_id, enrollment_date, status";
+    private static final String PAYMENT_COLUMNS =
+            "payment_id, student_id, course_id, amount, payment_date, payment_method, status, transaction_id";
+
+    private final int batchSize;
+    private final long pauseMillis;
+
+    public ArchiveDAO() {
+        this.batchSize = Math.max(1, AppConfig.getInt("archive.batchSize", 500));
+        this.pauseMillis = AppConfig.getLong("archive.pauseMillis", 100);
+    }
+
+    /**
+     * Archive old enrollments and payments on every shard.
+     *
+     * @param cutoff Rows dated before this are archived
+     * @param maxRows Most rows to move per table and shard in this run
+     * @return Number of rows moved
+     */
+    public long archiveBefore(Date cutoff, long maxRows) {
+        long total = 0;
+        for (SessionFactory shard : HibernateUtil.getShardSessionFactories()) {
+            total += moveInBatches(shard, "archive.enrollments",
+                    "SELECT e.enrollmentId, e.student.studentId, e.course.courseId FROM Enrollment e "
+                            + "WHERE e.enrollmentDate < :cutoff AND e.status IN ('COMPLETED', 'CANCELLED')",
+                    "enrollments", "enrollment_id", ENROLLMENT_COLUMNS, cutoff, maxRows,
+                    row -> AuditJournal.enrollmentChanged((Long) row[0], (Long) row[1], (Long) row[2], "ARCHIVED"));
+            // A payment stays while its enrollment is active, so current totals are unchanged
+            total += moveInBatches(shard, "archive.payments",
+                    "SELECT p.paymentId, p.student.studentId, p.course.courseId, p.amount FROM Payment p "
+                            + "WHERE p.paymentDate < :cutoff AND p.status <> 'PENDING' "
+                            + "AND NOT EXISTS (SELECT 1 FROM Enrollment e WHERE e.student = p.student "
+                            + "AND e.course = p.course AND e.status = 'ACTIVE')",
+                    "payments", "payment_id", PAYMENT_COLUMNS, cutoff, maxRows,
+                    row -> AuditJournal.paymentChanged((Long) row[0], (Long) row[1], (Long) row[2],
+                            (BigDecimal) row[3], "ARCHIVED"));
+        }
+        return total;
+    }
+
+    /**
+     * Move rows in batches, one transaction per batch.
+     *
+     * @param selectRows Query for the rows to move: ID first, then the columns the journal needs
+     * @param journal Journals one moved row after its batch has committed
+     * @return Number of rows moved
+     */
+    private long moveInBatches(SessionFactory factory, String metric, String selectRows, String table,
+                               String idColumn, String columns, Date cutoff, long maxRows,
+                               Consumer<Object[]> journal) {
+        long total = 0;
+        while (total < maxRows) {
+            long start = System.nanoTime();
+            int moved;
+            List<Object[]> rows;
+            Session session = factory.openSession();
+            Transaction transaction = null;
+            try {
+                transaction = session.beginTransaction();
+                rows = session.createQuery(selectRows, Object[].class)
+                        .setParameter("cutoff", cutoff)
+                        .setMaxResults((int) Math.min(batchSize, maxRows - total))
+                        .list();
+                List<Long> ids = new ArrayList<>(rows.size());
+                for (Object[] row : rows) {
+                    ids.add((Long) row[0]);
+                }
+                if (ids.isEmpty()) {
+                    moved = 0;
+                } else {
+                    session.createNativeQuery("INSERT INTO " + table + "_archive (" + columns + ", archived_at) "
+                                    + "SELECT " + columns + ", :now FROM " + table + " WHERE " + idColumn + " IN (:ids)")
+                            .setParameter("now", new Timestamp(System.currentTimeMillis()))
+                            .setParameterList("ids", ids)
+                            .executeUpdate();
+                    moved = session.createNativeQuery("DELETE FROM " + table + " WHERE " + idColumn + " IN (:ids)")
+                            .setParameterList("ids", ids)
+                            .executeUpdate();
+                }
+                transaction.commit();
+            } catch (Exception e) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw new RuntimeException("Error archiving " + table + ": " + e.getMessage(), e);
+            } finally {
+                session.close();
+            }
+            rows.forEach(journal);
+            if (moved == 0) {
+                return total;
+            }
+            total += moved;
+            MetricsRegistry.add(metric, moved);
+            MetricsRegistry.recordTime("archive.batch", System.nanoTime() - start);
+            if (moved < batchSize) {
+                return total;
+            }
+            pause();
+        }
+        return total;
+    }
+
+    private void pause() {
+        if (pauseMillis > 0) {
+            try {
+                Thread.sleep(pauseMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Archiving interrupted", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.onlinecourse.dao;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of enrolling a cohort of students in one course.
+ * Every requested student ID gets exactly one outcome, so callers can report
+ * which students were enrolled and why the others were not.
+ */
+public class BulkEnrollmentResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public enum Outcome {
+        /** New enrollment created. */
+        ENROLLED,
+        /** A cancelled enrollment was made active again. */
+        REACTIVATED,
+        ALREADY_ENROLLED,
+        /** The student already completed the course. */
+        ALREADY_COMPLETED,
+        STUDENT_NOT_FOUND,
+        /** The ID appeared earlier in the same request. */
+        DUPLICATE_IN_REQUEST,
+        COURSE_FULL,
+        /** The course's dates overlap another active course of the student (policy BLOCK). */
+        SCHEDULE_CONFLICT,
+        /** Writing the enrollment failed (e.g. its shard was unavailable). */
+        FAILED
+    }
+
+    private final Long courseId;
+    private final Map<Long, Outcome> outcomes = new LinkedHashMap<>();
+    private final List<Long> rejectedDuplicates = new ArrayList<>();
+    private final Map<Long, List<ScheduleConflict>> conflicts = new LinkedHashMap<>();
+
+    public BulkEnrollmentResult(Long courseId) {
+        this.courseId = courseId;
+    }
+
+    void set(Long studentId, Outcome outcome) {
+        outcomes.put(studentId, outcome);
+    }
+
+    void addDuplicate(Long studentId) {
+        rejectedDuplicates.add(studentId);
+    }
+
+    void setConflicts(Long studentId, List<ScheduleConflict> studentConflicts) {
+        outcomes.put(studentId, Outcome.SCHEDULE_CONFLICT);
+        conflicts.put(studentId, studentConflicts);
+    }
+
+    public Long getCourseId() {
+        return courseId;
+    }
+
+    /**
+     * @return Outcome per distinct student ID, in request order
+     */
+    public Map<Long, Outcome> getOutcomes() {
+        return Collections.unmodifiableMap(outcomes);
+    }
+
+    /**
+     * @return Overlapping courses per student rejected with SCHEDULE_CONFLICT
+     */
+    public Map<Long, List<ScheduleConflict>> getConflicts() {
+        return Collections.unmodifiableMap(conflicts);
+    }
+
+    /**
+     * @return Number of students per outcome; repeated IDs count as DUPLICATE_IN_REQUEST
+     */
+    public Map<Outcome, Integer> getCounts() {
+        Map<Outcome, Integer> counts = new EnumMap<>(Outcome.class);
+        for (Outcome outcome : outcomes.values()) {
+            counts.merge(outcome, 1, Integer::sum);
+        }
+        if (!rejectedDuplicates.isEmpty()) {
+            counts.put(Outcome.DUPLICATE_IN_REQUEST, rejectedDuplicates.size());
+        }
+        return counts;
+    }
+
+    /**
+     * @return Number of students enrolled by the request, including reactivations
+     */
+    public int getEnrolledCount() {
+        int enrolled = 0;
+        for (Outcome outcome : outcomes.values()) {
+            if (outcome == Outcome.ENROLLED || outcome == Outcome.REACTIVATED) {
+                enrolled++;
+            }
+        }
+        return enrolled;
+    }
+
+    /**
+     * @return Student IDs that were not enrolled, with the reason
+     */
+    public Map<Long, Outcome> getRejections() {
+        Map<Long, Outcome> rejections = new LinkedHashMap<>();
+        for (Map.Entry<Long, Outcome> entry : outcomes.entrySet()) {
+            if (entry.getValue() != Outcome.ENROLLED && entry.getValue() != Outcome.REACTIVATED) {
+                rejections.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return rejections;
+    }
+
+    /**
+     * @return true if some requested students were not enrolled
+     */
+    public boolean isPartial() {
+        return !rejectedDuplicates.isEmpty() || getEnrolledCount() < outcomes.size();
+    }
+}
@@ -0,0 +1,287 @@
+package com.example.onlinecourse.dao;
+
+import com.example.onlinecourse.audit.AuditJournal;
+import com.example.onlinecourse.event.EventType;
+import com.example.onlinecourse.event.Outbox;
+import com.example.onlinecourse.event.OutboxRelay;
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.HibernateUtil;
+import com.example.onlinecourse.util.MetricsRegistry;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Set-based deletion of students and courses with their enrollments and payments,
+ * archived ones included.
+ * Children are deleted before their parent with bulk DELETE statements in chunks
+ * of delete.chunkSize rows, each chunk in its own short transaction, so no entity
+ * is loaded and row locks are held for one chunk at a time. A deletion that stopped
+ * half-way can be run again and continues where it stopped. Every deleted
+ * enrollment and payment is journaled as DELETED once its chunk has committed.
+ *
+ * Metrics: delete.rows and delete.chunk (time per chunk).
+ */
+public class CascadeDeleteDAO {
+    private final SessionFactory sessionFactory;
+    private final int chunkSize;
+    private final long chunkPauseMillis;
+
+    public CascadeDeleteDAO() {
+        this.sessionFactory = HibernateUtil.getSessionFactory();
+        this.chunkSize = Math.max(1, AppConfig.getInt("delete.chunkSize", 1000));
+        this.chunkPauseMillis = AppConfig.getLong("delete.chunkPauseMillis", 0);
+    }
+
+    /**
+     * Count the enrollments and payments that deleting a student removes.
+     *
+     * @param studentId Student ID
+     * @return Number of dependent rows
+     */
+    public long countStudentDependents(Long studentId) {
+        Session session = ShardRouter.forStudent(studentId).openSession();
+        try {
+            return count(session, "Enrollment", "student.studentId", studentId)
+                    + count(session, "Payment", "student.studentId", studentId)
+                    + count(session, "ArchivedEnrollment", "student.studentId", studentId)
+                    + count(session, "ArchivedPayment", "student.studentId", studentId);
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Count the enrollments and payments that deleting a course removes.
+     *
+     * @param courseId Course ID
+     * @return Number of dependent rows
+     */
+    public long countCourseDependents(Long courseId) {
+        long total = 0;
+        for (Long count : ShardRouter.scatter(session -> List.of(
+                count(session, "Enrollment", "course.courseId", courseId)
+                        + count(session, "Payment", "course.courseId", courseId)
+                        + count(session, "ArchivedEnrollment", "course.courseId", courseId)
+                        + count(session, "ArchivedPayment", "course.courseId", courseId)))) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Delete a student with its payments and enrollments.
+     * Each chunk of enrollments recounts the enrolled counts of the courses it freed
+     * seats in and records a COURSE_UPDATED event per course in its own transaction,
+     * so a deletion that stopped half-way leaves no count behind for the rerun.
+     * With shards the counts span databases and are recounted right after the chunk
+     * commits; the reconcile job corrects a count missed by a crash in between.
+     *
+     * @param studentId Student ID
+     * @param progress Called with the table name and row count after every chunk
+     * @return true if the student row existed
+     */
+    public boolean deleteStudent(Long studentId, ObjIntConsumer<String> progress) {
+        SessionFactory shard = ShardRouter.forStudent(studentId);
+        deleteInChunks(shard, "Payment", "paymentId", "student.studentId", studentId, progress);
+        deleteInChunks(shard, "Enrollment", "enrollmentId", "student.studentId", studentId, progress, true);
+        deleteInChunks(shard, "ArchivedPayment", "paymentId", "student.studentId", studentId, progress);
+        deleteInChunks(shard, "ArchivedEnrollment", "enrollmentId", "student.studentId", studentId, progress);
+
+        Session session = sessionFactory.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            int deleted = session.createQuery("DELETE FROM Student WHERE studentId = :studentId")
+                    .setParameter("studentId", studentId)
+                    .executeUpdate();
+            transaction.commit();
+            ShardRouter.deleteFromShards("Student", "studentId", studentId);
+            progress.accept("Student", deleted);
+            return deleted > 0;
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw new RuntimeException("Error deleting student: " + e.getMessage(), e);
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Delete a course with its payments and enrollments on every shard.
+     *
+     * @param courseId Course ID
+     * @param progress Called with the table name and row count after every chunk
+     * @return true if the course row existed
+     */
+    public boolean deleteCourse(Long courseId, ObjIntConsumer<String> progress) {
+        for (SessionFactory shard : HibernateUtil.getShardSessionFactories()) {
+            deleteInChunks(shard, "Payment", "paymentId", "course.courseId", courseId, progress);
+            deleteInChunks(shard, "Enrollment", "enrollmentId", "course.courseId", courseId, progress);
+            deleteInChunks(shard, "ArchivedPayment", "paymentId", "course.courseId", courseId, progress);
+            deleteInChunks(shard, "ArchivedEnrollment", "enrollmentId", "course.courseId", courseId, progress);
+        }
+
+        Session session = sessionFactory.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            int deleted = session.createQuery("DELETE FROM Course WHERE courseId = :courseId")
+                    .setParameter("courseId", courseId)
+                    .executeUpdate();
+            transaction.commit();
+            ShardRouter.deleteFromShards("Course", "courseId", courseId);
+            progress.accept("Course", deleted);
+            return deleted > 0;
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw new RuntimeException("Error deleting course: " + e.getMessage(), e);
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Delete the rows of an entity that belong to one owner, one chunk per transaction.
+     * Each chunk selects primary keys through the owner index and deletes them by key.
+     *
+     * @return Number of deleted rows
+     */
+    private long deleteInChunks(SessionFactory factory, String entity, String idProperty,
+                                String ownerProperty, Long ownerId, ObjIntConsumer<String> progress) {
+        return deleteInChunks(factory, entity, idProperty, ownerProperty, ownerId, progress, false);
+    }
+
+    /**
+     * Delete the rows of an entity that belong to one owner, one chunk per transaction,
+     * optionally recounting the courses whose active enrollments a chunk deleted.
+     *
+     * @return Number of deleted rows
+     */
+    private long deleteInChunks(SessionFactory factory, String entity, String idProperty,
+                                String ownerProperty, Long ownerId, ObjIntConsumer<String> progress,
+                                boolean recountCourses) {
+        long total = 0;
+        while (true) {
+            long start = System.nanoTime();
+            int deleted;
+            List<Object[]> rows;
+            List<Long> courseIds = List.of();
+            Session session = factory.openSession();
+            Transaction transaction = null;
+            try {
+                transaction = session.beginTransaction();
+                // Owner columns and amount are read for the audit journal
+                rows = session.createQuery(
+                                "SELECT x." + idProperty + ", x.student.studentId, x.course.courseId"
+                                        + (isPayment(entity) ? ", x.amount" : "")
+                                        + " FROM " + entity + " x WHERE x." + ownerProperty + " = :owner",
+                                Object[].class)
+                        .setParameter("owner", ownerId)
+                        .setMaxResults(chunkSize)
+                        .list();
+                List<Long> ids = new ArrayList<>(rows.size());
+                for (Object[] row : rows) {
+                    ids.add((Long) row[0]);
+                }
+                if (recountCourses && !ids.isEmpty()) {
+                    courseIds = session.createQuery(
+                                    "SELECT DISTINCT x.course.courseId FROM " + entity + " x "
+                                            + "WHERE x." + idProperty + " IN (:ids) AND x.status = 'ACTIVE'", Long.class)
+                            .setParameterList("ids", ids)
+                            .list();
+                }
+                deleted = ids.isEmpty() ? 0 : session.createQuery(
+                                "DELETE FROM " + entity + " WHERE " + idProperty + " IN (:ids)")
+                        .setParameterList("ids", ids)
+                        .executeUpdate();
+                for (Long courseId : courseIds) {
+                    if (!ShardRouter.isSharded()) {
+                        session.createQuery("UPDATE Course SET enrolledCount = :count WHERE courseId = :courseId")
+                                .setParameter("count", (int) count(session, "Enrollment", "course.courseId", courseId,
+                                        " AND x.status = 'ACTIVE'"))
+                                .setParameter("courseId", courseId)
+                                .executeUpdate();
+                    }
+                    Outbox.record(session, EventType.COURSE_UPDATED, courseId, Outbox.payload("reason", "studentDeleted"));
+                }
+                transaction.commit();
+            } catch (Exception e) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw new RuntimeException("Error deleting " + entity + " rows: " + e.getMessage(), e);
+            } finally {
+                session.close();
+            }
+            journalDeleted(entity, rows);
+            if (!courseIds.isEmpty()) {
+                if (ShardRouter.isSharded()) {
+                    EnrollmentDAO enrollmentDAO = new EnrollmentDAO();
+                    for (Long courseId : courseIds) {
+                        enrollmentDAO.refreshEnrolledCount(courseId);
+                    }
+                }
+                OutboxRelay.wakeUp();
+            }
+            if (deleted == 0) {
+                return total;
+            }
+            total += deleted;
+            MetricsRegistry.add("delete.rows", deleted);
+            MetricsRegistry.recordTime("delete.chunk", System.nanoTime() - start);
+            progress.accept(entity, deleted);
+            if (deleted < chunkSize) {
+                return total;
+            }
+            pause();
+        }
+    }
+
+    private static boolean isPayment(String entity) {
+        return entity.endsWith("Payment");
+    }
+
+    private static void journalDeleted(String entity, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            if (isPayment(entity)) {
+                AuditJournal.paymentChanged((Long) row[0], (Long) row[1], (Long) row[2], (BigDecimal) row[3], "DELETED");
+            } else {
+                AuditJournal.enrollmentChanged((Long) row[0], (Long) row[1], (Long) row[2], "DELETED");
+            }
+        }
+    }
+
+    private static long count(Session session, String entity, String ownerProperty, Long ownerId) {
+        return count(session, entity, ownerProperty, ownerId, "");
+    }
+
+    private static long count(Session session, String entity, String ownerProperty, Long ownerId, String condition) {
+        Long count = session.createQuery(
+                        "SELECT COUNT(*) FROM " + entity + " x WHERE x." + ownerProperty + " = :owner" + condition,
+                        Long.class)
+                .setParameter("owner", ownerId)
+                .uniqueResult();
+        return count != null ? count : 0;
+    }
+
+    private void pause() {
+        if (chunkPauseMillis > 0) {
+            try {
+                Thread.sleep(chunkPauseMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Deletion interrupted", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.onlinecourse.dao;
+
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.LongHashSet;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Queries behind the "students also enrolled in" recommendations.
+ * A student counts as enrolled in a course while the enrollment is active or
+ * completed; cancelled enrollments are left out.
+ */
+public class CoEnrollmentDAO {
+
+    /**
+     * Get the courses a student is or was enrolled in.
+     *
+     * @param studentId Student ID
+     * @return Course IDs, each once
+     */
+    public long[] findCourseIdsByStudentId(long studentId) {
+        Session session = ShardRouter.forStudent(studentId).openSession();
+        try {
+            List<Long> rows = session.createQuery(
+                            "SELECT e.course.courseId FROM Enrollment e "
+                                    + "WHERE e.student.studentId = :studentId AND e.status <> 'CANCELLED'", Long.class)
+                    .setParameter("studentId", studentId)
+                    .list();
+            LongHashSet courseIds = new LongHashSet(rows.size());
+            for (Long courseId : rows) {
+                courseIds.add(courseId);
+            }
+            return courseIds.toArray();
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Get the courses of every student, one array per student.
+     * Each shard streams its enrollments ordered by student, so only the arrays
+     * are held in memory, not the rows.
+     *
+     * @return Course IDs per student, for students with at least two courses
+     */
+    public List<long[]> findCourseSetsOfAllStudents() {
+        return ShardRouter.scatter(this::findCourseSets);
+    }
+
+    private List<long[]> findCourseSets(Session session) {
+        List<long[]> courseSets = new ArrayList<>();
+        Query<Object[]> query = session.createQuery(
+                        "SELECT e.student.studentId, e.course.courseId FROM Enrollment e "
+                                + "WHERE e.status <> 'CANCELLED' ORDER BY e.student.studentId", Object[].class)
+                .setFetchSize(AppConfig.getInt("recommendations.fetchSize", 1000))
+                .setReadOnly(true);
+        long[] courses = new long[16];
+        int count = 0;
+        Long currentStudent = null;
+        try (ScrollableResults rows = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (rows.next()) {
+                Object[] row = rows.get();
+                if (!row[0].equals(currentStudent)) {
+                    if (count > 1) {
+                        courseSets.add(Arrays.copyOf(courses, count));
+                    }
+                    currentStudent = (Long) row[0];
+                    count = 0;
+                }
+                if (count == courses.length) {
+                    courses = Arrays.copyOf(courses, count * 2);
+                }
+                courses[count++] = (Long) row[1];
+            }
+        }
+        if (count > 1) {
+            courseSets.add(Arrays.copyOf(courses, count));
+        }
+        return courseSets;
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.onlinecourse.dao;
+
+import com.example.onlinecourse.audit.AuditJournal;
+import com.example.onlinecourse.entity.Enrollment.EnrollmentStatus;
+import com.example.onlinecourse.event.EventType;
+import com.example.onlinecourse.event.Outbox;
+import com.example.onlinecourse.event.OutboxRelay;
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.HibernateUtil;
+import com.example.onlinecourse.util.MetricsRegistry;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.query.Query;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Set-based transition of enrollments in ended courses from ACTIVE to COMPLETED.
+ * Ended courses are found through the end_date index; their active enrollments
+ * are updated by primary key in chunks of completion.chunkSize rows, one short
+ * transaction per chunk, and the course's enrolled count is adjusted once at the
+ * end. Every statement only touches rows that are still ACTIVE, so running it
+ * again after an interruption finishes the remaining rows and changes nothing else.
+ *
+ * Metrics: completion.rows and completion.chunk (time per chunk).
+ */
+public class CourseCompletionDAO {
+    private final SessionFactory sessionFactory;
+    private final int chunkSize;
+
+    public CourseCompletionDAO() {
+        this.sessionFactory = HibernateUtil.getSessionFactory();
+        this.chunkSize = Math.max(1, AppConfig.getInt("completion.chunkSize", 1000));
+    }
+
+    /**
+     * Find ended courses in end date order, one page at a time.
+     *
+     * @param from Earliest end date to include
+     * @param before Courses ending before this date have ended
+     * @param afterEndDate End date of the last course of the previous page, or null for the first page
+     * @param afterCourseId ID of the last course of the previous page
+     * @param limit Page size
+     * @return Rows of course ID and end date
+     */
+    public List<Object[]> findEndedCourses(Date from, Date before, Date afterEndDate, Long afterCourseId, int limit) {
+        Session session = sessionFactory.openSession();
+        try {
+            String keyset = afterEndDate == null ? ""
+                    : " AND (c.endDate > :afterEndDate OR (c.endDate = :afterEndDate AND c.courseId > :afterCourseId))";
+            Query<Object[]> query = session.createQuery(
+                            "SELECT c.courseId, c.endDate FROM Course c WHERE c.endDate >= :from AND c.endDate < :before"
+                                    + keyset + " ORDER BY c.endDate, c.courseId", Object[].class)
+                    .setParameter("from", from)
+                    .setParameter("before", before)
+                    .setMaxResults(limit);
+            if (afterEndDate != null) {
+                query.setParameter("afterEndDate", afterEndDate).setParameter("afterCourseId", afterCourseId);
+            }
+            return query.list();
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Mark the active enrollments of a course as completed on every shard and
+     * adjust the course's enrolled count. A COURSE_UPDATED event refreshes caches
+     * and seat counts on all nodes.
+     *
+     * @param courseId Course ID
+     * @return Number of enrollments completed
+     */
+    public long completeCourse(Long courseId) {
+        long total = 0;
+        for (SessionFactory shard : HibernateUtil.getShardSessionFactories()) {
+            total += completeInChunks(shard, courseId);
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        if (ShardRouter.isSharded()) {
+            new EnrollmentDAO().refreshEnrolledCount(courseId);
+        }
+        Session session = sessionFactory.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            if (!ShardRouter.isSharded()) {
+                Long active = session.createQuery(
+                                "SELECT COUNT(*) FROM Enrollment WHERE course.courseId = :courseId AND status = 'ACTIVE'",
+                                Long.class)
+                        .setParameter("courseId", courseId)
+                        .uniqueResult();
+                session.createQuery("UPDATE Course SET enrolledCount = :count WHERE courseId = :courseId")
+                        .setParameter("count", active != null ? active.intValue() : 0)
+                        .setParameter("courseId", courseId)
+                        .executeUpdate();
+            }
+            Outbox.record(session, EventType.COURSE_UPDATED, courseId,
+                    Outbox.payload("reason", "completed", "completedEnrollments", total));
+            transaction.commit();
+            OutboxRelay.wakeUp();
+            return total;
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw new RuntimeException("Error completing course: " + e.getMessage(), e);
+        } finally {
+            session.close();
+        }
+    }
+
+    private long completeInChunks(SessionFactory factory, Long courseId) {
+        long total = 0;
+        while (true) {
+            long start = System.nanoTime();
+            int updated;
+            List<Object[]> rows;
+            Session session = factory.openSession();
+            Transaction transaction = null;
+            try {
+                transaction = session.beginTransaction();
+                rows = session.createQuery(
+                                "SELECT e.enrollmentId, e.student.studentId FROM Enrollment e "
+                                        + "WHERE e.course.courseId = :courseId AND e.status = 'ACTIVE'",
+                                Object[].class)
+                        .setParameter("courseId", courseId)
+                        .setMaxResults(chunkSize)
+                        .list();
+                List<Long> ids = new ArrayList<>(rows.size());
+                for (Object[] row : rows) {
+                    ids.add((Long) row[0]);
+                }
+                updated = ids.isEmpty() ? 0 : session.createQuery(
+                                "UPDATE Enrollment SET status = :completed WHERE enrollmentId IN (:ids) AND status = 'ACTIVE'")
+                        .setParameter("completed", EnrollmentStatus.COMPLETED)
+                        .setParameterList("ids", ids)
+                        .executeUpdate();
+                transaction.commit();
+            } catch (Exception e) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw new RuntimeException("Error completing enrollments: " + e.getMessage(), e);
+            } finally {
+                session.close();
+            }
+            if (updated == 0) {
+                return total;
+            }
+            for (Object[] row : rows) {
+                AuditJournal.enrollmentChanged((Long) row[0], (Long) row[1], courseId, EnrollmentStatus.COMPLETED.name());
+            }
+            total += updated;
+            MetricsRegistry.add("completion.rows", updated);
+            MetricsRegistry.recordTime("completion.chunk", System.nanoTime() - start);
+            if (updated < chunkSize) {
+                return total;
+            }
+        }
+    }
+}
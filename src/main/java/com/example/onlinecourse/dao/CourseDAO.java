@@ -1,12 +1,19 @@
 package com.example.onlinecourse.dao;
 
 import com.example.onlinecourse.entity.Course;
+import com.example.onlinecourse.event.EventType;
+import com.example.onlinecourse.event.Outbox;
+import com.example.onlinecourse.event.OutboxRelay;
+import com.example.onlinecourse.util.CircuitBreaker;
 import com.example.onlinecourse.util.HibernateUtil;
+import org.hibernate.LockMode;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
 import org.hibernate.query.Query;
 
+import java.sql.Date;
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -14,12 +21,22 @@ import java.util.List;
  * Provides CRUD operations for Course management.
  */
 public class CourseDAO {
+    private static final CircuitBreaker BREAKER = CircuitBreaker.forName("CourseDAO");
     private SessionFactory sessionFactory;
 
     public CourseDAO() {
         this.sessionFactory = HibernateUtil.getSessionFactory();
     }
 
+    /**
+     * Whether catalog calls currently reach the database.
+     *
+     * @return true if the DAO's circuit breaker is closed
+     */
+    public static boolean isDatabaseAvailable() {
+        return BREAKER.isClosed();
+    }
+
     /**
      * Save a new course.
      *
@@ -27,21 +44,24 @@ public class CourseDAO {
      * @return Saved course with generated ID
      */
     public Course save(Course course) {
-        Session session = sessionFactory.openSession();
-        Transaction transaction = null;
-        try {
-            transaction = session.beginTransaction();
-            session.save(course);
-            transaction.commit();
-            return course;
-        } catch (Exception e) {
-            if (transaction != null) {
-                transaction.rollback();
+        return BREAKER.call(() -> {
+            Session session = sessionFactory.openSession();
+            Transaction transaction = null;
+            try {
+                transaction = session.beginTransaction();
+                session.save(course);
+                transaction.commit();
+                ShardRouter.copyToShards(new Course(course));
+                return course;
+            } catch (Exception e) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw new RuntimeException("Error saving course: " + e.getMessage(), e);
+            } finally {
+                session.close();
             }
-            throw new RuntimeException("Error saving course: " + e.getMessage(), e);
-        } finally {
-            session.close();
-        }
+        });
     }
 
     /**
@@ -51,12 +71,14 @@ public class CourseDAO {
      * @return Course entity or null if not found
      */
     public Course findById(Long id) {
-        Session session = sessionFactory.openSession();
-        try {
-            return session.get(Course.class, id);
-        } finally {
-            session.close();
-        }
+        return BREAKER.call(() -> {
+            Session session = sessionFactory.openSession();
+            try {
+                return session.get(Course.class, id);
+            } finally {
+                session.close();
+            }
+        });
     }
 
     /**
@@ -65,13 +87,35 @@ public class CourseDAO {
      * @return List of all courses
      */
     public List<Course> findAll() {
-        Session session = sessionFactory.openSession();
-        try {
-            Query<Course> query = session.createQuery("FROM Course ORDER BY courseName", Course.class);
-            return query.list();
-        } finally {
-            session.close();
-        }
+        return BREAKER.call(() -> {
+            // Catalog reads tolerate replication lag
+            Session session = HibernateUtil.getReadSessionFactory().openSession();
+            try {
+                Query<Course> query = session.createQuery("FROM Course ORDER BY courseName", Course.class);
+                return query.list();
+            } finally {
+                session.close();
+            }
+        });
+    }
+
+    /**
+     * Get all courses from the primary, for caches that are kept up to date by change
+     * notifications: a replica may not have the change yet, and nothing would
+     * replace the older data it returns.
+     *
+     * @return List of all courses
+     */
+    public List<Course> findAllFromPrimary() {
+        return BREAKER.call(() -> {
+            Session session = sessionFactory.openSession();
+            try {
+                Query<Course> query = session.createQuery("FROM Course ORDER BY courseName", Course.class);
+                return query.list();
+            } finally {
+                session.close();
+            }
+        });
     }
 
     /**
@@ -80,63 +124,72 @@ public class CourseDAO {
      * @return List of available courses
      */
     public List<Course> findAvailableCourses() {
-        Session session = sessionFactory.openSession();
-        try {
-            Query<Course> query = session.createQuery(
-                    "FROM Course WHERE enrolledCount < capacity ORDER BY courseName", Course.class);
-            return query.list();
-        } finally {
-            session.close();
-        }
+        return BREAKER.call(() -> {
+            // Catalog reads tolerate replication lag
+            Session session = HibernateUtil.getReadSessionFactory().openSession();
+            try {
+                Query<Course> query = session.createQuery(
+                        "FROM Course WHERE enrolledCount < capacity AND endDate >= :today ORDER BY courseName", Course.class);
+                // Ended courses have their seats freed by the completion job
+                query.setParameter("today", Date.valueOf(LocalDate.now()));
+                return query.list();
+            } finally {
+                session.close();
+            }
+        });
     }
 
     /**
-     * Update course.
+     * Update a course's details.
+     * The editable columns are copied onto the course row loaded and locked in the
+     * transaction, so the enrolled count kept by enrollments is never overwritten
+     * with the caller's copy.
      *
-     * @param course Course entity to update
+     * @param course Course with the new details
      * @return Updated course
      */
     public Course update(Course course) {
-        Session session = sessionFactory.openSession();
-        Transaction transaction = null;
-        try {
-            transaction = session.beginTransaction();
-            session.update(course);
-            transaction.commit();
-            return course;
-        } catch (Exception e) {
-            if (transaction != null) {
-                transaction.rollback();
+        return BREAKER.call(() -> {
+            Session session = sessionFactory.openSession();
+            Transaction transaction = null;
+            try {
+                transaction = session.beginTransaction();
+                Course current = session.get(Course.class, course.getCourseId(), LockMode.PESSIMISTIC_WRITE);
+                if (current == null) {
+                    throw new IllegalArgumentException("Course not found");
+                }
+                current.setCourseName(course.getCourseName());
+                current.setDescription(course.getDescription());
+                current.setInstructor(course.getInstructor());
+                current.setStartDate(course.getStartDate());
+                current.setEndDate(course.getEndDate());
+                current.setFee(course.getFee());
+                current.setCapacity(course.getCapacity());
+                Outbox.record(session, EventType.COURSE_UPDATED, current.getCourseId(),
+                        Outbox.payload("capacity", current.getCapacity(), "enrolledCount", current.getEnrolledCount()));
+                transaction.commit();
+                ShardRouter.copyToShards(new Course(current));
+                OutboxRelay.wakeUp();
+                return current;
+            } catch (Exception e) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw new RuntimeException("Error updating course: " + e.getMessage(), e);
+            } finally {
+                session.close();
             }
-            throw new RuntimeException("Error updating course: " + e.getMessage(), e);
-        } finally {
-            session.close();
-        }
+        });
     }
 
     /**
-     * Delete course by ID.
+     * Delete course by ID with its enrollments and payments.
+     * Uses set-based chunked deletes instead of cascading through loaded entities.
      *
      * @param id Course ID
      */
     public void delete(Long id) {
-        Session session = sessionFactory.openSession();
-        Transaction transaction = null;
-        try {
-            transaction = session.beginTransaction();
-            Course course = session.get(Course.class, id);
-            if (course != null) {
-                session.delete(course);
-            }
-            transaction.commit();
-        } catch (Exception e) {
-            if (transaction != null) {
-                transaction.rollback();
-            }
-            throw new RuntimeException("Error deleting course: " + e.getMessage(), e);
-        } finally {
-            session.close();
-        }
+        new CascadeDeleteDAO().deleteCourse(id, (table, rows) -> { });
     }
 
     /**
@@ -146,16 +199,20 @@ public class CourseDAO {
      * @return List of matching courses
      */
     public List<Course> searchCourses(String searchTerm) {
-        Session session = sessionFactory.openSession();
-        try {
-            Query<Course> query = session.createQuery(
-                    "FROM Course WHERE courseName LIKE :term OR instructor LIKE :term ORDER BY courseName",
-                    Course.class);
-            query.setParameter("term", "%" + searchTerm + "%");
-            return query.list();
-        } finally {
-            session.close();
-        }
+        return BREAKER.call(() -> {
+            // Read from the primary: the results are rendered into course cards cached
+            // under the current course version, which a lagging replica's data would outlive
+            Session session = sessionFactory.openSession();
+            try {
+                Query<Course> query = session.createQuery(
+                        "FROM Course WHERE courseName LIKE :term OR instructor LIKE :term ORDER BY courseName",
+                        Course.class);
+                query.setParameter("term", "%" + searchTerm + "%");
+                return query.list();
+            } finally {
+                session.close();
+            }
+        });
     }
 }
 
@@ -1,21 +1,43 @@
 package com.example.onlinecourse.dao;
 
+import com.example.onlinecourse.audit.AuditJournal;
+import com.example.onlinecourse.entity.ArchivedEnrollment;
 import com.example.onlinecourse.entity.Enrollment;
 import com.example.onlinecourse.entity.Student;
 import com.example.onlinecourse.entity.Course;
+import com.example.onlinecourse.entity.Enrollment.EnrollmentStatus;
+import com.example.onlinecourse.event.EventType;
+import com.example.onlinecourse.event.Outbox;
+import com.example.onlinecourse.event.OutboxRelay;
+import com.example.onlinecourse.util.CircuitBreaker;
+import com.example.onlinecourse.util.ConsistencyTokens;
 import com.example.onlinecourse.util.HibernateUtil;
+import com.example.onlinecourse.util.MultiRowInsert;
+import org.hibernate.LockMode;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
 import org.hibernate.query.Query;
 
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Data Access Object for Enrollment entity.
  * Provides CRUD operations for Enrollment management.
  */
 public class EnrollmentDAO {
+    private static final CircuitBreaker BREAKER = CircuitBreaker.forName("EnrollmentDAO");
     private SessionFactory sessionFactory;
 
     public EnrollmentDAO() {
@@ -29,135 +51,571 @@ public class EnrollmentDAO {
      * @return Saved enrollment with generated ID
      */
     public Enrollment save(Enrollment enrollment) {
-        Session session = sessionFactory.openSession();
+        return BREAKER.call(() -> {
+            Session session = ShardRouter.forStudent(studentIdOf(enrollment)).openSession();
+            Transaction transaction = null;
+            try {
+                transaction = session.beginTransaction();
+                ShardRouter.ensureReferences(session, enrollment.getCourse().getCourseId(),
+                        List.of(studentIdOf(enrollment)));
+                session.save(enrollment);
+                // Flush to get the generated ID
+                session.flush();
+                // Update course enrolled count by querying actual count
+                Course course = enrollment.getCourse();
+                recountInTransaction(session, course);
+                Outbox.record(session, EventType.ENROLLMENT_CREATED, enrollment.getEnrollmentId(),
+                        Outbox.payload("studentId", studentIdOf(enrollment), "courseId", course.getCourseId()));
+                // Reload with associations to avoid lazy loading issues
+                Query<Enrollment> query = session.createQuery(
+                        "SELECT e FROM Enrollment e LEFT JOIN FETCH e.course LEFT JOIN FETCH e.student WHERE e.enrollmentId = :id",
+                        Enrollment.class);
+                query.setParameter("id", enrollment.getEnrollmentId());
+                Enrollment savedEnrollment = query.uniqueResult();
+                transaction.commit();
+                AuditJournal.enrollmentChanged(enrollment.getEnrollmentId(), studentIdOf(enrollment),
+                        course.getCourseId(), enrollment.getStatus().name());
+                ConsistencyTokens.recordWrite(studentIdOf(enrollment));
+                OutboxRelay.wakeUp();
+                return savedEnrollment != null ? savedEnrollment : enrollment;
+            } catch (Exception e) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw new RuntimeException("Error saving enrollment: " + e.getMessage(), e);
+            } finally {
+                session.close();
+            }
+        });
+    }
+
+    /**
+     * Enroll a cohort of students in one course.
+     * Seats for the whole cohort are reserved under one lock on the course row,
+     * students and existing enrollments are checked with one IN query each, and the
+     * new rows and their ENROLLMENT_CREATED events are written with multi-row inserts
+     * followed by a single update of the enrolled count. Students that cannot be
+     * enrolled are reported in the result instead of failing the whole request.
+     *
+     * With shards the seats are reserved on the primary first and each shard writes
+     * its students in its own transaction; if a shard fails, its students are
+     * reported as FAILED and the count is recounted afterwards.
+     *
+     * @param courseId Course ID
+     * @param studentIds Student IDs; when seats run out, the first ones are enrolled
+     * @param blockConflicts Whether students whose other active courses overlap the
+     *                       course's dates are refused (SCHEDULE_CONFLICT) instead of enrolled
+     * @return Outcome per student
+     * @throws RuntimeException if the course does not exist or has ended, or the reservation fails
+     */
+    public BulkEnrollmentResult enrollCohort(Long courseId, List<Long> studentIds, boolean blockConflicts) {
+        return BREAKER.call(() -> {
+            BulkEnrollmentResult result = new BulkEnrollmentResult(courseId);
+            List<Long> distinct = new ArrayList<>();
+            Set<Long> seen = new HashSet<>();
+            for (Long studentId : studentIds) {
+                if (seen.add(studentId)) {
+                    distinct.add(studentId);
+                } else {
+                    result.addDuplicate(studentId);
+                }
+            }
+            if (distinct.isEmpty()) {
+                return result;
+            }
+
+            boolean sharded = ShardRouter.isSharded();
+            Map<SessionFactory, List<Long>> admittedByShard = new LinkedHashMap<>();
+            Map<Long, EnrollmentStatus> statuses = new HashMap<>();
+            List<Object[]> written = List.of();
+            Session session = sessionFactory.openSession();
+            Transaction transaction = null;
+            try {
+                transaction = session.beginTransaction();
+                Course course = session.get(Course.class, courseId, LockMode.PESSIMISTIC_WRITE);
+                if (course == null) {
+                    throw new RuntimeException("Course not found with ID: " + courseId);
+                }
+                if (course.hasEnded()) {
+                    throw new RuntimeException("Course has ended. Cannot enroll more students.");
+                }
+                Set<Long> existing = new HashSet<>(session.createQuery(
+                                "SELECT s.studentId FROM Student s WHERE s.studentId IN (:ids)", Long.class)
+                        .setParameterList("ids", distinct)
+                        .list());
+                if (sharded) {
+                    for (Map.Entry<SessionFactory, List<Long>> shard : groupByShard(distinct).entrySet()) {
+                        Session shardSession = shard.getKey().openSession();
+                        try {
+                            loadStatuses(shardSession, courseId, shard.getValue(), statuses);
+                        } finally {
+                            shardSession.close();
+                        }
+                    }
+                } else {
+                    loadStatuses(session, courseId, distinct, statuses);
+                }
+
+                Map<Long, List<ScheduleConflict>> conflicts = Map.of();
+                if (blockConflicts) {
+                    List<Long> candidates = new ArrayList<>();
+                    for (Long studentId : distinct) {
+                        EnrollmentStatus status = statuses.get(studentId);
+                        if (existing.contains(studentId) && status != EnrollmentStatus.ACTIVE
+                                && status != EnrollmentStatus.COMPLETED) {
+                            candidates.add(studentId);
+                        }
+                    }
+                    if (!candidates.isEmpty()) {
+                        ZoneId zone = ZoneId.systemDefault();
+                        conflicts = new ScheduleConflictDAO().findConflicts(candidates, course,
+                                Date.from(LocalDate.now(zone).atStartOfDay(zone).toInstant()));
+                    }
+                }
+
+                int capacity = course.getCapacity() != null ? course.getCapacity() : 0;
+                int enrolled = course.getEnrolledCount() != null ? course.getEnrolledCount() : 0;
+                int free = Math.max(0, capacity - enrolled);
+                List<Long> admitted = new ArrayList<>();
+                for (Long studentId : distinct) {
+                    EnrollmentStatus status = statuses.get(studentId);
+                    if (!existing.contains(studentId)) {
+                        result.set(studentId, BulkEnrollmentResult.Outcome.STUDENT_NOT_FOUND);
+                    } else if (status == EnrollmentStatus.ACTIVE) {
+                        result.set(studentId, BulkEnrollmentResult.Outcome.ALREADY_ENROLLED);
+                    } else if (status == EnrollmentStatus.COMPLETED) {
+                        // The completed row holds the (student_id, course_id) key and the student's history
+                        result.set(studentId, BulkEnrollmentResult.Outcome.ALREADY_COMPLETED);
+                    } else if (conflicts.containsKey(studentId)) {
+                        result.setConflicts(studentId, conflicts.get(studentId));
+                    } else if (free > 0) {
+                        admitted.add(studentId);
+                        free--;
+                    } else {
+                        result.set(studentId, BulkEnrollmentResult.Outcome.COURSE_FULL);
+                    }
+                }
+
+                if (!admitted.isEmpty()) {
+                    if (sharded) {
+                        admittedByShard.putAll(groupByShard(admitted));
+                    } else {
+                        written = writeCohort(session, courseId, admitted, statuses, result);
+                    }
+                    // Reserves the seats with shards; the shard writes follow after commit
+                    session.createQuery("UPDATE Course SET enrolledCount = enrolledCount + :count WHERE courseId = :courseId")
+                            .setParameter("count", admitted.size())
+                            .setParameter("courseId", courseId)
+                            .executeUpdate();
+                    if (!sharded) {
+                        Outbox.record(session, EventType.COURSE_UPDATED, courseId,
+                                Outbox.payload("reason", "cohortEnrolled", "count", admitted.size()));
+                    }
+                }
+                transaction.commit();
+                journalCohort(courseId, written);
+            } catch (Exception e) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw new RuntimeException("Error enrolling cohort: " + e.getMessage(), e);
+            } finally {
+                session.close();
+            }
+
+            if (sharded && !admittedByShard.isEmpty()) {
+                for (Map.Entry<SessionFactory, List<Long>> shard : admittedByShard.entrySet()) {
+                    writeCohortOnShard(shard.getKey(), courseId, shard.getValue(), statuses, result);
+                }
+                // Gives back the seats of failed shards and records the change for other nodes
+                refreshEnrolledCount(courseId);
+                recordCourseUpdated(courseId, "cohortEnrolled");
+            }
+            for (Map.Entry<Long, BulkEnrollmentResult.Outcome> entry : result.getOutcomes().entrySet()) {
+                if (entry.getValue() == BulkEnrollmentResult.Outcome.ENROLLED
+                        || entry.getValue() == BulkEnrollmentResult.Outcome.REACTIVATED) {
+                    ConsistencyTokens.recordWrite(entry.getKey());
+                }
+            }
+            if (result.getEnrolledCount() > 0) {
+                OutboxRelay.wakeUp();
+            }
+            return result;
+        });
+    }
+
+    private void writeCohortOnShard(SessionFactory shard, Long courseId, List<Long> admitted,
+                                    Map<Long, EnrollmentStatus> statuses, BulkEnrollmentResult result) {
+        Session session = shard.openSession();
         Transaction transaction = null;
         try {
             transaction = session.beginTransaction();
-            session.save(enrollment);
-            // Flush to get the generated ID
-            session.flush();
-            // Update course enrolled count by querying actual count
-            Course course = enrollment.getCourse();
-            if (course != null) {
-                Query<Long> countQuery = session.createQuery(
-                        "SELECT COUNT(*) FROM Enrollment WHERE course.courseId = :courseId AND status = 'ACTIVE'",
-                        Long.class);
-                countQuery.setParameter("courseId", course.getCourseId());
-                Long count = countQuery.uniqueResult();
-                course.setEnrolledCount(count != null ? count.intValue() : 0);
-                session.update(course);
-            }
-            // Reload with associations to avoid lazy loading issues
-            Query<Enrollment> query = session.createQuery(
-                    "SELECT e FROM Enrollment e LEFT JOIN FETCH e.course LEFT JOIN FETCH e.student WHERE e.enrollmentId = :id",
-                    Enrollment.class);
-            query.setParameter("id", enrollment.getEnrollmentId());
-            Enrollment savedEnrollment = query.uniqueResult();
+            ShardRouter.ensureReferences(session, courseId, admitted);
+            List<Object[]> written = writeCohort(session, courseId, admitted, statuses, result);
             transaction.commit();
-            return savedEnrollment != null ? savedEnrollment : enrollment;
+            journalCohort(courseId, written);
         } catch (Exception e) {
             if (transaction != null) {
                 transaction.rollback();
             }
-            throw new RuntimeException("Error saving enrollment: " + e.getMessage(), e);
+            System.err.println("Error enrolling cohort on shard: " + e.getMessage());
+            for (Long studentId : admitted) {
+                result.set(studentId, BulkEnrollmentResult.Outcome.FAILED);
+            }
         } finally {
             session.close();
         }
     }
 
     /**
-     * Find enrollment by ID.
+     * Write the enrollments of admitted students in the caller's transaction.
+     * Cancelled enrollments are reactivated, since (student_id, course_id) is unique;
+     * the others are inserted (students with an active or completed enrollment are
+     * never admitted). Outcomes are set only once the statements have run.
      *
-     * @param id Enrollment ID
-     * @return Enrollment entity or null if not found
+     * @return Enrollment ID and student ID of every written row
      */
-    public Enrollment findById(Long id) {
+    private static List<Object[]> writeCohort(Session session, Long courseId, List<Long> admitted,
+                                    Map<Long, EnrollmentStatus> statuses, BulkEnrollmentResult result) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Long> reactivated = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        for (Long studentId : admitted) {
+            if (statuses.get(studentId) == EnrollmentStatus.CANCELLED) {
+                reactivated.add(studentId);
+            } else {
+                rows.add(new Object[]{studentId, courseId, now, EnrollmentStatus.ACTIVE.name()});
+            }
+        }
+        if (!reactivated.isEmpty()) {
+            session.createQuery("UPDATE Enrollment SET status = :status, enrollmentDate = :now "
+                            + "WHERE course.courseId = :courseId AND student.studentId IN (:ids)")
+                    .setParameter("status", EnrollmentStatus.ACTIVE)
+                    .setParameter("now", now)
+                    .setParameter("courseId", courseId)
+                    .setParameterList("ids", reactivated)
+                    .executeUpdate();
+        }
+        MultiRowInsert.insert(session, "enrollments",
+                new String[]{"student_id", "course_id", "enrollment_date", "status"}, rows);
+
+        List<Object[]> written = session.createQuery(
+                        "SELECT e.enrollmentId, e.student.studentId FROM Enrollment e "
+                                + "WHERE e.course.courseId = :courseId AND e.student.studentId IN (:ids)", Object[].class)
+                .setParameter("courseId", courseId)
+                .setParameterList("ids", admitted)
+                .list();
+        List<Long> enrollmentIds = new ArrayList<>(written.size());
+        List<Map<String, Object>> payloads = new ArrayList<>(written.size());
+        for (Object[] row : written) {
+            enrollmentIds.add((Long) row[0]);
+            // Marked so the seat subscribers skip it; the cohort's COURSE_UPDATED event covers them
+            payloads.add(Outbox.payload("studentId", row[1], "courseId", courseId, "cohort", true));
+        }
+        Outbox.recordAll(session, EventType.ENROLLMENT_CREATED, enrollmentIds, payloads);
+
+        for (Long studentId : admitted) {
+            result.set(studentId, statuses.get(studentId) == EnrollmentStatus.CANCELLED
+                    ? BulkEnrollmentResult.Outcome.REACTIVATED : BulkEnrollmentResult.Outcome.ENROLLED);
+        }
+        return written;
+    }
+
+    private static void journalCohort(Long courseId, List<Object[]> written) {
+        for (Object[] row : written) {
+            AuditJournal.enrollmentChanged((Long) row[0], (Long) row[1], courseId, EnrollmentStatus.ACTIVE.name());
+        }
+    }
+
+    private static void loadStatuses(Session session, Long courseId, List<Long> studentIds,
+                                     Map<Long, EnrollmentStatus> into) {
+        List<Object[]> rows = session.createQuery(
+                        "SELECT e.student.studentId, e.status FROM Enrollment e "
+                                + "WHERE e.course.courseId = :courseId AND e.student.studentId IN (:ids)", Object[].class)
+                .setParameter("courseId", courseId)
+                .setParameterList("ids", studentIds)
+                .list();
+        for (Object[] row : rows) {
+            into.put((Long) row[0], (EnrollmentStatus) row[1]);
+        }
+    }
+
+    private static Map<SessionFactory, List<Long>> groupByShard(List<Long> studentIds) {
+        Map<SessionFactory, List<Long>> byShard = new LinkedHashMap<>();
+        for (Long studentId : studentIds) {
+            byShard.computeIfAbsent(ShardRouter.forStudent(studentId), k -> new ArrayList<>()).add(studentId);
+        }
+        return byShard;
+    }
+
+    private void recordCourseUpdated(Long courseId, String reason) {
         Session session = sessionFactory.openSession();
+        Transaction transaction = null;
         try {
-            Query<Enrollment> query = session.createQuery(
-                    "SELECT e FROM Enrollment e LEFT JOIN FETCH e.course LEFT JOIN FETCH e.student WHERE e.enrollmentId = :id",
-                    Enrollment.class);
-            query.setParameter("id", id);
-            return query.uniqueResult();
+            transaction = session.beginTransaction();
+            Outbox.record(session, EventType.COURSE_UPDATED, courseId, Outbox.payload("reason", reason));
+            transaction.commit();
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw new RuntimeException("Error recording course update: " + e.getMessage(), e);
         } finally {
             session.close();
         }
     }
 
     /**
-     * Get all enrollments.
+     * Find enrollment by ID with course and student fetched.
+     *
+     * @param id Enrollment ID
+     * @return Enrollment entity or null if not found
+     */
+    public Enrollment findById(Long id) {
+        return findById(id, FetchPlan.FULL);
+    }
+
+    /**
+     * Find enrollment by ID.
+     *
+     * @param id Enrollment ID
+     * @param plan Associations to fetch
+     * @return Enrollment entity or null if not found
+     */
+    public Enrollment findById(Long id, FetchPlan plan) {
+        return BREAKER.call(() -> {
+            // The owning shard is not known from the ID alone, so ask every shard
+            List<Enrollment> found = ShardRouter.scatter(session -> session.createQuery(
+                            "SELECT e FROM Enrollment e" + plan.joins("e") + " WHERE e.enrollmentId = :id",
+                            Enrollment.class)
+                    .setParameter("id", id)
+                    .list());
+            return found.isEmpty() ? null : found.get(0);
+        });
+    }
+
+    /**
+     * Get all enrollments with course and student fetched.
      *
      * @return List of all enrollments
      */
     public List<Enrollment> findAll() {
-        Session session = sessionFactory.openSession();
-        try {
-            Query<Enrollment> query = session.createQuery(
-                    "SELECT DISTINCT e FROM Enrollment e LEFT JOIN FETCH e.course LEFT JOIN FETCH e.student ORDER BY e.enrollmentDate DESC",
-                    Enrollment.class);
-            return query.list();
-        } finally {
-            session.close();
-        }
+        return findAll(FetchPlan.FULL);
     }
 
     /**
-     * Get enrollments by student ID.
+     * Get all enrollments.
+     *
+     * @param plan Associations to fetch
+     * @return List of all enrollments
+     */
+    public List<Enrollment> findAll(FetchPlan plan) {
+        return BREAKER.call(() -> {
+            List<Enrollment> enrollments = ShardRouter.scatter(session -> session.createQuery(
+                            "SELECT e FROM Enrollment e" + plan.joins("e") + " ORDER BY e.enrollmentDate DESC",
+                            Enrollment.class)
+                    .list());
+            if (ShardRouter.isSharded()) {
+                enrollments.sort(Comparator.comparing(Enrollment::getEnrollmentDate,
+                        Comparator.nullsLast(Comparator.reverseOrder())));
+            }
+            return enrollments;
+        });
+    }
+
+    /**
+     * Get enrollments by student ID with course and student fetched.
      *
      * @param studentId Student ID
      * @return List of enrollments for the student
      */
     public List<Enrollment> findByStudentId(Long studentId) {
-        Session session = sessionFactory.openSession();
-        try {
-            Query<Enrollment> query = session.createQuery(
-                    "SELECT DISTINCT e FROM Enrollment e LEFT JOIN FETCH e.course LEFT JOIN FETCH e.student WHERE e.student.studentId = :studentId ORDER BY e.enrollmentDate DESC",
-                    Enrollment.class);
-            query.setParameter("studentId", studentId);
-            return query.list();
-        } finally {
-            session.close();
-        }
+        return findByStudentId(studentId, FetchPlan.FULL);
     }
 
     /**
-     * Get enrollments by course ID.
+     * Get enrollments by student ID.
+     *
+     * @param studentId Student ID
+     * @param plan Associations to fetch
+     * @return List of enrollments for the student
+     */
+    public List<Enrollment> findByStudentId(Long studentId, FetchPlan plan) {
+        return BREAKER.call(() -> {
+            Session session = ShardRouter.forStudentRead(studentId).openSession();
+            try {
+                Query<Enrollment> query = session.createQuery(
+                        "SELECT e FROM Enrollment e" + plan.joins("e") + " WHERE e.student.studentId = :studentId ORDER BY e.enrollmentDate DESC",
+                        Enrollment.class);
+                query.setParameter("studentId", studentId);
+                return query.list();
+            } finally {
+                session.close();
+            }
+        });
+    }
+
+    /**
+     * Get enrollments by student ID, optionally including archived history.
+     * The archive is only read when asked, so the default path touches the hot table only.
+     *
+     * @param studentId Student ID
+     * @param plan Associations to fetch
+     * @param includeHistory Whether to add archived enrollments
+     * @return List of enrollments for the student, newest first
+     */
+    public List<Enrollment> findByStudentId(Long studentId, FetchPlan plan, boolean includeHistory) {
+        return BREAKER.call(() -> {
+            List<Enrollment> enrollments = findByStudentId(studentId, plan);
+            if (!includeHistory) {
+                return enrollments;
+            }
+            Session session = ShardRouter.forStudentRead(studentId).openSession();
+            try {
+                for (ArchivedEnrollment archived : session.createQuery(
+                                "SELECT e FROM ArchivedEnrollment e" + plan.joins("e") + " WHERE e.student.studentId = :studentId",
+                                ArchivedEnrollment.class)
+                        .setParameter("studentId", studentId)
+                        .list()) {
+                    enrollments.add(archived.toEnrollment());
+                }
+            } finally {
+                session.close();
+            }
+            enrollments.sort(Comparator.comparing(Enrollment::getEnrollmentDate,
+                    Comparator.nullsLast(Comparator.reverseOrder())));
+            return enrollments;
+        });
+    }
+
+    /**
+     * Get enrollments by course ID with course and student fetched.
      *
      * @param courseId Course ID
      * @return List of enrollments for the course
      */
     public List<Enrollment> findByCourseId(Long courseId) {
-        Session session = sessionFactory.openSession();
-        try {
-            Query<Enrollment> query = session.createQuery(
-                    "SELECT DISTINCT e FROM Enrollment e LEFT JOIN FETCH e.course LEFT JOIN FETCH e.student WHERE e.course.courseId = :courseId",
-                    Enrollment.class);
-            query.setParameter("courseId", courseId);
-            return query.list();
-        } finally {
-            session.close();
-        }
+        return findByCourseId(courseId, FetchPlan.FULL);
+    }
+
+    /**
+     * Get enrollments by course ID.
+     *
+     * @param courseId Course ID
+     * @param plan Associations to fetch
+     * @return List of enrollments for the course
+     */
+    public List<Enrollment> findByCourseId(Long courseId, FetchPlan plan) {
+        return BREAKER.call(() -> {
+            // A course's enrollments are spread over all shards
+            return ShardRouter.scatter(session -> session.createQuery(
+                            "SELECT e FROM Enrollment e" + plan.joins("e") + " WHERE e.course.courseId = :courseId",
+                            Enrollment.class)
+                    .setParameter("courseId", courseId)
+                    .list());
+        });
     }
 
     /**
-     * Check if student is already enrolled in a course.
+     * Count the active enrollments of a course across all shards.
+     *
+     * @param courseId Course ID
+     * @return Number of active enrollments
+     */
+    public long countActiveByCourseId(Long courseId) {
+        return BREAKER.call(() -> {
+            List<Long> counts = ShardRouter.scatter(session -> session.createQuery(
+                            "SELECT COUNT(*) FROM Enrollment WHERE course.courseId = :courseId AND status = 'ACTIVE'",
+                            Long.class)
+                    .setParameter("courseId", courseId)
+                    .list());
+            long total = 0;
+            for (Long count : counts) {
+                total += count != null ? count : 0;
+            }
+            return total;
+        });
+    }
+
+    /**
+     * Find a student's enrollment in a course with course and student fetched.
      *
      * @param studentId Student ID
      * @param courseId Course ID
      * @return Enrollment if exists, null otherwise
      */
     public Enrollment findByStudentAndCourse(Long studentId, Long courseId) {
-        Session session = sessionFactory.openSession();
-        try {
-            Query<Enrollment> query = session.createQuery(
-                    "SELECT e FROM Enrollment e LEFT JOIN FETCH e.course LEFT JOIN FETCH e.student WHERE e.student.studentId = :studentId AND e.course.courseId = :courseId",
-                    Enrollment.class);
-            query.setParameter("studentId", studentId);
-            query.setParameter("courseId", courseId);
-            return query.uniqueResult();
-        } finally {
-            session.close();
-        }
+        return findByStudentAndCourse(studentId, courseId, FetchPlan.FULL);
+    }
+
+    /**
+     * Find a student's enrollment in a course.
+     *
+     * @param studentId Student ID
+     * @param courseId Course ID
+     * @param plan Associations to fetch
+     * @return Enrollment if exists, null otherwise
+     */
+    public Enrollment findByStudentAndCourse(Long studentId, Long courseId, FetchPlan plan) {
+        return BREAKER.call(() -> {
+            Session session = ShardRouter.forStudent(studentId).openSession();
+            try {
+                Query<Enrollment> query = session.createQuery(
+                        "SELECT e FROM Enrollment e" + plan.joins("e") + " WHERE e.student.studentId = :studentId AND e.course.courseId = :courseId",
+                        Enrollment.class);
+                query.setParameter("studentId", studentId);
+                query.setParameter("courseId", courseId);
+                return query.uniqueResult();
+            } finally {
+                session.close();
+            }
+        });
+    }
+
+    /**
+     * Check if a student has an active enrollment in a course.
+     * Runs a SELECT 1 on the (student_id, course_id) unique key without loading entities.
+     *
+     * @param studentId Student ID
+     * @param courseId Course ID
+     * @return true if an active enrollment exists
+     */
+    public boolean existsActiveEnrollment(Long studentId, Long courseId) {
+        return BREAKER.call(() -> {
+            Session session = ShardRouter.forStudent(studentId).openSession();
+            try {
+                Query<?> query = session.createQuery(
+                        "SELECT 1 FROM Enrollment e WHERE e.student.studentId = :studentId AND e.course.courseId = :courseId AND e.status = 'ACTIVE'");
+                query.setParameter("studentId", studentId);
+                query.setParameter("courseId", courseId);
+                query.setMaxResults(1);
+                return query.uniqueResult() != null;
+            } finally {
+                session.close();
+            }
+        });
+    }
+
+    /**
+     * Get the IDs of all courses a student is actively enrolled in.
+     * Reads only the enrollment row's course_id, without joining courses or students.
+     *
+     * @param studentId Student ID
+     * @return List of course IDs
+     */
+    public List<Long> findActiveCourseIdsByStudentId(Long studentId) {
+        return BREAKER.call(() -> {
+            Session session = ShardRouter.forStudent(studentId).openSession();
+            try {
+                Query<Long> query = session.createQuery(
+                        "SELECT e.course.courseId FROM Enrollment e WHERE e.student.studentId = :studentId AND e.status = 'ACTIVE'",
+                        Long.class);
+                query.setParameter("studentId", studentId);
+                return query.list();
+            } finally {
+                session.close();
+            }
+        });
     }
 
     /**
@@ -167,38 +625,46 @@ public class EnrollmentDAO {
      * @return Updated enrollment
      */
     public Enrollment update(Enrollment enrollment) {
-        Session session = sessionFactory.openSession();
-        Transaction transaction = null;
-        try {
-            transaction = session.beginTransaction();
-            session.update(enrollment);
-            // Update course enrolled count when status changes
-            Course course = enrollment.getCourse();
-            if (course != null) {
-                Query<Long> countQuery = session.createQuery(
-                        "SELECT COUNT(*) FROM Enrollment WHERE course.courseId = :courseId AND status = 'ACTIVE'",
-                        Long.class);
-                countQuery.setParameter("courseId", course.getCourseId());
-                Long count = countQuery.uniqueResult();
-                course.setEnrolledCount(count != null ? count.intValue() : 0);
-                session.update(course);
-            }
-            // Reload with associations to avoid lazy loading issues
-            Query<Enrollment> query = session.createQuery(
-                    "SELECT e FROM Enrollment e LEFT JOIN FETCH e.course LEFT JOIN FETCH e.student WHERE e.enrollmentId = :id",
-                    Enrollment.class);
-            query.setParameter("id", enrollment.getEnrollmentId());
-            Enrollment updatedEnrollment = query.uniqueResult();
-            transaction.commit();
-            return updatedEnrollment != null ? updatedEnrollment : enrollment;
-        } catch (Exception e) {
-            if (transaction != null) {
-                transaction.rollback();
+        return BREAKER.call(() -> {
+            Session session = ShardRouter.forStudent(studentIdOf(enrollment)).openSession();
+            Transaction transaction = null;
+            try {
+                transaction = session.beginTransaction();
+                session.update(enrollment);
+                // Update course enrolled count when status changes
+                Course course = enrollment.getCourse();
+                recountInTransaction(session, course);
+                boolean cancelled = enrollment.getStatus() == Enrollment.EnrollmentStatus.CANCELLED;
+                if (cancelled) {
+                    Outbox.record(session, EventType.ENROLLMENT_CANCELLED, enrollment.getEnrollmentId(),
+                            Outbox.payload("studentId", studentIdOf(enrollment), "courseId", course.getCourseId()));
+                }
+                // Reload with associations to avoid lazy loading issues
+                Query<Enrollment> query = session.createQuery(
+                        "SELECT e FROM Enrollment e LEFT JOIN FETCH e.course LEFT JOIN FETCH e.student WHERE e.enrollmentId = :id",
+                        Enrollment.class);
+                query.setParameter("id", enrollment.getEnrollmentId());
+                Enrollment updatedEnrollment = query.uniqueResult();
+                transaction.commit();
+                AuditJournal.enrollmentChanged(enrollment.getEnrollmentId(), studentIdOf(enrollment),
+                        course != null ? course.getCourseId() : null,
+                        enrollment.getStatus() != null ? enrollment.getStatus().name() : null);
+                if (cancelled) {
+                    OutboxRelay.wakeUp();
+                } else if (course != null) {
+                    refreshEnrolledCount(course.getCourseId());
+                }
+                ConsistencyTokens.recordWrite(studentIdOf(enrollment));
+                return updatedEnrollment != null ? updatedEnrollment : enrollment;
+            } catch (Exception e) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw new RuntimeException("Error updating enrollment: " + e.getMessage(), e);
+            } finally {
+                session.close();
             }
-            throw new RuntimeException("Error updating enrollment: " + e.getMessage(), e);
-        } finally {
-            session.close();
-        }
+        });
     }
 
     /**
@@ -207,34 +673,173 @@ public class EnrollmentDAO {
      * @param id Enrollment ID
      */
     public void delete(Long id) {
-        Session session = sessionFactory.openSession();
-        Transaction transaction = null;
-        try {
-            transaction = session.beginTransaction();
-            Enrollment enrollment = session.get(Enrollment.class, id);
-            if (enrollment != null) {
-                Course course = enrollment.getCourse();
-                session.delete(enrollment);
-                // Update course enrolled count by querying actual count
+        BREAKER.run(() -> {
+            List<Long> owners = ShardRouter.scatter(s -> s.createQuery(
+                            "SELECT e.student.studentId FROM Enrollment e WHERE e.enrollmentId = :id", Long.class)
+                    .setParameter("id", id)
+                    .list());
+            if (owners.isEmpty()) {
+                return;
+            }
+            Long studentId = owners.get(0);
+            Session session = ShardRouter.forStudent(studentId).openSession();
+            Transaction transaction = null;
+            try {
+                transaction = session.beginTransaction();
+                Enrollment enrollment = session.get(Enrollment.class, id);
+                Course course = null;
+                if (enrollment != null) {
+                    course = enrollment.getCourse();
+                    session.delete(enrollment);
+                    // Update course enrolled count by querying actual count
+                    recountInTransaction(session, course);
+                }
+                transaction.commit();
                 if (course != null) {
-                    Query<Long> countQuery = session.createQuery(
-                            "SELECT COUNT(*) FROM Enrollment WHERE course.courseId = :courseId AND status = 'ACTIVE'",
-                            Long.class);
-                    countQuery.setParameter("courseId", course.getCourseId());
-                    Long count = countQuery.uniqueResult();
-                    course.setEnrolledCount(count != null ? count.intValue() : 0);
-                    session.update(course);
+                    refreshEnrolledCount(course.getCourseId());
                 }
+                ConsistencyTokens.recordWrite(studentId);
+            } catch (Exception e) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw new RuntimeException("Error deleting enrollment: " + e.getMessage(), e);
+            } finally {
+                session.close();
             }
-            transaction.commit();
-        } catch (Exception e) {
-            if (transaction != null) {
-                transaction.rollback();
-            }
-            throw new RuntimeException("Error deleting enrollment: " + e.getMessage(), e);
-        } finally {
-            session.close();
+        });
+    }
+
+    /**
+     * Recount a course's active enrollments inside the write transaction.
+     * Only possible when unsharded; with shards the count spans databases and is
+     * refreshed after commit by {@link #refreshEnrolledCount(Long)}, for creations
+     * and cancellations by the enrollment event subscriber.
+     *
+     * @param session Session of the write transaction
+     * @param course Course whose count changed
+     */
+    private void recountInTransaction(Session session, Course course) {
+        if (course == null || ShardRouter.isSharded()) {
+            return;
         }
+        Query<Long> countQuery = session.createQuery(
+                "SELECT COUNT(*) FROM Enrollment WHERE course.courseId = :courseId AND status = 'ACTIVE'",
+                Long.class);
+        countQuery.setParameter("courseId", course.getCourseId());
+        Long count = countQuery.uniqueResult();
+        // The course may be a detached copy, so the row is updated directly
+        session.createQuery("UPDATE Course SET enrolledCount = :count WHERE courseId = :courseId")
+                .setParameter("count", count != null ? count.intValue() : 0)
+                .setParameter("courseId", course.getCourseId())
+                .executeUpdate();
     }
-}
 
+    /**
+     * Recount a course's active enrollments across shards and store the count
+     * on the course row in the primary database. No-op when unsharded.
+     *
+     * @param courseId ID of the course whose count changed
+     */
+    public void refreshEnrolledCount(Long courseId) {
+        BREAKER.run(() -> {
+            if (!ShardRouter.isSharded()) {
+                return;
+            }
+            long count = countActiveByCourseId(courseId);
+            Session session = sessionFactory.openSession();
+            Transaction transaction = null;
+            try {
+                transaction = session.beginTransaction();
+                session.createQuery("UPDATE Course SET enrolledCount = :count WHERE courseId = :courseId")
+                        .setParameter("count", (int) count)
+                        .setParameter("courseId", courseId)
+                        .executeUpdate();
+                transaction.commit();
+            } catch (Exception e) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw new RuntimeException("Error updating enrolled count: " + e.getMessage(), e);
+            } finally {
+                session.close();
+            }
+        });
+    }
+
+    /**
+     * Correct stored enrolled counts that drifted from the active enrollments,
+     * e.g. after a failed event delivery or a manual database change.
+     * Active enrollments are counted per course with one grouped query per shard.
+     * The stored counts are read before the enrollments are counted, and a course
+     * is only updated if its stored count is still that value: an enrollment or
+     * cancellation committed in between changes the stored count, so the course
+     * is skipped (and checked again next run) instead of being set to a count
+     * that misses it.
+     *
+     * @return Number of courses corrected
+     */
+    public int reconcileEnrolledCounts() {
+        return BREAKER.call(() -> {
+            List<Object[]> stored;
+            Session readSession = sessionFactory.openSession();
+            try {
+                stored = readSession.createQuery("SELECT c.courseId, c.enrolledCount FROM Course c", Object[].class)
+                        .list();
+            } finally {
+                readSession.close();
+            }
+
+            Map<Long, Long> actual = new HashMap<>();
+            for (Object[] row : ShardRouter.scatter(session -> session.createQuery(
+                            "SELECT e.course.courseId, COUNT(*) FROM Enrollment e WHERE e.status = 'ACTIVE' "
+                                    + "GROUP BY e.course.courseId", Object[].class)
+                    .list())) {
+                actual.merge((Long) row[0], (Long) row[1], Long::sum);
+            }
+
+            int corrected = 0;
+            Session session = sessionFactory.openSession();
+            Transaction transaction = null;
+            try {
+                transaction = session.beginTransaction();
+                for (Object[] row : stored) {
+                    Long courseId = (Long) row[0];
+                    int storedCount = row[1] != null ? (Integer) row[1] : 0;
+                    int actualCount = actual.getOrDefault(courseId, 0L).intValue();
+                    if (storedCount == actualCount) {
+                        continue;
+                    }
+                    int updated = session.createQuery("UPDATE Course SET enrolledCount = :count "
+                                    + "WHERE courseId = :courseId AND enrolledCount = :stored")
+                            .setParameter("count", actualCount)
+                            .setParameter("courseId", courseId)
+                            .setParameter("stored", storedCount)
+                            .executeUpdate();
+                    if (updated > 0) {
+                        Outbox.record(session, EventType.COURSE_UPDATED, courseId,
+                                Outbox.payload("reason", "reconciled", "enrolledCount", actualCount));
+                        corrected++;
+                    }
+                }
+                transaction.commit();
+            } catch (Exception e) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw new RuntimeException("Error reconciling enrolled counts: " + e.getMessage(), e);
+            } finally {
+                session.close();
+            }
+            if (corrected > 0) {
+                OutboxRelay.wakeUp();
+            }
+            return corrected;
+        });
+    }
+
+    private static Long studentIdOf(Enrollment enrollment) {
+        Student student = enrollment.getStudent();
+        return student != null ? student.getStudentId() : null;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.onlinecourse.dao;
+
+/**
+ * Fetch depth for Enrollment and Payment finders.
+ * Lets callers load only the associations they are going to read.
+ */
+public enum FetchPlan {
+    /**
+     * Only the row itself; course and student stay uninitialized proxies.
+     */
+    ID_ONLY(false, false),
+
+    /**
+     * The row with its course fetched (dashboard lists).
+     */
+    WITH_COURSE(true, false),
+
+    /**
+     * The row with course and student fetched (admin lists, confirmations).
+     */
+    FULL(true, true);
+
+    private final boolean fetchCourse;
+    private final boolean fetchStudent;
+
+    FetchPlan(boolean fetchCourse, boolean fetchStudent) {
+        this.fetchCourse = fetchCourse;
+        this.fetchStudent = fetchStudent;
+    }
+
+    /**
+     * Build the HQL fetch-join clause for this plan.
+     *
+     * @param alias Alias of the root entity in the query
+     * @return Join clause, possibly empty
+     */
+    public String joins(String alias) {
+        StringBuilder joins = new StringBuilder();
+        if (fetchCourse) {
+            joins.append(" LEFT JOIN FETCH ").append(alias).append(".course");
+        }
+        if (fetchStudent) {
+            joins.append(" LEFT JOIN FETCH ").append(alias).append(".student");
+        }
+        return joins.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.onlinecourse.dao;
+
+import com.example.onlinecourse.entity.JobCheckpoint;
+import com.example.onlinecourse.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+
+import java.util.Date;
+
+/**
+ * Data Access Object for batch job checkpoints, stored on the primary.
+ */
+public class JobCheckpointDAO {
+    private SessionFactory sessionFactory;
+
+    public JobCheckpointDAO() {
+        this.sessionFactory = HibernateUtil.getSessionFactory();
+    }
+
+    /**
+     * Read a job's checkpoint.
+     *
+     * @param jobName Job name
+     * @return Checkpoint value, or null if the job has none
+     */
+    public String get(String jobName) {
+        Session session = sessionFactory.openSession();
+        try {
+            JobCheckpoint checkpoint = session.get(JobCheckpoint.class, jobName);
+            return checkpoint != null ? checkpoint.getCheckpointValue() : null;
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Store a job's checkpoint, replacing the previous one.
+     *
+     * @param jobName Job name
+     * @param value Checkpoint value
+     */
+    public void save(String jobName, String value) {
+        Session session = sessionFactory.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            JobCheckpoint checkpoint = session.get(JobCheckpoint.class, jobName);
+            if (checkpoint == null) {
+                session.save(new JobCheckpoint(jobName, value));
+            } else {
+                checkpoint.setCheckpointValue(value);
+                checkpoint.setUpdatedAt(new Date());
+            }
+            transaction.commit();
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw new RuntimeException("Error saving checkpoint: " + e.getMessage(), e);
+        } finally {
+            session.close();
+        }
+    }
+}
@@ -1,12 +1,21 @@
 package com.example.onlinecourse.dao;
 
+import com.example.onlinecourse.audit.AuditJournal;
+import com.example.onlinecourse.entity.ArchivedPayment;
 import com.example.onlinecourse.entity.Payment;
+import com.example.onlinecourse.entity.Student;
+import com.example.onlinecourse.event.EventType;
+import com.example.onlinecourse.event.Outbox;
+import com.example.onlinecourse.event.OutboxRelay;
+import com.example.onlinecourse.util.CircuitBreaker;
+import com.example.onlinecourse.util.ConsistencyTokens;
 import com.example.onlinecourse.util.HibernateUtil;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
 import org.hibernate.query.Query;
 
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -14,6 +23,10 @@ import java.util.List;
  * Provides CRUD operations for Payment management.
  */
 public class PaymentDAO {
+    private static final CircuitBreaker BREAKER = CircuitBreaker.forName("PaymentDAO");
+    private static final Comparator<Payment> PAYMENT_DATE_DESC =
+            Comparator.comparing(Payment::getPaymentDate, Comparator.nullsLast(Comparator.reverseOrder()));
+
     private SessionFactory sessionFactory;
 
     public PaymentDAO() {
@@ -27,103 +40,195 @@ public class PaymentDAO {
      * @return Saved payment with generated ID
      */
     public Payment save(Payment payment) {
-        Session session = sessionFactory.openSession();
-        Transaction transaction = null;
-        try {
-            transaction = session.beginTransaction();
-            session.save(payment);
-            // Flush to get the generated ID
-            session.flush();
-            // Reload with associations to avoid lazy loading issues
-            Query<Payment> query = session.createQuery(
-                    "SELECT p FROM Payment p LEFT JOIN FETCH p.course LEFT JOIN FETCH p.student WHERE p.paymentId = :id",
-                    Payment.class);
-            query.setParameter("id", payment.getPaymentId());
-            Payment savedPayment = query.uniqueResult();
-            transaction.commit();
-            return savedPayment != null ? savedPayment : payment;
-        } catch (Exception e) {
-            if (transaction != null) {
-                transaction.rollback();
+        return BREAKER.call(() -> {
+            Session session = ShardRouter.forStudent(studentIdOf(payment)).openSession();
+            Transaction transaction = null;
+            try {
+                transaction = session.beginTransaction();
+                ShardRouter.ensureReferences(session, payment.getCourse().getCourseId(),
+                        List.of(studentIdOf(payment)));
+                session.save(payment);
+                // Flush to get the generated ID
+                session.flush();
+                if (payment.getStatus() == Payment.PaymentStatus.COMPLETED) {
+                    Outbox.record(session, EventType.PAYMENT_COMPLETED, payment.getPaymentId(),
+                            Outbox.payload("studentId", studentIdOf(payment),
+                                    "courseId", payment.getCourse().getCourseId(),
+                                    "amount", payment.getAmount()));
+                }
+                // Reload with associations to avoid lazy loading issues
+                Query<Payment> query = session.createQuery(
+                        "SELECT p FROM Payment p LEFT JOIN FETCH p.course LEFT JOIN FETCH p.student WHERE p.paymentId = :id",
+                        Payment.class);
+                query.setParameter("id", payment.getPaymentId());
+                Payment savedPayment = query.uniqueResult();
+                transaction.commit();
+                journal(payment);
+                ConsistencyTokens.recordWrite(studentIdOf(payment));
+                OutboxRelay.wakeUp();
+                return savedPayment != null ? savedPayment : payment;
+            } catch (Exception e) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw new RuntimeException("Error saving payment: " + e.getMessage(), e);
+            } finally {
+                session.close();
             }
-            throw new RuntimeException("Error saving payment: " + e.getMessage(), e);
-        } finally {
-            session.close();
-        }
+        });
     }
 
     /**
-     * Find payment by ID.
+     * Find payment by ID with course and student fetched.
      *
      * @param id Payment ID
      * @return Payment entity or null if not found
      */
     public Payment findById(Long id) {
-        Session session = sessionFactory.openSession();
-        try {
-            Query<Payment> query = session.createQuery(
-                    "SELECT p FROM Payment p LEFT JOIN FETCH p.course LEFT JOIN FETCH p.student WHERE p.paymentId = :id",
-                    Payment.class);
-            query.setParameter("id", id);
-            return query.uniqueResult();
-        } finally {
-            session.close();
-        }
+        return findById(id, FetchPlan.FULL);
     }
 
     /**
-     * Get all payments.
+     * Find payment by ID.
+     *
+     * @param id Payment ID
+     * @param plan Associations to fetch
+     * @return Payment entity or null if not found
+     */
+    public Payment findById(Long id, FetchPlan plan) {
+        return BREAKER.call(() -> {
+            // The owning shard is not known from the ID alone, so ask every shard
+            List<Payment> found = ShardRouter.scatter(session -> session.createQuery(
+                            "SELECT p FROM Payment p" + plan.joins("p") + " WHERE p.paymentId = :id",
+                            Payment.class)
+                    .setParameter("id", id)
+                    .list());
+            return found.isEmpty() ? null : found.get(0);
+        });
+    }
+
+    /**
+     * Get all payments with course and student fetched.
      *
      * @return List of all payments
      */
     public List<Payment> findAll() {
-        Session session = sessionFactory.openSession();
-        try {
-            Query<Payment> query = session.createQuery(
-                    "SELECT DISTINCT p FROM Payment p LEFT JOIN FETCH p.course LEFT JOIN FETCH p.student ORDER BY p.paymentDate DESC",
-                    Payment.class);
-            return query.list();
-        } finally {
-            session.close();
-        }
+        return findAll(FetchPlan.FULL);
     }
 
     /**
-     * Get payments by student ID.
+     * Get all payments.
+     *
+     * @param plan Associations to fetch
+     * @return List of all payments
+     */
+    public List<Payment> findAll(FetchPlan plan) {
+        return BREAKER.call(() -> {
+            List<Payment> payments = ShardRouter.scatter(session -> session.createQuery(
+                            "SELECT p FROM Payment p" + plan.joins("p") + " ORDER BY p.paymentDate DESC",
+                            Payment.class)
+                    .list());
+            if (ShardRouter.isSharded()) {
+                payments.sort(PAYMENT_DATE_DESC);
+            }
+            return payments;
+        });
+    }
+
+    /**
+     * Get payments by student ID with course and student fetched.
      *
      * @param studentId Student ID
      * @return List of payments for the student
      */
     public List<Payment> findByStudentId(Long studentId) {
-        Session session = sessionFactory.openSession();
-        try {
-            Query<Payment> query = session.createQuery(
-                    "SELECT DISTINCT p FROM Payment p LEFT JOIN FETCH p.course LEFT JOIN FETCH p.student WHERE p.student.studentId = :studentId ORDER BY p.paymentDate DESC",
-                    Payment.class);
-            query.setParameter("studentId", studentId);
-            return query.list();
-        } finally {
-            session.close();
-        }
+        return findByStudentId(studentId, FetchPlan.FULL);
     }
 
     /**
-     * Get payments by course ID.
+     * Get payments by student ID.
+     *
+     * @param studentId Student ID
+     * @param plan Associations to fetch
+     * @return List of payments for the student
+     */
+    public List<Payment> findByStudentId(Long studentId, FetchPlan plan) {
+        return BREAKER.call(() -> {
+            Session session = ShardRouter.forStudentRead(studentId).openSession();
+            try {
+                Query<Payment> query = session.createQuery(
+                        "SELECT p FROM Payment p" + plan.joins("p") + " WHERE p.student.studentId = :studentId ORDER BY p.paymentDate DESC",
+                        Payment.class);
+                query.setParameter("studentId", studentId);
+                return query.list();
+            } finally {
+                session.close();
+            }
+        });
+    }
+
+    /**
+     * Get payments by student ID, optionally including archived history.
+     * The archive is only read when asked, so the default path touches the hot table only.
+     *
+     * @param studentId Student ID
+     * @param plan Associations to fetch
+     * @param includeHistory Whether to add archived payments
+     * @return List of payments for the student, newest first
+     */
+    public List<Payment> findByStudentId(Long studentId, FetchPlan plan, boolean includeHistory) {
+        return BREAKER.call(() -> {
+            List<Payment> payments = findByStudentId(studentId, plan);
+            if (!includeHistory) {
+                return payments;
+            }
+            Session session = ShardRouter.forStudentRead(studentId).openSession();
+            try {
+                for (ArchivedPayment archived : session.createQuery(
+                                "SELECT p FROM ArchivedPayment p" + plan.joins("p") + " WHERE p.student.studentId = :studentId",
+                                ArchivedPayment.class)
+                        .setParameter("studentId", studentId)
+                        .list()) {
+                    payments.add(archived.toPayment());
+                }
+            } finally {
+                session.close();
+            }
+            payments.sort(PAYMENT_DATE_DESC);
+            return payments;
+        });
+    }
+
+    /**
+     * Get payments by course ID with course and student fetched.
      *
      * @param courseId Course ID
      * @return List of payments for the course
      */
     public List<Payment> findByCourseId(Long courseId) {
-        Session session = sessionFactory.openSession();
-        try {
-            Query<Payment> query = session.createQuery(
-                    "SELECT DISTINCT p FROM Payment p LEFT JOIN FETCH p.course LEFT JOIN FETCH p.student WHERE p.course.courseId = :courseId ORDER BY p.paymentDate DESC",
-                    Payment.class);
-            query.setParameter("courseId", courseId);
-            return query.list();
-        } finally {
-            session.close();
-        }
+        return findByCourseId(courseId, FetchPlan.FULL);
+    }
+
+    /**
+     * Get payments by course ID.
+     *
+     * @param courseId Course ID
+     * @param plan Associations to fetch
+     * @return List of payments for the course
+     */
+    public List<Payment> findByCourseId(Long courseId, FetchPlan plan) {
+        return BREAKER.call(() -> {
+            // A course's payments are spread over all shards
+            List<Payment> payments = ShardRouter.scatter(session -> session.createQuery(
+                            "SELECT p FROM Payment p" + plan.joins("p") + " WHERE p.course.courseId = :courseId ORDER BY p.paymentDate DESC",
+                            Payment.class)
+                    .setParameter("courseId", courseId)
+                    .list());
+            if (ShardRouter.isSharded()) {
+                payments.sort(PAYMENT_DATE_DESC);
+            }
+            return payments;
+        });
     }
 
     /**
@@ -133,21 +238,25 @@ public class PaymentDAO {
      * @return Updated payment
      */
     public Payment update(Payment payment) {
-        Session session = sessionFactory.openSession();
-        Transaction transaction = null;
-        try {
-            transaction = session.beginTransaction();
-            session.update(payment);
-            transaction.commit();
-            return payment;
-        } catch (Exception e) {
-            if (transaction != null) {
-                transaction.rollback();
+        return BREAKER.call(() -> {
+            Session session = ShardRouter.forStudent(studentIdOf(payment)).openSession();
+            Transaction transaction = null;
+            try {
+                transaction = session.beginTransaction();
+                session.update(payment);
+                transaction.commit();
+                journal(payment);
+                ConsistencyTokens.recordWrite(studentIdOf(payment));
+                return payment;
+            } catch (Exception e) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw new RuntimeException("Error updating payment: " + e.getMessage(), e);
+            } finally {
+                session.close();
             }
-            throw new RuntimeException("Error updating payment: " + e.getMessage(), e);
-        } finally {
-            session.close();
-        }
+        });
     }
 
     /**
@@ -156,23 +265,43 @@ public class PaymentDAO {
      * @param id Payment ID
      */
     public void delete(Long id) {
-        Session session = sessionFactory.openSession();
-        Transaction transaction = null;
-        try {
-            transaction = session.beginTransaction();
-            Payment payment = session.get(Payment.class, id);
-            if (payment != null) {
-                session.delete(payment);
+        BREAKER.run(() -> {
+            List<Long> owners = ShardRouter.scatter(s -> s.createQuery(
+                            "SELECT p.student.studentId FROM Payment p WHERE p.paymentId = :id", Long.class)
+                    .setParameter("id", id)
+                    .list());
+            if (owners.isEmpty()) {
+                return;
             }
-            transaction.commit();
-        } catch (Exception e) {
-            if (transaction != null) {
-                transaction.rollback();
+            Session session = ShardRouter.forStudent(owners.get(0)).openSession();
+            Transaction transaction = null;
+            try {
+                transaction = session.beginTransaction();
+                Payment payment = session.get(Payment.class, id);
+                if (payment != null) {
+                    session.delete(payment);
+                }
+                transaction.commit();
+                ConsistencyTokens.recordWrite(owners.get(0));
+            } catch (Exception e) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw new RuntimeException("Error deleting payment: " + e.getMessage(), e);
+            } finally {
+                session.close();
             }
-            throw new RuntimeException("Error deleting payment: " + e.getMessage(), e);
-        } finally {
-            session.close();
-        }
+        });
+    }
+
+    private static Long studentIdOf(Payment payment) {
+        Student student = payment.getStudent();
+        return student != null ? student.getStudentId() : null;
     }
-}
 
+    private static void journal(Payment payment) {
+        AuditJournal.paymentChanged(payment.getPaymentId(), studentIdOf(payment),
+                payment.getCourse() != null ? payment.getCourse().getCourseId() : null,
+                payment.getAmount(), payment.getStatus() != null ? payment.getStatus().name() : null);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.onlinecourse.dao;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Two courses of one student whose date ranges overlap.
+ */
+public class ScheduleConflict implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Long studentId;
+    private final String studentName;
+    private final Long courseId;
+    private final String courseName;
+    private final Long otherCourseId;
+    private final String otherCourseName;
+    private final Date overlapStart;
+    private final Date overlapEnd;
+
+    public ScheduleConflict(Long studentId, String studentName, Long courseId, String courseName,
+                            Long otherCourseId, String otherCourseName, Date overlapStart, Date overlapEnd) {
+        this.studentId = studentId;
+        this.studentName = studentName;
+        this.courseId = courseId;
+        this.courseName = courseName;
+        this.otherCourseId = otherCourseId;
+        this.otherCourseName = otherCourseName;
+        this.overlapStart = overlapStart;
+        this.overlapEnd = overlapEnd;
+    }
+
+    public Long getStudentId() {
+        return studentId;
+    }
+
+    public String getStudentName() {
+        return studentName;
+    }
+
+    public Long getCourseId() {
+        return courseId;
+    }
+
+    public String getCourseName() {
+        return courseName;
+    }
+
+    public Long getOtherCourseId() {
+        return otherCourseId;
+    }
+
+    public String getOtherCourseName() {
+        return otherCourseName;
+    }
+
+    /**
+     * @return First day both courses run, or null if one of them has no start date
+     */
+    public Date getOverlapStart() {
+        return overlapStart;
+    }
+
+    /**
+     * @return Last day both courses run, or null if one of them has no end date
+     */
+    public Date getOverlapEnd() {
+        return overlapEnd;
+    }
+}
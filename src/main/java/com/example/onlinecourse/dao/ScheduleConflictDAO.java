@@ -0,0 +1,171 @@
+package com.example.onlinecourse.dao;
+
+import com.example.onlinecourse.entity.Course;
+import com.example.onlinecourse.util.AppConfig;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.Query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Queries for overlapping course dates among a student's active enrollments.
+ * Course dates are compared as day timestamps; a missing start or end date makes
+ * the course open towards that side.
+ */
+public class ScheduleConflictDAO {
+
+    /**
+     * Find the courses of a student's active enrollments whose dates overlap a course.
+     * The overlap test is done by the query, so only the overlapping courses are read.
+     *
+     * @param studentId Student ID
+     * @param course Course the student wants to enroll in
+     * @param today Courses that ended before this day are left out
+     * @return Conflicts with the student's other courses, latest start first
+     */
+    public List<ScheduleConflict> findConflicts(Long studentId, Course course, Date today) {
+        List<ScheduleConflict> conflicts = findConflicts(List.of(studentId), course, today).get(studentId);
+        return conflicts != null ? conflicts : new ArrayList<>();
+    }
+
+    /**
+     * Find, for several students, the courses of their active enrollments whose dates
+     * overlap a course. One query per shard.
+     *
+     * @param studentIds Student IDs
+     * @param course Course the students want to enroll in
+     * @param today Courses that ended before this day are left out
+     * @return Conflicts per student that has any, latest start first
+     */
+    public Map<Long, List<ScheduleConflict>> findConflicts(Collection<Long> studentIds, Course course, Date today) {
+        Map<SessionFactory, List<Long>> byShard = new LinkedHashMap<>();
+        for (Long studentId : studentIds) {
+            byShard.computeIfAbsent(ShardRouter.forStudent(studentId), k -> new ArrayList<>()).add(studentId);
+        }
+        Span wanted = new Span(course.getCourseId(), course.getCourseName(), course.getStartDate(), course.getEndDate());
+        Map<Long, List<ScheduleConflict>> conflicts = new HashMap<>();
+        for (Map.Entry<SessionFactory, List<Long>> shard : byShard.entrySet()) {
+            Session session = shard.getKey().openSession();
+            try {
+                // Closed ranges overlap when each starts no later than the other ends
+                Query<Object[]> query = session.createQuery(
+                                "SELECT e.student.studentId, c.courseId, c.courseName, c.startDate, c.endDate "
+                                        + "FROM Enrollment e JOIN e.course c "
+                                        + "WHERE e.student.studentId IN (:ids) AND e.status = 'ACTIVE' "
+                                        + "AND c.courseId <> :courseId AND (c.endDate IS NULL OR c.endDate >= :today)"
+                                        + (course.getEndDate() != null ? " AND (c.startDate IS NULL OR c.startDate <= :end)" : "")
+                                        + (course.getStartDate() != null ? " AND (c.endDate IS NULL OR c.endDate >= :start)" : "")
+                                        + " ORDER BY c.startDate DESC",
+                                Object[].class)
+                        .setParameterList("ids", shard.getValue())
+                        .setParameter("courseId", course.getCourseId())
+                        .setParameter("today", today);
+                if (course.getEndDate() != null) {
+                    query.setParameter("end", course.getEndDate());
+                }
+                if (course.getStartDate() != null) {
+                    query.setParameter("start", course.getStartDate());
+                }
+                for (Object[] row : query.list()) {
+                    Long studentId = (Long) row[0];
+                    Span other = new Span((Long) row[1], (String) row[2], (Date) row[3], (Date) row[4]);
+                    conflicts.computeIfAbsent(studentId, k -> new ArrayList<>())
+                            .add(conflict(studentId, null, wanted, other));
+                }
+            } finally {
+                session.close();
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * Find every pair of overlapping active enrollments of the same student.
+     * Each shard streams its active enrollments ordered by student and course start
+     * date and runs a sweep line over them: per student, the courses still running
+     * at the current start date are kept in a queue ordered by end date, so each
+     * course is compared only with the courses it actually overlaps.
+     *
+     * @param limit Maximum number of conflicts to return
+     * @return Conflicts ordered by student, at most limit
+     */
+    public List<ScheduleConflict> findAllConflicts(int limit) {
+        List<ScheduleConflict> conflicts = ShardRouter.scatter(session -> sweep(session, limit));
+        conflicts.sort(Comparator.comparing(ScheduleConflict::getStudentId));
+        return conflicts.size() > limit ? new ArrayList<>(conflicts.subList(0, limit)) : conflicts;
+    }
+
+    private List<ScheduleConflict> sweep(Session session, int limit) {
+        List<ScheduleConflict> conflicts = new ArrayList<>();
+        Query<Object[]> query = session.createQuery(
+                        "SELECT s.studentId, s.firstName, s.lastName, c.courseId, c.courseName, c.startDate, c.endDate "
+                                + "FROM Enrollment e JOIN e.student s JOIN e.course c WHERE e.status = 'ACTIVE' "
+                                + "ORDER BY s.studentId, c.startDate", Object[].class)
+                .setFetchSize(AppConfig.getInt("conflicts.fetchSize", 1000))
+                .setReadOnly(true);
+        PriorityQueue<Span> running = new PriorityQueue<>(Comparator.comparingLong(span -> span.end));
+        Long currentStudent = null;
+        try (ScrollableResults rows = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (rows.next() && conflicts.size() < limit) {
+                Object[] row = rows.get();
+                Long studentId = (Long) row[0];
+                if (!studentId.equals(currentStudent)) {
+                    currentStudent = studentId;
+                    running.clear();
+                }
+                Span span = new Span((Long) row[3], (String) row[4], (Date) row[5], (Date) row[6]);
+                // Courses that ended before this one starts cannot overlap it or any later one
+                while (!running.isEmpty() && running.peek().end < span.start) {
+                    running.poll();
+                }
+                for (Span other : running) {
+                    conflicts.add(conflict(studentId, row[1] + " " + row[2], other, span));
+                }
+                running.add(span);
+            }
+        }
+        return conflicts;
+    }
+
+    private static ScheduleConflict conflict(Long studentId, String studentName, Span first, Span second) {
+        long start = Math.max(first.start, second.start);
+        long end = Math.min(first.end, second.end);
+        return new ScheduleConflict(studentId, studentName, first.courseId, first.courseName,
+                second.courseId, second.courseName,
+                start == Long.MIN_VALUE ? null : new Date(start),
+                end == Long.MAX_VALUE ? null : new Date(end));
+    }
+
+    private static long startOf(Date startDate) {
+        return startDate != null ? startDate.getTime() : Long.MIN_VALUE;
+    }
+
+    private static long endOf(Date endDate) {
+        return endDate != null ? endDate.getTime() : Long.MAX_VALUE;
+    }
+
+    private static final class Span {
+        private final Long courseId;
+        private final String courseName;
+        private final long start;
+        private final long end;
+
+        Span(Long courseId, String courseName, Date startDate, Date endDate) {
+            this.courseId = courseId;
+            this.courseName = courseName;
+            this.start = startOf(startDate);
+            this.end = endOf(endDate);
+        }
+    }
+}
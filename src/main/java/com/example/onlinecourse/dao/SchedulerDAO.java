@@ -0,0 +1,134 @@
+package com.example.onlinecourse.dao;
+
+import com.example.onlinecourse.entity.JobLease;
+import com.example.onlinecourse.entity.JobRun;
+import com.example.onlinecourse.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.exception.ConstraintViolationException;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Data Access Object for the job scheduler's leases and run history, stored on the primary.
+ */
+public class SchedulerDAO {
+    private SessionFactory sessionFactory;
+
+    public SchedulerDAO() {
+        this.sessionFactory = HibernateUtil.getSessionFactory();
+    }
+
+    /**
+     * Try to become the node that runs a job.
+     * A single conditional UPDATE takes the lease if it is free, expired or already
+     * held by this node; the first node to run a job creates its lease row, and a
+     * concurrent insert by another node fails on the primary key.
+     *
+     * @param jobName Job name
+     * @param node This node's ID
+     * @param leaseMillis How long the lease is held unless released earlier
+     * @return true if this node now holds the lease
+     */
+    public boolean tryAcquireLease(String jobName, String node, long leaseMillis) {
+        long now = System.currentTimeMillis();
+        Session session = sessionFactory.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            int updated = session.createQuery("UPDATE JobLease SET ownerNode = :node, leaseUntil = :until "
+                            + "WHERE jobName = :job AND (leaseUntil < :now OR ownerNode = :node)")
+                    .setParameter("node", node)
+                    .setParameter("until", now + leaseMillis)
+                    .setParameter("job", jobName)
+                    .setParameter("now", now)
+                    .executeUpdate();
+            boolean acquired = updated > 0;
+            if (!acquired && session.get(JobLease.class, jobName) == null) {
+                session.save(new JobLease(jobName, node, now + leaseMillis));
+                session.flush();
+                acquired = true;
+            }
+            transaction.commit();
+            return acquired;
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            if (e instanceof ConstraintViolationException || e.getCause() instanceof ConstraintViolationException) {
+                // Another node created the lease row first
+                return false;
+            }
+            throw new RuntimeException("Error acquiring job lease: " + e.getMessage(), e);
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Store the history entry of a run.
+     *
+     * @param run Finished run
+     */
+    public void saveRun(JobRun run) {
+        Session session = sessionFactory.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            session.save(run);
+            transaction.commit();
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw new RuntimeException("Error saving job run: " + e.getMessage(), e);
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Get the latest runs of all jobs on all nodes.
+     *
+     * @param limit Maximum number of runs
+     * @return Runs, newest first
+     */
+    public List<JobRun> findRecentRuns(int limit) {
+        Session session = sessionFactory.openSession();
+        try {
+            return session.createQuery("FROM JobRun ORDER BY startedAt DESC", JobRun.class)
+                    .setMaxResults(limit)
+                    .list();
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Delete history entries older than a point in time.
+     *
+     * @param before Runs started before this are deleted
+     * @return Number of deleted entries
+     */
+    public int deleteRunsBefore(Date before) {
+        Session session = sessionFactory.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            int deleted = session.createQuery("DELETE FROM JobRun WHERE startedAt < :before")
+                    .setParameter("before", before)
+                    .executeUpdate();
+            transaction.commit();
+            return deleted;
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw new RuntimeException("Error purging job runs: " + e.getMessage(), e);
+        } finally {
+            session.close();
+        }
+    }
+}
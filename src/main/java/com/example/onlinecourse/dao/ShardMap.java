@@ -0,0 +1,62 @@
+package com.example.onlinecourse.dao;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring mapping student IDs to shard numbers.
+ * Each shard owns a number of virtual points on the ring; a student belongs to the
+ * first point clockwise from the hash of its ID. Adding a shard therefore moves only
+ * about 1/N of the students, all of them onto the new shard.
+ */
+public class ShardMap {
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+    private final int shardCount;
+
+    /**
+     * Build a ring.
+     *
+     * @param shardCount Number of shards
+     * @param virtualNodes Points per shard on the ring
+     */
+    public ShardMap(int shardCount, int virtualNodes) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shardCount = shardCount;
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int point = 0; point < virtualNodes; point++) {
+                // Shard identity is its position in db.shard.urls, so keep that order stable
+                ring.put(hash(((long) shard << 32) | point), shard);
+            }
+        }
+    }
+
+    /**
+     * Get the shard that owns a student.
+     *
+     * @param studentId Student ID
+     * @return Shard number
+     */
+    public int shardFor(Long studentId) {
+        if (shardCount == 1 || studentId == null) {
+            return 0;
+        }
+        Map.Entry<Long, Integer> entry = ring.ceilingEntry(hash(studentId));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * 64-bit mix (SplitMix64 finalizer) so sequential IDs spread over the ring.
+     */
+    private static long hash(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.onlinecourse.dao;
+
+import com.example.onlinecourse.entity.Course;
+import com.example.onlinecourse.entity.Student;
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.HibernateUtil;
+import com.example.onlinecourse.util.MetricsRegistry;
+import org.hibernate.ReplicationMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Routes enrollment and payment data access to shards.
+ * Student-keyed access goes to the student's shard; course-keyed and global
+ * queries are run on every shard in parallel and their results concatenated.
+ * With a single shard (the default) everything goes to the primary and the
+ * student-keyed reads keep using the replica routing of HibernateUtil.
+ *
+ * Every shard holds copies of the student and course rows, which the foreign
+ * keys of enrollments and payments and the joins of FetchPlan need. StudentDAO
+ * and CourseDAO write them to all shards after the primary commits; a copy that
+ * is missing (a failed copy, a new shard) is taken from the primary by the shard
+ * write that needs it. The enrolled count of a course copy is not kept up to
+ * date: seat counts are only read from the primary.
+ *
+ * Metrics: db.shard.scatter, db.shard.referencesCopied, db.shard.referenceCopyFailures.
+ */
+public class ShardRouter {
+    private static volatile ShardMap shardMap;
+    private static final ExecutorService FANOUT = Executors.newFixedThreadPool(
+            AppConfig.getInt("db.shard.fanoutThreads", 8), r -> {
+                Thread thread = new Thread(r, "shard-fanout");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private ShardRouter() {
+    }
+
+    /**
+     * Get the shard map built from the configured shards.
+     *
+     * @return ShardMap
+     */
+    public static ShardMap getShardMap() {
+        if (shardMap == null) {
+            synchronized (ShardRouter.class) {
+                if (shardMap == null) {
+                    shardMap = new ShardMap(HibernateUtil.getShardSessionFactories().size(),
+                            AppConfig.getInt("db.shard.virtualNodes", 64));
+                }
+            }
+        }
+        return shardMap;
+    }
+
+    /**
+     * Check whether more than one shard is configured.
+     *
+     * @return true if sharded
+     */
+    public static boolean isSharded() {
+        return getShardMap().getShardCount() > 1;
+    }
+
+    /**
+     * Get the SessionFactory for writes and consistent reads of a student's data.
+     *
+     * @param studentId Student ID
+     * @return SessionFactory of the student's shard
+     */
+    public static SessionFactory forStudent(Long studentId) {
+        return HibernateUtil.getShardSessionFactories().get(getShardMap().shardFor(studentId));
+    }
+
+    /**
+     * Get the SessionFactory for lag-tolerant reads of a student's data.
+     *
+     * @param studentId Student ID
+     * @return SessionFactory of the student's shard, or a read replica when unsharded
+     */
+    public static SessionFactory forStudentRead(Long studentId) {
+        return isSharded() ? forStudent(studentId) : HibernateUtil.getReadSessionFactory(studentId);
+    }
+
+    /**
+     * Run a query on every shard in parallel and concatenate the results.
+     *
+     * @param query Query to run with a session of each shard
+     * @param <T> Result type
+     * @return Results of all shards
+     */
+    public static <T> List<T> scatter(Function<Session, List<T>> query) {
+        List<SessionFactory> shards = HibernateUtil.getShardSessionFactories();
+        if (shards.size() == 1) {
+            return runOn(shards.get(0), query);
+        }
+        MetricsRegistry.increment("db.shard.scatter");
+        List<Future<List<T>>> futures = new ArrayList<>();
+        for (SessionFactory shard : shards) {
+            futures.add(FANOUT.submit(() -> runOn(shard, query)));
+        }
+        List<T> results = new ArrayList<>();
+        try {
+            for (Future<List<T>> future : futures) {
+                results.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while querying shards", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error querying shards: " + e.getCause().getMessage(), e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Write a student or course row to every shard, replacing the shard's copy.
+     * Called after the primary commits; a shard that fails is logged and skipped,
+     * as ensureReferences fills in the copy before that shard's next write.
+     *
+     * @param entity Copy of the Student or Course without its collections
+     */
+    public static void copyToShards(Object entity) {
+        if (!isSharded()) {
+            return;
+        }
+        for (SessionFactory shard : HibernateUtil.getShardSessionFactories()) {
+            Session session = shard.openSession();
+            Transaction transaction = null;
+            try {
+                transaction = session.beginTransaction();
+                session.replicate(entity, ReplicationMode.OVERWRITE);
+                transaction.commit();
+            } catch (Exception e) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                MetricsRegistry.increment("db.shard.referenceCopyFailures");
+                System.err.println("Error copying " + entity.getClass().getSimpleName() + " to shard: " + e.getMessage());
+            } finally {
+                session.close();
+            }
+        }
+    }
+
+    /**
+     * Delete the copies of a student or course row from every shard, once the
+     * shards hold no enrollments or payments referencing it.
+     *
+     * @param entity Student or Course
+     * @param idProperty ID property name
+     * @param id Row ID
+     */
+    public static void deleteFromShards(String entity, String idProperty, Long id) {
+        if (!isSharded()) {
+            return;
+        }
+        for (SessionFactory shard : HibernateUtil.getShardSessionFactories()) {
+            Session session = shard.openSession();
+            Transaction transaction = null;
+            try {
+                transaction = session.beginTransaction();
+                session.createQuery("DELETE FROM " + entity + " WHERE " + idProperty + " = :id")
+                        .setParameter("id", id)
+                        .executeUpdate();
+                transaction.commit();
+            } catch (Exception e) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                MetricsRegistry.increment("db.shard.referenceCopyFailures");
+                System.err.println("Error deleting " + entity + " from shard: " + e.getMessage());
+            } finally {
+                session.close();
+            }
+        }
+    }
+
+    /**
+     * Make sure a shard holds the student and course rows a write is about to
+     * reference, copying missing ones from the primary in the caller's transaction.
+     *
+     * @param session Session of the shard's write transaction
+     * @param courseId Course ID
+     * @param studentIds Student IDs
+     */
+    public static void ensureReferences(Session session, Long courseId, Collection<Long> studentIds) {
+        if (!isSharded()) {
+            return;
+        }
+        Set<Long> missing = new HashSet<>(studentIds);
+        missing.removeAll(session.createQuery(
+                        "SELECT s.studentId FROM Student s WHERE s.studentId IN (:ids)", Long.class)
+                .setParameterList("ids", studentIds)
+                .list());
+        boolean courseMissing = session.createQuery(
+                        "SELECT COUNT(*) FROM Course WHERE courseId = :courseId", Long.class)
+                .setParameter("courseId", courseId)
+                .uniqueResult() == 0;
+        if (missing.isEmpty() && !courseMissing) {
+            return;
+        }
+        Session primary = HibernateUtil.getSessionFactory().openSession();
+        try {
+            int copied = 0;
+            if (courseMissing) {
+                Course course = primary.get(Course.class, courseId);
+                if (course != null) {
+                    session.replicate(new Course(course), ReplicationMode.IGNORE);
+                    copied++;
+                }
+            }
+            if (!missing.isEmpty()) {
+                for (Student student : primary.createQuery(
+                                "FROM Student s WHERE s.studentId IN (:ids)", Student.class)
+                        .setParameterList("ids", missing)
+                        .list()) {
+                    session.replicate(new Student(student), ReplicationMode.IGNORE);
+                    copied++;
+                }
+            }
+            session.flush();
+            MetricsRegistry.add("db.shard.referencesCopied", copied);
+        } finally {
+            primary.close();
+        }
+    }
+
+    private static <T> List<T> runOn(SessionFactory sessionFactory, Function<Session, List<T>> query) {
+        Session session = sessionFactory.openSession();
+        try {
+            return query.apply(session);
+        } finally {
+            session.close();
+        }
+    }
+}
@@ -1,19 +1,24 @@
 package com.example.onlinecourse.dao;
 
 import com.example.onlinecourse.entity.Student;
+import com.example.onlinecourse.util.CircuitBreaker;
 import com.example.onlinecourse.util.HibernateUtil;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
 import org.hibernate.query.Query;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Data Access Object for Student entity.
  * Provides CRUD operations for Student management.
  */
 public class StudentDAO {
+    private static final CircuitBreaker BREAKER = CircuitBreaker.forName("StudentDAO");
     private SessionFactory sessionFactory;
 
     public StudentDAO() {
@@ -27,21 +32,24 @@ public class StudentDAO {
      * @return Saved student with generated ID
      */
     public Student save(Student student) {
-        Session session = sessionFactory.openSession();
-        Transaction transaction = null;
-        try {
-            transaction = session.beginTransaction();
-            session.save(student);
-            transaction.commit();
-            return student;
-        } catch (Exception e) {
-            if (transaction != null) {
-                transaction.rollback();
+        return BREAKER.call(() -> {
+            Session session = sessionFactory.openSession();
+            Transaction transaction = null;
+            try {
+                transaction = session.beginTransaction();
+                session.save(student);
+                transaction.commit();
+                ShardRouter.copyToShards(new Student(student));
+                return student;
+            } catch (Exception e) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw new RuntimeException("Error saving student: " + e.getMessage(), e);
+            } finally {
+                session.close();
             }
-            throw new RuntimeException("Error saving student: " + e.getMessage(), e);
-        } finally {
-            session.close();
-        }
+        });
     }
 
     /**
@@ -51,12 +59,14 @@ public class StudentDAO {
      * @return Student entity or null if not found
      */
     public Student findById(Long id) {
-        Session session = sessionFactory.openSession();
-        try {
-            return session.get(Student.class, id);
-        } finally {
-            session.close();
-        }
+        return BREAKER.call(() -> {
+            Session session = sessionFactory.openSession();
+            try {
+                return session.get(Student.class, id);
+            } finally {
+                session.close();
+            }
+        });
     }
 
     /**
@@ -66,14 +76,16 @@ public class StudentDAO {
      * @return Student entity or null if not found
      */
     public Student findByEmail(String email) {
-        Session session = sessionFactory.openSession();
-        try {
-            Query<Student> query = session.createQuery("FROM Student WHERE email = :email", Student.class);
-            query.setParameter("email", email);
-            return query.uniqueResult();
-        } finally {
-            session.close();
-        }
+        return BREAKER.call(() -> {
+            Session session = sessionFactory.openSession();
+            try {
+                Query<Student> query = session.createQuery("FROM Student WHERE email = :email", Student.class);
+                query.setParameter("email", email);
+                return query.uniqueResult();
+            } finally {
+                session.close();
+            }
+        });
     }
 
     /**
@@ -82,13 +94,15 @@ public class StudentDAO {
      * @return List of all students
      */
     public List<Student> findAll() {
-        Session session = sessionFactory.openSession();
-        try {
-            Query<Student> query = session.createQuery("FROM Student", Student.class);
-            return query.list();
-        } finally {
-            session.close();
-        }
+        return BREAKER.call(() -> {
+            Session session = sessionFactory.openSession();
+            try {
+                Query<Student> query = session.createQuery("FROM Student", Student.class);
+                return query.list();
+            } finally {
+                session.close();
+            }
+        });
     }
 
     /**
@@ -98,46 +112,62 @@ public class StudentDAO {
      * @return Updated student
      */
     public Student update(Student student) {
-        Session session = sessionFactory.openSession();
-        Transaction transaction = null;
-        try {
-            transaction = session.beginTransaction();
-            session.update(student);
-            transaction.commit();
-            return student;
-        } catch (Exception e) {
-            if (transaction != null) {
-                transaction.rollback();
+        return BREAKER.call(() -> {
+            Session session = sessionFactory.openSession();
+            Transaction transaction = null;
+            try {
+                transaction = session.beginTransaction();
+                session.update(student);
+                transaction.commit();
+                ShardRouter.copyToShards(new Student(student));
+                return student;
+            } catch (Exception e) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw new RuntimeException("Error updating student: " + e.getMessage(), e);
+            } finally {
+                session.close();
             }
-            throw new RuntimeException("Error updating student: " + e.getMessage(), e);
-        } finally {
-            session.close();
-        }
+        });
     }
 
     /**
-     * Delete student by ID.
+     * Delete student by ID with its enrollments and payments.
+     * Uses set-based chunked deletes instead of cascading through loaded entities.
      *
      * @param id Student ID
      */
     public void delete(Long id) {
-        Session session = sessionFactory.openSession();
-        Transaction transaction = null;
-        try {
-            transaction = session.beginTransaction();
-            Student student = session.get(Student.class, id);
-            if (student != null) {
-                session.delete(student);
+        new CascadeDeleteDAO().deleteStudent(id, (table, rows) -> { });
+    }
+
+    /**
+     * Look up the IDs of students by email with one query.
+     *
+     * @param emails Emails to look up
+     * @return Student ID per email found; emails without a student are absent
+     */
+    public Map<String, Long> findIdsByEmails(Collection<String> emails) {
+        return BREAKER.call(() -> {
+            Map<String, Long> ids = new HashMap<>();
+            if (emails.isEmpty()) {
+                return ids;
             }
-            transaction.commit();
-        } catch (Exception e) {
-            if (transaction != null) {
-                transaction.rollback();
+            Session session = sessionFactory.openSession();
+            try {
+                List<Object[]> rows = session.createQuery(
+                                "SELECT s.email, s.studentId FROM Student s WHERE s.email IN (:emails)", Object[].class)
+                        .setParameterList("emails", emails)
+                        .list();
+                for (Object[] row : rows) {
+                    ids.put((String) row[0], (Long) row[1]);
+                }
+                return ids;
+            } finally {
+                session.close();
             }
-            throw new RuntimeException("Error deleting student: " + e.getMessage(), e);
-        } finally {
-            session.close();
-        }
+        });
     }
 
     /**
@@ -147,14 +177,16 @@ public class StudentDAO {
      * @return true if email exists
      */
     public boolean emailExists(String email) {
-        Session session = sessionFactory.openSession();
-        try {
-            Query<Long> query = session.createQuery("SELECT COUNT(*) FROM Student WHERE email = :email", Long.class);
-            query.setParameter("email", email);
-            return query.uniqueResult() > 0;
-        } finally {
-            session.close();
-        }
+        return BREAKER.call(() -> {
+            Session session = sessionFactory.openSession();
+            try {
+                Query<Long> query = session.createQuery("SELECT COUNT(*) FROM Student WHERE email = :email", Long.class);
+                query.setParameter("email", email);
+                return query.uniqueResult() > 0;
+            } finally {
+                session.close();
+            }
+        });
     }
 }
 
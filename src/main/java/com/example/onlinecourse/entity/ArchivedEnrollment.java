@@ -0,0 +1,86 @@
+package com.example.onlinecourse.entity;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Completed or cancelled enrollment moved out of the enrollments table by the
+ * archive job. Rows keep their original ID and are only read, for history views.
+ * Maps to the 'enrollments_archive' table in the database, which lives next to
+ * 'enrollments' on the same shard and has no foreign keys.
+ */
+@Entity
+@Table(name = "enrollments_archive", indexes = {
+        @Index(name = "idx_enrollments_archive_student_date", columnList = "student_id, enrollment_date"),
+        @Index(name = "idx_enrollments_archive_course", columnList = "course_id")
+})
+public class ArchivedEnrollment implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "enrollment_id")
+    private Long enrollmentId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "student_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Student student;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "course_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Course course;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "enrollment_date", nullable = false)
+    private Date enrollmentDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private Enrollment.EnrollmentStatus status;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "archived_at", nullable = false)
+    private Date archivedAt;
+
+    // Default constructor
+    public ArchivedEnrollment() {
+    }
+
+    /**
+     * Convert to a detached Enrollment, so history can be shown with the same views.
+     *
+     * @return Enrollment with this row's values
+     */
+    public Enrollment toEnrollment() {
+        Enrollment enrollment = new Enrollment(student, course);
+        enrollment.setEnrollmentId(enrollmentId);
+        enrollment.setEnrollmentDate(enrollmentDate);
+        enrollment.setStatus(status);
+        return enrollment;
+    }
+
+    // Getters
+    public Long getEnrollmentId() {
+        return enrollmentId;
+    }
+
+    public Student getStudent() {
+        return student;
+    }
+
+    public Course getCourse() {
+        return course;
+    }
+
+    public Date getEnrollmentDate() {
+        return enrollmentDate;
+    }
+
+    public Enrollment.EnrollmentStatus getStatus() {
+        return status;
+    }
+
+    public Date getArchivedAt() {
+        return archivedAt;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.onlinecourse.entity;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Settled payment moved out of the payments table by the archive job.
+ * Rows keep their original ID and are only read, for history views.
+ * Maps to the 'payments_archive' table in the database, which lives next to
+ * 'payments' on the same shard and has no foreign keys.
+ */
+@Entity
+@Table(name = "payments_archive", indexes = {
+        @Index(name = "idx_payments_archive_student_date", columnList = "student_id, payment_date"),
+        @Index(name = "idx_payments_archive_course", columnList = "course_id")
+})
+public class ArchivedPayment implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "payment_id")
+    private Long paymentId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "student_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Student student;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "course_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Course course;
+
+    @Column(name = "amount", nullable = false, precision = 10, scale = 2)
+    private BigDecimal amount;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "payment_date", nullable = false)
+    private Date paymentDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payment_method", nullable = false, length = 50)
+    private Payment.PaymentMethod paymentMethod;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private Payment.PaymentStatus status;
+
+    @Column(name = "transaction_id", length = 100)
+    private String transactionId;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "archived_at", nullable = false)
+    private Date archivedAt;
+
+    // Default constructor
+    public ArchivedPayment() {
+    }
+
+    /**
+     * Convert to a detached Payment, so history can be shown with the same views.
+     *
+     * @return Payment with this row's values
+     */
+    public Payment toPayment() {
+        Payment payment = new Payment(student, course, amount, paymentMethod);
+        payment.setPaymentId(paymentId);
+        payment.setPaymentDate(paymentDate);
+        payment.setStatus(status);
+        payment.setTransactionId(transactionId);
+        return payment;
+    }
+
+    // Getters
+    public Long getPaymentId() {
+        return paymentId;
+    }
+
+    public Student getStudent() {
+        return student;
+    }
+
+    public Course getCourse() {
+        return course;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public Date getPaymentDate() {
+        return paymentDate;
+    }
+
+    public Payment.PaymentMethod getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public Payment.PaymentStatus getStatus() {
+        return status;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public Date getArchivedAt() {
+        return archivedAt;
+    }
+}
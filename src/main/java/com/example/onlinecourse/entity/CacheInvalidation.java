@@ -0,0 +1,98 @@
+package com.example.onlinecourse.entity;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * Change-log entry telling other application nodes to drop cached data.
+ * Written by the node that changed the data and polled by all nodes.
+ * Maps to the 'cache_invalidations' table in the database.
+ */
+@Entity
+@Table(name = "cache_invalidations", indexes = {
+        @Index(name = "idx_cache_invalidations_created", columnList = "created_millis")
+})
+public class CacheInvalidation implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "invalidation_id")
+    private Long invalidationId;
+
+    @Column(name = "entity_type", nullable = false, length = 20)
+    private String entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(name = "origin_node", nullable = false, length = 64)
+    private String originNode;
+
+    // Epoch milliseconds of the change on the origin node, for propagation latency
+    @Column(name = "created_millis", nullable = false)
+    private long createdMillis;
+
+    // Default constructor
+    public CacheInvalidation() {
+    }
+
+    // Constructor with parameters
+    public CacheInvalidation(String entityType, Long entityId, String originNode, long createdMillis) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.originNode = originNode;
+        this.createdMillis = createdMillis;
+    }
+
+    // Getters and Setters
+    public Long getInvalidationId() {
+        return invalidationId;
+    }
+
+    public void setInvalidationId(Long invalidationId) {
+        this.invalidationId = invalidationId;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(String entityType) {
+        this.entityType = entityType;
+    }
+
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(Long entityId) {
+        this.entityId = entityId;
+    }
+
+    public String getOriginNode() {
+        return originNode;
+    }
+
+    public void setOriginNode(String originNode) {
+        this.originNode = originNode;
+    }
+
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    public void setCreatedMillis(long createdMillis) {
+        this.createdMillis = createdMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheInvalidation{" +
+                "invalidationId=" + invalidationId +
+                ", entityType='" + entityType + '\'' +
+                ", entityId=" + entityId +
+                ", originNode='" + originNode + '\'' +
+                '}';
+    }
+}
@@ -6,6 +6,8 @@ import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import java.io.Serializable;
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -15,7 +17,10 @@ import java.util.List;
  * Maps to the 'courses' table in the database.
  */
 @Entity
-@Table(name = "courses")
+@Table(name = "courses", indexes = {
+        @Index(name = "idx_courses_name_seats", columnList = "course_name, enrolled_count, capacity"),
+        @Index(name = "idx_courses_end_date", columnList = "end_date")
+})
 public class Course implements Serializable {
     private static final long serialVersionUID = 1L;
 
@@ -78,6 +83,19 @@ public class Course implements Serializable {
         this.fee = fee;
     }
 
+    // Copy of the columns, without enrollments and payments, for handing out cached courses
+    public Course(Course other) {
+        this.courseId = other.courseId;
+        this.courseName = other.courseName;
+        this.description = other.description;
+        this.instructor = other.instructor;
+        this.startDate = other.startDate;
+        this.endDate = other.endDate;
+        this.fee = other.fee;
+        this.capacity = other.capacity;
+        this.enrolledCount = other.enrolledCount;
+    }
+
     // Getters and Setters
     public Long getCourseId() {
         return courseId;
@@ -181,7 +199,23 @@ public class Course implements Serializable {
     }
 
     public boolean isAvailable() {
-        return enrolledCount < capacity;
+        return enrolledCount < capacity && !hasEnded();
+    }
+
+    /**
+     * Check whether the course's end date has passed.
+     * Enrollments of ended courses are completed by the nightly completion job,
+     * which frees their seats, so ended courses must not count as available.
+     *
+     * @return true if the course ended before today
+     */
+    public boolean hasEnded() {
+        if (endDate == null) {
+            return false;
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        // endDate may be a java.sql.Date, which does not support toInstant()
+        return new Date(endDate.getTime()).toInstant().atZone(zone).toLocalDate().isBefore(LocalDate.now(zone));
     }
 
     @Override
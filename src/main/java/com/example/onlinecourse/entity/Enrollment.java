@@ -10,7 +10,11 @@ import java.util.Date;
  * Maps to the 'enrollments' table in the database.
  */
 @Entity
-@Table(name = "enrollments")
+@Table(name = "enrollments", indexes = {
+        @Index(name = "idx_enrollments_student_date", columnList = "student_id, enrollment_date"),
+        @Index(name = "idx_enrollments_course_status", columnList = "course_id, status"),
+        @Index(name = "idx_enrollments_date", columnList = "enrollment_date")
+})
 public class Enrollment implements Serializable {
     private static final long serialVersionUID = 1L;
 
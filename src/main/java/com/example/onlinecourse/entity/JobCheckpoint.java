@@ -0,0 +1,63 @@
+package com.example.onlinecourse.entity;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Progress marker of a batch job, so an interrupted run resumes where it stopped.
+ * Maps to the 'job_checkpoints' table in the database.
+ */
+@Entity
+@Table(name = "job_checkpoints")
+public class JobCheckpoint implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "job_name", length = 64)
+    private String jobName;
+
+    @Column(name = "checkpoint_value", length = 255)
+    private String checkpointValue;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "updated_at", nullable = false)
+    private Date updatedAt;
+
+    // Default constructor
+    public JobCheckpoint() {
+        this.updatedAt = new Date();
+    }
+
+    // Constructor with parameters
+    public JobCheckpoint(String jobName, String checkpointValue) {
+        this();
+        this.jobName = jobName;
+        this.checkpointValue = checkpointValue;
+    }
+
+    // Getters and Setters
+    public String getJobName() {
+        return jobName;
+    }
+
+    public void setJobName(String jobName) {
+        this.jobName = jobName;
+    }
+
+    public String getCheckpointValue() {
+        return checkpointValue;
+    }
+
+    public void setCheckpointValue(String checkpointValue) {
+        this.checkpointValue = checkpointValue;
+    }
+
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
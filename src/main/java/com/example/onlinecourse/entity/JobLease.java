@@ -0,0 +1,63 @@
+package com.example.onlinecourse.entity;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * Lock row electing the node that runs a scheduled job.
+ * A node owns the job while lease_until lies in the future; another node can
+ * take it over once the lease has expired.
+ * Maps to the 'job_leases' table in the database.
+ */
+@Entity
+@Table(name = "job_leases")
+public class JobLease implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "job_name", length = 64)
+    private String jobName;
+
+    @Column(name = "owner_node", nullable = false, length = 64)
+    private String ownerNode;
+
+    // Epoch milliseconds until which the owner holds the lease
+    @Column(name = "lease_until", nullable = false)
+    private long leaseUntil;
+
+    // Default constructor
+    public JobLease() {
+    }
+
+    // Constructor with parameters
+    public JobLease(String jobName, String ownerNode, long leaseUntil) {
+        this.jobName = jobName;
+        this.ownerNode = ownerNode;
+        this.leaseUntil = leaseUntil;
+    }
+
+    // Getters and Setters
+    public String getJobName() {
+        return jobName;
+    }
+
+    public void setJobName(String jobName) {
+        this.jobName = jobName;
+    }
+
+    public String getOwnerNode() {
+        return ownerNode;
+    }
+
+    public void setOwnerNode(String ownerNode) {
+        this.ownerNode = ownerNode;
+    }
+
+    public long getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public void setLeaseUntil(long leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.onlinecourse.entity;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * History entry of one run of a scheduled job.
+ * Maps to the 'job_runs' table in the database.
+ */
+@Entity
+@Table(name = "job_runs", indexes = {
+        @Index(name = "idx_job_runs_started", columnList = "started_at")
+})
+public class JobRun implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "run_id")
+    private Long runId;
+
+    @Column(name = "job_name", nullable = false, length = 64)
+    private String jobName;
+
+    @Column(name = "node", nullable = false, length = 64)
+    private String node;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "started_at", nullable = false)
+    private Date startedAt;
+
+    @Column(name = "duration_millis", nullable = false)
+    private long durationMillis;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private RunStatus status;
+
+    @Column(name = "message", length = 500)
+    private String message;
+
+    // Default constructor
+    public JobRun() {
+    }
+
+    // Constructor with parameters
+    public JobRun(String jobName, String node, Date startedAt, long durationMillis, RunStatus status, String message) {
+        this.jobName = jobName;
+        this.node = node;
+        this.startedAt = startedAt;
+        this.durationMillis = durationMillis;
+        this.status = status;
+        this.message = message != null && message.length() > 500 ? message.substring(0, 500) : message;
+    }
+
+    // Getters and Setters
+    public Long getRunId() {
+        return runId;
+    }
+
+    public void setRunId(Long runId) {
+        this.runId = runId;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public void setJobName(String jobName) {
+        this.jobName = jobName;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public void setNode(String node) {
+        this.node = node;
+    }
+
+    public Date getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Date startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    public RunStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(RunStatus status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public enum RunStatus {
+        SUCCEEDED, FAILED, TIMED_OUT
+    }
+}
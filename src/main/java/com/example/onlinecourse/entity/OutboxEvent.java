@@ -0,0 +1,163 @@
+package com.example.onlinecourse.entity;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Outbox entry for a domain event.
+ * Written in the same transaction as the change it describes and published
+ * afterwards by the outbox relay. Maps to the 'outbox_events' table in the database.
+ */
+@Entity
+@Table(name = "outbox_events", indexes = {
+        @Index(name = "idx_outbox_unpublished", columnList = "published_at, event_id"),
+        @Index(name = "idx_outbox_claimable", columnList = "published_at, parked_at, event_id, claimed_until")
+})
+public class OutboxEvent implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "event_id")
+    private Long eventId;
+
+    @Column(name = "event_type", nullable = false, length = 40)
+    private String eventType;
+
+    @Column(name = "aggregate_type", nullable = false, length = 30)
+    private String aggregateType;
+
+    @Column(name = "aggregate_id", nullable = false)
+    private Long aggregateId;
+
+    @Column(name = "payload", length = 1000)
+    private String payload;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "created_at", nullable = false)
+    private Date createdAt;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "published_at")
+    private Date publishedAt;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    // Set while a relay delivers the event, and as the retry time after a failed delivery
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "claimed_until")
+    private Date claimedUntil;
+
+    // Set when delivery was given up after outbox.maxAttempts failures
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "parked_at")
+    private Date parkedAt;
+
+    // Default constructor
+    public OutboxEvent() {
+        this.createdAt = new Date();
+    }
+
+    // Constructor with parameters
+    public OutboxEvent(String eventType, String aggregateType, Long aggregateId, String payload) {
+        this();
+        this.eventType = eventType;
+        this.aggregateType = aggregateType;
+        this.aggregateId = aggregateId;
+        this.payload = payload;
+    }
+
+    // Getters and Setters
+    public Long getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(Long eventId) {
+        this.eventId = eventId;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+
+    public String getAggregateType() {
+        return aggregateType;
+    }
+
+    public void setAggregateType(String aggregateType) {
+        this.aggregateType = aggregateType;
+    }
+
+    public Long getAggregateId() {
+        return aggregateId;
+    }
+
+    public void setAggregateId(Long aggregateId) {
+        this.aggregateId = aggregateId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Date getPublishedAt() {
+        return publishedAt;
+    }
+
+    public void setPublishedAt(Date publishedAt) {
+        this.publishedAt = publishedAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Date getClaimedUntil() {
+        return claimedUntil;
+    }
+
+    public void setClaimedUntil(Date claimedUntil) {
+        this.claimedUntil = claimedUntil;
+    }
+
+    public Date getParkedAt() {
+        return parkedAt;
+    }
+
+    public void setParkedAt(Date parkedAt) {
+        this.parkedAt = parkedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxEvent{" +
+                "eventId=" + eventId +
+                ", eventType='" + eventType + '\'' +
+                ", aggregateType='" + aggregateType + '\'' +
+                ", aggregateId=" + aggregateId +
+                ", publishedAt=" + publishedAt +
+                '}';
+    }
+}
@@ -12,7 +12,11 @@ import java.util.Date;
  * Maps to the 'payments' table in the database.
  */
 @Entity
-@Table(name = "payments")
+@Table(name = "payments", indexes = {
+        @Index(name = "idx_payments_student_date", columnList = "student_id, payment_date"),
+        @Index(name = "idx_payments_course_date", columnList = "course_id, payment_date"),
+        @Index(name = "idx_payments_date", columnList = "payment_date")
+})
 public class Payment implements Serializable {
     private static final long serialVersionUID = 1L;
 
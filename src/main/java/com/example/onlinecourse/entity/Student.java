@@ -67,6 +67,17 @@ public class Student implements Serializable {
         this.password = password;
     }
 
+    // Copy of the columns, without enrollments and payments, for the shard copies of the row
+    public Student(Student other) {
+        this.studentId = other.studentId;
+        this.firstName = other.firstName;
+        this.lastName = other.lastName;
+        this.email = other.email;
+        this.password = other.password;
+        this.phone = other.phone;
+        this.address = other.address;
+    }
+
     // Getters and Setters
     public Long getStudentId() {
         return studentId;
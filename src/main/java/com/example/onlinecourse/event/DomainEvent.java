@@ -0,0 +1,86 @@
+package com.example.onlinecourse.event;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Domain event as delivered to subscribers.
+ * The payload holds the IDs and values subscribers need, so they do not have to
+ * reload the changed rows.
+ */
+public class DomainEvent {
+    private final Long eventId;
+    private final EventType type;
+    private final Long aggregateId;
+    private final Map<String, String> payload;
+    private final Date occurredAt;
+
+    public DomainEvent(Long eventId, EventType type, Long aggregateId, Map<String, String> payload, Date occurredAt) {
+        this.eventId = eventId;
+        this.type = type;
+        this.aggregateId = aggregateId;
+        this.payload = Collections.unmodifiableMap(payload);
+        this.occurredAt = occurredAt;
+    }
+
+    /**
+     * Get a payload value as a Long.
+     *
+     * @param key Payload key
+     * @return Value, or null if missing
+     */
+    public Long getLong(String key) {
+        String value = payload.get(key);
+        return value != null ? Long.valueOf(value) : null;
+    }
+
+    /**
+     * Get a payload value.
+     *
+     * @param key Payload key
+     * @return Value, or null if missing
+     */
+    public String get(String key) {
+        return payload.get(key);
+    }
+
+    /**
+     * Get the key events are ordered by.
+     *
+     * @return Aggregate type and ID
+     */
+    public String getAggregateKey() {
+        return type.getAggregateType() + ":" + aggregateId;
+    }
+
+    public Long getEventId() {
+        return eventId;
+    }
+
+    public EventType getType() {
+        return type;
+    }
+
+    public Long getAggregateId() {
+        return aggregateId;
+    }
+
+    public Map<String, String> getPayload() {
+        return payload;
+    }
+
+    public Date getOccurredAt() {
+        return occurredAt;
+    }
+
+    @Override
+    public String toString() {
+        return "DomainEvent{" +
+                "eventId=" + eventId +
+                ", type=" + type +
+                ", aggregateId=" + aggregateId +
+                ", payload=" + payload +
+                '}';
+    }
+}
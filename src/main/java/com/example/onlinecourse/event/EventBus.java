@@ -0,0 +1,142 @@
+package com.example.onlinecourse.event;
+
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.MetricsRegistry;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * In-process bus delivering domain events to asynchronous subscribers.
+ * Each event runs on one of a fixed number of single-threaded lanes chosen by its
+ * aggregate, so events of the same aggregate are handled one after another in
+ * publish order while different aggregates are handled in parallel.
+ * Subscribers must be idempotent: the outbox relay redelivers an event whose
+ * handling failed. The relay delivers each event on one node only; subscribers
+ * that keep node-local state register with subscribeEveryNode instead and are
+ * fed by OutboxFeed on every node.
+ */
+public class EventBus {
+    private static final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private static final ExecutorService[] lanes = createLanes(AppConfig.getInt("events.lanes", 4));
+
+    private EventBus() {
+    }
+
+    /**
+     * Register a subscriber for some event types.
+     *
+     * @param name Subscriber name, used in metrics and logs
+     * @param types Event types to receive
+     * @param handler Event handler
+     */
+    public static void subscribe(String name, Set<EventType> types, Consumer<DomainEvent> handler) {
+        subscriptions.add(new Subscription(name, EnumSet.copyOf(types), handler, false));
+    }
+
+    /**
+     * Register a subscriber that receives every event on every node, once per
+     * event ID (see OutboxFeed), for node-local in-memory state.
+     *
+     * @param name Subscriber name, used in metrics and logs
+     * @param types Event types to receive
+     * @param handler Event handler, called on the feed thread
+     */
+    public static void subscribeEveryNode(String name, Set<EventType> types, Consumer<DomainEvent> handler) {
+        subscriptions.add(new Subscription(name, EnumSet.copyOf(types), handler, true));
+    }
+
+    /**
+     * Remove all subscribers.
+     */
+    public static void clearSubscriptions() {
+        subscriptions.clear();
+    }
+
+    /**
+     * Deliver an event to all matching subscribers on the aggregate's lane.
+     * Every subscriber is called even if an earlier one fails.
+     *
+     * @param event Event to deliver
+     * @return Future completed when all subscribers ran; completed exceptionally if any failed
+     */
+    public static CompletableFuture<Void> publish(DomainEvent event) {
+        ExecutorService lane = lanes[Math.floorMod(event.getAggregateKey().hashCode(), lanes.length)];
+        return CompletableFuture.runAsync(() -> dispatch(event), lane);
+    }
+
+    /**
+     * Deliver an event to the every-node subscribers, on the calling thread.
+     * Failures are logged and counted, not retried.
+     *
+     * @param event Event read from the outbox by this node
+     */
+    static void dispatchEveryNode(DomainEvent event) {
+        for (Subscription subscription : subscriptions) {
+            if (!subscription.everyNode || !subscription.types.contains(event.getType())) {
+                continue;
+            }
+            try {
+                subscription.handler.accept(event);
+            } catch (RuntimeException e) {
+                MetricsRegistry.increment("events.subscriber." + subscription.name + ".failures");
+                System.err.println("Subscriber " + subscription.name + " failed on " + event + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static void dispatch(DomainEvent event) {
+        RuntimeException failure = null;
+        for (Subscription subscription : subscriptions) {
+            if (subscription.everyNode || !subscription.types.contains(event.getType())) {
+                continue;
+            }
+            try {
+                subscription.handler.accept(event);
+            } catch (RuntimeException e) {
+                MetricsRegistry.increment("events.subscriber." + subscription.name + ".failures");
+                System.err.println("Subscriber " + subscription.name + " failed on " + event + ": " + e.getMessage());
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        MetricsRegistry.increment("events.delivered." + event.getType());
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static ExecutorService[] createLanes(int count) {
+        ExecutorService[] executors = new ExecutorService[Math.max(1, count)];
+        for (int i = 0; i < executors.length; i++) {
+            String threadName = "event-lane-" + i;
+            executors[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executors;
+    }
+
+    private static final class Subscription {
+        private final String name;
+        private final Set<EventType> types;
+        private final Consumer<DomainEvent> handler;
+        private final boolean everyNode;
+
+        private Subscription(String name, Set<EventType> types, Consumer<DomainEvent> handler, boolean everyNode) {
+            this.name = name;
+            this.types = types;
+            this.handler = handler;
+            this.everyNode = everyNode;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.onlinecourse.event;
+
+import com.example.onlinecourse.dao.EnrollmentDAO;
+import com.example.onlinecourse.entity.Course;
+import com.example.onlinecourse.push.SeatBroadcaster;
+import com.example.onlinecourse.service.CoEnrollmentIndex;
+import com.example.onlinecourse.service.CourseService;
+import com.example.onlinecourse.service.TrendingCourses;
+import com.example.onlinecourse.util.MetricsRegistry;
+
+import java.math.BigDecimal;
+import java.util.EnumSet;
+
+/**
+ * Default subscribers of the EventBus.
+ * Work that does not have to finish before the response is sent runs here, off
+ * the request thread.
+ */
+public class EventSubscribers {
+
+    private EventSubscribers() {
+    }
+
+    /**
+     * Register the application's subscribers.
+     */
+    public static void registerDefaults() {
+        EnrollmentDAO enrollmentDAO = new EnrollmentDAO();
+        CourseService courseService = new CourseService();
+
+        // Seat counts: with shards the recount is a scatter-gather plus a write on
+        // the primary, so it is done here instead of in the enrolling request.
+        // Evicting afterwards also covers enrollments written outside EnrollmentService.
+        // Cohort enrollments are covered by the single COURSE_UPDATED event of the cohort.
+        EventBus.subscribe("courseSeats",
+                EnumSet.of(EventType.ENROLLMENT_CREATED, EventType.ENROLLMENT_CANCELLED, EventType.COURSE_UPDATED),
+                event -> {
+                    if (isCohortEnrollment(event)) {
+                        return;
+                    }
+                    Long courseId = event.getType() == EventType.COURSE_UPDATED
+                            ? event.getAggregateId() : event.getLong("courseId");
+                    if (event.getType() != EventType.COURSE_UPDATED) {
+                        enrollmentDAO.refreshEnrolledCount(courseId);
+                    }
+                    CourseService.evictCourse(courseId);
+                });
+
+        // Runs after courseSeats on the same lane, so the reload sees the new count.
+        // Other nodes push on the COURSE invalidation published by the recount (see SeatBroadcaster).
+        EventBus.subscribe("seatPush",
+                EnumSet.of(EventType.ENROLLMENT_CREATED, EventType.ENROLLMENT_CANCELLED, EventType.COURSE_UPDATED),
+                event -> {
+                    if (isCohortEnrollment(event)) {
+                        return;
+                    }
+                    Long courseId = event.getType() == EventType.COURSE_UPDATED
+                            ? event.getAggregateId() : event.getLong("courseId");
+                    Course course = courseService.getCourseById(courseId);
+                    if (course != null) {
+                        SeatBroadcaster.seatsChanged(course);
+                    }
+                });
+
+        // Co-enrollment counts behind the course recommendations, cohort enrollments included.
+        // The matrix is per node, so every node applies every event, once per event ID.
+        EventBus.subscribeEveryNode("coEnrollment",
+                EnumSet.of(EventType.ENROLLMENT_CREATED, EventType.ENROLLMENT_CANCELLED),
+                event -> {
+                    Long studentId = event.getLong("studentId");
+                    Long courseId = event.getLong("courseId");
+                    if (studentId == null || courseId == null) {
+                        return;
+                    }
+                    if (event.getType() == EventType.ENROLLMENT_CREATED) {
+                        CoEnrollmentIndex.enrollmentCreated(studentId, courseId);
+                    } else {
+                        CoEnrollmentIndex.enrollmentCancelled(studentId, courseId);
+                    }
+                });
+
+        // Cohort enrollments are an admin action, not interest in the course.
+        // Counters are per node, so every node counts every enrollment, once per event ID.
+        EventBus.subscribeEveryNode("trending", EnumSet.of(EventType.ENROLLMENT_CREATED), event -> {
+            Long courseId = event.getLong("courseId");
+            if (courseId != null && !isCohortEnrollment(event)) {
+                TrendingCourses.enrollmentCreated(courseId);
+            }
+        });
+
+        EventBus.subscribe("analytics", EnumSet.allOf(EventType.class), event -> {
+            switch (event.getType()) {
+                case ENROLLMENT_CREATED:
+                    MetricsRegistry.increment("analytics.enrollments.created");
+                    break;
+                case ENROLLMENT_CANCELLED:
+                    MetricsRegistry.increment("analytics.enrollments.cancelled");
+                    break;
+                case PAYMENT_COMPLETED:
+                    MetricsRegistry.increment("analytics.payments.completed");
+                    String amount = event.get("amount");
+                    if (amount != null) {
+                        MetricsRegistry.add("analytics.revenue.cents",
+                                new BigDecimal(amount).movePointRight(2).longValue());
+                    }
+                    break;
+                case COURSE_UPDATED:
+                    MetricsRegistry.increment("analytics.courses.updated");
+                    break;
+                default:
+                    break;
+            }
+        });
+    }
+
+    private static boolean isCohortEnrollment(DomainEvent event) {
+        return event.getType() == EventType.ENROLLMENT_CREATED && "true".equals(event.get("cohort"));
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.onlinecourse.event;
+
+/**
+ * Types of domain events and the aggregate each one belongs to.
+ * Events of the same aggregate are delivered in the order they were written.
+ */
+public enum EventType {
+    ENROLLMENT_CREATED("Enrollment"),
+    ENROLLMENT_CANCELLED("Enrollment"),
+    PAYMENT_COMPLETED("Payment"),
+    COURSE_UPDATED("Course");
+
+    private final String aggregateType;
+
+    EventType(String aggregateType) {
+        this.aggregateType = aggregateType;
+    }
+
+    public String getAggregateType() {
+        return aggregateType;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.onlinecourse.event;
+
+import com.example.onlinecourse.entity.OutboxEvent;
+import com.example.onlinecourse.util.MultiRowInsert;
+import org.hibernate.Session;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes domain events to the outbox table.
+ * Called by the DAOs inside their write transaction, so an event is stored if and
+ * only if the change it describes is committed.
+ */
+public class Outbox {
+
+    private Outbox() {
+    }
+
+    /**
+     * Add an event to the outbox in the caller's transaction.
+     *
+     * @param session Session of the write transaction
+     * @param type Event type
+     * @param aggregateId ID of the changed aggregate
+     * @param payload Event values (toString is stored)
+     */
+    public static void record(Session session, EventType type, Long aggregateId, Map<String, ?> payload) {
+        session.save(new OutboxEvent(type.name(), type.getAggregateType(), aggregateId, encode(payload)));
+    }
+
+    /**
+     * Add events of one type to the outbox in the caller's transaction with
+     * multi-row inserts, for bulk operations.
+     *
+     * @param session Session of the write transaction
+     * @param type Event type
+     * @param aggregateIds IDs of the changed aggregates
+     * @param payloads Event values per aggregate, in the same order
+     */
+    public static void recordAll(Session session, EventType type, List<Long> aggregateIds,
+                                 List<? extends Map<String, ?>> payloads) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> rows = new ArrayList<>(aggregateIds.size());
+        for (int i = 0; i < aggregateIds.size(); i++) {
+            rows.add(new Object[]{type.name(), type.getAggregateType(), aggregateIds.get(i),
+                    encode(payloads.get(i)), now, 0});
+        }
+        MultiRowInsert.insert(session, "outbox_events",
+                new String[]{"event_type", "aggregate_type", "aggregate_id", "payload", "created_at", "attempts"}, rows);
+    }
+
+    /**
+     * Build an event payload from alternating keys and values; null values are skipped.
+     *
+     * @param keysAndValues key1, value1, key2, value2, ...
+     * @return Payload map
+     */
+    public static Map<String, Object> payload(Object... keysAndValues) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < keysAndValues.length; i += 2) {
+            payload.put(String.valueOf(keysAndValues[i]), keysAndValues[i + 1]);
+        }
+        return payload;
+    }
+
+    /**
+     * Convert a stored outbox row into the event delivered to subscribers.
+     *
+     * @param row Outbox row
+     * @return Domain event
+     */
+    public static DomainEvent toDomainEvent(OutboxEvent row) {
+        return new DomainEvent(row.getEventId(), EventType.valueOf(row.getEventType()),
+                row.getAggregateId(), decode(row.getPayload()), row.getCreatedAt());
+    }
+
+    private static String encode(Map<String, ?> payload) {
+        StringBuilder encoded = new StringBuilder();
+        for (Map.Entry<String, ?> entry : payload.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            if (encoded.length() > 0) {
+                encoded.append('&');
+            }
+            encoded.append(urlEncode(entry.getKey())).append('=').append(urlEncode(entry.getValue().toString()));
+        }
+        return encoded.toString();
+    }
+
+    private static Map<String, String> decode(String encoded) {
+        Map<String, String> payload = new LinkedHashMap<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return payload;
+        }
+        for (String pair : encoded.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                payload.put(urlDecode(pair.substring(0, eq)), urlDecode(pair.substring(eq + 1)));
+            }
+        }
+        return payload;
+    }
+
+    private static String urlEncode(String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String urlDecode(String value) {
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.onlinecourse.event;
+
+import com.example.onlinecourse.entity.OutboxEvent;
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.MetricsRegistry;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delivers every outbox event to the every-node subscribers of this node
+ * (EventBus.subscribeEveryNode), which keep node-local in-memory state.
+ * The outbox relay hands each event to one node only, so these subscribers
+ * follow the outbox themselves: a background thread reads new events from the
+ * primary and every shard by ID, with one cursor per database, whether or not
+ * they were relayed yet.
+ *
+ * The cursor starts at the end of the outbox, as earlier changes predate the
+ * node's state. Each event ID is delivered once per node, so redelivery by the
+ * relay never counts an event twice here; a subscriber that fails on an event
+ * is not retried. As with the invalidation changelog, IDs become visible at
+ * commit, so reading stops before a skipped ID until it is filled or older than
+ * outbox.feed.gapWaitMillis.
+ *
+ * Metrics: outbox.feed.delivered, outbox.feed.gapWaits and outbox.feed.errors.
+ */
+public class OutboxFeed {
+    private static final Map<SessionFactory, Long> cursors = new HashMap<>();
+    private static Thread thread;
+    private static volatile boolean running;
+
+    private OutboxFeed() {
+    }
+
+    /**
+     * Start the feed thread if it is not running.
+     */
+    public static synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(OutboxFeed::run, "outbox-feed");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop the feed thread.
+     */
+    public static synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    private static void run() {
+        long pollMillis = AppConfig.getLong("outbox.feed.pollMillis", 500);
+        int batchSize = AppConfig.getInt("outbox.batchSize", 100);
+        long gapWaitMillis = AppConfig.getLong("outbox.feed.gapWaitMillis", 2000);
+
+        while (running) {
+            boolean backlog = false;
+            try {
+                for (SessionFactory source : OutboxRelay.sources()) {
+                    backlog |= follow(source, batchSize, gapWaitMillis) == batchSize;
+                }
+            } catch (RuntimeException e) {
+                MetricsRegistry.increment("outbox.feed.errors");
+                System.err.println("Outbox feed error: " + e.getMessage());
+            }
+            if (!backlog) {
+                try {
+                    Thread.sleep(pollMillis);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Deliver the new events of one database.
+     *
+     * @return Number of events read
+     */
+    private static int follow(SessionFactory source, int batchSize, long gapWaitMillis) {
+        List<OutboxEvent> rows;
+        Session session = source.openSession();
+        try {
+            Long cursor = cursors.get(source);
+            if (cursor == null) {
+                Long max = session.createQuery("SELECT MAX(eventId) FROM OutboxEvent", Long.class).uniqueResult();
+                cursors.put(source, max != null ? max : 0L);
+                return 0;
+            }
+            rows = session.createQuery("FROM OutboxEvent WHERE eventId > :cursor ORDER BY eventId", OutboxEvent.class)
+                    .setParameter("cursor", cursor)
+                    .setMaxResults(batchSize)
+                    .list();
+        } finally {
+            session.close();
+        }
+
+        long now = System.currentTimeMillis();
+        for (OutboxEvent row : rows) {
+            long id = row.getEventId();
+            if (id != cursors.get(source) + 1 && now - row.getCreatedAt().getTime() < gapWaitMillis) {
+                MetricsRegistry.increment("outbox.feed.gapWaits");
+                break;
+            }
+            cursors.put(source, id);
+            EventBus.dispatchEveryNode(Outbox.toDomainEvent(row));
+            MetricsRegistry.increment("outbox.feed.delivered");
+        }
+        return rows.size();
+    }
+}
@@ -0,0 +1,352 @@
+package com.example.onlinecourse.event;
+
+import com.example.onlinecourse.entity.OutboxEvent;
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.HibernateUtil;
+import com.example.onlinecourse.util.MetricsRegistry;
+import org.hibernate.LockMode;
+import org.hibernate.LockOptions;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publishes outbox events to the EventBus.
+ * A background thread on every node claims batches of unpublished events in ID
+ * order from the primary and from every shard, hands them to the bus and marks the
+ * delivered ones as published. Claiming locks the rows with SKIP LOCKED and sets
+ * a lease (claimed_until), so nodes relay disjoint events; the events of a node
+ * that dies are claimed by another one once the lease runs out.
+ *
+ * An event is only claimed with the earliest undelivered event of its aggregate,
+ * and within a batch only handed to the bus after the previous event of the same
+ * aggregate succeeded, which keeps per-aggregate order across nodes and retries.
+ * Events that failed or timed out stay unpublished and are retried after a backoff
+ * (at-least-once); after outbox.maxAttempts failures an event is parked (parked_at)
+ * and logged, so it no longer holds back the later events of its aggregate.
+ *
+ * Metrics: outbox.published, outbox.failed, outbox.parked, outbox.lag
+ * (commit-to-delivery time) and the outbox.lagMillis gauge (age of the oldest
+ * event claimed).
+ */
+public class OutboxRelay {
+    private static final Object signal = new Object();
+    private static final Map<SessionFactory, Long> oldestPending = new ConcurrentHashMap<>();
+    private static Thread thread;
+    private static volatile boolean running;
+    private static boolean wakeRequested;
+
+    static {
+        MetricsRegistry.gauge("outbox.lagMillis", () -> {
+            long oldest = Long.MAX_VALUE;
+            for (Long createdAt : oldestPending.values()) {
+                oldest = Math.min(oldest, createdAt);
+            }
+            return oldest == Long.MAX_VALUE ? 0 : System.currentTimeMillis() - oldest;
+        });
+    }
+
+    private OutboxRelay() {
+    }
+
+    /**
+     * Start the relay thread if it is not running.
+     */
+    public static synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(OutboxRelay::run, "outbox-relay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop the relay thread and wait briefly for the current batch to finish.
+     */
+    public static synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        wakeUp();
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    /**
+     * Ask the relay to poll now instead of at the end of its interval.
+     * Called after a transaction that wrote outbox events commits.
+     */
+    public static void wakeUp() {
+        synchronized (signal) {
+            wakeRequested = true;
+            signal.notifyAll();
+        }
+    }
+
+    private static void run() {
+        long pollMillis = AppConfig.getLong("outbox.pollIntervalMillis", 500);
+        int batchSize = AppConfig.getInt("outbox.batchSize", 100);
+        long timeoutMillis = AppConfig.getLong("outbox.deliveryTimeoutMillis", 10000);
+        long retentionMillis = AppConfig.getLong("outbox.retentionHours", 24) * 3600_000L;
+        long lastPurge = 0;
+
+        while (running) {
+            boolean backlog = false;
+            try {
+                for (SessionFactory source : sources()) {
+                    backlog |= relayBatch(source, batchSize, timeoutMillis) == batchSize;
+                }
+                if (System.currentTimeMillis() - lastPurge > 3600_000L) {
+                    for (SessionFactory source : sources()) {
+                        purge(source, retentionMillis);
+                    }
+                    lastPurge = System.currentTimeMillis();
+                }
+            } catch (RuntimeException e) {
+                MetricsRegistry.increment("outbox.errors");
+                System.err.println("Outbox relay error: " + e.getMessage());
+            }
+            if (!backlog) {
+                awaitWakeUp(pollMillis);
+            }
+        }
+    }
+
+    /**
+     * Publish one batch of unpublished events from one database.
+     *
+     * @param source Database holding outbox events
+     * @param batchSize Maximum number of events
+     * @param timeoutMillis Maximum time to wait for subscribers
+     * @return Number of events read
+     */
+    private static int relayBatch(SessionFactory source, int batchSize, long timeoutMillis) {
+        List<OutboxEvent> rows = claim(source, batchSize, timeoutMillis);
+        if (rows.isEmpty()) {
+            oldestPending.remove(source);
+            return 0;
+        }
+        oldestPending.put(source, rows.get(0).getCreatedAt().getTime());
+
+        // Chain events of the same aggregate so a failure stops its later events
+        Map<String, CompletableFuture<Void>> lastByAggregate = new HashMap<>();
+        List<CompletableFuture<Void>> deliveries = new ArrayList<>();
+        for (OutboxEvent row : rows) {
+            DomainEvent event = Outbox.toDomainEvent(row);
+            CompletableFuture<Void> previous = lastByAggregate.get(event.getAggregateKey());
+            CompletableFuture<Void> delivery = previous == null
+                    ? EventBus.publish(event)
+                    : previous.thenCompose(ignored -> EventBus.publish(event));
+            lastByAggregate.put(event.getAggregateKey(), delivery);
+            deliveries.add(delivery);
+        }
+
+        List<Long> published = new ArrayList<>();
+        List<OutboxEvent> failed = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (int i = 0; i < rows.size(); i++) {
+            OutboxEvent row = rows.get(i);
+            try {
+                deliveries.get(i).get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                published.add(row.getEventId());
+                MetricsRegistry.recordTime("outbox.lag",
+                        (System.currentTimeMillis() - row.getCreatedAt().getTime()) * 1_000_000L);
+            } catch (ExecutionException | TimeoutException e) {
+                failed.add(row);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.add(row);
+            }
+        }
+        markDelivery(source, published, failed);
+        MetricsRegistry.add("outbox.published", published.size());
+        MetricsRegistry.add("outbox.failed", failed.size());
+        return rows.size();
+    }
+
+    /**
+     * Claim a batch of undelivered events for this node.
+     * Events whose aggregate has an earlier undelivered event outside the batch
+     * (claimed by another node or waiting for a retry) are left for later.
+     *
+     * @return Claimed events in ID order
+     */
+    private static List<OutboxEvent> claim(SessionFactory source, int batchSize, long timeoutMillis) {
+        Session session = source.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            Date now = new Date();
+            List<OutboxEvent> candidates = session.createQuery(
+                            "FROM OutboxEvent WHERE publishedAt IS NULL AND parkedAt IS NULL "
+                                    + "AND (claimedUntil IS NULL OR claimedUntil < :now) ORDER BY eventId",
+                            OutboxEvent.class)
+                    .setParameter("now", now)
+                    .setMaxResults(batchSize)
+                    .setLockOptions(new LockOptions(LockMode.UPGRADE_SKIPLOCKED))
+                    .list();
+            if (candidates.isEmpty()) {
+                transaction.commit();
+                return candidates;
+            }
+
+            Set<Long> candidateIds = new HashSet<>();
+            Set<Long> aggregateIds = new HashSet<>();
+            for (OutboxEvent row : candidates) {
+                candidateIds.add(row.getEventId());
+                aggregateIds.add(row.getAggregateId());
+            }
+            Map<String, Long> firstByAggregate = new HashMap<>();
+            for (Object[] first : session.createQuery(
+                            "SELECT aggregateType, aggregateId, MIN(eventId) FROM OutboxEvent "
+                                    + "WHERE publishedAt IS NULL AND parkedAt IS NULL AND aggregateId IN (:ids) "
+                                    + "GROUP BY aggregateType, aggregateId", Object[].class)
+                    .setParameterList("ids", aggregateIds)
+                    .list()) {
+                firstByAggregate.put(first[0] + ":" + first[1], (Long) first[2]);
+            }
+            List<OutboxEvent> claimed = new ArrayList<>();
+            for (OutboxEvent row : candidates) {
+                if (candidateIds.contains(firstByAggregate.get(row.getAggregateType() + ":" + row.getAggregateId()))) {
+                    claimed.add(row);
+                }
+            }
+            if (!claimed.isEmpty()) {
+                List<Long> ids = new ArrayList<>(claimed.size());
+                for (OutboxEvent row : claimed) {
+                    ids.add(row.getEventId());
+                }
+                // The lease outlasts the delivery timeout, so a live relay never loses its claim
+                session.createQuery("UPDATE OutboxEvent SET claimedUntil = :until WHERE eventId IN (:ids)")
+                        .setParameter("until", new Date(now.getTime() + 2 * timeoutMillis))
+                        .setParameterList("ids", ids)
+                        .executeUpdate();
+            }
+            transaction.commit();
+            return claimed;
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw new RuntimeException("Error claiming outbox events: " + e.getMessage(), e);
+        } finally {
+            session.close();
+        }
+    }
+
+    private static void markDelivery(SessionFactory source, List<Long> published, List<OutboxEvent> failed) {
+        int maxAttempts = AppConfig.getInt("outbox.maxAttempts", 10);
+        long retryMillis = AppConfig.getLong("outbox.retryMillis", 1000);
+        Session session = source.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            Date now = new Date();
+            if (!published.isEmpty()) {
+                session.createQuery("UPDATE OutboxEvent SET publishedAt = :now, claimedUntil = NULL "
+                                + "WHERE eventId IN (:ids)")
+                        .setParameter("now", now)
+                        .setParameterList("ids", published)
+                        .executeUpdate();
+            }
+            for (OutboxEvent row : failed) {
+                int attempts = row.getAttempts() + 1;
+                if (attempts >= maxAttempts) {
+                    session.createQuery("UPDATE OutboxEvent SET attempts = :attempts, parkedAt = :now, "
+                                    + "claimedUntil = NULL WHERE eventId = :id")
+                            .setParameter("attempts", attempts)
+                            .setParameter("now", now)
+                            .setParameter("id", row.getEventId())
+                            .executeUpdate();
+                    MetricsRegistry.increment("outbox.parked");
+                    System.err.println("Outbox event " + row.getEventId() + " (" + row.getEventType() + " "
+                            + row.getAggregateType() + " " + row.getAggregateId() + ") parked after "
+                            + attempts + " failed deliveries");
+                } else {
+                    // Exponential backoff, at most five minutes
+                    long delay = Math.min(300_000L, retryMillis << Math.min(attempts - 1, 20));
+                    session.createQuery("UPDATE OutboxEvent SET attempts = :attempts, claimedUntil = :retryAt "
+                                    + "WHERE eventId = :id")
+                            .setParameter("attempts", attempts)
+                            .setParameter("retryAt", new Date(now.getTime() + delay))
+                            .setParameter("id", row.getEventId())
+                            .executeUpdate();
+                }
+            }
+            transaction.commit();
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            // The events stay unpublished and are delivered again once their claim runs out
+            throw new RuntimeException("Error marking outbox events: " + e.getMessage(), e);
+        } finally {
+            session.close();
+        }
+    }
+
+    private static void purge(SessionFactory source, long retentionMillis) {
+        Session session = source.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            session.createQuery("DELETE FROM OutboxEvent WHERE publishedAt < :cutoff")
+                    .setParameter("cutoff", new Date(System.currentTimeMillis() - retentionMillis))
+                    .executeUpdate();
+            transaction.commit();
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            System.err.println("Error purging outbox events: " + e.getMessage());
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Databases that receive outbox events: course events go to the primary,
+     * enrollment and payment events to the student's shard.
+     */
+    static Set<SessionFactory> sources() {
+        Set<SessionFactory> sources = new LinkedHashSet<>();
+        sources.add(HibernateUtil.getSessionFactory());
+        sources.addAll(HibernateUtil.getShardSessionFactories());
+        return sources;
+    }
+
+    private static void awaitWakeUp(long millis) {
+        synchronized (signal) {
+            if (!wakeRequested && running) {
+                try {
+                    signal.wait(millis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                }
+            }
+            wakeRequested = false;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.onlinecourse.filter;
+
+import com.example.onlinecourse.cache.CatalogVersions;
+import com.example.onlinecourse.service.CourseService;
+import com.example.onlinecourse.util.MetricsRegistry;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Conditional GET for the catalog pages.
+ * The ETag of a catalog page is derived from the catalog version, the session and
+ * a per-session counter that every POST bumps (login, search, enrollment and toast
+ * changes all happen in POSTs), plus the query string. Pages rendered from a stale
+ * catalog (see CourseService.isCatalogStale) get a different ETag, so they are
+ * rendered again once the catalog is current. If the browser sends a
+ * matching If-None-Match, the filter answers 304 without running the JSF lifecycle.
+ * Requests without a session (first visits, crawlers, clients without cookies) get
+ * an ETag of the catalog version and the query string only, which never matches a
+ * session's ETag, so a page cached for a session is not reused after it ended.
+ *
+ * Init parameter "paths": comma-separated servlet paths of the catalog pages.
+ */
+public class CatalogETagFilter implements Filter {
+    private static final String EPOCH_ATTRIBUTE = CatalogETagFilter.class.getName() + ".epoch";
+
+    private final Set<String> paths = new HashSet<>();
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        String value = filterConfig.getInitParameter("paths");
+        if (value != null) {
+            for (String path : value.split(",")) {
+                paths.add(path.trim());
+            }
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) res;
+        HttpSession session = request.getSession(false);
+        boolean read = "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+
+        if (!read) {
+            if (session != null) {
+                epoch(session).incrementAndGet();
+            }
+            chain.doFilter(req, res);
+            return;
+        }
+        if (!paths.contains(request.getServletPath())) {
+            chain.doFilter(req, res);
+            return;
+        }
+
+        String owner = session != null
+                ? "c" + CatalogVersions.getCatalogVersion()
+                + "-" + Integer.toHexString(session.getId().hashCode())
+                + "-" + epoch(session).get()
+                : "a" + CatalogVersions.getCatalogVersion();
+        String etag = "\"" + owner
+                + "-" + Integer.toHexString(Objects.hashCode(request.getQueryString()))
+                + (CourseService.isCatalogStale() ? "-stale" : "") + "\"";
+        response.setHeader("ETag", etag);
+        // Private: the page contains per-user parts; no-cache: always revalidate
+        response.setHeader("Cache-Control", "private, no-cache");
+
+        if (matches(request.getHeader("If-None-Match"), etag)) {
+            MetricsRegistry.increment("http.catalog.notModified");
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        MetricsRegistry.increment("http.catalog.rendered");
+        chain.doFilter(req, res);
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    private static AtomicLong epoch(HttpSession session) {
+        AtomicLong epoch = (AtomicLong) session.getAttribute(EPOCH_ATTRIBUTE);
+        if (epoch == null) {
+            synchronized (session) {
+                epoch = (AtomicLong) session.getAttribute(EPOCH_ATTRIBUTE);
+                if (epoch == null) {
+                    epoch = new AtomicLong();
+                    session.setAttribute(EPOCH_ATTRIBUTE, epoch);
+                }
+            }
+        }
+        return epoch;
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals(etag) || value.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
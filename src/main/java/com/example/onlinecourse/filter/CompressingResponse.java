@@ -0,0 +1,249 @@
+package com.example.onlinecourse.filter;
+
+import com.example.onlinecourse.util.MetricsRegistry;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Response wrapper used by CompressionFilter.
+ * Decides between gzip and identity encoding once the threshold is reached or the
+ * response is finished, whichever comes first.
+ */
+class CompressingResponse extends HttpServletResponseWrapper {
+    private final HttpServletResponse response;
+    private final int minBytes;
+    private CompressingStream stream;
+    private PrintWriter writer;
+    private long contentLength = -1;
+
+    CompressingResponse(HttpServletResponse response, int minBytes) {
+        super(response);
+        this.response = response;
+        this.minBytes = minBytes;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        return stream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (stream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called");
+            }
+            writer = new PrintWriter(new OutputStreamWriter(stream(), getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        contentLength = len;
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        contentLength = len;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            contentLength = Long.parseLong(value);
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if ("Content-Length".equalsIgnoreCase(name)) {
+            contentLength = Long.parseLong(value);
+        } else {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        } else if (stream != null) {
+            stream.flush();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        if (stream != null) {
+            stream.resetBuffer();
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        if (stream != null) {
+            stream.resetBuffer();
+        }
+        contentLength = -1;
+    }
+
+    /**
+     * Write out whatever is still buffered and end the gzip stream.
+     */
+    void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (stream != null) {
+            stream.finish();
+        } else if (contentLength >= 0) {
+            response.setContentLengthLong(contentLength);
+        }
+    }
+
+    private CompressingStream stream() {
+        if (stream == null) {
+            stream = new CompressingStream();
+        }
+        return stream;
+    }
+
+    private boolean isCompressible() {
+        String contentType = response.getContentType();
+        if (contentType == null || response.getHeader("Content-Encoding") != null) {
+            return false;
+        }
+        String type = contentType.toLowerCase();
+        return (type.startsWith("text/") && !type.startsWith("text/event-stream"))
+                || type.startsWith("application/javascript")
+                || type.startsWith("application/json")
+                || type.startsWith("application/xml")
+                || type.startsWith("application/xhtml+xml")
+                || type.startsWith("image/svg+xml");
+    }
+
+    /**
+     * Buffers the first bytes, then switches to gzip or identity output.
+     */
+    private class CompressingStream extends ServletOutputStream {
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private OutputStream out;
+        private GZIPOutputStream gzip;
+        private CountingStream counter;
+        private long uncompressedBytes;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            uncompressedBytes += len;
+            if (out != null) {
+                out.write(b, off, len);
+                return;
+            }
+            buffer.write(b, off, len);
+            if (buffer.size() >= minBytes) {
+                decide(true);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // Until the encoding is chosen, flushing would commit the headers too early
+            if (out != null) {
+                out.flush();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException("Non-blocking output is not supported by the compression filter");
+        }
+
+        void resetBuffer() {
+            if (out != null) {
+                throw new IllegalStateException("Response has already been committed");
+            }
+            buffer.reset();
+            uncompressedBytes = 0;
+        }
+
+        void finish() throws IOException {
+            if (out == null) {
+                decide(false);
+            }
+            if (gzip != null) {
+                gzip.finish();
+                MetricsRegistry.increment("http.gzip.responses");
+                MetricsRegistry.add("http.gzip.bytesIn", uncompressedBytes);
+                MetricsRegistry.add("http.gzip.bytesOut", counter.count);
+            }
+            out.flush();
+        }
+
+        private void decide(boolean large) throws IOException {
+            response.addHeader("Vary", "Accept-Encoding");
+            if (large && isCompressible()) {
+                response.setHeader("Content-Encoding", "gzip");
+                counter = new CountingStream(response.getOutputStream());
+                gzip = new GZIPOutputStream(counter, 8192, true);
+                out = gzip;
+            } else {
+                if (!large && buffer.size() > 0) {
+                    response.setContentLength(buffer.size());
+                } else if (contentLength >= 0) {
+                    response.setContentLengthLong(contentLength);
+                }
+                out = response.getOutputStream();
+            }
+            buffer.writeTo(out);
+            buffer = null;
+        }
+    }
+
+    private static class CountingStream extends FilterOutputStream {
+        private long count;
+
+        CountingStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
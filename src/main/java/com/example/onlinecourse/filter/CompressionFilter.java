@@ -0,0 +1,48 @@
+package com.example.onlinecourse.filter;
+
+import com.example.onlinecourse.util.AppConfig;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+/**
+ * Gzip compression for text responses.
+ * The response is buffered up to a threshold; smaller bodies are sent as they are
+ * with a Content-Length, larger ones of a compressible type are streamed through
+ * gzip. Must not be mapped to streaming endpoints such as /events/*.
+ */
+public class CompressionFilter implements Filter {
+    private int minBytes;
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        minBytes = AppConfig.getInt("http.compression.minBytes", 1024);
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) res;
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (acceptEncoding == null || !acceptEncoding.contains("gzip") || "HEAD".equals(request.getMethod())) {
+            chain.doFilter(req, res);
+            return;
+        }
+
+        CompressingResponse compressing = new CompressingResponse(response, minBytes);
+        chain.doFilter(request, compressing);
+        compressing.finish();
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.onlinecourse.filter;
+
+import com.example.onlinecourse.bean.StudentBean;
+import com.example.onlinecourse.util.ConsistencyTokens;
+import jakarta.enterprise.inject.spi.CDI;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.io.IOException;
+
+/**
+ * Binds the read-your-writes token of the request's session to the request thread
+ * (see ConsistencyTokens). The token is held by the session's StudentBean, so writes
+ * recorded during the request are part of the session state replicated afterwards.
+ * Mapped after SessionReplicationFilter, which restores the session first.
+ */
+public class ReadYourWritesFilter implements Filter {
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+            throws IOException, ServletException {
+        // Sessionless requests have no student, and must not get a session here
+        if (((HttpServletRequest) req).getSession(false) == null) {
+            chain.doFilter(req, res);
+            return;
+        }
+        ConsistencyTokens.bind(CDI.current().select(StudentBean.class).get().getConsistencyToken());
+        try {
+            chain.doFilter(req, res);
+        } finally {
+            ConsistencyTokens.unbind();
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.onlinecourse.filter;
+
+import com.example.onlinecourse.session.InMemorySessionStore;
+import com.example.onlinecourse.session.SessionStateCodec;
+import com.example.onlinecourse.session.SessionStore;
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.MetricsRegistry;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Replicates HTTP sessions through a SessionStore.
+ * After each request the session attributes are serialized (the session beans
+ * write their compact protobuf state) and, if the snapshot changed, written to the
+ * store under a random replication key that the browser keeps in a cookie. A
+ * request that reaches a node without its session gets a new session filled from
+ * the stored snapshot.
+ *
+ * Metrics: session.replicatedBytes (snapshot size per write), session.passivation
+ * (time to serialize and store a session), session.activation (time to restore one).
+ */
+public class SessionReplicationFilter implements Filter {
+    private static final String PREFIX = SessionReplicationFilter.class.getName();
+    private static final String KEY_ATTRIBUTE = PREFIX + ".key";
+    private static final String DIGEST_ATTRIBUTE = PREFIX + ".digest";
+    private static final String SAVED_AT_ATTRIBUTE = PREFIX + ".savedAt";
+    private static final String COOKIE_NAME = "SESSION_REPLICA";
+    private static final SecureRandom RANDOM = new SecureRandom();
+    // Attributes already reported as not serializable, to log each only once
+    private static final Set<String> unserializable = ConcurrentHashMap.newKeySet();
+
+    private boolean enabled;
+    private long refreshMillis;
+    private SessionStore store;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        enabled = AppConfig.getBoolean("session.replication.enabled", true);
+        refreshMillis = AppConfig.getLong("session.replication.refreshSeconds", 60) * 1000L;
+        String className = AppConfig.get("session.store.class", InMemorySessionStore.class.getName());
+        try {
+            store = (SessionStore) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new ServletException("Cannot create session store " + className, e);
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+            throws IOException, ServletException {
+        if (!enabled) {
+            chain.doFilter(req, res);
+            return;
+        }
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) res;
+
+        HttpSession session = request.getSession(false);
+        if (session == null) {
+            session = restore(request);
+        }
+        String sessionId = null;
+        String key = null;
+        if (session != null) {
+            sessionId = session.getId();
+            key = ensureKey(session, request, response);
+        }
+
+        try {
+            chain.doFilter(req, res);
+        } finally {
+            HttpSession current = request.getSession(false);
+            if (key != null && (current == null || !current.getId().equals(sessionId))) {
+                // Invalidated during the request (logout)
+                store.remove(key);
+            }
+            if (current != null && response.getStatus() != HttpServletResponse.SC_NOT_MODIFIED) {
+                ensureKey(current, request, response);
+                replicate(current);
+            }
+        }
+    }
+
+    /**
+     * Write the session snapshot to the store if it changed since the last write
+     * or the stored copy is due for refresh.
+     */
+    private void replicate(HttpSession session) {
+        try {
+            String key = (String) session.getAttribute(KEY_ATTRIBUTE);
+            if (key == null) {
+                return;
+            }
+            long start = System.nanoTime();
+            Map<String, byte[]> attributes = new TreeMap<>();
+            for (String name : Collections.list(session.getAttributeNames())) {
+                if (name.startsWith(PREFIX)) {
+                    continue;
+                }
+                byte[] value = serialize(name, session.getAttribute(name));
+                if (value != null) {
+                    attributes.put(name, value);
+                }
+            }
+            byte[] snapshot = SessionStateCodec.encodeSnapshot(attributes);
+            long digest = digest(snapshot);
+            Long previousDigest = (Long) session.getAttribute(DIGEST_ATTRIBUTE);
+            Long savedAt = (Long) session.getAttribute(SAVED_AT_ATTRIBUTE);
+            long now = System.currentTimeMillis();
+            if (previousDigest != null && previousDigest == digest && savedAt != null
+                    && now - savedAt < refreshMillis) {
+                MetricsRegistry.increment("session.replication.unchanged");
+                return;
+            }
+            int ttlSeconds = session.getMaxInactiveInterval() > 0 ? session.getMaxInactiveInterval() : 1800;
+            store.save(key, snapshot, ttlSeconds);
+            session.setAttribute(DIGEST_ATTRIBUTE, digest);
+            session.setAttribute(SAVED_AT_ATTRIBUTE, now);
+            MetricsRegistry.recordValue("session.replicatedBytes", snapshot.length);
+            MetricsRegistry.recordTime("session.passivation", System.nanoTime() - start);
+        } catch (IllegalStateException e) {
+            // Session invalidated concurrently
+        } catch (RuntimeException e) {
+            MetricsRegistry.increment("session.replication.errors");
+            System.err.println("Error replicating session: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Create a session from the stored snapshot named by the replication cookie.
+     *
+     * @return Restored session, or null if there is nothing to restore
+     */
+    private HttpSession restore(HttpServletRequest request) {
+        String key = replicationCookie(request);
+        if (key == null) {
+            return null;
+        }
+        byte[] snapshot;
+        try {
+            snapshot = store.load(key);
+        } catch (RuntimeException e) {
+            MetricsRegistry.increment("session.replication.errors");
+            System.err.println("Error loading session snapshot: " + e.getMessage());
+            return null;
+        }
+        if (snapshot == null) {
+            MetricsRegistry.increment("session.restoreMisses");
+            return null;
+        }
+
+        long start = System.nanoTime();
+        HttpSession session = request.getSession(true);
+        try {
+            for (Map.Entry<String, byte[]> attribute : SessionStateCodec.decodeSnapshot(snapshot).entrySet()) {
+                try {
+                    session.setAttribute(attribute.getKey(), deserialize(attribute.getValue()));
+                } catch (IOException | ClassNotFoundException e) {
+                    MetricsRegistry.increment("session.restoreFailures");
+                    System.err.println("Cannot restore session attribute " + attribute.getKey() + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            MetricsRegistry.increment("session.restoreFailures");
+            System.err.println("Invalid session snapshot: " + e.getMessage());
+        }
+        session.setAttribute(KEY_ATTRIBUTE, key);
+        session.setAttribute(DIGEST_ATTRIBUTE, digest(snapshot));
+        session.setAttribute(SAVED_AT_ATTRIBUTE, System.currentTimeMillis());
+        MetricsRegistry.increment("session.restored");
+        MetricsRegistry.recordTime("session.activation", System.nanoTime() - start);
+        return session;
+    }
+
+    /**
+     * Give the session a replication key and send it to the browser.
+     * The cookie can only be set before the response is committed; a session
+     * created late in a request gets its key on the next request.
+     *
+     * @return Replication key, or null if none could be assigned yet
+     */
+    private String ensureKey(HttpSession session, HttpServletRequest request, HttpServletResponse response) {
+        try {
+            String key = (String) session.getAttribute(KEY_ATTRIBUTE);
+            if (key != null || response.isCommitted()) {
+                return key;
+            }
+            byte[] random = new byte[16];
+            RANDOM.nextBytes(random);
+            StringBuilder hex = new StringBuilder(32);
+            for (byte b : random) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            key = hex.toString();
+            session.setAttribute(KEY_ATTRIBUTE, key);
+
+            Cookie cookie = new Cookie(COOKIE_NAME, key);
+            cookie.setHttpOnly(true);
+            cookie.setSecure(request.isSecure());
+            cookie.setPath(request.getContextPath().isEmpty() ? "/" : request.getContextPath());
+            response.addCookie(cookie);
+            return key;
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private static String replicationCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName()) && cookie.getValue().matches("[0-9a-f]{32}")) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static byte[] serialize(String name, Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        } catch (NotSerializableException e) {
+            MetricsRegistry.increment("session.unserializable");
+            if (unserializable.add(name)) {
+                System.err.println("Session attribute " + name + " is not replicated: " + e.getMessage());
+            }
+            return null;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot serialize session attribute " + name, e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] value) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ContextClassLoaderObjectInputStream(new ByteArrayInputStream(value))) {
+            return in.readObject();
+        }
+    }
+
+    private static long digest(byte[] snapshot) {
+        CRC32 crc = new CRC32();
+        crc.update(snapshot);
+        return ((long) snapshot.length << 32) ^ crc.getValue();
+    }
+
+    /**
+     * Resolves classes through the web application's class loader.
+     */
+    private static final class ContextClassLoaderObjectInputStream extends ObjectInputStream {
+
+        private ContextClassLoaderObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            try {
+                return Class.forName(desc.getName(), false, loader);
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.onlinecourse.listener;
+
+import com.example.onlinecourse.audit.AuditJournal;
+import com.example.onlinecourse.cache.InvalidationBus;
+import com.example.onlinecourse.cache.SingleFlightLoader;
+import com.example.onlinecourse.event.EventBus;
+import com.example.onlinecourse.event.EventSubscribers;
+import com.example.onlinecourse.event.OutboxFeed;
+import com.example.onlinecourse.event.OutboxRelay;
+import com.example.onlinecourse.push.SeatBroadcaster;
+import com.example.onlinecourse.scheduler.DefaultJobs;
+import com.example.onlinecourse.scheduler.JobScheduler;
+import com.example.onlinecourse.service.CourseService;
+import com.example.onlinecourse.service.DeletionJobs;
+import com.example.onlinecourse.service.EnrollmentIntents;
+import com.example.onlinecourse.service.StudentService;
+import com.example.onlinecourse.util.HibernateUtil;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+
+/**
+ * Starts and stops application-wide background work with the web application.
+ * The outbox relay and feed, the invalidation bus and the job scheduler only touch the
+ * database from their own threads, so Hibernate is still initialized lazily and
+ * a database outage does not fail the deployment.
+ */
+@WebListener
+public class AppLifecycleListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        AuditJournal.start();
+        EnrollmentIntents.start();
+        EventSubscribers.registerDefaults();
+        CourseService.registerInvalidationHandlers();
+        StudentService.registerInvalidationHandlers();
+        InvalidationBus.start();
+        OutboxRelay.start();
+        OutboxFeed.start();
+        SeatBroadcaster.start();
+        DefaultJobs.registerDefaults();
+        JobScheduler.start();
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        JobScheduler.stop();
+        DeletionJobs.stop();
+        EnrollmentIntents.stop();
+        SeatBroadcaster.stop();
+        OutboxFeed.stop();
+        OutboxRelay.stop();
+        InvalidationBus.stop();
+        EventBus.clearSubscriptions();
+        AuditJournal.stop();
+        SingleFlightLoader.stopRefreshes();
+        HibernateUtil.shutdown();
+    }
+}
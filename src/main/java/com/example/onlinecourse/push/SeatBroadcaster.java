@@ -0,0 +1,191 @@
+package com.example.onlinecourse.push;
+
+import com.example.onlinecourse.cache.InvalidationBus;
+import com.example.onlinecourse.cache.InvalidationType;
+import com.example.onlinecourse.entity.Course;
+import com.example.onlinecourse.service.CourseService;
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.MetricsRegistry;
+import jakarta.servlet.AsyncContext;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes seat counts to all connected browsers.
+ * Changes are collected per course and flushed periodically, so a burst of
+ * enrollments in one course becomes a single update carrying the latest count.
+ * Each flush encodes one frame and writes the same bytes to every stream.
+ *
+ * The node that relays an enrollment event reports the new count through its
+ * seatPush subscriber; the other nodes pick the change up from the COURSE cache
+ * invalidation the recount publishes, so browsers connected to any node are updated.
+ *
+ * Frame format: {@code event: seats} with data {@code {"courseId":[enrolled,capacity],...}}.
+ */
+public class SeatBroadcaster {
+    private static final Set<SeatStream> streams = ConcurrentHashMap.newKeySet();
+    private static final Map<Long, int[]> pending = new ConcurrentHashMap<>();
+    private static final byte[] HEARTBEAT = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+    private static ScheduledExecutorService timer;
+    private static boolean invalidationsRegistered;
+
+    static {
+        MetricsRegistry.gauge("push.seats.streams", streams::size);
+    }
+
+    private SeatBroadcaster() {
+    }
+
+    /**
+     * Start the flush and heartbeat timer.
+     */
+    public static synchronized void start() {
+        if (timer != null) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "seat-broadcaster");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long flushMillis = AppConfig.getLong("push.seats.flushMillis", 250);
+        long heartbeatSeconds = AppConfig.getLong("push.seats.heartbeatSeconds", 20);
+        timer.scheduleWithFixedDelay(SeatBroadcaster::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        timer.scheduleWithFixedDelay(SeatBroadcaster::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        if (!invalidationsRegistered) {
+            // Registered after CourseService's handler, so the course is reloaded after its eviction
+            InvalidationBus.register(InvalidationType.COURSE, SeatBroadcaster::courseChanged);
+            invalidationsRegistered = true;
+        }
+    }
+
+    /**
+     * Stop the timer and close all streams.
+     */
+    public static synchronized void stop() {
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+        for (SeatStream stream : new ArrayList<>(streams)) {
+            stream.close();
+        }
+    }
+
+    /**
+     * Record a course's current seat count for the next flush.
+     * Later calls for the same course before the flush replace earlier ones.
+     *
+     * @param course Course with its current counts
+     */
+    public static void seatsChanged(Course course) {
+        pending.put(course.getCourseId(), seatCounts(course));
+    }
+
+    /**
+     * Push a course's count after another node changed it.
+     *
+     * @param courseId Course ID
+     */
+    private static void courseChanged(long courseId) {
+        if (streams.isEmpty()) {
+            return;
+        }
+        Course course = new CourseService().getCourseById(courseId);
+        if (course != null) {
+            seatsChanged(course);
+        }
+    }
+
+    /**
+     * Attach a new browser connection and send it the current counts of the
+     * courses on its page, so changes made while the page loaded are not missed.
+     *
+     * @param asyncContext Started async context of the request
+     * @param courseIds Courses shown on the page
+     */
+    static void register(AsyncContext asyncContext, List<Long> courseIds) throws IOException {
+        SeatStream stream = new SeatStream(asyncContext, AppConfig.getInt("push.seats.maxQueuedFrames", 32));
+        StringBuilder snapshot = new StringBuilder("retry: 5000\n");
+        CourseService courseService = new CourseService();
+        Map<Long, int[]> counts = new LinkedHashMap<>();
+        for (Long courseId : courseIds) {
+            Course course = courseService.getCourseById(courseId);
+            if (course != null) {
+                counts.put(courseId, seatCounts(course));
+            }
+        }
+        snapshot.append(counts.isEmpty() ? "\n" : encode(counts));
+        // Non-blocking writes are only allowed once the write listener is set
+        stream.open();
+        stream.send(snapshot.toString().getBytes(StandardCharsets.UTF_8));
+        streams.add(stream);
+        // A stream closed before it was added was unregistered too early; drop it here
+        if (stream.isClosed()) {
+            streams.remove(stream);
+        }
+    }
+
+    static void unregister(SeatStream stream) {
+        streams.remove(stream);
+    }
+
+    private static void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<Long, int[]> batch = new LinkedHashMap<>();
+        for (Long courseId : new ArrayList<>(pending.keySet())) {
+            int[] counts = pending.remove(courseId);
+            if (counts != null) {
+                batch.put(courseId, counts);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        byte[] frame = encode(batch).getBytes(StandardCharsets.UTF_8);
+        for (SeatStream stream : streams) {
+            stream.send(frame);
+        }
+        MetricsRegistry.increment("push.seats.frames");
+        MetricsRegistry.add("push.seats.writes", streams.size());
+    }
+
+    private static void heartbeat() {
+        // Keeps idle connections open through proxies and detects closed sockets
+        for (SeatStream stream : streams) {
+            stream.send(HEARTBEAT);
+        }
+    }
+
+    private static int[] seatCounts(Course course) {
+        return new int[]{
+                course.getEnrolledCount() != null ? course.getEnrolledCount() : 0,
+                course.getCapacity() != null ? course.getCapacity() : 0};
+    }
+
+    private static String encode(Map<Long, int[]> counts) {
+        StringBuilder data = new StringBuilder("event: seats\ndata: {");
+        boolean first = true;
+        for (Map.Entry<Long, int[]> entry : counts.entrySet()) {
+            if (!first) {
+                data.append(',');
+            }
+            first = false;
+            data.append('"').append(entry.getKey()).append("\":[")
+                    .append(entry.getValue()[0]).append(',').append(entry.getValue()[1]).append(']');
+        }
+        return data.append("}\n\n").toString();
+    }
+}
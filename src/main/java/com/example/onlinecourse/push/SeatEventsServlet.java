@@ -0,0 +1,55 @@
+package com.example.onlinecourse.push;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Server-Sent Events endpoint for live seat counts.
+ * The request is switched to async mode and handed to the SeatBroadcaster; the
+ * container thread returns immediately. No HTTP session is created.
+ *
+ * Usage: GET /events/seats?courses=1,2,3 with the IDs of the courses on the page.
+ */
+@WebServlet(urlPatterns = "/events/seats", asyncSupported = true)
+public class SeatEventsServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+    private static final int MAX_SNAPSHOT_COURSES = 200;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("text/event-stream");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        // Stop reverse proxies from buffering the stream
+        response.setHeader("X-Accel-Buffering", "no");
+
+        AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(0);
+        SeatBroadcaster.register(asyncContext, parseCourseIds(request.getParameter("courses")));
+    }
+
+    private static List<Long> parseCourseIds(String value) {
+        List<Long> ids = new ArrayList<>();
+        if (value == null) {
+            return ids;
+        }
+        for (String part : value.split(",")) {
+            if (ids.size() >= MAX_SNAPSHOT_COURSES) {
+                break;
+            }
+            try {
+                ids.add(Long.parseLong(part.trim()));
+            } catch (NumberFormatException e) {
+                // Ignore malformed IDs
+            }
+        }
+        return ids;
+    }
+}
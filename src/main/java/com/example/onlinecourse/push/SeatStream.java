@@ -0,0 +1,126 @@
+package com.example.onlinecourse.push;
+
+import com.example.onlinecourse.util.MetricsRegistry;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One open Server-Sent Events connection.
+ * Frames are queued and written with non-blocking I/O: nothing is written unless
+ * the container reports the socket as ready, and it calls back when the socket
+ * becomes writable again, so idle connections hold no thread.
+ * A client that falls too far behind is disconnected; the browser reconnects and
+ * receives a fresh snapshot.
+ */
+class SeatStream implements WriteListener, AsyncListener {
+    private final AsyncContext asyncContext;
+    private final ServletOutputStream out;
+    private final Queue<byte[]> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final int maxQueuedFrames;
+
+    SeatStream(AsyncContext asyncContext, int maxQueuedFrames) throws IOException {
+        this.asyncContext = asyncContext;
+        this.out = asyncContext.getResponse().getOutputStream();
+        this.maxQueuedFrames = maxQueuedFrames;
+    }
+
+    /**
+     * Start writing; the container calls onWritePossible once the stream is ready.
+     */
+    void open() {
+        asyncContext.addListener(this);
+        out.setWriteListener(this);
+    }
+
+    /**
+     * Queue a frame and write as much as the socket accepts.
+     *
+     * @param frame Encoded SSE frame
+     */
+    void send(byte[] frame) {
+        if (closed.get()) {
+            return;
+        }
+        if (queued.incrementAndGet() > maxQueuedFrames) {
+            MetricsRegistry.increment("push.seats.slowClientsClosed");
+            close();
+            return;
+        }
+        queue.add(frame);
+        drain();
+    }
+
+    @Override
+    public void onWritePossible() {
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        close();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        closed.set(true);
+        SeatBroadcaster.unregister(this);
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+
+    boolean isClosed() {
+        return closed.get();
+    }
+
+    void close() {
+        if (closed.compareAndSet(false, true)) {
+            SeatBroadcaster.unregister(this);
+            try {
+                asyncContext.complete();
+            } catch (IllegalStateException e) {
+                // Already completed by the container
+            }
+        }
+    }
+
+    private synchronized void drain() {
+        try {
+            // isReady() must be checked before every write; when it returns false the
+            // container calls onWritePossible() later and draining resumes there
+            while (!closed.get() && out.isReady()) {
+                byte[] frame = queue.poll();
+                if (frame == null) {
+                    out.flush();
+                    return;
+                }
+                queued.decrementAndGet();
+                out.write(frame);
+            }
+        } catch (IOException | IllegalStateException e) {
+            close();
+        }
+    }
+}
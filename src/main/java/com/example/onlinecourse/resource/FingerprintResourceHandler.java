@@ -0,0 +1,117 @@
+package com.example.onlinecourse.resource;
+
+import jakarta.faces.application.ProjectStage;
+import jakarta.faces.application.Resource;
+import jakarta.faces.application.ResourceHandler;
+import jakarta.faces.application.ResourceHandlerWrapper;
+import jakarta.faces.application.ResourceWrapper;
+import jakarta.faces.context.FacesContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resource handler that fingerprints library resource URLs.
+ * Every URL rendered for a library resource (h:outputStylesheet, h:outputScript)
+ * gets a v=&lt;content hash&gt; parameter, and a request carrying the current hash is
+ * answered with a one-year immutable Cache-Control. Changing a file changes its URL,
+ * so browsers never keep a stale copy and never revalidate an unchanged one.
+ */
+public class FingerprintResourceHandler extends ResourceHandlerWrapper {
+    private static final String VERSION_PARAM = "v";
+    private static final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+
+    public FingerprintResourceHandler(ResourceHandler wrapped) {
+        super(wrapped);
+    }
+
+    @Override
+    public Resource createResource(String resourceName, String libraryName) {
+        return fingerprinted(super.createResource(resourceName, libraryName));
+    }
+
+    @Override
+    public Resource createResource(String resourceName, String libraryName, String contentType) {
+        return fingerprinted(super.createResource(resourceName, libraryName, contentType));
+    }
+
+    private static Resource fingerprinted(Resource resource) {
+        // Only the application's own libraries; JSF's built-in resources are versioned already
+        if (resource == null || resource.getLibraryName() == null
+                || resource.getLibraryName().startsWith("jakarta.")) {
+            return resource;
+        }
+        return new FingerprintedResource(resource);
+    }
+
+    private static class FingerprintedResource extends ResourceWrapper {
+
+        FingerprintedResource(Resource wrapped) {
+            super(wrapped);
+        }
+
+        @Override
+        public String getRequestPath() {
+            String path = super.getRequestPath();
+            String fingerprint = fingerprint();
+            if (fingerprint == null) {
+                return path;
+            }
+            return path + (path.contains("?") ? "&" : "?") + VERSION_PARAM + "=" + fingerprint;
+        }
+
+        @Override
+        public Map<String, String> getResponseHeaders() {
+            Map<String, String> headers = new HashMap<>(super.getResponseHeaders());
+            FacesContext context = FacesContext.getCurrentInstance();
+            String requested = context.getExternalContext().getRequestParameterMap().get(VERSION_PARAM);
+            String fingerprint = fingerprint();
+            if (requested != null && requested.equals(fingerprint)) {
+                headers.put("Cache-Control", "public, max-age=31536000, immutable");
+            }
+            return headers;
+        }
+
+        private String fingerprint() {
+            String key = getLibraryName() + "/" + getResourceName();
+            FacesContext context = FacesContext.getCurrentInstance();
+            boolean development = context != null && context.isProjectStage(ProjectStage.Development);
+            String fingerprint = development ? null : fingerprints.get(key);
+            if (fingerprint == null) {
+                fingerprint = hash();
+                if (fingerprint != null) {
+                    fingerprints.put(key, fingerprint);
+                }
+            }
+            return fingerprint;
+        }
+
+        private String hash() {
+            try (InputStream in = getInputStream()) {
+                if (in == null) {
+                    return null;
+                }
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                byte[] chunk = new byte[8192];
+                int read;
+                while ((read = in.read(chunk)) != -1) {
+                    digest.update(chunk, 0, read);
+                }
+                StringBuilder hex = new StringBuilder();
+                byte[] hash = digest.digest();
+                for (int i = 0; i < 6; i++) {
+                    hex.append(String.format("%02x", hash[i]));
+                }
+                return hex.toString();
+            } catch (IOException | NoSuchAlgorithmException e) {
+                System.err.println("Could not fingerprint " + getLibraryName() + "/" + getResourceName() + ": " + e.getMessage());
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.onlinecourse.scheduler;
+
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.BitSet;
+
+/**
+ * Five-field cron expression: minute, hour, day of month, month, day of week.
+ * Each field accepts *, numbers, ranges (1-5), lists (1,15) and steps (*&#47;10, 0-30/5).
+ * Day of week is 0-7 with both 0 and 7 meaning Sunday. As in classic cron, when
+ * both day fields are restricted a day matches if either one matches.
+ */
+public class CronExpression {
+    private final String expression;
+    private final BitSet minutes;
+    private final BitSet hours;
+    private final BitSet daysOfMonth;
+    private final BitSet months;
+    private final BitSet daysOfWeek;
+    private final boolean dayOfMonthRestricted;
+    private final boolean dayOfWeekRestricted;
+
+    /**
+     * Parse a cron expression.
+     *
+     * @param expression Five space-separated fields
+     * @throws IllegalArgumentException if the expression is malformed
+     */
+    public CronExpression(String expression) {
+        String[] fields = expression.trim().split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Cron expression needs 5 fields: " + expression);
+        }
+        this.expression = expression.trim();
+        this.minutes = parse(fields[0], 0, 59);
+        this.hours = parse(fields[1], 0, 23);
+        this.daysOfMonth = parse(fields[2], 1, 31);
+        this.months = parse(fields[3], 1, 12);
+        this.daysOfWeek = parse(fields[4], 0, 7);
+        if (daysOfWeek.get(7)) {
+            daysOfWeek.set(0);
+        }
+        this.dayOfMonthRestricted = !"*".equals(fields[2]);
+        this.dayOfWeekRestricted = !"*".equals(fields[4]);
+    }
+
+    /**
+     * Find the first matching minute after a point in time.
+     *
+     * @param after Exclusive lower bound
+     * @return Next matching time, or null if none within five years
+     */
+    public ZonedDateTime next(ZonedDateTime after) {
+        ZonedDateTime time = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        ZonedDateTime limit = after.plusYears(5);
+        while (time.isBefore(limit)) {
+            if (!months.get(time.getMonthValue())) {
+                time = time.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+            } else if (!dayMatches(time)) {
+                time = time.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            } else if (!hours.get(time.getHour())) {
+                time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            } else if (!minutes.get(time.getMinute())) {
+                time = time.plusMinutes(1);
+            } else {
+                return time;
+            }
+        }
+        return null;
+    }
+
+    private boolean dayMatches(ZonedDateTime time) {
+        boolean dom = daysOfMonth.get(time.getDayOfMonth());
+        boolean dow = daysOfWeek.get(time.getDayOfWeek().getValue() % 7);
+        if (dayOfMonthRestricted && dayOfWeekRestricted) {
+            return dom || dow;
+        }
+        return dom && dow;
+    }
+
+    private static BitSet parse(String field, int min, int max) {
+        BitSet values = new BitSet(max + 1);
+        for (String part : field.split(",")) {
+            int step = 1;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                step = parseNumber(part.substring(slash + 1), 1, max, part);
+                part = part.substring(0, slash);
+            }
+            int from;
+            int to;
+            if ("*".equals(part)) {
+                from = min;
+                to = max;
+            } else {
+                int dash = part.indexOf('-');
+                from = parseNumber(dash >= 0 ? part.substring(0, dash) : part, min, max, field);
+                to = dash >= 0 ? parseNumber(part.substring(dash + 1), min, max, field) : (slash >= 0 ? max : from);
+                if (to < from) {
+                    throw new IllegalArgumentException("Invalid cron range: " + field);
+                }
+            }
+            for (int value = from; value <= to; value += step) {
+                values.set(value);
+            }
+        }
+        return values;
+    }
+
+    private static int parseNumber(String text, int min, int max, String field) {
+        try {
+            int value = Integer.parseInt(text);
+            if (value < min || value > max) {
+                throw new IllegalArgumentException("Cron value out of range: " + field);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cron field: " + field, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.onlinecourse.scheduler;
+
+import com.example.onlinecourse.dao.EnrollmentDAO;
+import com.example.onlinecourse.dao.SchedulerDAO;
+import com.example.onlinecourse.service.ArchiveJob;
+import com.example.onlinecourse.service.CoEnrollmentIndex;
+import com.example.onlinecourse.service.CourseCompletionJob;
+import com.example.onlinecourse.service.EnrollmentIntents;
+import com.example.onlinecourse.service.TrendingCourses;
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.MetricsRegistry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+/**
+ * Maintenance jobs run by the JobScheduler.
+ */
+public class DefaultJobs {
+
+    private DefaultJobs() {
+    }
+
+    /**
+     * Register the application's jobs.
+     */
+    public static void registerDefaults() {
+        JobScheduler.register(new ScheduledJob(CourseCompletionJob.JOB_NAME,
+                Schedule.cron(AppConfig.get("completion.cron", "30 2 * * *")),
+                CourseCompletionJob::runOnce)
+                .timeout(Duration.ofMinutes(AppConfig.getLong("completion.timeoutMinutes", 120))));
+
+        JobScheduler.register(new ScheduledJob(ArchiveJob.JOB_NAME,
+                Schedule.cron(AppConfig.get("archive.cron", "30 3 * * *")),
+                ArchiveJob::runOnce)
+                .timeout(Duration.ofMinutes(AppConfig.getLong("archive.timeoutMinutes", 240))));
+
+        // Stored seat counts are kept up to date by the enrollment DAOs and event
+        // subscribers; this repairs the ones that drifted anyway
+        JobScheduler.register(new ScheduledJob("enrolled-count-reconciliation",
+                Schedule.fixedDelay(Duration.ofMinutes(AppConfig.getLong("reconcile.intervalMinutes", 60))),
+                () -> MetricsRegistry.add("reconcile.corrected", new EnrollmentDAO().reconcileEnrolledCounts()))
+                .timeout(Duration.ofMinutes(10)));
+
+        // The recommendation matrix is held in memory, so every node rebuilds its own
+        JobScheduler.register(new ScheduledJob(CoEnrollmentIndex.JOB_NAME,
+                Schedule.cron(AppConfig.get("recommendations.rebuildCron", "0 5 * * *")),
+                CoEnrollmentIndex::rebuild)
+                .timeout(Duration.ofMinutes(30))
+                .everyNode());
+
+        JobScheduler.register(new ScheduledJob(TrendingCourses.JOB_NAME,
+                Schedule.fixedDelay(Duration.ofSeconds(AppConfig.getLong("trending.refreshSeconds", 30))),
+                TrendingCourses::refresh)
+                .timeout(Duration.ofMinutes(1))
+                .jitter(Duration.ZERO)
+                .everyNode()
+                .withoutHistory());
+
+        // Intents are queued in a local file, so every node replays its own
+        JobScheduler.register(new ScheduledJob(EnrollmentIntents.JOB_NAME,
+                Schedule.fixedDelay(Duration.ofSeconds(AppConfig.getLong("enrollment.writeBehind.replaySeconds", 5))),
+                EnrollmentIntents::replay)
+                .timeout(Duration.ofMinutes(5))
+                .jitter(Duration.ZERO)
+                .everyNode()
+                .withoutHistory());
+
+        JobScheduler.register(new ScheduledJob("job-history-purge",
+                Schedule.cron("15 4 * * *"),
+                () -> new SchedulerDAO().deleteRunsBefore(Date.from(Instant.now().minus(
+                        AppConfig.getLong("scheduler.historyDays", 30), ChronoUnit.DAYS))))
+                .timeout(Duration.ofMinutes(10)));
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.onlinecourse.scheduler;
+
+import com.example.onlinecourse.dao.SchedulerDAO;
+import com.example.onlinecourse.entity.JobRun;
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.MetricsRegistry;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs maintenance jobs inside the web application on cron or fixed-delay schedules.
+ * A single trigger thread waits for the next run time of each job and hands the
+ * run to a bounded worker pool (scheduler.threads, scheduler.queueSize); a job is
+ * never run twice at once on a node, since its next run is only planned once the
+ * current one finished. Jobs are leader-only by default: before running, a node
+ * takes the job's lease in the job_leases table and keeps it until shortly before
+ * the next run time, so when several nodes are deployed one of them runs each slot.
+ * Runs that exceed their timeout are interrupted. Runs are recorded in the
+ * job_runs table unless the job opts out.
+ *
+ * Metrics: scheduler.&lt;job&gt; (run time), scheduler.&lt;job&gt;.succeeded, .failed,
+ * .timed_out, scheduler.skipped (lease held elsewhere) and scheduler.rejected.
+ */
+public class JobScheduler {
+    private static final String NODE_ID = AppConfig.get("scheduler.nodeId", defaultNodeId());
+    private static final Map<String, ScheduledJob> jobs = new ConcurrentHashMap<>();
+    private static final List<ScheduledJob> registrationOrder = new ArrayList<>();
+    private static ScheduledThreadPoolExecutor trigger;
+    private static ThreadPoolExecutor workers;
+    private static volatile boolean running;
+
+    private JobScheduler() {
+    }
+
+    /**
+     * Register a job. Jobs registered while the scheduler runs are planned at once.
+     *
+     * @param job Job
+     * @throws IllegalArgumentException if a job with the same name exists
+     */
+    public static synchronized void register(ScheduledJob job) {
+        if (jobs.putIfAbsent(job.getName(), job) != null) {
+            throw new IllegalArgumentException("Job already registered: " + job.getName());
+        }
+        registrationOrder.add(job);
+        if (running) {
+            scheduleNext(job, ZonedDateTime.now());
+        }
+    }
+
+    /**
+     * Start planning runs, unless scheduler.enabled is false.
+     */
+    public static synchronized void start() {
+        if (running || !AppConfig.getBoolean("scheduler.enabled", true)) {
+            return;
+        }
+        int threads = Math.max(1, AppConfig.getInt("scheduler.threads", 2));
+        AtomicInteger workerCount = new AtomicInteger();
+        workers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, AppConfig.getInt("scheduler.queueSize", 10))), r -> {
+                    Thread thread = new Thread(r, "scheduler-worker-" + workerCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        trigger = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        trigger.setRemoveOnCancelPolicy(true);
+        running = true;
+        ZonedDateTime now = ZonedDateTime.now();
+        for (ScheduledJob job : registrationOrder) {
+            scheduleNext(job, now);
+        }
+    }
+
+    /**
+     * Stop planning runs and interrupt the runs in progress after a short grace period.
+     */
+    public static synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        trigger.shutdownNow();
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        trigger = null;
+        workers = null;
+    }
+
+    /**
+     * Get the registered jobs with the state of their latest run on this node.
+     *
+     * @return Jobs in registration order
+     */
+    public static synchronized List<ScheduledJob> getJobs() {
+        return new ArrayList<>(registrationOrder);
+    }
+
+    /**
+     * Get the latest runs of all jobs on all nodes.
+     *
+     * @param limit Maximum number of runs
+     * @return Runs, newest first
+     */
+    public static List<JobRun> getRecentRuns(int limit) {
+        return new SchedulerDAO().findRecentRuns(limit);
+    }
+
+    public static String getNodeId() {
+        return NODE_ID;
+    }
+
+    private static void scheduleNext(ScheduledJob job, ZonedDateTime from) {
+        ZonedDateTime next = job.getSchedule().next(from);
+        if (next == null || !running) {
+            job.setNextRun(null);
+            return;
+        }
+        Duration jitter = job.getJitter() != null ? job.getJitter()
+                : Duration.ofSeconds(AppConfig.getLong("scheduler.jitterSeconds", 30));
+        long jitterMillis = jitter.toMillis() > 0 ? ThreadLocalRandom.current().nextLong(jitter.toMillis() + 1) : 0;
+        long delayMillis = Math.max(0, Duration.between(ZonedDateTime.now(), next).toMillis()) + jitterMillis;
+        job.setNextRun(new Date(System.currentTimeMillis() + delayMillis));
+        try {
+            trigger.schedule(() -> fire(job), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Scheduler is stopping
+        }
+    }
+
+    private static void fire(ScheduledJob job) {
+        if (!running) {
+            return;
+        }
+        Run run = new Run(job);
+        try {
+            run.future = workers.submit(run);
+        } catch (RejectedExecutionException e) {
+            MetricsRegistry.increment("scheduler.rejected");
+            System.err.println("Scheduler busy, run of " + job.getName() + " skipped");
+            scheduleNext(job, ZonedDateTime.now());
+            return;
+        }
+        run.timeoutTask = trigger.schedule(run::timeout, job.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        if (run.future.isDone()) {
+            run.cancelTimeout();
+        }
+    }
+
+    private static void execute(ScheduledJob job, Run run) {
+        SchedulerDAO schedulerDAO = new SchedulerDAO();
+        boolean leader;
+        try {
+            leader = !job.isLeaderOnly() || schedulerDAO.tryAcquireLease(job.getName(), NODE_ID, leaseMillis(job));
+            if (!leader) {
+                MetricsRegistry.increment("scheduler.skipped");
+            }
+        } catch (RuntimeException e) {
+            leader = false;
+            MetricsRegistry.increment("scheduler.errors");
+            System.err.println("Scheduler could not take the lease of " + job.getName() + ": " + e.getMessage());
+        }
+        if (!leader) {
+            run.cancelTimeout();
+            scheduleNext(job, ZonedDateTime.now());
+            return;
+        }
+
+        Date startedAt = new Date();
+        long start = System.nanoTime();
+        job.started(startedAt);
+        JobRun.RunStatus status = JobRun.RunStatus.SUCCEEDED;
+        String message = null;
+        try {
+            job.getTask().run();
+        } catch (RuntimeException e) {
+            status = JobRun.RunStatus.FAILED;
+            message = e.getMessage();
+        } finally {
+            run.cancelTimeout();
+            // Clear the interrupt of a timed-out run before recording it
+            Thread.interrupted();
+            if (run.timedOut) {
+                status = JobRun.RunStatus.TIMED_OUT;
+                message = "Interrupted after " + job.getTimeout().toMinutes() + " min";
+            }
+            long nanos = System.nanoTime() - start;
+            long durationMillis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            job.finished(durationMillis, status, message);
+            MetricsRegistry.recordTime("scheduler." + job.getName(), nanos);
+            MetricsRegistry.increment("scheduler." + job.getName() + "." + status.name().toLowerCase());
+            if (status != JobRun.RunStatus.SUCCEEDED) {
+                System.err.println("Job " + job.getName() + " " + status + ": " + message);
+            }
+            if (job.isRecorded()) {
+                try {
+                    schedulerDAO.saveRun(new JobRun(job.getName(), NODE_ID, startedAt, durationMillis, status, message));
+                } catch (RuntimeException e) {
+                    System.err.println("Job run not recorded: " + e.getMessage());
+                }
+            }
+            scheduleNext(job, ZonedDateTime.now());
+        }
+    }
+
+    /**
+     * Lease length: at least the timeout, and up to shortly before the next run
+     * time, so other nodes do not run the same slot again after a quick run.
+     */
+    private static long leaseMillis(ScheduledJob job) {
+        long leaseMillis = job.getTimeout().toMillis() + 60_000L;
+        ZonedDateTime now = ZonedDateTime.now();
+        ZonedDateTime next = job.getSchedule().next(now);
+        if (next != null) {
+            long untilNext = Duration.between(now, next).toMillis() - 60_000L;
+            leaseMillis = Math.max(leaseMillis, untilNext);
+        }
+        return leaseMillis;
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        String id = host + "-" + UUID.randomUUID().toString().substring(0, 8);
+        return id.length() > 64 ? id.substring(id.length() - 64) : id;
+    }
+
+    /**
+     * One run of a job: executed on a worker, interrupted by the trigger thread on timeout.
+     */
+    private static final class Run implements Runnable {
+        private final ScheduledJob job;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private volatile Future<?> future;
+        private volatile ScheduledFuture<?> timeoutTask;
+        private volatile boolean timedOut;
+
+        Run(ScheduledJob job) {
+            this.job = job;
+        }
+
+        @Override
+        public void run() {
+            if (started.compareAndSet(false, true)) {
+                execute(job, this);
+            }
+        }
+
+        void cancelTimeout() {
+            ScheduledFuture<?> task = timeoutTask;
+            if (task != null) {
+                task.cancel(false);
+            }
+        }
+
+        void timeout() {
+            if (started.compareAndSet(false, true)) {
+                // Still queued behind other runs; give up this slot
+                future.cancel(false);
+                MetricsRegistry.increment("scheduler.rejected");
+                scheduleNext(job, ZonedDateTime.now());
+            } else if (!future.isDone()) {
+                timedOut = true;
+                future.cancel(true);
+            }
+        }
+    }
+}
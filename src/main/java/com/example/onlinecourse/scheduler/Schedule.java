@@ -0,0 +1,60 @@
+package com.example.onlinecourse.scheduler;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+/**
+ * When a scheduled job runs next.
+ */
+public abstract class Schedule {
+
+    /**
+     * Run again a fixed time after the previous run finished.
+     *
+     * @param delay Delay between runs
+     * @return Schedule
+     */
+    public static Schedule fixedDelay(Duration delay) {
+        return new Schedule() {
+            @Override
+            public ZonedDateTime next(ZonedDateTime lastFinished) {
+                return lastFinished.plus(delay);
+            }
+
+            @Override
+            public String toString() {
+                return "every " + delay.toMinutes() + " min";
+            }
+        };
+    }
+
+    /**
+     * Run at the times matching a cron expression.
+     *
+     * @param expression Five-field cron expression, e.g. "30 2 * * *"
+     * @return Schedule
+     * @throws IllegalArgumentException if the expression is malformed
+     */
+    public static Schedule cron(String expression) {
+        CronExpression cron = new CronExpression(expression);
+        return new Schedule() {
+            @Override
+            public ZonedDateTime next(ZonedDateTime lastFinished) {
+                return cron.next(lastFinished);
+            }
+
+            @Override
+            public String toString() {
+                return "cron " + cron;
+            }
+        };
+    }
+
+    /**
+     * Get the next run time.
+     *
+     * @param lastFinished End of the previous run, or the scheduler start
+     * @return Next run time, or null for no further runs
+     */
+    public abstract ZonedDateTime next(ZonedDateTime lastFinished);
+}
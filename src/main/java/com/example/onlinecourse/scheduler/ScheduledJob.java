@@ -0,0 +1,147 @@
+package com.example.onlinecourse.scheduler;
+
+import com.example.onlinecourse.entity.JobRun;
+
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * A job registered with the JobScheduler, with its options and the state of its
+ * latest run on this node (shown on the admin page).
+ * By default a job runs on one node at a time, chosen through the job_leases table.
+ */
+public class ScheduledJob {
+    private final String name;
+    private final Schedule schedule;
+    private final Runnable task;
+    private Duration timeout = Duration.ofHours(1);
+    private Duration jitter;
+    private boolean leaderOnly = true;
+    private boolean recorded = true;
+
+    private volatile boolean active;
+    private volatile Date nextRun;
+    private volatile Date lastStarted;
+    private volatile long lastDurationMillis;
+    private volatile JobRun.RunStatus lastStatus;
+    private volatile String lastMessage;
+
+    public ScheduledJob(String name, Schedule schedule, Runnable task) {
+        this.name = name;
+        this.schedule = schedule;
+        this.task = task;
+    }
+
+    /**
+     * Set the longest a run may take; the run is interrupted after it.
+     *
+     * @param timeout Run timeout
+     * @return this
+     */
+    public ScheduledJob timeout(Duration timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Set the largest random delay added to each run time, so nodes do not all
+     * hit the database at the same moment. Defaults to scheduler.jitterSeconds.
+     *
+     * @param jitter Maximum jitter
+     * @return this
+     */
+    public ScheduledJob jitter(Duration jitter) {
+        this.jitter = jitter;
+        return this;
+    }
+
+    /**
+     * Run the job on every node instead of on the lease holder only,
+     * for node-local work such as cache maintenance.
+     *
+     * @return this
+     */
+    public ScheduledJob everyNode() {
+        this.leaderOnly = false;
+        return this;
+    }
+
+    /**
+     * Do not store the runs in job_runs, for frequent node-local jobs whose
+     * history would only crowd out the others. Failures are still logged.
+     *
+     * @return this
+     */
+    public ScheduledJob withoutHistory() {
+        this.recorded = false;
+        return this;
+    }
+
+    void started(Date startedAt) {
+        active = true;
+        lastStarted = startedAt;
+    }
+
+    void finished(long durationMillis, JobRun.RunStatus status, String message) {
+        active = false;
+        lastDurationMillis = durationMillis;
+        lastStatus = status;
+        lastMessage = message;
+    }
+
+    void setNextRun(Date nextRun) {
+        this.nextRun = nextRun;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Schedule getSchedule() {
+        return schedule;
+    }
+
+    Runnable getTask() {
+        return task;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public Duration getJitter() {
+        return jitter;
+    }
+
+    public boolean isLeaderOnly() {
+        return leaderOnly;
+    }
+
+    public boolean isRecorded() {
+        return recorded;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public Date getNextRun() {
+        return nextRun;
+    }
+
+    public Date getLastStarted() {
+        return lastStarted;
+    }
+
+    public long getLastDurationMillis() {
+        return lastDurationMillis;
+    }
+
+    public JobRun.RunStatus getLastStatus() {
+        return lastStatus;
+    }
+
+    public String getLastMessage() {
+        return lastMessage;
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.onlinecourse.service;
+
+import com.example.onlinecourse.dao.CoEnrollmentDAO;
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.LongHashSet;
+import com.example.onlinecourse.util.LongIntHashMap;
+import com.example.onlinecourse.util.LongObjectHashMap;
+import com.example.onlinecourse.util.MetricsRegistry;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sparse course x course co-enrollment matrix for "students also enrolled in"
+ * recommendations: a LongObjectHashMap from each course to a LongIntHashMap from
+ * every other course to the number of students enrolled in both. The matrix map is
+ * guarded by itself, each row by the row.
+ *
+ * The matrix is built from all enrollments on first use (in the background) and
+ * nightly by the JobScheduler, counting each student's course pairs with a
+ * fork/join pass. In between, enrollment events adjust it: a new enrollment adds
+ * one to the pairs it forms with the student's other courses, a cancellation
+ * subtracts one. Students with more than recommendations.maxCoursesPerStudent
+ * courses are left out by both, as by the rebuild. Every node receives every event once (OutboxFeed), so relay
+ * redeliveries are not counted twice. An event handled while a rebuild reads the enrollments may be
+ * counted twice or not at all; the next rebuild corrects it.
+ *
+ * Metrics: recommendations.rebuild (time) and recommendations.updates.
+ */
+public class CoEnrollmentIndex {
+    public static final String JOB_NAME = "recommendation-rebuild";
+
+    private static volatile LongObjectHashMap<LongIntHashMap> matrix = new LongObjectHashMap<>();
+    private static volatile boolean built;
+    private static final AtomicBoolean building = new AtomicBoolean();
+
+    private CoEnrollmentIndex() {
+    }
+
+    /**
+     * Count a new enrollment.
+     *
+     * @param studentId Student ID
+     * @param courseId Course ID
+     */
+    public static void enrollmentCreated(long studentId, long courseId) {
+        update(studentId, courseId, 1);
+    }
+
+    /**
+     * Uncount a cancelled enrollment.
+     *
+     * @param studentId Student ID
+     * @param courseId Course ID
+     */
+    public static void enrollmentCancelled(long studentId, long courseId) {
+        update(studentId, courseId, -1);
+    }
+
+    /**
+     * Get the courses most often taken together with a course.
+     * Starts building the matrix in the background on first use.
+     *
+     * @param courseId Course ID
+     * @param k Maximum number of courses
+     * @return Course IDs, most shared students first; empty while the matrix is being built
+     */
+    public static long[] topK(long courseId, int k) {
+        if (!built) {
+            buildInBackground();
+            return new long[0];
+        }
+        LongObjectHashMap<LongIntHashMap> current = matrix;
+        LongIntHashMap row;
+        synchronized (current) {
+            row = current.get(courseId);
+        }
+        if (row == null || k <= 0) {
+            return new long[0];
+        }
+        int minStudents = AppConfig.getInt("recommendations.minStudents", 2);
+        // Best k entries so far, ordered by count descending
+        long[] ids = new long[k];
+        int[] counts = new int[k];
+        int[] size = {0};
+        synchronized (row) {
+            row.forEach((otherId, count) -> {
+                if (count < minStudents || (size[0] == k && count <= counts[k - 1])) {
+                    return;
+                }
+                int i = Math.min(size[0], k - 1);
+                while (i > 0 && counts[i - 1] < count) {
+                    counts[i] = counts[i - 1];
+                    ids[i] = ids[i - 1];
+                    i--;
+                }
+                counts[i] = count;
+                ids[i] = otherId;
+                size[0] = Math.min(size[0] + 1, k);
+            });
+        }
+        return Arrays.copyOf(ids, size[0]);
+    }
+
+    /**
+     * Rebuild the matrix from all enrollments.
+     * Students' course sets are split across the fork/join pool; each task counts
+     * the pairs of its students into its own matrix and the halves are merged.
+     */
+    public static void rebuild() {
+        long start = System.nanoTime();
+        List<long[]> courseSets = new CoEnrollmentDAO().findCourseSetsOfAllStudents();
+        int maxCourses = AppConfig.getInt("recommendations.maxCoursesPerStudent", 200);
+        matrix = ForkJoinPool.commonPool()
+                .invoke(new CountPairs(courseSets, 0, courseSets.size(), maxCourses));
+        built = true;
+        MetricsRegistry.recordTime("recommendations.rebuild", System.nanoTime() - start);
+    }
+
+    private static void buildInBackground() {
+        if (!building.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                System.err.println("Recommendation matrix not built: " + e.getMessage());
+            } finally {
+                building.set(false);
+            }
+        }, "recommendation-build");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void update(long studentId, long courseId, int delta) {
+        if (!built) {
+            // The first build reads the enrollment
+            return;
+        }
+        long[] courses = new CoEnrollmentDAO().findCourseIdsByStudentId(studentId);
+        long[] others = new long[courses.length + 1];
+        int count = 0;
+        for (long id : courses) {
+            if (id != courseId) {
+                others[count++] = id;
+            }
+        }
+        long[] withCourse = Arrays.copyOf(others, count + 1);
+        withCourse[count] = courseId;
+        others = Arrays.copyOf(others, count);
+        long[] before = delta > 0 ? others : withCourse;
+        long[] after = delta > 0 ? withCourse : others;
+
+        int maxCourses = AppConfig.getInt("recommendations.maxCoursesPerStudent", 200);
+        LongObjectHashMap<LongIntHashMap> current = matrix;
+        if (isCounted(before, maxCourses) && isCounted(after, maxCourses)) {
+            for (long other : others) {
+                add(current, courseId, other, delta);
+                add(current, other, courseId, delta);
+            }
+        } else {
+            // The student crosses a limit of the rebuild: replace all their pairs
+            if (isCounted(before, maxCourses)) {
+                addPairs(current, before, -1);
+            }
+            if (isCounted(after, maxCourses)) {
+                addPairs(current, after, 1);
+            }
+        }
+        MetricsRegistry.increment("recommendations.updates");
+    }
+
+    /**
+     * Whether the rebuild counts the pairs of a student with these courses.
+     */
+    private static boolean isCounted(long[] courses, int maxCourses) {
+        // Students with very many courses say little about any pair and cost n^2
+        return courses.length >= 2 && courses.length <= maxCourses;
+    }
+
+    private static void addPairs(LongObjectHashMap<LongIntHashMap> target, long[] courses, int delta) {
+        for (int i = 0; i < courses.length; i++) {
+            for (int j = 0; j < courses.length; j++) {
+                if (i != j) {
+                    add(target, courses[i], courses[j], delta);
+                }
+            }
+        }
+    }
+
+    private static void add(LongObjectHashMap<LongIntHashMap> target, long courseId, long otherId, int delta) {
+        LongIntHashMap row;
+        synchronized (target) {
+            row = target.computeIfAbsent(courseId, id -> new LongIntHashMap());
+        }
+        synchronized (row) {
+            row.addTo(otherId, delta);
+        }
+    }
+
+    /**
+     * Counts the course pairs of a range of students.
+     */
+    private static final class CountPairs extends RecursiveTask<LongObjectHashMap<LongIntHashMap>> {
+        private static final int THRESHOLD = 1024;
+
+        private final List<long[]> courseSets;
+        private final int from;
+        private final int to;
+        private final int maxCourses;
+
+        CountPairs(List<long[]> courseSets, int from, int to, int maxCourses) {
+            this.courseSets = courseSets;
+            this.from = from;
+            this.to = to;
+            this.maxCourses = maxCourses;
+        }
+
+        @Override
+        protected LongObjectHashMap<LongIntHashMap> compute() {
+            if (to - from > THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                CountPairs left = new CountPairs(courseSets, from, middle, maxCourses);
+                left.fork();
+                LongObjectHashMap<LongIntHashMap> right = new CountPairs(courseSets, middle, to, maxCourses).compute();
+                LongObjectHashMap<LongIntHashMap> merged = left.join();
+                right.forEach((courseId, row) -> {
+                    LongIntHashMap existing = merged.get(courseId);
+                    if (existing == null) {
+                        merged.put(courseId, row);
+                    } else {
+                        existing.addAll(row);
+                    }
+                });
+                return merged;
+            }
+
+            LongObjectHashMap<LongIntHashMap> counted = new LongObjectHashMap<>();
+            for (int s = from; s < to; s++) {
+                LongHashSet distinct = new LongHashSet(courseSets.get(s).length);
+                for (long courseId : courseSets.get(s)) {
+                    distinct.add(courseId);
+                }
+                long[] courses = distinct.toArray();
+                if (!isCounted(courses, maxCourses)) {
+                    continue;
+                }
+                for (int i = 0; i < courses.length; i++) {
+                    LongIntHashMap row = counted.computeIfAbsent(courses[i], id -> new LongIntHashMap());
+                    for (int j = 0; j < courses.length; j++) {
+                        if (i != j) {
+                            row.addTo(courses[j], 1);
+                        }
+                    }
+                }
+            }
+            return counted;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.onlinecourse.service;
+
+import com.example.onlinecourse.dao.CourseCompletionDAO;
+import com.example.onlinecourse.dao.JobCheckpointDAO;
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.MetricsRegistry;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Job that completes the enrollments of courses whose end date has passed.
+ * Run nightly by the JobScheduler (completion.cron).
+ * Courses are visited in end date order and the end date of the last finished
+ * course is stored as the job's checkpoint, so a run only looks at courses that
+ * ended since the previous run (minus completion.lookbackDays, which picks up
+ * courses whose end date was moved back). An interrupted run resumes from the
+ * checkpoint; courses done twice find no active enrollments and are skipped.
+ *
+ * Metrics: completion.courses, completion.rows and completion.run (time per run).
+ */
+public class CourseCompletionJob {
+    public static final String JOB_NAME = "course-completion";
+    private static final int PAGE_SIZE = 100;
+
+    private CourseCompletionJob() {
+    }
+
+    /**
+     * Complete the enrollments of all courses that ended before today.
+     * Stops after the current course when the running thread is interrupted.
+     *
+     * @return Number of enrollments completed
+     */
+    public static long runOnce() {
+        long start = System.nanoTime();
+        CourseCompletionDAO completionDAO = new CourseCompletionDAO();
+        JobCheckpointDAO checkpointDAO = new JobCheckpointDAO();
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate today = LocalDate.now(zone);
+
+        String checkpoint = checkpointDAO.get(JOB_NAME);
+        LocalDate from = checkpoint != null
+                ? LocalDate.parse(checkpoint).minusDays(AppConfig.getInt("completion.lookbackDays", 7))
+                : LocalDate.of(1970, 1, 1);
+        Date fromDate = toDate(from, zone);
+        Date beforeDate = toDate(today, zone);
+
+        long courses = 0;
+        long rows = 0;
+        Date afterEndDate = null;
+        Long afterCourseId = null;
+        try {
+            while (true) {
+                List<Object[]> page = completionDAO.findEndedCourses(fromDate, beforeDate,
+                        afterEndDate, afterCourseId, PAGE_SIZE);
+                for (Object[] course : page) {
+                    afterCourseId = (Long) course[0];
+                    afterEndDate = (Date) course[1];
+                    long completed = completionDAO.completeCourse(afterCourseId);
+                    if (completed > 0) {
+                        courses++;
+                        rows += completed;
+                        MetricsRegistry.increment("completion.courses");
+                    }
+                    // Courses with the same end date are redone after a restart, which is harmless
+                    checkpointDAO.save(JOB_NAME, toLocalDate(afterEndDate, zone).toString());
+                    if (Thread.currentThread().isInterrupted()) {
+                        return rows;
+                    }
+                }
+                if (page.size() < PAGE_SIZE) {
+                    break;
+                }
+            }
+            return rows;
+        } finally {
+            MetricsRegistry.recordTime("completion.run", System.nanoTime() - start);
+            if (rows > 0) {
+                System.err.println("Course completion: " + rows + " enrollments in " + courses + " courses completed");
+            }
+        }
+    }
+
+    private static Date toDate(LocalDate date, ZoneId zone) {
+        return Date.from(date.atStartOfDay(zone).toInstant());
+    }
+
+    private static LocalDate toLocalDate(Date date, ZoneId zone) {
+        // java.sql.Date does not support toInstant()
+        return new Date(date.getTime()).toInstant().atZone(zone).toLocalDate();
+    }
+}
@@ -0,0 +1,451 @@
+package com.example.onlinecourse.service;
+
+import com.example.onlinecourse.dao.CourseDAO;
+import com.example.onlinecourse.entity.Course;
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.CircuitBreaker;
+import com.example.onlinecourse.util.MetricsRegistry;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory facet index of the course catalog for the course list filters.
+ * Every course gets a slot, and every facet value (instructor, fee range, start
+ * month, availability) a BitSet of the slots of its courses, so a filter
+ * combination is a few ANDs and a facet count a cardinality.
+ *
+ * The index is built from the catalog on first use and replaced as a whole
+ * (copy on write), so queries read a consistent snapshot without locking. Courses
+ * leave the index as copies, so callers cannot change a snapshot.
+ * CourseService marks courses changed whenever it evicts them, which covers
+ * course edits, deletions and seat count changes on this node and on the others;
+ * the marked courses are re-indexed by the next query. Rebuilds and updates read the
+ * primary, as a replica that has not caught up with a change would put the old
+ * data in the index after the change's mark was cleared. A catalog-wide change,
+ * more than facets.rebuildThreshold marked courses or a new day (courses end)
+ * rebuilds the index.
+ *
+ * When the catalog cannot be read because the database is down (or its circuit
+ * breaker is open), queries are served from the last snapshot and the catalog is
+ * reported as possibly stale until a refresh succeeds; the pending changes are
+ * kept and applied then. CourseService falls back to the same snapshot for course
+ * lookups and searches.
+ *
+ * Metrics: facets.query, facets.rebuild (time), facets.updated (courses re-indexed)
+ * and facets.staleServed (queries answered from an out-of-date snapshot).
+ */
+public class CourseFacetIndex {
+    public static final String INSTRUCTOR = "instructor";
+    public static final String FEE = "fee";
+    public static final String START_MONTH = "startMonth";
+    public static final String AVAILABILITY = "availability";
+    public static final List<String> FACETS = List.of(INSTRUCTOR, FEE, START_MONTH, AVAILABILITY);
+
+    public static final String OPEN = "open";
+    public static final String FULL = "full";
+    public static final String ENDED = "ended";
+    private static final List<String> AVAILABILITY_ORDER = List.of(OPEN, FULL, ENDED);
+
+    private static final DateTimeFormatter MONTH_LABEL = DateTimeFormatter.ofPattern("MMM yyyy", Locale.ENGLISH);
+    private static final BigDecimal[] FEE_BOUNDS = parseBounds(AppConfig.get("facets.feeBounds", "100,250,500"));
+
+    private static final Set<Long> changed = ConcurrentHashMap.newKeySet();
+    private static volatile boolean stale = true;
+    private static volatile Snapshot snapshot;
+    private static volatile boolean servingStale;
+
+    private CourseFacetIndex() {
+    }
+
+    /**
+     * Mark a course as changed; it is re-indexed by the next query.
+     *
+     * @param courseId Course ID
+     */
+    public static void courseChanged(long courseId) {
+        changed.add(courseId);
+    }
+
+    /**
+     * Mark the whole index as out of date; it is rebuilt by the next query.
+     */
+    public static void catalogChanged() {
+        stale = true;
+    }
+
+    /**
+     * Whether the catalog was last served from an out-of-date snapshot because the
+     * database could not be read.
+     *
+     * @return true until the index is rebuilt from the database again
+     */
+    public static boolean isServingStale() {
+        return servingStale;
+    }
+
+    /**
+     * Get a course from the last snapshot, for when the database cannot be read.
+     *
+     * @param courseId Course ID
+     * @return Course as last indexed, or null if there is no snapshot or the course is not in it
+     */
+    static Course lastKnown(long courseId) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return null;
+        }
+        Integer slot = current.slots.get(courseId);
+        return slot != null ? new Course(current.courses[slot]) : null;
+    }
+
+    /**
+     * Get every course of the last snapshot, for when the database cannot be read.
+     *
+     * @return Courses as last indexed, in course name order, or null if there is no snapshot
+     */
+    static List<Course> lastKnownCourses() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return null;
+        }
+        List<Course> courses = new ArrayList<>(current.live.cardinality());
+        for (int slot = current.live.nextSetBit(0); slot >= 0; slot = current.live.nextSetBit(slot + 1)) {
+            courses.add(new Course(current.courses[slot]));
+        }
+        courses.sort(Comparator.comparing(Course::getCourseName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
+        return courses;
+    }
+
+    /**
+     * Record that catalog data was served from the last snapshot.
+     */
+    static void servedStale() {
+        servingStale = true;
+        MetricsRegistry.increment("facets.staleServed");
+    }
+
+    /**
+     * Get the courses matching a facet selection, in course name order, with the
+     * counts of every facet value.
+     *
+     * @param selection Selected value key per facet; facets not in the map are not filtered
+     * @return Matching courses and facet counts
+     */
+    public static FacetedCourses query(Map<String, String> selection) {
+        long start = System.nanoTime();
+        try {
+            Snapshot current = current();
+
+            // One mask per facet: its selected value, or every course
+            Map<String, BitSet> masks = new HashMap<>();
+            for (String facet : FACETS) {
+                String key = selection.get(facet);
+                if (key != null) {
+                    BitSet bits = current.facets.get(facet).get(key);
+                    masks.put(facet, bits != null ? bits : new BitSet());
+                } else {
+                    masks.put(facet, current.live);
+                }
+            }
+
+            BitSet matching = (BitSet) current.live.clone();
+            for (BitSet mask : masks.values()) {
+                matching.and(mask);
+            }
+            List<Course> courses = new ArrayList<>(matching.cardinality());
+            for (int slot = matching.nextSetBit(0); slot >= 0; slot = matching.nextSetBit(slot + 1)) {
+                courses.add(new Course(current.courses[slot]));
+            }
+            courses.sort(Comparator.comparing(Course::getCourseName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
+
+            Map<String, List<FacetedCourses.Value>> facets = new LinkedHashMap<>();
+            for (String facet : FACETS) {
+                // Counts of a facet's values ignore the facet's own selection
+                BitSet others = (BitSet) current.live.clone();
+                for (Map.Entry<String, BitSet> mask : masks.entrySet()) {
+                    if (!mask.getKey().equals(facet)) {
+                        others.and(mask.getValue());
+                    }
+                }
+                List<FacetedCourses.Value> values = new ArrayList<>();
+                for (Map.Entry<String, BitSet> value : current.facets.get(facet).entrySet()) {
+                    BitSet bits = (BitSet) value.getValue().clone();
+                    bits.and(others);
+                    values.add(new FacetedCourses.Value(facet, value.getKey(), label(facet, value.getKey()),
+                            bits.cardinality(), value.getKey().equals(selection.get(facet))));
+                }
+                values.sort(Comparator.comparing(FacetedCourses.Value::getKey, order(facet)));
+                facets.put(facet, values);
+            }
+            return new FacetedCourses(courses, facets);
+        } finally {
+            MetricsRegistry.recordTime("facets.query", System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Get the index, rebuilt or updated with the changed courses first if needed.
+     * The last snapshot is returned if the database cannot be read.
+     */
+    private static synchronized Snapshot current() {
+        Snapshot current = snapshot;
+        LocalDate today = LocalDate.now(ZoneId.systemDefault());
+        // After serving stale data the index is rebuilt, as changes may have been missed
+        if (stale || servingStale || current == null || !today.equals(current.day)
+                || changed.size() > AppConfig.getInt("facets.rebuildThreshold", 100)) {
+            // Flags are reset before loading, so changes made meanwhile are applied next time
+            stale = false;
+            changed.clear();
+            long start = System.nanoTime();
+            try {
+                current = build(new CourseDAO().findAllFromPrimary(), today);
+            } catch (RuntimeException e) {
+                stale = true;
+                return fallBack(current, e);
+            }
+            MetricsRegistry.recordTime("facets.rebuild", System.nanoTime() - start);
+            snapshot = current;
+            servingStale = false;
+        } else if (!changed.isEmpty()) {
+            Snapshot updated = current.copy();
+            CourseService courseService = new CourseService();
+            List<Long> taken = new ArrayList<>();
+            try {
+                Iterator<Long> ids = changed.iterator();
+                while (ids.hasNext()) {
+                    Long id = ids.next();
+                    ids.remove();
+                    taken.add(id);
+                    updated.remove(id);
+                    // The course lookup was evicted along with the change, so this loads current data from the primary
+                    Course course = courseService.loadCourse(id);
+                    if (course != null) {
+                        updated.add(course);
+                    }
+                    MetricsRegistry.increment("facets.updated");
+                }
+            } catch (RuntimeException e) {
+                changed.addAll(taken);
+                return fallBack(current, e);
+            }
+            current = updated;
+            snapshot = current;
+        }
+        return current;
+    }
+
+    /**
+     * Keep serving the last snapshot when a refresh failed because of the database.
+     */
+    private static Snapshot fallBack(Snapshot current, RuntimeException e) {
+        if (current == null || !CircuitBreaker.isDatabaseFailure(e)) {
+            throw e;
+        }
+        servedStale();
+        return current;
+    }
+
+    private static Snapshot build(List<Course> courses, LocalDate day) {
+        Snapshot built = new Snapshot(day, courses.size());
+        for (Course course : courses) {
+            built.add(course);
+        }
+        return built;
+    }
+
+    /**
+     * Value key of a course for a facet, or null if the course has no value.
+     */
+    private static String keyOf(String facet, Course course) {
+        switch (facet) {
+            case INSTRUCTOR:
+                String instructor = course.getInstructor() != null ? course.getInstructor().trim() : "";
+                return instructor.isEmpty() ? null : instructor;
+            case FEE:
+                if (course.getFee() == null) {
+                    return null;
+                }
+                BigDecimal lower = BigDecimal.ZERO;
+                for (BigDecimal bound : FEE_BOUNDS) {
+                    if (course.getFee().compareTo(bound) < 0) {
+                        break;
+                    }
+                    lower = bound;
+                }
+                return lower.toPlainString();
+            case START_MONTH:
+                if (course.getStartDate() == null) {
+                    return null;
+                }
+                // startDate may be a java.sql.Date, which does not support toInstant()
+                return YearMonth.from(new java.util.Date(course.getStartDate().getTime()).toInstant()
+                        .atZone(ZoneId.systemDefault())).toString();
+            case AVAILABILITY:
+                if (course.hasEnded()) {
+                    return ENDED;
+                }
+                return course.getEnrolledCount() < course.getCapacity() ? OPEN : FULL;
+            default:
+                throw new IllegalArgumentException("Unknown facet: " + facet);
+        }
+    }
+
+    private static String label(String facet, String key) {
+        switch (facet) {
+            case FEE:
+                BigDecimal lower = new BigDecimal(key);
+                BigDecimal upper = null;
+                for (BigDecimal bound : FEE_BOUNDS) {
+                    if (bound.compareTo(lower) > 0) {
+                        upper = bound;
+                        break;
+                    }
+                }
+                if (upper == null) {
+                    return "₹" + key + " and up";
+                }
+                return lower.signum() == 0 ? "Under ₹" + upper.toPlainString()
+                        : "₹" + key + " – ₹" + upper.toPlainString();
+            case START_MONTH:
+                return YearMonth.parse(key).format(MONTH_LABEL);
+            case AVAILABILITY:
+                return OPEN.equals(key) ? "Seats available" : FULL.equals(key) ? "Full" : "Ended";
+            default:
+                return key;
+        }
+    }
+
+    private static Comparator<String> order(String facet) {
+        switch (facet) {
+            case FEE:
+                return Comparator.comparing(BigDecimal::new);
+            case AVAILABILITY:
+                return Comparator.comparingInt(AVAILABILITY_ORDER::indexOf);
+            default:
+                return String.CASE_INSENSITIVE_ORDER;
+        }
+    }
+
+    private static BigDecimal[] parseBounds(String value) {
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(bound -> !bound.isEmpty())
+                .map(BigDecimal::new)
+                .filter(bound -> bound.signum() > 0)
+                .sorted()
+                .distinct()
+                .toArray(BigDecimal[]::new);
+    }
+
+    /**
+     * Slots and value bitsets of one version of the index.
+     * Only modified while private to current(); published snapshots are read-only.
+     */
+    private static final class Snapshot {
+        private final LocalDate day;
+        private Course[] courses;
+        // Value keys of each slot's course, so a course is removed from the values it was added to
+        private String[][] keys;
+        private final Map<Long, Integer> slots;
+        private final BitSet live;
+        private final Map<String, Map<String, BitSet>> facets;
+        // Bitsets created by this snapshot; others are shared with the previous one and copied on write
+        private final Set<BitSet> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        Snapshot(LocalDate day, int expectedSize) {
+            this.day = day;
+            this.courses = new Course[Math.max(16, expectedSize)];
+            this.keys = new String[courses.length][];
+            this.slots = new HashMap<>();
+            this.live = new BitSet();
+            this.facets = new HashMap<>();
+            for (String facet : FACETS) {
+                facets.put(facet, new HashMap<>());
+            }
+        }
+
+        private Snapshot(Snapshot other) {
+            this.day = other.day;
+            this.courses = other.courses.clone();
+            this.keys = other.keys.clone();
+            this.slots = new HashMap<>(other.slots);
+            this.live = (BitSet) other.live.clone();
+            this.facets = new HashMap<>();
+            for (Map.Entry<String, Map<String, BitSet>> facet : other.facets.entrySet()) {
+                facets.put(facet.getKey(), new HashMap<>(facet.getValue()));
+            }
+        }
+
+        Snapshot copy() {
+            return new Snapshot(this);
+        }
+
+        void add(Course course) {
+            int slot = live.nextClearBit(0);
+            if (slot >= courses.length) {
+                courses = Arrays.copyOf(courses, courses.length * 2);
+                keys = Arrays.copyOf(keys, courses.length);
+            }
+            String[] courseKeys = new String[FACETS.size()];
+            for (int i = 0; i < FACETS.size(); i++) {
+                courseKeys[i] = keyOf(FACETS.get(i), course);
+                if (courseKeys[i] != null) {
+                    writable(FACETS.get(i), courseKeys[i]).set(slot);
+                }
+            }
+            courses[slot] = course;
+            keys[slot] = courseKeys;
+            slots.put(course.getCourseId(), slot);
+            live.set(slot);
+        }
+
+        void remove(Long courseId) {
+            Integer slot = slots.remove(courseId);
+            if (slot == null) {
+                return;
+            }
+            for (int i = 0; i < FACETS.size(); i++) {
+                String key = keys[slot][i];
+                if (key != null) {
+                    BitSet bits = writable(FACETS.get(i), key);
+                    bits.clear(slot);
+                    if (bits.isEmpty()) {
+                        facets.get(FACETS.get(i)).remove(key);
+                    }
+                }
+            }
+            courses[slot] = null;
+            keys[slot] = null;
+            live.clear(slot);
+        }
+
+        private BitSet writable(String facet, String key) {
+            Map<String, BitSet> values = facets.get(facet);
+            BitSet bits = values.get(key);
+            if (bits == null || !owned.contains(bits)) {
+                bits = bits != null ? (BitSet) bits.clone() : new BitSet();
+                owned.add(bits);
+                values.put(key, bits);
+            }
+            return bits;
+        }
+    }
+}
@@ -1,21 +1,63 @@
 package com.example.onlinecourse.service;
 
+import com.example.onlinecourse.cache.CatalogVersions;
+import com.example.onlinecourse.cache.FragmentCache;
+import com.example.onlinecourse.cache.InvalidationBus;
+import com.example.onlinecourse.cache.InvalidationType;
+import com.example.onlinecourse.cache.SingleFlightLoader;
+import com.example.onlinecourse.dao.CascadeDeleteDAO;
 import com.example.onlinecourse.dao.CourseDAO;
 import com.example.onlinecourse.entity.Course;
+import com.example.onlinecourse.util.CircuitBreaker;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service layer for Course business logic.
  * Provides business operations on top of CourseDAO.
  */
 public class CourseService {
+    // Shared by all service instances so concurrent course lookups collapse into one load
+    private static final SingleFlightLoader<Long, Course> COURSE_LOADER =
+            new SingleFlightLoader<>("course.lookup", id -> new CourseDAO().findById(id), 1000, 5000);
+
     private CourseDAO courseDAO;
 
     public CourseService() {
         this.courseDAO = new CourseDAO();
     }
 
+    /**
+     * Evict a course from the lookup loader and bump its catalog version,
+     * which invalidates its rendered fragments, on this node and on the others.
+     * Called whenever the course row or its enrolled count changes.
+     *
+     * @param id Course ID
+     */
+    public static void evictCourse(Long id) {
+        evictCourseLocally(id);
+        InvalidationBus.publish(InvalidationType.COURSE, id);
+    }
+
+    /**
+     * Register the evictions run when another node changes courses.
+     */
+    public static void registerInvalidationHandlers() {
+        InvalidationBus.register(InvalidationType.COURSE, CourseService::evictCourseLocally);
+        InvalidationBus.register(InvalidationType.CATALOG, id -> {
+            CatalogVersions.bumpCatalog();
+            CourseFacetIndex.catalogChanged();
+        });
+    }
+
+    private static void evictCourseLocally(long id) {
+        COURSE_LOADER.invalidate(id);
+        CatalogVersions.bumpCourse(id);
+        CourseFacetIndex.courseChanged(id);
+    }
+
     /**
      * Create a new course.
      *
@@ -26,17 +68,52 @@ public class CourseService {
         if (course.getEnrolledCount() == null) {
             course.setEnrolledCount(0);
         }
-        return courseDAO.save(course);
+        Course saved = courseDAO.save(course);
+        CatalogVersions.bumpCatalog();
+        CourseFacetIndex.courseChanged(saved.getCourseId());
+        InvalidationBus.publish(InvalidationType.CATALOG, null);
+        return saved;
     }
 
     /**
      * Get course by ID.
+     * Returns a copy, as the loaded course is shared with other requests.
      *
      * @param id Course ID
      * @return Course entity
      */
     public Course getCourseById(Long id) {
-        return courseDAO.findById(id);
+        try {
+            Course course = COURSE_LOADER.get(id);
+            return course != null ? new Course(course) : null;
+        } catch (RuntimeException e) {
+            Course course = CourseFacetIndex.lastKnown(id);
+            if (course == null || !CircuitBreaker.isDatabaseFailure(e)) {
+                throw e;
+            }
+            CourseFacetIndex.servedStale();
+            return course;
+        }
+    }
+
+    /**
+     * Load a course, without falling back to the last catalog snapshot.
+     *
+     * @param id Course ID
+     * @return Course entity
+     */
+    Course loadCourse(Long id) {
+        return COURSE_LOADER.get(id);
+    }
+
+    /**
+     * Whether the catalog shown may be out of date because the database is
+     * unavailable and the last catalog snapshot is served instead.
+     *
+     * @return true while catalog reads fail or were last served from the snapshot
+     */
+    public static boolean isCatalogStale() {
+        return CourseFacetIndex.isServingStale() || !CourseDAO.isDatabaseAvailable();
     }
 
     /**
@@ -45,7 +122,11 @@ public class CourseService {
      * @return List of all courses
      */
     public List<Course> getAllCourses() {
-        return courseDAO.findAll();
+        try {
+            return courseDAO.findAll();
+        } catch (RuntimeException e) {
+            return lastKnownCourses(e);
+        }
     }
 
     /**
@@ -54,7 +135,67 @@ public class CourseService {
      * @return List of available courses
      */
     public List<Course> getAvailableCourses() {
-        return courseDAO.findAvailableCourses();
+        try {
+            return courseDAO.findAvailableCourses();
+        } catch (RuntimeException e) {
+            List<Course> courses = lastKnownCourses(e);
+            courses.removeIf(course -> !course.isAvailable());
+            return courses;
+        }
+    }
+
+    /**
+     * Get the courses matching a facet selection, with the counts of every facet value.
+     *
+     * @param selection Selected value key per facet (see CourseFacetIndex)
+     * @return Matching courses and facet counts
+     */
+    public FacetedCourses getFacetedCourses(Map<String, String> selection) {
+        return CourseFacetIndex.query(selection);
+    }
+
+    /**
+     * Get the courses students of a course also enrolled in, from the co-enrollment
+     * matrix. Deleted and ended courses are left out.
+     *
+     * @param courseId Course ID
+     * @param limit Maximum number of courses
+     * @return Recommended courses, most shared students first
+     */
+    public List<Course> getRecommendedCourses(Long courseId, int limit) {
+        List<Course> recommended = new ArrayList<>(limit);
+        // Ask for extra candidates to make up for the ones left out
+        for (long id : CoEnrollmentIndex.topK(courseId, limit * 2)) {
+            Course course = getCourseById(id);
+            if (course != null && !course.hasEnded()) {
+                recommended.add(course);
+                if (recommended.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return recommended;
+    }
+
+    /**
+     * Get the courses with the most enrollments and detail page views lately,
+     * as of the last trending refresh. Deleted and ended courses are left out.
+     *
+     * @param limit Maximum number of courses
+     * @return Trending courses, highest score first
+     */
+    public List<TrendingCourse> getTrendingCourses(int limit) {
+        List<TrendingCourse> trending = new ArrayList<>(limit);
+        for (TrendingCourses.Entry entry : TrendingCourses.getRanking()) {
+            Course course = getCourseById(entry.getCourseId());
+            if (course != null && !course.hasEnded()) {
+                trending.add(new TrendingCourse(course, entry));
+                if (trending.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return trending;
     }
 
     /**
@@ -64,7 +205,11 @@ public class CourseService {
      * @return Updated course
      */
     public Course updateCourse(Course course) {
-        return courseDAO.update(course);
+        try {
+            return courseDAO.update(course);
+        } finally {
+            evictCourse(course.getCourseId());
+        }
     }
 
     /**
@@ -73,7 +218,40 @@ public class CourseService {
      * @param id Course ID
      */
     public void deleteCourse(Long id) {
-        courseDAO.delete(id);
+        try {
+            courseDAO.delete(id);
+        } finally {
+            evictCourse(id);
+            FragmentCache.evictCourse(id);
+        }
+    }
+
+    /**
+     * Count the enrollments and payments that deleting a course removes.
+     *
+     * @param id Course ID
+     * @return Number of dependent rows
+     */
+    public long countDependents(Long id) {
+        return new CascadeDeleteDAO().countCourseDependents(id);
+    }
+
+    /**
+     * Queue the deletion of a course on the background deletion thread.
+     *
+     * @param id Course ID
+     * @param estimatedRows Dependent rows, for progress reporting
+     * @return Deletion job
+     */
+    public DeletionJob deleteCourseInBackground(Long id, long estimatedRows) {
+        Course course = getCourseById(id);
+        String name = course != null ? course.getCourseName() : "#" + id;
+        return DeletionJobs.submit("Course " + name, estimatedRows,
+                progress -> new CascadeDeleteDAO().deleteCourse(id, progress),
+                () -> {
+                    evictCourse(id);
+                    FragmentCache.evictCourse(id);
+                });
     }
 
     /**
@@ -83,7 +261,33 @@ public class CourseService {
      * @return List of matching courses
      */
     public List<Course> searchCourses(String searchTerm) {
-        return courseDAO.searchCourses(searchTerm);
+        try {
+            return courseDAO.searchCourses(searchTerm);
+        } catch (RuntimeException e) {
+            List<Course> courses = lastKnownCourses(e);
+            String term = searchTerm.toLowerCase();
+            courses.removeIf(course -> !contains(course.getCourseName(), term) && !contains(course.getInstructor(), term));
+            return courses;
+        }
+    }
+
+    private static boolean contains(String value, String lowerCaseTerm) {
+        return value != null && value.toLowerCase().contains(lowerCaseTerm);
+    }
+
+    /**
+     * Fall back to the last catalog snapshot when a catalog read failed because of the database.
+     *
+     * @param e Failure of the read
+     * @return Courses of the snapshot, in course name order
+     */
+    private static List<Course> lastKnownCourses(RuntimeException e) {
+        List<Course> courses = CourseFacetIndex.lastKnownCourses();
+        if (courses == null || !CircuitBreaker.isDatabaseFailure(e)) {
+            throw e;
+        }
+        CourseFacetIndex.servedStale();
+        return courses;
     }
 }
 
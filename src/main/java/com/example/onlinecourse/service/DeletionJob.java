@@ -0,0 +1,90 @@
+package com.example.onlinecourse.service;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a bulk deletion running in the background.
+ * Updated by the deleting thread and read by the admin pages.
+ */
+public class DeletionJob {
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    private final long jobId;
+    private final String description;
+    private final long estimatedRows;
+    private final Date submittedAt = new Date();
+    private final AtomicLong rowsDeleted = new AtomicLong();
+    private volatile Status status = Status.QUEUED;
+    private volatile String currentTable;
+    private volatile Date finishedAt;
+    private volatile String error;
+
+    DeletionJob(long jobId, String description, long estimatedRows) {
+        this.jobId = jobId;
+        this.description = description;
+        this.estimatedRows = estimatedRows;
+    }
+
+    void started() {
+        status = Status.RUNNING;
+    }
+
+    void progress(String table, int rows) {
+        currentTable = table;
+        rowsDeleted.addAndGet(rows);
+    }
+
+    void finished(String failure) {
+        error = failure;
+        finishedAt = new Date();
+        status = failure == null ? Status.DONE : Status.FAILED;
+    }
+
+    public long getJobId() {
+        return jobId;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public long getEstimatedRows() {
+        return estimatedRows;
+    }
+
+    public long getRowsDeleted() {
+        return rowsDeleted.get();
+    }
+
+    /**
+     * @return Completion in percent, based on the row count taken at submission
+     */
+    public int getPercentDone() {
+        if (status == Status.DONE) {
+            return 100;
+        }
+        return estimatedRows > 0 ? (int) Math.min(99, rowsDeleted.get() * 100 / estimatedRows) : 0;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getCurrentTable() {
+        return currentTable;
+    }
+
+    public Date getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public Date getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.onlinecourse.service;
+
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.MetricsRegistry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Runs bulk deletions one at a time on a background thread.
+ * Deletions are queued rather than run in parallel so they do not compete for
+ * locks on the same tables. The most recent jobs are kept for the admin pages.
+ */
+public class DeletionJobs {
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "bulk-delete");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final AtomicLong jobIds = new AtomicLong();
+    private static final Deque<DeletionJob> recentJobs = new ConcurrentLinkedDeque<>();
+    private static final int KEPT_JOBS = AppConfig.getInt("delete.keptJobs", 20);
+
+    private DeletionJobs() {
+    }
+
+    /**
+     * Queue a deletion.
+     *
+     * @param description Shown on the admin pages
+     * @param estimatedRows Rows expected to be deleted, for progress
+     * @param work Deletion, reporting deleted rows to the given callback
+     * @param afterwards Run after the deletion, also if it failed part-way (cache eviction)
+     * @return Queued job
+     */
+    static DeletionJob submit(String description, long estimatedRows,
+                              Consumer<ObjIntConsumer<String>> work, Runnable afterwards) {
+        DeletionJob job = new DeletionJob(jobIds.incrementAndGet(), description, estimatedRows);
+        recentJobs.addFirst(job);
+        while (recentJobs.size() > KEPT_JOBS) {
+            recentJobs.pollLast();
+        }
+        EXECUTOR.execute(() -> {
+            job.started();
+            try {
+                try {
+                    work.accept(job::progress);
+                } finally {
+                    afterwards.run();
+                }
+                job.finished(null);
+                MetricsRegistry.increment("delete.jobs.done");
+            } catch (RuntimeException e) {
+                job.finished(e.getMessage());
+                MetricsRegistry.increment("delete.jobs.failed");
+                System.err.println("Background deletion failed (" + description + "): " + e.getMessage());
+            }
+        });
+        return job;
+    }
+
+    /**
+     * Stop the deletion thread on undeploy, interrupting a running deletion after a
+     * short grace period. An interrupted deletion continues where it stopped when
+     * it is started again.
+     */
+    public static void stop() {
+        EXECUTOR.shutdown();
+        try {
+            if (!EXECUTOR.awaitTermination(5, TimeUnit.SECONDS)) {
+                EXECUTOR.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            EXECUTOR.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Get the most recent jobs, newest first.
+     *
+     * @return Jobs
+     */
+    public static List<DeletionJob> getRecentJobs() {
+        return Collections.unmodifiableList(new ArrayList<>(recentJobs));
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.onlinecourse.service;
+
+import java.util.Date;
+
+/**
+ * A student's request to enroll in a course, accepted while the database was
+ * degraded and replayed once it recovers (see EnrollmentIntents).
+ */
+public class EnrollmentIntent {
+    private final long intentId;
+    private final Long studentId;
+    private final Long courseId;
+    private final Date acceptedAt;
+    private volatile Status status = Status.PENDING;
+    private volatile String message;
+    private volatile Date finishedAt;
+
+    EnrollmentIntent(long intentId, Long studentId, Long courseId, Date acceptedAt) {
+        this.intentId = intentId;
+        this.studentId = studentId;
+        this.courseId = courseId;
+        this.acceptedAt = acceptedAt;
+    }
+
+    void finish(Status status, String message) {
+        this.status = status;
+        this.message = message;
+        this.finishedAt = new Date();
+    }
+
+    public long getIntentId() {
+        return intentId;
+    }
+
+    public Long getStudentId() {
+        return studentId;
+    }
+
+    public Long getCourseId() {
+        return courseId;
+    }
+
+    public Date getAcceptedAt() {
+        return acceptedAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return Why the enrollment was rejected, or null
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    public Date getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * Enumeration for intent status
+     */
+    public enum Status {
+        PENDING, ENROLLED, REJECTED
+    }
+}
@@ -0,0 +1,523 @@
+package com.example.onlinecourse.service;
+
+import com.example.onlinecourse.dao.BulkEnrollmentResult;
+import com.example.onlinecourse.dao.ScheduleConflict;
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.CircuitBreaker;
+import com.example.onlinecourse.util.MetricsRegistry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind queue of enrollment requests for while the database is degraded.
+ *
+ * When saving an enrollment fails because the database is unreachable or timing
+ * out, or its circuit breaker is open, the request is accepted as an EnrollmentIntent instead: it is appended to
+ * a local log file and forced to disk before the student is told it is pending.
+ * For enrollment.writeBehind.holdSeconds after a failure, and until the queue has
+ * been drained, new requests skip the database and are queued too, so they are
+ * replayed in the order they were accepted. Concurrent requests share one fsync:
+ * each waits only until the log is forced past its own line.
+ *
+ * The replay job (every enrollment.writeBehind.replaySeconds) enrolls the pending
+ * intents in order, and keeps taking the intents accepted meanwhile until the
+ * queue is empty; then requests are written synchronously again. Each intent is
+ * enrolled as a cohort of one (EnrollmentService.enrollStudents), which reserves
+ * the seat under a lock on the course row, so replay cannot overbook a course
+ * that other nodes are enrolling in. An intent that fails the seat, duplicate or
+ * conflict checks is rejected and shown to the student on the dashboard. Replay
+ * stops at the next database failure and resumes on the following run.
+ *
+ * The log is truncated once every intent is done, and rewritten with only the
+ * pending intents once it is larger than enrollment.writeBehind.compactBytes and
+ * mostly finished intents.
+ *
+ * Intents are local to the node that accepted them; seats still go first come,
+ * first served across nodes only as far as each node's replay order allows.
+ *
+ * Metrics: enrollment.intents.accepted, enrollment.intents.replayed,
+ * enrollment.intents.rejected, enrollment.intents.drainRate (intents/s per replay run),
+ * enrollment.intents.pending (gauge), enrollment.intents.compactions and enrollment.intents.errors.
+ */
+public class EnrollmentIntents {
+    public static final String JOB_NAME = "enrollment-intent-replay";
+
+    private static final String LOG_FILE = "enrollment-intents.log";
+    private static final int MAX_FINISHED = 1000;
+    private static final long REJECTIONS_SHOWN_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    // Guards the log position, the pending intents and the finished ones
+    private static final Object lock = new Object();
+    // Held while forcing the log; taken before lock when both are needed
+    private static final Object syncLock = new Object();
+    private static final Map<Long, EnrollmentIntent> pending = new LinkedHashMap<>();
+    private static final Deque<EnrollmentIntent> finished = new ArrayDeque<>();
+    private static volatile FileChannel channel;
+    private static Path logFile;
+    private static long nextId = 1;
+    private static long synced;
+    private static volatile int pendingCount;
+    private static volatile long degradedUntil;
+    // Set when the database fails and cleared by the replay that empties the queue
+    private static volatile boolean draining;
+
+    private EnrollmentIntents() {
+    }
+
+    /**
+     * Open the intent log and load the intents that were still pending.
+     * A log that cannot be opened is logged and write-behind stays off.
+     */
+    public static void start() {
+        if (!AppConfig.getBoolean("enrollment.writeBehind.enabled", true)) {
+            return;
+        }
+        synchronized (syncLock) {
+            synchronized (lock) {
+                if (channel != null) {
+                    return;
+                }
+                try {
+                    Path dir = Paths.get(AppConfig.get("enrollment.writeBehind.dir", "intents"));
+                    Files.createDirectories(dir);
+                    logFile = dir.resolve(LOG_FILE);
+                    channel = FileChannel.open(logFile, StandardOpenOption.CREATE,
+                            StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    load();
+                    draining = !pending.isEmpty();
+                    synced = channel.position();
+                } catch (IOException e) {
+                    System.err.println("Enrollment write-behind disabled: " + e.getMessage());
+                    channel = null;
+                    return;
+                }
+                if (!pending.isEmpty()) {
+                    System.err.println("Enrollment write-behind: " + pending.size() + " pending intents to replay");
+                }
+            }
+        }
+        MetricsRegistry.gauge("enrollment.intents.pending", () -> pendingCount);
+    }
+
+    /**
+     * Close the intent log. Pending intents stay in it for the next start.
+     */
+    public static void stop() {
+        synchronized (syncLock) {
+            synchronized (lock) {
+                if (channel == null) {
+                    return;
+                }
+                try {
+                    channel.force(false);
+                    channel.close();
+                } catch (IOException e) {
+                    System.err.println("Enrollment intent log not closed cleanly: " + e.getMessage());
+                }
+                channel = null;
+                pending.clear();
+                pendingCount = 0;
+            }
+        }
+    }
+
+    /**
+     * Whether new enrollment requests should be queued instead of written:
+     * the database failed recently or the queue has not been drained since.
+     *
+     * @return true to queue
+     */
+    public static boolean isDeferring() {
+        return channel != null && (draining || System.currentTimeMillis() < degradedUntil);
+    }
+
+    /**
+     * Record that the database failed; requests are queued for the hold period.
+     */
+    public static void databaseFailed() {
+        long now = System.currentTimeMillis();
+        if (now >= degradedUntil) {
+            System.err.println("Enrollment write-behind: database degraded, queueing enrollments");
+        }
+        degradedUntil = now + TimeUnit.SECONDS.toMillis(AppConfig.getLong("enrollment.writeBehind.holdSeconds", 30));
+        draining = true;
+    }
+
+    /**
+     * Accept an enrollment request into the log.
+     * Returns once the intent is on disk.
+     *
+     * @param studentId Student ID
+     * @param courseId Course ID
+     * @return Pending intent
+     * @throws RuntimeException if write-behind is off, the queue is full, the same
+     *                          request is already pending or the log cannot be written
+     */
+    public static EnrollmentIntent submit(Long studentId, Long courseId) {
+        EnrollmentIntent intent;
+        long end;
+        synchronized (lock) {
+            if (channel == null || pending.size() >= AppConfig.getInt("enrollment.writeBehind.maxPending", 10000)) {
+                throw new RuntimeException("Enrollment is temporarily unavailable. Please try again in a few minutes.");
+            }
+            for (EnrollmentIntent other : pending.values()) {
+                if (other.getStudentId().equals(studentId) && other.getCourseId().equals(courseId)) {
+                    throw new RuntimeException("Your enrollment in this course is already pending");
+                }
+            }
+            intent = new EnrollmentIntent(nextId, studentId, courseId, new Date());
+            try {
+                append(acceptedLine(intent));
+                end = channel.position();
+            } catch (IOException e) {
+                throw new RuntimeException("Error queueing enrollment: " + e.getMessage(), e);
+            }
+            nextId++;
+            pending.put(intent.getIntentId(), intent);
+            pendingCount = pending.size();
+        }
+        try {
+            sync(end);
+        } catch (IOException e) {
+            synchronized (lock) {
+                pending.remove(intent.getIntentId());
+                pendingCount = pending.size();
+            }
+            throw new RuntimeException("Error queueing enrollment: " + e.getMessage(), e);
+        }
+        MetricsRegistry.increment("enrollment.intents.accepted");
+        return intent;
+    }
+
+    /**
+     * Enroll the pending intents in the order they were accepted, until the queue
+     * is empty or the database fails. Run by the JobScheduler on every node.
+     */
+    public static void replay() {
+        long start = System.nanoTime();
+        EnrollmentService enrollmentService = new EnrollmentService();
+        int replayed = 0;
+        boolean stopped = false;
+        while (!stopped) {
+            List<EnrollmentIntent> batch;
+            synchronized (lock) {
+                if (pending.isEmpty()) {
+                    // Requests from now on are written synchronously again (after the hold
+                    // period, unless this run showed that the database is back)
+                    draining = false;
+                    if (replayed > 0) {
+                        degradedUntil = 0;
+                    }
+                    break;
+                }
+                batch = new ArrayList<>(pending.values());
+            }
+            for (EnrollmentIntent intent : batch) {
+                if (Thread.currentThread().isInterrupted() || !replay(enrollmentService, intent)) {
+                    stopped = true;
+                    break;
+                }
+                replayed++;
+            }
+        }
+        if (replayed > 0) {
+            long nanos = System.nanoTime() - start;
+            MetricsRegistry.add("enrollment.intents.replayed", replayed);
+            MetricsRegistry.recordValue("enrollment.intents.drainRate",
+                    replayed * TimeUnit.SECONDS.toNanos(1) / Math.max(1, nanos));
+        }
+        try {
+            long end;
+            synchronized (lock) {
+                end = channel != null ? channel.position() : 0;
+            }
+            sync(end);
+            compact();
+        } catch (IOException e) {
+            MetricsRegistry.increment("enrollment.intents.errors");
+            System.err.println("Enrollment intent log not forced: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Enroll one intent.
+     *
+     * @return false if the database failed and replay has to stop
+     */
+    private static boolean replay(EnrollmentService enrollmentService, EnrollmentIntent intent) {
+        try {
+            BulkEnrollmentResult result = enrollmentService.enrollStudents(intent.getCourseId(),
+                    List.of(intent.getStudentId()));
+            BulkEnrollmentResult.Outcome outcome = result.getOutcomes().get(intent.getStudentId());
+            switch (outcome) {
+                case FAILED:
+                    databaseFailed();
+                    return false;
+                case ENROLLED:
+                case REACTIVATED:
+                // Already enrolled means an earlier replay enrolled it but its outcome was not logged
+                case ALREADY_ENROLLED:
+                    finish(intent, EnrollmentIntent.Status.ENROLLED, null);
+                    return true;
+                default:
+                    reject(intent, describe(outcome, result.getConflicts().get(intent.getStudentId())));
+                    return true;
+            }
+        } catch (RuntimeException e) {
+            if (CircuitBreaker.isDatabaseFailure(e)) {
+                databaseFailed();
+                return false;
+            }
+            reject(intent, e.getMessage());
+            return true;
+        }
+    }
+
+    private static void reject(EnrollmentIntent intent, String message) {
+        finish(intent, EnrollmentIntent.Status.REJECTED, message);
+        MetricsRegistry.increment("enrollment.intents.rejected");
+    }
+
+    private static String describe(BulkEnrollmentResult.Outcome outcome, List<ScheduleConflict> conflicts) {
+        switch (outcome) {
+            case COURSE_FULL:
+                return "Course is full. Cannot enroll more students.";
+            case ALREADY_COMPLETED:
+                return "You have already completed this course";
+            case STUDENT_NOT_FOUND:
+                return "Student account not found";
+            case SCHEDULE_CONFLICT:
+                return "This course overlaps with " + conflicts.stream()
+                        .map(ScheduleConflict::getOtherCourseName)
+                        .collect(Collectors.joining(", ")) + ". Cancel that enrollment first.";
+            default:
+                return "Enrollment was not possible (" + outcome + ")";
+        }
+    }
+
+    /**
+     * Get a student's pending enrollment requests.
+     *
+     * @param studentId Student ID
+     * @return Intents in the order they were accepted
+     */
+    public static List<EnrollmentIntent> getPending(Long studentId) {
+        List<EnrollmentIntent> intents = new ArrayList<>();
+        if (pendingCount == 0) {
+            return intents;
+        }
+        synchronized (lock) {
+            for (EnrollmentIntent intent : pending.values()) {
+                if (intent.getStudentId().equals(studentId)) {
+                    intents.add(intent);
+                }
+            }
+        }
+        return intents;
+    }
+
+    /**
+     * Get a student's requests that were rejected on replay in the last day.
+     * Kept in memory only, for the most recent finished intents of the node.
+     *
+     * @param studentId Student ID
+     * @return Rejected intents, oldest first
+     */
+    public static List<EnrollmentIntent> getRecentlyRejected(Long studentId) {
+        List<EnrollmentIntent> intents = new ArrayList<>();
+        long since = System.currentTimeMillis() - REJECTIONS_SHOWN_MILLIS;
+        synchronized (lock) {
+            for (EnrollmentIntent intent : finished) {
+                if (intent.getStatus() == EnrollmentIntent.Status.REJECTED && intent.getStudentId().equals(studentId)
+                        && intent.getFinishedAt().getTime() >= since) {
+                    intents.add(intent);
+                }
+            }
+        }
+        return intents;
+    }
+
+    private static void finish(EnrollmentIntent intent, EnrollmentIntent.Status status, String message) {
+        synchronized (lock) {
+            intent.finish(status, message);
+            pending.remove(intent.getIntentId());
+            pendingCount = pending.size();
+            finished.addLast(intent);
+            if (finished.size() > MAX_FINISHED) {
+                finished.removeFirst();
+            }
+            try {
+                if (channel != null) {
+                    append("D " + intent.getIntentId() + " " + status.name());
+                }
+            } catch (IOException e) {
+                // Replayed again after a restart; the existence check then marks it enrolled
+                MetricsRegistry.increment("enrollment.intents.errors");
+                System.err.println("Outcome of enrollment intent " + intent.getIntentId() + " not logged: "
+                        + e.getMessage());
+            }
+        }
+    }
+
+    private static String acceptedLine(EnrollmentIntent intent) {
+        return "I " + intent.getIntentId() + " " + intent.getStudentId() + " " + intent.getCourseId() + " "
+                + intent.getAcceptedAt().getTime();
+    }
+
+    /**
+     * Append a line to the log. Caller holds lock.
+     */
+    private static void append(String line) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.US_ASCII));
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    /**
+     * Force the log at least up to a position. Requests that arrive while another
+     * one is forcing find their lines already on disk when they get the lock.
+     */
+    private static void sync(long end) throws IOException {
+        synchronized (syncLock) {
+            if (synced >= end) {
+                return;
+            }
+            long position;
+            FileChannel current;
+            synchronized (lock) {
+                current = channel;
+                position = current != null ? current.position() : 0;
+            }
+            if (current == null) {
+                return;
+            }
+            current.force(false);
+            synced = position;
+        }
+    }
+
+    /**
+     * Drop the finished intents from the log: truncate it when none are pending,
+     * or rewrite it with only the pending ones once it is larger than
+     * enrollment.writeBehind.compactBytes and at least half finished. The new log
+     * is forced before it atomically replaces the old one.
+     */
+    private static void compact() throws IOException {
+        synchronized (syncLock) {
+            synchronized (lock) {
+                if (channel == null) {
+                    return;
+                }
+                if (pending.isEmpty()) {
+                    if (channel.size() > 0) {
+                        channel.truncate(0);
+                        channel.position(0);
+                        channel.force(false);
+                    }
+                    synced = 0;
+                    return;
+                }
+                long size = channel.size();
+                if (size < AppConfig.getLong("enrollment.writeBehind.compactBytes", 1024 * 1024)) {
+                    return;
+                }
+                StringBuilder lines = new StringBuilder();
+                for (EnrollmentIntent intent : pending.values()) {
+                    lines.append(acceptedLine(intent)).append('\n');
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.US_ASCII));
+                if (bytes.remaining() * 2L > size) {
+                    return;
+                }
+                Path compacted = logFile.resolveSibling(LOG_FILE + ".tmp");
+                try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    while (bytes.hasRemaining()) {
+                        out.write(bytes);
+                    }
+                    out.force(false);
+                }
+                Files.move(compacted, logFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                FileChannel reopened = FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                reopened.position(reopened.size());
+                channel.close();
+                channel = reopened;
+                synced = reopened.position();
+                MetricsRegistry.increment("enrollment.intents.compactions");
+            }
+        }
+    }
+
+    /**
+     * Read the log: "I id studentId courseId acceptedAt" accepts an intent,
+     * "D id status" finishes it. A last line torn by a crash is cut off.
+     * Caller holds both locks.
+     */
+    private static void load() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        StringBuilder line = new StringBuilder();
+        long position = 0;
+        // Just past the last complete line
+        long end = 0;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n') {
+                    apply(line.toString());
+                    line.setLength(0);
+                    end = position + i + 1;
+                } else {
+                    line.append((char) b);
+                }
+            }
+            position += read;
+        }
+        if (end < channel.size()) {
+            channel.truncate(end);
+        }
+        channel.position(end);
+        pendingCount = pending.size();
+    }
+
+    private static void apply(String line) {
+        if (line.trim().isEmpty()) {
+            return;
+        }
+        String[] fields = line.trim().split(" ");
+        try {
+            long id = Long.parseLong(fields[1]);
+            if ("I".equals(fields[0]) && fields.length == 5) {
+                pending.put(id, new EnrollmentIntent(id, Long.valueOf(fields[2]), Long.valueOf(fields[3]),
+                        new Date(Long.parseLong(fields[4]))));
+            } else if ("D".equals(fields[0])) {
+                pending.remove(id);
+            }
+            nextId = Math.max(nextId, id + 1);
+        } catch (RuntimeException e) {
+            System.err.println("Skipping unreadable enrollment intent line: " + line);
+        }
+    }
+}
@@ -1,15 +1,28 @@
 package com.example.onlinecourse.service;
 
+import com.example.onlinecourse.dao.BulkEnrollmentResult;
 import com.example.onlinecourse.dao.CourseDAO;
 import com.example.onlinecourse.dao.EnrollmentDAO;
+import com.example.onlinecourse.dao.FetchPlan;
+import com.example.onlinecourse.dao.ScheduleConflict;
+import com.example.onlinecourse.dao.ScheduleConflictDAO;
 import com.example.onlinecourse.dao.StudentDAO;
 import com.example.onlinecourse.entity.Course;
 import com.example.onlinecourse.entity.Enrollment;
 import com.example.onlinecourse.entity.Student;
 import com.example.onlinecourse.entity.Enrollment.EnrollmentStatus;
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.CircuitBreaker;
+import com.example.onlinecourse.util.LongHashSet;
+import com.example.onlinecourse.util.MetricsRegistry;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Service layer for Enrollment business logic.
@@ -19,11 +32,26 @@ public class EnrollmentService {
     private EnrollmentDAO enrollmentDAO;
     private StudentDAO studentDAO;
     private CourseDAO courseDAO;
+    private ScheduleConflictDAO scheduleConflictDAO;
+
+    /**
+     * What enrolling does when the course's dates overlap another active course
+     * of the student (enrollment.scheduleConflicts).
+     */
+    public enum ConflictPolicy {
+        /** Do not check. */
+        OFF,
+        /** Enroll and tell the student. */
+        WARN,
+        /** Refuse the enrollment. */
+        BLOCK
+    }
 
     public EnrollmentService() {
         this.enrollmentDAO = new EnrollmentDAO();
         this.studentDAO = new StudentDAO();
         this.courseDAO = new CourseDAO();
+        this.scheduleConflictDAO = new ScheduleConflictDAO();
     }
 
     /**
@@ -32,7 +60,8 @@ public class EnrollmentService {
      * @param studentId Student ID
      * @param courseId Course ID
      * @return Created enrollment
-     * @throws RuntimeException if student or course not found, or already enrolled, or course is full
+     * @throws RuntimeException if student or course not found, or already enrolled, or course is full,
+     *                          or its dates overlap another course of the student and the policy is BLOCK
      */
     public Enrollment enrollStudent(Long studentId, Long courseId) {
         Student student = studentDAO.findById(studentId);
@@ -46,8 +75,7 @@ public class EnrollmentService {
         }
 
         // Check if already enrolled
-        Enrollment existing = enrollmentDAO.findByStudentAndCourse(studentId, courseId);
-        if (existing != null && existing.getStatus() == EnrollmentStatus.ACTIVE) {
+        if (enrollmentDAO.existsActiveEnrollment(studentId, courseId)) {
             throw new RuntimeException("Student is already enrolled in this course");
         }
 
@@ -56,11 +84,173 @@ public class EnrollmentService {
             throw new RuntimeException("Course is full. Cannot enroll more students.");
         }
 
+        if (getConflictPolicy() == ConflictPolicy.BLOCK) {
+            List<ScheduleConflict> conflicts = findScheduleConflicts(studentId, course);
+            if (!conflicts.isEmpty()) {
+                MetricsRegistry.increment("enrollment.conflicts.blocked");
+                throw new RuntimeException("This course overlaps with " + describe(conflicts)
+                        + ". Cancel that enrollment first.");
+            }
+        }
+
         Enrollment enrollment = new Enrollment(student, course);
         enrollment.setEnrollmentDate(new Date());
         enrollment.setStatus(EnrollmentStatus.ACTIVE);
 
-        return enrollmentDAO.save(enrollment);
+        try {
+            return enrollmentDAO.save(enrollment);
+        } finally {
+            CourseService.evictCourse(courseId);
+        }
+    }
+
+    /**
+     * Enroll a student in a course, or queue the request while the database is degraded.
+     * The request is queued when the database failed recently or earlier requests
+     * are still pending, and when this attempt fails with a database failure.
+     *
+     * @param studentId Student ID
+     * @param courseId Course ID
+     * @return Created enrollment, or null if the request was queued (see EnrollmentIntents)
+     * @throws RuntimeException if the enrollment is rejected, or cannot be saved nor queued
+     */
+    public Enrollment enrollStudentOrQueue(Long studentId, Long courseId) {
+        if (EnrollmentIntents.isDeferring()) {
+            EnrollmentIntents.submit(studentId, courseId);
+            return null;
+        }
+        try {
+            return enrollStudent(studentId, courseId);
+        } catch (RuntimeException e) {
+            if (!CircuitBreaker.isDatabaseFailure(e)) {
+                throw e;
+            }
+            EnrollmentIntents.databaseFailed();
+            if (!EnrollmentIntents.isDeferring()) {
+                throw e;
+            }
+            EnrollmentIntents.submit(studentId, courseId);
+            return null;
+        }
+    }
+
+    /**
+     * Get the configured schedule conflict policy.
+     *
+     * @return Policy, WARN if enrollment.scheduleConflicts is not set or not recognized
+     */
+    public static ConflictPolicy getConflictPolicy() {
+        try {
+            return ConflictPolicy.valueOf(AppConfig.get("enrollment.scheduleConflicts", "warn").trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ConflictPolicy.WARN;
+        }
+    }
+
+    /**
+     * Find the student's active courses whose dates overlap a course.
+     *
+     * @param studentId Student ID
+     * @param course Course
+     * @return Conflicts, empty if none
+     */
+    public List<ScheduleConflict> findScheduleConflicts(Long studentId, Course course) {
+        long start = System.nanoTime();
+        try {
+            ZoneId zone = ZoneId.systemDefault();
+            Date today = Date.from(LocalDate.now(zone).atStartOfDay(zone).toInstant());
+            return scheduleConflictDAO.findConflicts(studentId, course, today);
+        } finally {
+            MetricsRegistry.recordTime("enrollment.conflicts.check", System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Find the student's other active courses whose dates overlap a course, for a
+     * warning after enrolling under the WARN policy.
+     *
+     * @param studentId Student ID
+     * @param courseId Course ID
+     * @return Names of the overlapping courses, or null if there are none or the policy is not WARN
+     */
+    public String describeScheduleConflicts(Long studentId, Long courseId) {
+        if (getConflictPolicy() != ConflictPolicy.WARN) {
+            return null;
+        }
+        Course course = new CourseService().getCourseById(courseId);
+        if (course == null) {
+            return null;
+        }
+        List<ScheduleConflict> conflicts = findScheduleConflicts(studentId, course);
+        if (conflicts.isEmpty()) {
+            return null;
+        }
+        MetricsRegistry.increment("enrollment.conflicts.warned");
+        return describe(conflicts);
+    }
+
+    /**
+     * Find all overlapping active enrollments of the same student (admin report).
+     *
+     * @return Conflicts ordered by student, at most conflicts.reportLimit
+     */
+    public List<ScheduleConflict> findAllScheduleConflicts() {
+        long start = System.nanoTime();
+        try {
+            return scheduleConflictDAO.findAllConflicts(AppConfig.getInt("conflicts.reportLimit", 1000));
+        } finally {
+            MetricsRegistry.recordTime("enrollment.conflicts.report", System.nanoTime() - start);
+        }
+    }
+
+    private static String describe(List<ScheduleConflict> conflicts) {
+        return conflicts.stream()
+                .map(ScheduleConflict::getOtherCourseName)
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Enroll a cohort of students in a course in one operation.
+     * Students that cannot be enrolled (unknown, already enrolled, no seat left, or
+     * overlapping another of their courses under the BLOCK policy) are reported in
+     * the result; the others are enrolled.
+     *
+     * @param courseId Course ID
+     * @param studentIds Student IDs; when seats run out, the first ones are enrolled
+     * @return Outcome per student
+     * @throws RuntimeException if the list is empty or larger than enrollment.cohort.maxSize,
+     *                          or the course is not found or has ended
+     */
+    public BulkEnrollmentResult enrollStudents(Long courseId, List<Long> studentIds) {
+        if (studentIds == null || studentIds.isEmpty()) {
+            throw new RuntimeException("No students to enroll");
+        }
+        int maxSize = AppConfig.getInt("enrollment.cohort.maxSize", 1000);
+        if (studentIds.size() > maxSize) {
+            throw new RuntimeException("A cohort can have at most " + maxSize + " students");
+        }
+
+        long start = System.nanoTime();
+        try {
+            BulkEnrollmentResult result = enrollmentDAO.enrollCohort(courseId, studentIds,
+                    getConflictPolicy() == ConflictPolicy.BLOCK);
+            MetricsRegistry.add("enrollment.cohort.enrolled", result.getEnrolledCount());
+            MetricsRegistry.add("enrollment.conflicts.blocked", result.getConflicts().size());
+            return result;
+        } finally {
+            CourseService.evictCourse(courseId);
+            MetricsRegistry.recordTime("enrollment.cohort", System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Look up student IDs by email for cohort enrollment.
+     *
+     * @param emails Emails
+     * @return Student ID per email found
+     */
+    public Map<String, Long> findStudentIdsByEmails(Collection<String> emails) {
+        return studentDAO.findIdsByEmails(emails);
     }
 
     /**
@@ -77,7 +267,11 @@ public class EnrollmentService {
         }
 
         enrollment.setStatus(EnrollmentStatus.CANCELLED);
-        return enrollmentDAO.update(enrollment);
+        try {
+            return enrollmentDAO.update(enrollment);
+        } finally {
+            CourseService.evictCourse(enrollment.getCourse().getCourseId());
+        }
     }
 
     /**
@@ -101,12 +295,24 @@ public class EnrollmentService {
 
     /**
      * Get enrollments by student ID.
+     * Only the course is fetched; the student is the caller's own.
      *
      * @param studentId Student ID
      * @return List of enrollments for the student
      */
     public List<Enrollment> getEnrollmentsByStudent(Long studentId) {
-        return enrollmentDAO.findByStudentId(studentId);
+        return enrollmentDAO.findByStudentId(studentId, FetchPlan.WITH_COURSE);
+    }
+
+    /**
+     * Get enrollments by student ID, optionally with archived history.
+     *
+     * @param studentId Student ID
+     * @param includeHistory Whether to add archived enrollments
+     * @return List of enrollments for the student
+     */
+    public List<Enrollment> getEnrollmentsByStudent(Long studentId, boolean includeHistory) {
+        return enrollmentDAO.findByStudentId(studentId, FetchPlan.WITH_COURSE, includeHistory);
     }
 
     /**
@@ -119,6 +325,21 @@ public class EnrollmentService {
         return enrollmentDAO.findByCourseId(courseId);
     }
 
+    /**
+     * Get the set of course IDs a student is actively enrolled in.
+     *
+     * @param studentId Student ID
+     * @return Set of course IDs
+     */
+    public LongHashSet getActiveCourseIds(Long studentId) {
+        List<Long> courseIds = enrollmentDAO.findActiveCourseIdsByStudentId(studentId);
+        LongHashSet set = new LongHashSet(courseIds.size());
+        for (Long courseId : courseIds) {
+            set.add(courseId);
+        }
+        return set;
+    }
+
     /**
      * Check if student is enrolled in a course.
      *
@@ -127,8 +348,7 @@ public class EnrollmentService {
      * @return true if enrolled
      */
     public boolean isEnrolled(Long studentId, Long courseId) {
-        Enrollment enrollment = enrollmentDAO.findByStudentAndCourse(studentId, courseId);
-        return enrollment != null && enrollment.getStatus() == EnrollmentStatus.ACTIVE;
+        return enrollmentDAO.existsActiveEnrollment(studentId, courseId);
     }
 }
 
@@ -0,0 +1,75 @@
+package com.example.onlinecourse.service;
+
+import com.example.onlinecourse.entity.Course;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a faceted catalog query: the matching courses and, for each facet,
+ * its values with the number of courses the list would show if that value were
+ * selected (the selections of the other facets still apply).
+ */
+public class FacetedCourses {
+    private final List<Course> courses;
+    private final Map<String, List<Value>> facets;
+
+    FacetedCourses(List<Course> courses, Map<String, List<Value>> facets) {
+        this.courses = courses;
+        this.facets = facets;
+    }
+
+    public List<Course> getCourses() {
+        return courses;
+    }
+
+    /**
+     * Get the values of one facet.
+     *
+     * @param facet Facet name (CourseFacetIndex.INSTRUCTOR, FEE, START_MONTH or AVAILABILITY)
+     * @return Values in display order
+     */
+    public List<Value> getValues(String facet) {
+        return facets.getOrDefault(facet, Collections.emptyList());
+    }
+
+    /**
+     * One value of a facet.
+     */
+    public static class Value {
+        private final String facet;
+        private final String key;
+        private final String label;
+        private final int count;
+        private final boolean selected;
+
+        Value(String facet, String key, String label, int count, boolean selected) {
+            this.facet = facet;
+            this.key = key;
+            this.label = label;
+            this.count = count;
+            this.selected = selected;
+        }
+
+        public String getFacet() {
+            return facet;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public boolean isSelected() {
+            return selected;
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package com.example.onlinecourse.service;
 
+import com.example.onlinecourse.cache.InvalidationBus;
+import com.example.onlinecourse.cache.InvalidationType;
+import com.example.onlinecourse.cache.SingleFlightLoader;
+import com.example.onlinecourse.dao.CascadeDeleteDAO;
 import com.example.onlinecourse.dao.StudentDAO;
 import com.example.onlinecourse.entity.Student;
 
@@ -10,12 +14,23 @@ import java.util.List;
  * Provides business operations on top of StudentDAO.
  */
 public class StudentService {
+    // Shared by all service instances so concurrent student lookups collapse into one load
+    private static final SingleFlightLoader<Long, Student> STUDENT_LOADER =
+            new SingleFlightLoader<>("student.lookup", id -> new StudentDAO().findById(id));
+
     private StudentDAO studentDAO;
 
     public StudentService() {
         this.studentDAO = new StudentDAO();
     }
 
+    /**
+     * Register the eviction run when another node changes a student.
+     */
+    public static void registerInvalidationHandlers() {
+        InvalidationBus.register(InvalidationType.STUDENT, STUDENT_LOADER::invalidate);
+    }
+
     /**
      * Register a new student.
      *
@@ -52,7 +67,7 @@ public class StudentService {
      * @return Student entity
      */
     public Student getStudentById(Long id) {
-        return studentDAO.findById(id);
+        return STUDENT_LOADER.get(id);
     }
 
     /**
@@ -81,7 +96,39 @@ public class StudentService {
      * @return Updated student
      */
     public Student updateStudent(Student student) {
-        return studentDAO.update(student);
+        try {
+            return studentDAO.update(student);
+        } finally {
+            STUDENT_LOADER.invalidate(student.getStudentId());
+            InvalidationBus.publish(InvalidationType.STUDENT, student.getStudentId());
+        }
+    }
+
+    /**
+     * Count the enrollments and payments that deleting a student removes.
+     *
+     * @param id Student ID
+     * @return Number of dependent rows
+     */
+    public long countDependents(Long id) {
+        return new CascadeDeleteDAO().countStudentDependents(id);
+    }
+
+    /**
+     * Queue the deletion of a student on the background deletion thread.
+     *
+     * @param student Student to delete
+     * @param estimatedRows Dependent rows, for progress reporting
+     * @return Deletion job
+     */
+    public DeletionJob deleteStudentInBackground(Student student, long estimatedRows) {
+        Long id = student.getStudentId();
+        return DeletionJobs.submit("Student " + student.getEmail(), estimatedRows,
+                progress -> new CascadeDeleteDAO().deleteStudent(id, progress),
+                () -> {
+                    STUDENT_LOADER.invalidate(id);
+                    InvalidationBus.publish(InvalidationType.STUDENT, id);
+                });
     }
 
     /**
@@ -90,7 +137,12 @@ public class StudentService {
      * @param id Student ID
      */
     public void deleteStudent(Long id) {
-        studentDAO.delete(id);
+        try {
+            studentDAO.delete(id);
+        } finally {
+            STUDENT_LOADER.invalidate(id);
+            InvalidationBus.publish(InvalidationType.STUDENT, id);
+        }
     }
 
     /**
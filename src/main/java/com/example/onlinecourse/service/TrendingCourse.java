@@ -0,0 +1,32 @@
+package com.example.onlinecourse.service;
+
+import com.example.onlinecourse.entity.Course;
+
+/**
+ * A trending course with its recent, exponentially decayed enrollment and view counts.
+ */
+public class TrendingCourse {
+    private final Course course;
+    private final TrendingCourses.Entry entry;
+
+    TrendingCourse(Course course, TrendingCourses.Entry entry) {
+        this.course = course;
+        this.entry = entry;
+    }
+
+    public Course getCourse() {
+        return course;
+    }
+
+    public long getRecentEnrollments() {
+        return Math.round(entry.getEnrollments());
+    }
+
+    public long getRecentViews() {
+        return Math.round(entry.getViews());
+    }
+
+    public long getScore() {
+        return Math.round(entry.getScore());
+    }
+}
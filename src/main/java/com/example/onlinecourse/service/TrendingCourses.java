@@ -0,0 +1,191 @@
+package com.example.onlinecourse.service;
+
+import com.example.onlinecourse.util.AppConfig;
+import com.example.onlinecourse.util.MetricsRegistry;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Exponentially decaying enrollment and view counters per course, for the
+ * "trending now" lists. An event's weight halves every trending.halfLifeMinutes.
+ *
+ * Counters use forward decay: an event at time t adds e^((t - landmark) / tau) to
+ * a DoubleAdder, and the decayed count at time now is the sum times
+ * e^(-(now - landmark) / tau). Recording is therefore a single lock-free add on
+ * a striped counter, with no read-modify-write of a shared score. The ranking is
+ * computed by refresh() (a scheduler job, every trending.refreshSeconds), which
+ * keeps the top trending.size courses in a heap, drops counters that decayed
+ * below trending.minScore and moves the landmark forward before the weights
+ * grow too large. Memory is bounded by trending.maxCourses counters.
+ *
+ * Counts are per node: views are those of the node's own requests, enrollments
+ * are those of the whole application, as every node receives every enrollment
+ * event once (OutboxFeed).
+ *
+ * Metrics: trending.refresh (time) and trending.dropped (events not counted because the map was full).
+ */
+public class TrendingCourses {
+    public static final String JOB_NAME = "trending-refresh";
+
+    private static final double TAU_MILLIS =
+            AppConfig.getLong("trending.halfLifeMinutes", 60) * 60_000.0 / Math.log(2);
+    // Weights are rebased once they reach e^20
+    private static final double REBASE_AFTER_MILLIS = 20 * TAU_MILLIS;
+
+    private static volatile Generation generation = new Generation(System.currentTimeMillis());
+    private static volatile List<Entry> ranking = List.of();
+
+    private TrendingCourses() {
+    }
+
+    /**
+     * Count an enrollment in a course.
+     *
+     * @param courseId Course ID
+     */
+    public static void enrollmentCreated(long courseId) {
+        Counter counter = counter(courseId);
+        if (counter != null) {
+            counter.enrollments.add(generation.weight(System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Count a view of a course's details page.
+     *
+     * @param courseId Course ID
+     */
+    public static void courseViewed(long courseId) {
+        Counter counter = counter(courseId);
+        if (counter != null) {
+            counter.views.add(generation.weight(System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Get the trending courses as of the last refresh.
+     *
+     * @return Entries, highest score first
+     */
+    public static List<Entry> getRanking() {
+        return ranking;
+    }
+
+    /**
+     * Recompute the ranking, drop faded counters and rebase the weights if due.
+     */
+    public static synchronized void refresh() {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        Generation current = generation;
+        double decay = 1 / current.weight(now);
+        double enrollmentWeight = AppConfig.getInt("trending.enrollmentWeight", 5);
+        double minScore = Double.parseDouble(AppConfig.get("trending.minScore", "0.05"));
+        int size = Math.max(1, AppConfig.getInt("trending.size", 10));
+
+        // Min-heap of the best entries so far
+        PriorityQueue<Entry> top = new PriorityQueue<>(size + 1, Comparator.comparingDouble(Entry::getScore));
+        for (Map.Entry<Long, Counter> counter : current.counters.entrySet()) {
+            double enrollments = counter.getValue().enrollments.sum() * decay;
+            double views = counter.getValue().views.sum() * decay;
+            double score = enrollments * enrollmentWeight + views;
+            if (score < minScore) {
+                current.counters.remove(counter.getKey());
+                continue;
+            }
+            top.add(new Entry(counter.getKey(), enrollments, views, score));
+            if (top.size() > size) {
+                top.poll();
+            }
+        }
+        List<Entry> sorted = new ArrayList<>(top);
+        sorted.sort(Comparator.comparingDouble(Entry::getScore).reversed());
+        ranking = List.copyOf(sorted);
+
+        if (now - current.landmark > REBASE_AFTER_MILLIS) {
+            // Events recorded on the old generation while it is copied are lost; that is a few counts
+            Generation rebased = new Generation(now);
+            for (Map.Entry<Long, Counter> counter : current.counters.entrySet()) {
+                Counter copy = new Counter();
+                copy.enrollments.add(counter.getValue().enrollments.sum() * decay);
+                copy.views.add(counter.getValue().views.sum() * decay);
+                rebased.counters.put(counter.getKey(), copy);
+            }
+            generation = rebased;
+        }
+        MetricsRegistry.recordTime("trending.refresh", System.nanoTime() - start);
+    }
+
+    private static Counter counter(long courseId) {
+        Generation current = generation;
+        Counter counter = current.counters.get(courseId);
+        if (counter == null) {
+            if (current.counters.size() >= AppConfig.getInt("trending.maxCourses", 5000)) {
+                MetricsRegistry.increment("trending.dropped");
+                return null;
+            }
+            counter = current.counters.computeIfAbsent(courseId, id -> new Counter());
+        }
+        return counter;
+    }
+
+    /**
+     * Counters sharing one landmark time.
+     */
+    private static final class Generation {
+        private final long landmark;
+        private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+
+        Generation(long landmark) {
+            this.landmark = landmark;
+        }
+
+        double weight(long time) {
+            return Math.exp((time - landmark) / TAU_MILLIS);
+        }
+    }
+
+    private static final class Counter {
+        private final DoubleAdder enrollments = new DoubleAdder();
+        private final DoubleAdder views = new DoubleAdder();
+    }
+
+    /**
+     * A course's decayed counts at the last refresh.
+     */
+    public static final class Entry {
+        private final long courseId;
+        private final double enrollments;
+        private final double views;
+        private final double score;
+
+        Entry(long courseId, double enrollments, double views, double score) {
+            this.courseId = courseId;
+            this.enrollments = enrollments;
+            this.views = views;
+            this.score = score;
+        }
+
+        public long getCourseId() {
+            return courseId;
+        }
+
+        public double getEnrollments() {
+            return enrollments;
+        }
+
+        public double getViews() {
+            return views;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.onlinecourse.session;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Position of a session in the course catalog: how its course list was loaded
+ * (search term or facet filters) and which course it has open. The list itself is not kept in the session; it is
+ * reloaded from the cursor.
+ */
+public final class CatalogCursor {
+    private final String searchTerm;
+    private final String loadedSearchTerm;
+    private final boolean availableOnly;
+    private final Long courseId;
+    private final Map<String, String> facetFilters;
+
+    public CatalogCursor(String searchTerm, String loadedSearchTerm, boolean availableOnly, Long courseId) {
+        this(searchTerm, loadedSearchTerm, availableOnly, courseId, Collections.emptyMap());
+    }
+
+    public CatalogCursor(String searchTerm, String loadedSearchTerm, boolean availableOnly, Long courseId,
+                         Map<String, String> facetFilters) {
+        this.searchTerm = searchTerm;
+        this.loadedSearchTerm = loadedSearchTerm;
+        this.availableOnly = availableOnly;
+        this.courseId = courseId;
+        this.facetFilters = Collections.unmodifiableMap(new LinkedHashMap<>(facetFilters));
+    }
+
+    public String getSearchTerm() {
+        return searchTerm;
+    }
+
+    public String getLoadedSearchTerm() {
+        return loadedSearchTerm;
+    }
+
+    public boolean isAvailableOnly() {
+        return availableOnly;
+    }
+
+    public Long getCourseId() {
+        return courseId;
+    }
+
+    /**
+     * Get the selected facet values.
+     *
+     * @return Value key per facet
+     */
+    public Map<String, String> getFacetFilters() {
+        return facetFilters;
+    }
+}
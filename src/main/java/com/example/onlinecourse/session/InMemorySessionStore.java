@@ -0,0 +1,61 @@
+package com.example.onlinecourse.session;
+
+import com.example.onlinecourse.util.MetricsRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Session store kept in the memory of this node.
+ * Stand-in for a shared store: it survives nothing and replicates nothing, but
+ * exercises the same encoding, change detection and restore path, so the
+ * replication metrics show what a shared store would receive.
+ */
+public class InMemorySessionStore implements SessionStore {
+    private static final long SWEEP_INTERVAL_MILLIS = 60_000;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile long lastSweep = System.currentTimeMillis();
+
+    public InMemorySessionStore() {
+        MetricsRegistry.gauge("session.store.entries", entries::size);
+    }
+
+    @Override
+    public void save(String key, byte[] data, int ttlSeconds) {
+        long now = System.currentTimeMillis();
+        entries.put(key, new Entry(data, now + ttlSeconds * 1000L));
+        if (now - lastSweep > SWEEP_INTERVAL_MILLIS) {
+            lastSweep = now;
+            entries.values().removeIf(entry -> entry.expiresAt < now);
+        }
+    }
+
+    @Override
+    public byte[] load(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.data;
+    }
+
+    @Override
+    public void remove(String key) {
+        entries.remove(key);
+    }
+
+    private static final class Entry {
+        private final byte[] data;
+        private final long expiresAt;
+
+        private Entry(byte[] data, long expiresAt) {
+            this.data = data;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.example.onlinecourse.session;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Protobuf encoding of replicated session state.
+ * Messages are written field by field with CodedOutputStream, so no generated
+ * classes are needed. Unknown fields are skipped when reading, which lets nodes
+ * running different versions share sessions during a rolling deployment.
+ *
+ * <pre>
+ * message StudentState {
+ *   int64 student_id = 1;
+ *   string first_name = 2;
+ *   string last_name = 3;
+ *   string email = 4;
+ *   bool admin = 5;
+ *   repeated int64 enrolled_course_ids = 6 [packed = true];
+ *   bool enrollments_loaded = 7;
+ *   int64 last_write_millis = 8;  // read-your-writes token
+ * }
+ * message CatalogCursor {
+ *   string search_term = 1;
+ *   string loaded_search_term = 2;
+ *   bool available_only = 3;
+ *   int64 course_id = 4;
+ *   repeated FacetFilter facet_filters = 5;  // FacetFilter { string facet = 1; string value = 2; }
+ * }
+ * message SessionSnapshot {
+ *   repeated Attribute attributes = 1;  // Attribute { string name = 1; bytes value = 2; }
+ * }
+ * </pre>
+ */
+public class SessionStateCodec {
+
+    private SessionStateCodec() {
+    }
+
+    /**
+     * Encode the state of a student session.
+     *
+     * @param principal Logged-in student, or null
+     * @param enrolledCourseIds IDs of the active enrollments, or null if not loaded
+     * @param lastWriteMillis Time of the student's last write, 0 if none
+     * @return Encoded StudentState
+     */
+    public static byte[] encodeStudentState(StudentPrincipal principal, long[] enrolledCourseIds,
+                                            long lastWriteMillis) {
+        return encode(out -> {
+            if (principal != null) {
+                if (principal.getStudentId() != null) {
+                    out.writeInt64(1, principal.getStudentId());
+                }
+                writeString(out, 2, principal.getFirstName());
+                writeString(out, 3, principal.getLastName());
+                writeString(out, 4, principal.getEmail());
+                if (principal.isAdmin()) {
+                    out.writeBool(5, true);
+                }
+            }
+            if (enrolledCourseIds != null) {
+                if (enrolledCourseIds.length > 0) {
+                    int size = 0;
+                    for (long id : enrolledCourseIds) {
+                        size += CodedOutputStream.computeInt64SizeNoTag(id);
+                    }
+                    out.writeTag(6, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                    out.writeUInt32NoTag(size);
+                    for (long id : enrolledCourseIds) {
+                        out.writeInt64NoTag(id);
+                    }
+                }
+                out.writeBool(7, true);
+            }
+            if (lastWriteMillis != 0) {
+                out.writeInt64(8, lastWriteMillis);
+            }
+        });
+    }
+
+    /**
+     * Decode the state of a student session.
+     *
+     * @param data Encoded StudentState
+     * @return Decoded state
+     */
+    public static StudentState decodeStudentState(byte[] data) throws IOException {
+        CodedInputStream in = CodedInputStream.newInstance(data);
+        Long studentId = null;
+        String firstName = null;
+        String lastName = null;
+        String email = null;
+        boolean admin = false;
+        long[] ids = new long[8];
+        int idCount = 0;
+        boolean enrollmentsLoaded = false;
+        long lastWriteMillis = 0;
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (tag) {
+                case 8:
+                    studentId = in.readInt64();
+                    break;
+                case 18:
+                    firstName = in.readString();
+                    break;
+                case 26:
+                    lastName = in.readString();
+                    break;
+                case 34:
+                    email = in.readString();
+                    break;
+                case 40:
+                    admin = in.readBool();
+                    break;
+                case 48:
+                    ids = grow(ids, idCount);
+                    ids[idCount++] = in.readInt64();
+                    break;
+                case 50:
+                    int limit = in.pushLimit(in.readRawVarint32());
+                    while (in.getBytesUntilLimit() > 0) {
+                        ids = grow(ids, idCount);
+                        ids[idCount++] = in.readInt64();
+                    }
+                    in.popLimit(limit);
+                    break;
+                case 56:
+                    enrollmentsLoaded = in.readBool();
+                    break;
+                case 64:
+                    lastWriteMillis = in.readInt64();
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        StudentPrincipal principal = studentId == null ? null
+                : new StudentPrincipal(studentId, firstName, lastName, email, admin);
+        long[] enrolledCourseIds = null;
+        if (enrollmentsLoaded) {
+            enrolledCourseIds = new long[idCount];
+            System.arraycopy(ids, 0, enrolledCourseIds, 0, idCount);
+        }
+        return new StudentState(principal, enrolledCourseIds, lastWriteMillis);
+    }
+
+    /**
+     * Encode a catalog cursor.
+     *
+     * @param cursor Cursor
+     * @return Encoded CatalogCursor
+     */
+    public static byte[] encodeCatalogCursor(CatalogCursor cursor) {
+        return encode(out -> {
+            writeString(out, 1, cursor.getSearchTerm());
+            writeString(out, 2, cursor.getLoadedSearchTerm());
+            if (cursor.isAvailableOnly()) {
+                out.writeBool(3, true);
+            }
+            if (cursor.getCourseId() != null) {
+                out.writeInt64(4, cursor.getCourseId());
+            }
+            for (Map.Entry<String, String> filter : cursor.getFacetFilters().entrySet()) {
+                int size = CodedOutputStream.computeStringSize(1, filter.getKey())
+                        + CodedOutputStream.computeStringSize(2, filter.getValue());
+                out.writeTag(5, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                out.writeUInt32NoTag(size);
+                out.writeString(1, filter.getKey());
+                out.writeString(2, filter.getValue());
+            }
+        });
+    }
+
+    /**
+     * Decode a catalog cursor.
+     *
+     * @param data Encoded CatalogCursor
+     * @return Cursor
+     */
+    public static CatalogCursor decodeCatalogCursor(byte[] data) throws IOException {
+        CodedInputStream in = CodedInputStream.newInstance(data);
+        String searchTerm = null;
+        String loadedSearchTerm = null;
+        boolean availableOnly = false;
+        Long courseId = null;
+        Map<String, String> facetFilters = new LinkedHashMap<>();
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (tag) {
+                case 10:
+                    searchTerm = in.readString();
+                    break;
+                case 18:
+                    loadedSearchTerm = in.readString();
+                    break;
+                case 24:
+                    availableOnly = in.readBool();
+                    break;
+                case 32:
+                    courseId = in.readInt64();
+                    break;
+                case 42:
+                    int limit = in.pushLimit(in.readRawVarint32());
+                    String facet = null;
+                    String value = null;
+                    int fieldTag;
+                    while ((fieldTag = in.readTag()) != 0) {
+                        if (fieldTag == 10) {
+                            facet = in.readString();
+                        } else if (fieldTag == 18) {
+                            value = in.readString();
+                        } else {
+                            in.skipField(fieldTag);
+                        }
+                    }
+                    in.popLimit(limit);
+                    if (facet != null && value != null) {
+                        facetFilters.put(facet, value);
+                    }
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        return new CatalogCursor(searchTerm, loadedSearchTerm, availableOnly, courseId, facetFilters);
+    }
+
+    /**
+     * Encode serialized session attributes as one snapshot.
+     *
+     * @param attributes Attribute names and their serialized values
+     * @return Encoded SessionSnapshot
+     */
+    public static byte[] encodeSnapshot(Map<String, byte[]> attributes) {
+        return encode(out -> {
+            for (Map.Entry<String, byte[]> attribute : attributes.entrySet()) {
+                int size = CodedOutputStream.computeStringSize(1, attribute.getKey())
+                        + CodedOutputStream.computeByteArraySize(2, attribute.getValue());
+                out.writeTag(1, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                out.writeUInt32NoTag(size);
+                out.writeString(1, attribute.getKey());
+                out.writeByteArray(2, attribute.getValue());
+            }
+        });
+    }
+
+    /**
+     * Decode a session snapshot.
+     *
+     * @param data Encoded SessionSnapshot
+     * @return Attribute names and their serialized values, in stored order
+     */
+    public static Map<String, byte[]> decodeSnapshot(byte[] data) throws IOException {
+        CodedInputStream in = CodedInputStream.newInstance(data);
+        Map<String, byte[]> attributes = new LinkedHashMap<>();
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            if (tag != 10) {
+                in.skipField(tag);
+                continue;
+            }
+            int limit = in.pushLimit(in.readRawVarint32());
+            String name = null;
+            byte[] value = null;
+            int fieldTag;
+            while ((fieldTag = in.readTag()) != 0) {
+                if (fieldTag == 10) {
+                    name = in.readString();
+                } else if (fieldTag == 18) {
+                    value = in.readByteArray();
+                } else {
+                    in.skipField(fieldTag);
+                }
+            }
+            in.popLimit(limit);
+            if (name != null && value != null) {
+                attributes.put(name, value);
+            }
+        }
+        return attributes;
+    }
+
+    /**
+     * Write encoded state as the body of a bean's writeObject.
+     *
+     * @param out Object stream
+     * @param data Encoded state
+     */
+    public static void writeBlock(ObjectOutputStream out, byte[] data) throws IOException {
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    /**
+     * Read encoded state written by writeBlock.
+     *
+     * @param in Object stream
+     * @return Encoded state
+     */
+    public static byte[] readBlock(ObjectInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > 1 << 20) {
+            throw new InvalidObjectException("Invalid session state length: " + length);
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        return data;
+    }
+
+    private static byte[] encode(MessageWriter writer) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+            writer.write(out);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeString(CodedOutputStream out, int field, String value) throws IOException {
+        if (value != null) {
+            out.writeString(field, value);
+        }
+    }
+
+    private static long[] grow(long[] values, int count) {
+        if (count < values.length) {
+            return values;
+        }
+        long[] grown = new long[values.length * 2];
+        System.arraycopy(values, 0, grown, 0, count);
+        return grown;
+    }
+
+    @FunctionalInterface
+    private interface MessageWriter {
+        void write(CodedOutputStream out) throws IOException;
+    }
+
+    /**
+     * Decoded StudentState.
+     */
+    public static final class StudentState {
+        private final StudentPrincipal principal;
+        private final long[] enrolledCourseIds;
+        private final long lastWriteMillis;
+
+        private StudentState(StudentPrincipal principal, long[] enrolledCourseIds, long lastWriteMillis) {
+            this.principal = principal;
+            this.enrolledCourseIds = enrolledCourseIds;
+            this.lastWriteMillis = lastWriteMillis;
+        }
+
+        public StudentPrincipal getPrincipal() {
+            return principal;
+        }
+
+        /**
+         * @return IDs of the active enrollments, or null if they were not loaded
+         */
+        public long[] getEnrolledCourseIds() {
+            return enrolledCourseIds;
+        }
+
+        /**
+         * @return Time of the student's last write, 0 if none
+         */
+        public long getLastWriteMillis() {
+            return lastWriteMillis;
+        }
+    }
+}
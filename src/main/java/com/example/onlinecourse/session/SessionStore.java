@@ -0,0 +1,33 @@
+package com.example.onlinecourse.session;
+
+/**
+ * Storage shared by the cluster nodes for replicated sessions.
+ * Implementations must be thread-safe and are selected with session.store.class;
+ * they need a public no-argument constructor.
+ */
+public interface SessionStore {
+
+    /**
+     * Store the snapshot of a session, replacing the previous one.
+     *
+     * @param key Replication key of the session
+     * @param data Encoded session snapshot
+     * @param ttlSeconds Time after which the snapshot may be discarded
+     */
+    void save(String key, byte[] data, int ttlSeconds);
+
+    /**
+     * Load the snapshot of a session.
+     *
+     * @param key Replication key of the session
+     * @return Encoded session snapshot, or null if none is stored
+     */
+    byte[] load(String key);
+
+    /**
+     * Remove the snapshot of a session.
+     *
+     * @param key Replication key of the session
+     */
+    void remove(String key);
+}
@@ -0,0 +1,86 @@
+package com.example.onlinecourse.session;
+
+import com.example.onlinecourse.entity.Student;
+
+import java.io.Serializable;
+
+/**
+ * Identity of the logged-in student as kept in the session.
+ * Holds only what the pages and access checks need; the full entity (password,
+ * enrollments, payments) is loaded through StudentService when required.
+ */
+public final class StudentPrincipal implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final String ADMIN_EMAIL = "admin@course.com";
+
+    private final Long studentId;
+    private final String firstName;
+    private final String lastName;
+    private final String email;
+    private final boolean admin;
+
+    public StudentPrincipal(Long studentId, String firstName, String lastName, String email, boolean admin) {
+        this.studentId = studentId;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.email = email;
+        this.admin = admin;
+    }
+
+    /**
+     * Create the principal of a student.
+     *
+     * @param student Student entity
+     * @return Principal
+     */
+    public static StudentPrincipal of(Student student) {
+        return new StudentPrincipal(student.getStudentId(), student.getFirstName(), student.getLastName(),
+                student.getEmail(), isAdminEmail(student.getEmail()));
+    }
+
+    /**
+     * Check whether an email belongs to the administrator.
+     *
+     * @param email Email address
+     * @return true for the admin account
+     */
+    public static boolean isAdminEmail(String email) {
+        return ADMIN_EMAIL.equalsIgnoreCase(email);
+    }
+
+    /**
+     * Create a detached Student carrying only the identity fields.
+     * Sufficient as the student reference of a new enrollment or payment and for
+     * display; not suitable for updating the student.
+     *
+     * @return Student reference
+     */
+    public Student toStudentReference() {
+        Student student = new Student();
+        student.setStudentId(studentId);
+        student.setFirstName(firstName);
+        student.setLastName(lastName);
+        student.setEmail(email);
+        return student;
+    }
+
+    public Long getStudentId() {
+        return studentId;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public boolean isAdmin() {
+        return admin;
+    }
+}
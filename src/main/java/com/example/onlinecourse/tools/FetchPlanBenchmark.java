@@ -0,0 +1,86 @@
+package com.example.onlinecourse.tools;
+
+import com.example.onlinecourse.dao.EnrollmentDAO;
+import com.example.onlinecourse.dao.FetchPlan;
+import com.example.onlinecourse.dao.PaymentDAO;
+import com.example.onlinecourse.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the cost of each FetchPlan on the student-keyed finders.
+ * For every plan it reports the entities hydrated (Hibernate statistics), the bytes
+ * the MySQL server sent (global Bytes_sent delta) and the average time per call.
+ * Run against a quiet, seeded database:
+ * {@code FetchPlanBenchmark <studentId> [iterations]}
+ */
+public class FetchPlanBenchmark {
+
+    public static void main(String[] args) {
+        Long studentId = args.length > 0 ? Long.valueOf(args[0]) : 1L;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        SessionFactory sessionFactory = HibernateUtil.getSessionFactory();
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.setStatisticsEnabled(true);
+        EnrollmentDAO enrollmentDAO = new EnrollmentDAO();
+        PaymentDAO paymentDAO = new PaymentDAO();
+
+        try {
+            System.out.printf("%-12s %-28s %14s %14s %12s%n",
+                    "plan", "query", "entities/call", "bytes/call", "micros/call");
+            for (FetchPlan plan : FetchPlan.values()) {
+                // Warm up so statement preparation is not measured
+                enrollmentDAO.findByStudentId(studentId, plan);
+                paymentDAO.findByStudentId(studentId, plan);
+
+                report(sessionFactory, statistics, plan, "Enrollment.findByStudentId", iterations,
+                        () -> enrollmentDAO.findByStudentId(studentId, plan));
+                report(sessionFactory, statistics, plan, "Payment.findByStudentId", iterations,
+                        () -> paymentDAO.findByStudentId(studentId, plan));
+            }
+            report(sessionFactory, statistics, null, "Enrollment.existsActive", iterations,
+                    () -> enrollmentDAO.existsActiveEnrollment(studentId, 1L));
+        } finally {
+            HibernateUtil.shutdown();
+        }
+    }
+
+    private static void report(SessionFactory sessionFactory, Statistics statistics, FetchPlan plan,
+                               String name, int iterations, Runnable call) {
+        statistics.clear();
+        long bytesBefore = bytesSent(sessionFactory);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            call.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytes = bytesSent(sessionFactory) - bytesBefore;
+        System.out.printf("%-12s %-28s %14.1f %14.1f %12.1f%n",
+                plan != null ? plan.name() : "EXISTS", name,
+                (double) statistics.getEntityLoadCount() / iterations,
+                (double) bytes / iterations,
+                elapsed / 1000.0 / iterations);
+    }
+
+    private static long bytesSent(SessionFactory sessionFactory) {
+        AtomicLong bytes = new AtomicLong();
+        try (Session session = sessionFactory.openSession()) {
+            session.doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "SHOW GLOBAL STATUS LIKE 'Bytes_sent'");
+                     ResultSet rs = statement.executeQuery()) {
+                    if (rs.next()) {
+                        bytes.set(rs.getLong(2));
+                    }
+                }
+            });
+        }
+        return bytes.get();
+    }
+}
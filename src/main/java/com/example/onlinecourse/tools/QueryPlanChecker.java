@@ -0,0 +1,160 @@
+package com.example.onlinecourse.tools;
+
+import com.example.onlinecourse.dao.CourseDAO;
+import com.example.onlinecourse.dao.EnrollmentDAO;
+import com.example.onlinecourse.dao.FetchPlan;
+import com.example.onlinecourse.dao.PaymentDAO;
+import com.example.onlinecourse.dao.StudentDAO;
+import com.example.onlinecourse.util.HibernateUtil;
+import org.hibernate.Session;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Plan regression check for the DAO queries.
+ * Calls the query methods of CourseDAO, StudentDAO, EnrollmentDAO and PaymentDAO
+ * against a seeded database, records the SELECT statements they actually issue
+ * (SQL and bound parameters, see RecordingConnectionProvider), runs EXPLAIN for
+ * each of them and exits with status 1 when any falls back to a full table scan
+ * (access type ALL).
+ *
+ * Only keyed lookups are checked. The course search (LIKE '%term%'), the
+ * available-course listing (a column comparison, enrolledCount < capacity) and the
+ * findAll listings read the whole table by design; their plans are printed but
+ * not checked.
+ *
+ * Run with {@code mvn -q compile exec:java -Dexec.mainClass=com.example.onlinecourse.tools.QueryPlanChecker}.
+ */
+public class QueryPlanChecker {
+    private static final long ID = 1L;
+    private static final String EMAIL = "alice.johnson@email.com";
+
+    private static final Map<String, Runnable> CHECKED = new LinkedHashMap<>();
+    private static final Map<String, Runnable> REPORTED = new LinkedHashMap<>();
+
+    static {
+        CHECKED.put("CourseDAO.findById", () -> new CourseDAO().findById(ID));
+        CHECKED.put("StudentDAO.findByEmail", () -> new StudentDAO().findByEmail(EMAIL));
+        CHECKED.put("StudentDAO.emailExists", () -> new StudentDAO().emailExists(EMAIL));
+        CHECKED.put("StudentDAO.findIdsByEmails", () -> new StudentDAO().findIdsByEmails(List.of(EMAIL)));
+        CHECKED.put("EnrollmentDAO.findById", () -> new EnrollmentDAO().findById(ID));
+        CHECKED.put("EnrollmentDAO.findByStudentId",
+                () -> new EnrollmentDAO().findByStudentId(ID, FetchPlan.WITH_COURSE, true));
+        CHECKED.put("EnrollmentDAO.findByCourseId", () -> new EnrollmentDAO().findByCourseId(ID));
+        CHECKED.put("EnrollmentDAO.findByStudentAndCourse", () -> new EnrollmentDAO().findByStudentAndCourse(ID, ID));
+        CHECKED.put("EnrollmentDAO.countActiveByCourseId", () -> new EnrollmentDAO().countActiveByCourseId(ID));
+        CHECKED.put("EnrollmentDAO.existsActiveEnrollment", () -> new EnrollmentDAO().existsActiveEnrollment(ID, ID));
+        CHECKED.put("EnrollmentDAO.findActiveCourseIdsByStudentId",
+                () -> new EnrollmentDAO().findActiveCourseIdsByStudentId(ID));
+        CHECKED.put("PaymentDAO.findById", () -> new PaymentDAO().findById(ID));
+        CHECKED.put("PaymentDAO.findByStudentId",
+                () -> new PaymentDAO().findByStudentId(ID, FetchPlan.WITH_COURSE, true));
+        CHECKED.put("PaymentDAO.findByCourseId", () -> new PaymentDAO().findByCourseId(ID));
+        REPORTED.put("CourseDAO.searchCourses", () -> new CourseDAO().searchCourses("Java"));
+        REPORTED.put("CourseDAO.findAll", () -> new CourseDAO().findAll());
+        REPORTED.put("CourseDAO.findAvailableCourses", () -> new CourseDAO().findAvailableCourses());
+        REPORTED.put("EnrollmentDAO.findAll", () -> new EnrollmentDAO().findAll());
+        REPORTED.put("PaymentDAO.findAll", () -> new PaymentDAO().findAll());
+    }
+
+    public static void main(String[] args) {
+        // Must be set before the first SessionFactory is built
+        System.setProperty("hibernate.connection.provider_class", RecordingConnectionProvider.class.getName());
+        List<String> failures = new ArrayList<>();
+        try {
+            Map<String, List<RecordingConnectionProvider.Recorded>> issued = new LinkedHashMap<>();
+            Set<String> checked = new LinkedHashSet<>();
+            for (Map<String, Runnable> queries : List.of(CHECKED, REPORTED)) {
+                for (Map.Entry<String, Runnable> query : queries.entrySet()) {
+                    RecordingConnectionProvider.drain();
+                    try {
+                        query.getValue().run();
+                    } catch (RuntimeException e) {
+                        failures.add("FAILED: " + query.getKey() + ": " + e.getMessage());
+                        continue;
+                    }
+                    issued.put(query.getKey(), selects(RecordingConnectionProvider.drain()));
+                    if (queries == CHECKED) {
+                        checked.add(query.getKey());
+                    }
+                }
+            }
+            try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+                session.doWork(connection -> {
+                    for (Map.Entry<String, List<RecordingConnectionProvider.Recorded>> entry : issued.entrySet()) {
+                        for (RecordingConnectionProvider.Recorded statement : entry.getValue()) {
+                            List<String> scans = explain(connection, entry.getKey(), statement);
+                            if (checked.contains(entry.getKey())) {
+                                failures.addAll(scans);
+                            }
+                        }
+                    }
+                });
+            }
+        } finally {
+            HibernateUtil.shutdown();
+        }
+
+        if (failures.isEmpty()) {
+            System.out.println("All " + CHECKED.size() + " checked DAO queries use an index.");
+        } else {
+            failures.forEach(System.err::println);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Keep the SELECT statements, once per distinct SQL.
+     */
+    private static List<RecordingConnectionProvider.Recorded> selects(
+            List<RecordingConnectionProvider.Recorded> statements) {
+        List<RecordingConnectionProvider.Recorded> selects = new ArrayList<>();
+        Set<String> seen = new LinkedHashSet<>();
+        for (RecordingConnectionProvider.Recorded statement : statements) {
+            String sql = statement.getSql().trim();
+            if (sql.regionMatches(true, 0, "select", 0, 6) && seen.add(sql)) {
+                selects.add(statement);
+            }
+        }
+        return selects;
+    }
+
+    /**
+     * Run EXPLAIN for one issued statement and report every table accessed with type ALL.
+     *
+     * @param connection JDBC connection
+     * @param name Query name for reporting
+     * @param statement Statement as issued by the DAO
+     * @return Failure descriptions (empty if the plan is indexed)
+     */
+    private static List<String> explain(Connection connection, String name,
+                                        RecordingConnectionProvider.Recorded statement) throws SQLException {
+        List<String> failures = new ArrayList<>();
+        try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + statement.getSql())) {
+            for (Map.Entry<Integer, Object> parameter : statement.getParameters().entrySet()) {
+                explain.setObject(parameter.getKey(), parameter.getValue());
+            }
+            try (ResultSet rs = explain.executeQuery()) {
+                while (rs.next()) {
+                    String table = rs.getString("table");
+                    String type = rs.getString("type");
+                    String key = rs.getString("key");
+                    System.out.println(name + " -> table=" + table + " type=" + type + " key=" + key);
+                    if ("ALL".equalsIgnoreCase(type)) {
+                        failures.add("FULL SCAN: " + name + " scans table " + table);
+                    }
+                }
+            }
+        }
+        return failures;
+    }
+}
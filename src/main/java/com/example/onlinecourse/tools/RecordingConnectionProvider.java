@@ -0,0 +1,119 @@
+package com.example.onlinecourse.tools;
+
+import org.hibernate.engine.jdbc.connections.internal.DriverManagerConnectionProviderImpl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hibernate connection provider for the diagnostic tools that records every
+ * prepared statement the DAOs issue, with its SQL and bound parameters, so the
+ * statements can be replayed (for example under EXPLAIN) exactly as they were sent.
+ * Connections come from Hibernate's built-in pool, as without the tool.
+ *
+ * Enabled by setting the system property hibernate.connection.provider_class to
+ * this class before the first SessionFactory is built.
+ */
+public class RecordingConnectionProvider extends DriverManagerConnectionProviderImpl {
+    private static final List<Recorded> recorded = new ArrayList<>();
+
+    /**
+     * Take the statements prepared since the last call.
+     *
+     * @return Statements in the order they were prepared
+     */
+    public static synchronized List<Recorded> drain() {
+        List<Recorded> statements = new ArrayList<>(recorded);
+        recorded.clear();
+        return statements;
+    }
+
+    private static synchronized void record(Recorded statement) {
+        recorded.add(statement);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = super.getConnection();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    @Override
+    public void closeConnection(Connection connection) throws SQLException {
+        if (Proxy.isProxyClass(connection.getClass())
+                && Proxy.getInvocationHandler(connection) instanceof ConnectionHandler) {
+            connection = ((ConnectionHandler) Proxy.getInvocationHandler(connection)).connection;
+        }
+        super.closeConnection(connection);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * A prepared statement as issued: its SQL and the parameter values bound last.
+     */
+    public static final class Recorded {
+        private final String sql;
+        private final Map<Integer, Object> parameters = new TreeMap<>();
+
+        private Recorded(String sql) {
+            this.sql = sql;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * @return Bound values by 1-based parameter index
+         */
+        public Map<Integer, Object> getParameters() {
+            return parameters;
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        private ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = RecordingConnectionProvider.invoke(connection, method, args);
+            if ("prepareStatement".equals(method.getName()) && result instanceof PreparedStatement) {
+                Recorded statement = new Recorded((String) args[0]);
+                record(statement);
+                PreparedStatement target = (PreparedStatement) result;
+                return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                        new Class<?>[]{PreparedStatement.class}, (p, m, a) -> {
+                            // setString(int, String), setDate(int, Date, Calendar), setNull(int, int), ...
+                            if (m.getName().startsWith("set") && a != null && a.length >= 2
+                                    && a[0] instanceof Integer) {
+                                statement.parameters.put((Integer) a[0],
+                                        "setNull".equals(m.getName()) ? null : a[1]);
+                            }
+                            return RecordingConnectionProvider.invoke(target, m, a);
+                        });
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.onlinecourse.tools;
+
+import com.example.onlinecourse.dao.BulkEnrollmentResult;
+import com.example.onlinecourse.dao.CourseDAO;
+import com.example.onlinecourse.dao.EnrollmentDAO;
+import com.example.onlinecourse.dao.FetchPlan;
+import com.example.onlinecourse.dao.ShardRouter;
+import com.example.onlinecourse.dao.StudentDAO;
+import com.example.onlinecourse.entity.Course;
+import com.example.onlinecourse.entity.Enrollment;
+import com.example.onlinecourse.entity.Student;
+import com.example.onlinecourse.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * End-to-end check of the sharded write and read paths against the databases in
+ * db.shard.urls (at least two). Registers students until two shards are covered,
+ * creates a course, enrolls one student singly and the others as a cohort, renames
+ * the course, and checks that:
+ * - every shard holds the student and course rows after they are saved,
+ * - each enrollment lands on its student's shard,
+ * - reads with FetchPlan.WITH_COURSE see the renamed course,
+ * - deleting the students and the course removes the shard copies.
+ * The students and the course are deleted again at the end. Exits with status 1
+ * when a check fails.
+ *
+ * Run with {@code mvn -q compile exec:java -Dexec.mainClass=com.example.onlinecourse.tools.ShardCheck}.
+ */
+public class ShardCheck {
+    private static final int MAX_STUDENTS = 16;
+
+    public static void main(String[] args) {
+        List<String> failures = new ArrayList<>();
+        StudentDAO studentDAO = new StudentDAO();
+        CourseDAO courseDAO = new CourseDAO();
+        EnrollmentDAO enrollmentDAO = new EnrollmentDAO();
+        List<Student> students = new ArrayList<>();
+        Course course = null;
+        try {
+            List<SessionFactory> shards = HibernateUtil.getShardSessionFactories();
+            if (!ShardRouter.isSharded()) {
+                System.err.println("ShardCheck needs at least two shards in db.shard.urls");
+                System.exit(2);
+            }
+
+            long run = System.currentTimeMillis();
+            List<SessionFactory> covered = new ArrayList<>();
+            while (covered.size() < 2 && students.size() < MAX_STUDENTS) {
+                Student student = studentDAO.save(new Student("Shard", "Check",
+                        "shard-check-" + run + "-" + students.size() + "@example.com", "Check123!"));
+                students.add(student);
+                SessionFactory shard = ShardRouter.forStudent(student.getStudentId());
+                if (!covered.contains(shard)) {
+                    covered.add(shard);
+                }
+            }
+            if (covered.size() < 2) {
+                failures.add("No two of " + MAX_STUDENTS + " new students map to different shards");
+            }
+
+            course = new Course("Shard check " + run, "Created by ShardCheck", "ShardCheck",
+                    Date.valueOf(LocalDate.now()), Date.valueOf(LocalDate.now().plusDays(30)), BigDecimal.ONE);
+            course.setCapacity(MAX_STUDENTS);
+            course = courseDAO.save(course);
+
+            for (SessionFactory shard : shards) {
+                for (Student student : students) {
+                    if (count(shard, "Student", "studentId", student.getStudentId()) != 1) {
+                        failures.add("Student " + student.getStudentId() + " missing on shard " + shards.indexOf(shard));
+                    }
+                }
+                if (count(shard, "Course", "courseId", course.getCourseId()) != 1) {
+                    failures.add("Course " + course.getCourseId() + " missing on shard " + shards.indexOf(shard));
+                }
+            }
+
+            Student first = students.get(0);
+            enrollmentDAO.save(new Enrollment(first, course));
+            List<Long> cohort = new ArrayList<>();
+            for (Student student : students.subList(1, students.size())) {
+                cohort.add(student.getStudentId());
+            }
+            if (!cohort.isEmpty()) {
+                BulkEnrollmentResult result = enrollmentDAO.enrollCohort(course.getCourseId(), cohort, false);
+                for (Map.Entry<Long, BulkEnrollmentResult.Outcome> entry : result.getOutcomes().entrySet()) {
+                    if (entry.getValue() != BulkEnrollmentResult.Outcome.ENROLLED) {
+                        failures.add("Cohort enrollment of student " + entry.getKey() + ": " + entry.getValue());
+                    }
+                }
+            }
+            for (Student student : students) {
+                for (SessionFactory shard : shards) {
+                    long rows = count(shard, "Enrollment", "student.studentId", student.getStudentId());
+                    long expected = shard == ShardRouter.forStudent(student.getStudentId()) ? 1 : 0;
+                    if (rows != expected) {
+                        failures.add("Student " + student.getStudentId() + " has " + rows
+                                + " enrollments on shard " + shards.indexOf(shard) + ", expected " + expected);
+                    }
+                }
+            }
+
+            Course renamed = new Course(course);
+            renamed.setCourseName(course.getCourseName() + " (renamed)");
+            courseDAO.update(renamed);
+            for (Student student : students) {
+                List<Enrollment> enrollments = enrollmentDAO.findByStudentId(student.getStudentId(), FetchPlan.WITH_COURSE);
+                if (enrollments.size() != 1
+                        || !renamed.getCourseName().equals(enrollments.get(0).getCourse().getCourseName())) {
+                    failures.add("Student " + student.getStudentId() + " does not read the renamed course");
+                }
+            }
+        } catch (RuntimeException e) {
+            failures.add("FAILED: " + e.getMessage());
+        } finally {
+            try {
+                for (Student student : students) {
+                    studentDAO.delete(student.getStudentId());
+                }
+                if (course != null) {
+                    courseDAO.delete(course.getCourseId());
+                }
+                for (SessionFactory shard : HibernateUtil.getShardSessionFactories()) {
+                    for (Student student : students) {
+                        if (count(shard, "Student", "studentId", student.getStudentId()) != 0) {
+                            failures.add("Student " + student.getStudentId() + " left on a shard after delete");
+                        }
+                    }
+                    if (course != null && count(shard, "Course", "courseId", course.getCourseId()) != 0) {
+                        failures.add("Course " + course.getCourseId() + " left on a shard after delete");
+                    }
+                }
+            } catch (RuntimeException e) {
+                failures.add("Cleanup failed: " + e.getMessage());
+            }
+            HibernateUtil.shutdown();
+        }
+
+        if (failures.isEmpty()) {
+            System.out.println("Shard check passed with " + students.size() + " students.");
+        } else {
+            failures.forEach(System.err::println);
+            System.exit(1);
+        }
+    }
+
+    private static long count(SessionFactory shard, String entity, String property, Long id) {
+        Session session = shard.openSession();
+        try {
+            return session.createQuery("SELECT COUNT(*) FROM " + entity + " x WHERE x." + property + " = :id", Long.class)
+                    .setParameter("id", id)
+                    .uniqueResult();
+        } finally {
+            session.close();
+        }
+    }
+}
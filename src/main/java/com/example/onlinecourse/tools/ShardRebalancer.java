@@ -0,0 +1,327 @@
+package com.example.onlinecourse.tools;
+
+import com.example.onlinecourse.dao.ShardMap;
+import com.example.onlinecourse.util.AppConfig;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Moves enrollments and payments, archived ones included, after the shard list changes.
+ * Takes the previous shard URLs as --from=url1,url2 and the new ones from
+ * db.shard.urls, and moves the rows of every student whose shard changed, one
+ * table at a time, in two passes:
+ * 1. Copy: the student's rows are inserted on the new shard (INSERT IGNORE, IDs
+ *    preserved) in one transaction, then read back by primary key. Only rows
+ *    found there with the same values count as copied.
+ * 2. Delete: exactly the copied rows are deleted from the old shard, in one transaction.
+ * The student's row and the course rows its rows reference are copied to the new
+ * shard first (INSERT IGNORE), as the foreign keys there require them.
+ * A row whose ID is taken on the new shard by a different row is never deleted; it
+ * is reported and the tool exits with status 1. Either pass can fail at any point
+ * and re-running picks up where the failed run stopped, as rows already copied
+ * are skipped by the insert and still verified.
+ *
+ * Run with the application stopped or in read-only mode: rows written to the old
+ * shard while a student is being moved are not picked up until the next run.
+ */
+public class ShardRebalancer {
+
+    private static final String[] TABLES = {"enrollments", "payments", "enrollments_archive", "payments_archive"};
+    private static final int CHUNK_SIZE = 500;
+
+    public static void main(String[] args) throws SQLException {
+        List<String> fromUrls = null;
+        for (String arg : args) {
+            if (arg.startsWith("--from=")) {
+                fromUrls = parseUrls(arg.substring("--from=".length()));
+            }
+        }
+        List<String> toUrls = parseUrls(AppConfig.get("db.shard.urls", ""));
+        if (fromUrls == null || fromUrls.isEmpty() || toUrls.isEmpty()) {
+            System.err.println("Usage: ShardRebalancer --from=<previous db.shard.urls>"
+                    + " (new shards are read from db.shard.urls)");
+            System.exit(2);
+        }
+
+        int virtualNodes = AppConfig.getInt("db.shard.virtualNodes", 64);
+        ShardMap newMap = new ShardMap(toUrls.size(), virtualNodes);
+        String username = AppConfig.get("db.shard.username", "");
+        String password = AppConfig.get("db.shard.password", "");
+
+        List<Connection> targets = new ArrayList<>();
+        try {
+            for (String url : toUrls) {
+                targets.add(DriverManager.getConnection(url, username, password));
+            }
+            long movedStudents = 0;
+            long leftBehind = 0;
+            for (String fromUrl : fromUrls) {
+                try (Connection source = DriverManager.getConnection(fromUrl, username, password)) {
+                    for (Long studentId : studentIds(source)) {
+                        int owner = newMap.shardFor(studentId);
+                        if (toUrls.get(owner).equals(fromUrl)) {
+                            continue;
+                        }
+                        copyReferences(source, targets.get(owner), studentId);
+                        for (String table : TABLES) {
+                            leftBehind += moveRows(source, targets.get(owner), table, studentId);
+                        }
+                        movedStudents++;
+                    }
+                }
+            }
+            System.out.println("Moved data of " + movedStudents + " students.");
+            if (leftBehind > 0) {
+                System.err.println(leftBehind + " rows could not be copied and were left on their old shard.");
+                System.exit(1);
+            }
+        } finally {
+            for (Connection target : targets) {
+                target.close();
+            }
+        }
+    }
+
+    /**
+     * Get the IDs of all students that have rows in any of the moved tables on a shard.
+     *
+     * @param connection Shard connection
+     * @return Student IDs
+     */
+    private static List<Long> studentIds(Connection connection) throws SQLException {
+        List<String> selects = new ArrayList<>();
+        for (String table : TABLES) {
+            selects.add("SELECT student_id FROM " + table);
+        }
+        List<Long> ids = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(String.join(" UNION ", selects));
+             ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Copy the student row and the rows of the courses the student's rows reference
+     * from the old shard's copies to the new shard, keeping rows the new shard has.
+     *
+     * @param source Connection to the old shard
+     * @param target Connection to the new shard
+     * @param studentId Student ID
+     */
+    private static void copyReferences(Connection source, Connection target, Long studentId) throws SQLException {
+        List<String> courseIds = new ArrayList<>();
+        for (String table : TABLES) {
+            courseIds.add("SELECT course_id FROM " + table + " WHERE student_id = ?");
+        }
+        copyRows(source, target, "students", "student_id = ?", 1, studentId);
+        copyRows(source, target, "courses", "course_id IN (" + String.join(" UNION ", courseIds) + ")",
+                TABLES.length, studentId);
+    }
+
+    private static void copyRows(Connection source, Connection target, String table, String where,
+                                 int parameters, Long studentId) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        try (PreparedStatement select = source.prepareStatement("SELECT * FROM " + table + " WHERE " + where)) {
+            for (int i = 1; i <= parameters; i++) {
+                select.setLong(i, studentId);
+            }
+            try (ResultSet rs = select.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    names.add(meta.getColumnName(i));
+                }
+                while (rs.next()) {
+                    Object[] row = new Object[names.size()];
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = rs.getObject(i + 1);
+                    }
+                    rows.add(row);
+                }
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        String marks = String.join(", ", Collections.nCopies(names.size(), "?"));
+        inTransaction(target, () -> {
+            try (PreparedStatement insert = target.prepareStatement(
+                    "INSERT IGNORE INTO " + table + " (" + String.join(", ", names) + ") VALUES (" + marks + ")")) {
+                for (Object[] row : rows) {
+                    for (int i = 0; i < row.length; i++) {
+                        insert.setObject(i + 1, row[i]);
+                    }
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * Copy a student's rows of one table to the target shard, verify them there,
+     * then delete the verified rows from the source.
+     *
+     * @param source Connection to the old shard
+     * @param target Connection to the new shard
+     * @param table Table name
+     * @param studentId Student ID
+     * @return Number of rows that could not be copied and were kept on the source
+     */
+    private static int moveRows(Connection source, Connection target, String table, Long studentId)
+            throws SQLException {
+        String key = primaryKey(source, table);
+        List<String> names = new ArrayList<>();
+        Map<Object, Object[]> rows = new LinkedHashMap<>();
+        try (PreparedStatement select = source.prepareStatement(
+                "SELECT * FROM " + table + " WHERE student_id = ?")) {
+            select.setLong(1, studentId);
+            try (ResultSet rs = select.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    names.add(meta.getColumnName(i));
+                }
+                int keyColumn = names.indexOf(key);
+                while (rs.next()) {
+                    Object[] row = new Object[names.size()];
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = rs.getObject(i + 1);
+                    }
+                    rows.put(row[keyColumn], row);
+                }
+            }
+        }
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        // Pass 1: copy, then keep only the rows the target really holds
+        String marks = String.join(", ", Collections.nCopies(names.size(), "?"));
+        inTransaction(target, () -> {
+            try (PreparedStatement insert = target.prepareStatement(
+                    "INSERT IGNORE INTO " + table + " (" + String.join(", ", names) + ") VALUES (" + marks + ")")) {
+                for (Object[] row : rows.values()) {
+                    for (int i = 0; i < row.length; i++) {
+                        insert.setObject(i + 1, row[i]);
+                    }
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        });
+        List<Object> copied = new ArrayList<>();
+        for (List<Object> ids : chunks(new ArrayList<>(rows.keySet()))) {
+            try (PreparedStatement verify = target.prepareStatement("SELECT * FROM " + table
+                    + " WHERE " + key + " IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")")) {
+                for (int i = 0; i < ids.size(); i++) {
+                    verify.setObject(i + 1, ids.get(i));
+                }
+                try (ResultSet rs = verify.executeQuery()) {
+                    while (rs.next()) {
+                        Object[] row = rows.get(rs.getObject(key));
+                        if (row != null && sameValues(rs, names, row)) {
+                            copied.add(rs.getObject(key));
+                        }
+                    }
+                }
+            }
+        }
+        int leftBehind = rows.size() - copied.size();
+        if (leftBehind > 0) {
+            System.err.println("Student " + studentId + ": " + leftBehind + " rows of " + table
+                    + " collide with different rows on the new shard and were not moved");
+        }
+
+        // Pass 2: delete exactly the rows verified on the target
+        inTransaction(source, () -> {
+            for (List<Object> ids : chunks(copied)) {
+                try (PreparedStatement delete = source.prepareStatement("DELETE FROM " + table
+                        + " WHERE student_id = ? AND " + key
+                        + " IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")")) {
+                    delete.setLong(1, studentId);
+                    for (int i = 0; i < ids.size(); i++) {
+                        delete.setObject(i + 2, ids.get(i));
+                    }
+                    delete.executeUpdate();
+                }
+            }
+        });
+        return leftBehind;
+    }
+
+    /**
+     * Get the primary key column of a table (all moved tables have a single-column key).
+     */
+    private static String primaryKey(Connection connection, String table) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getPrimaryKeys(connection.getCatalog(), null, table)) {
+            if (!rs.next()) {
+                throw new SQLException("Table " + table + " has no primary key");
+            }
+            return rs.getString("COLUMN_NAME");
+        }
+    }
+
+    private static boolean sameValues(ResultSet rs, List<String> names, Object[] row) throws SQLException {
+        for (int i = 0; i < row.length; i++) {
+            Object value = rs.getObject(names.get(i));
+            boolean same = value instanceof BigDecimal && row[i] instanceof BigDecimal
+                    ? ((BigDecimal) value).compareTo((BigDecimal) row[i]) == 0
+                    : Objects.equals(value, row[i]);
+            if (!same) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<List<Object>> chunks(List<Object> ids) {
+        List<List<Object>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += CHUNK_SIZE) {
+            chunks.add(ids.subList(i, Math.min(ids.size(), i + CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+
+    private static void inTransaction(Connection connection, SqlWork work) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            work.run();
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private interface SqlWork {
+        void run() throws SQLException;
+    }
+
+    private static List<String> parseUrls(String value) {
+        List<String> urls = new ArrayList<>();
+        for (String url : Arrays.asList(value.split(","))) {
+            if (!url.trim().isEmpty()) {
+                urls.add(url.trim());
+            }
+        }
+        return urls;
+    }
+}
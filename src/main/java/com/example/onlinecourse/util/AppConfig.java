@@ -0,0 +1,80 @@
+package com.example.onlinecourse.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Application settings.
+ * Reads application.properties from the classpath; a JVM system property with the
+ * same name overrides the file, so a node can be reconfigured without rebuilding the WAR.
+ */
+public class AppConfig {
+    private static final Properties properties = new Properties();
+
+    static {
+        try (InputStream in = AppConfig.class.getClassLoader().getResourceAsStream("application.properties")) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read application.properties: " + e.getMessage());
+        }
+    }
+
+    private AppConfig() {
+    }
+
+    /**
+     * Get a string setting.
+     *
+     * @param key Setting name
+     * @param defaultValue Value used when the setting is missing or blank
+     * @return Setting value
+     */
+    public static String get(String key, String defaultValue) {
+        String value = System.getProperty(key, properties.getProperty(key));
+        return value != null && !value.trim().isEmpty() ? value.trim() : defaultValue;
+    }
+
+    /**
+     * Get an integer setting.
+     *
+     * @param key Setting name
+     * @param defaultValue Value used when the setting is missing or invalid
+     * @return Setting value
+     */
+    public static int getInt(String key, int defaultValue) {
+        try {
+            return Integer.parseInt(get(key, String.valueOf(defaultValue)));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Get a long setting.
+     *
+     * @param key Setting name
+     * @param defaultValue Value used when the setting is missing or invalid
+     * @return Setting value
+     */
+    public static long getLong(String key, long defaultValue) {
+        try {
+            return Long.parseLong(get(key, String.valueOf(defaultValue)));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Get a boolean setting.
+     *
+     * @param key Setting name
+     * @param defaultValue Value used when the setting is missing
+     * @return Setting value
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        return Boolean.parseBoolean(get(key, String.valueOf(defaultValue)));
+    }
+}
@@ -0,0 +1,303 @@
+package com.example.onlinecourse.util;
+
+import org.hibernate.JDBCException;
+import org.hibernate.TransactionException;
+import org.hibernate.exception.ConstraintViolationException;
+
+import javax.persistence.LockTimeoutException;
+import javax.persistence.PessimisticLockException;
+import javax.persistence.QueryTimeoutException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker around the database calls of one DAO.
+ *
+ * The outcomes of the last breaker.windowSize calls are kept in a ring; a call
+ * counts as bad when it fails with a database failure (see isDatabaseFailure) or
+ * takes longer than breaker.slowCallMillis. Once at least breaker.minimumCalls
+ * calls were seen and breaker.failureRatePercent of them were bad, the breaker
+ * opens: calls fail at once with an OpenException instead of waiting for a
+ * connection. After breaker.openSeconds one trial call is let through; it closes
+ * the breaker if it succeeds and opens it again if not.
+ *
+ * At most breaker.maxConcurrent calls run at a time (a bulkhead). A call beyond
+ * that waits up to breaker.maxWaitMillis for a free slot and then fails with a
+ * BusyException. Busy rejections are load, not database failures, so they do
+ * not count towards opening the breaker; a stalled database is caught by the
+ * slow-call threshold of the calls that do run.
+ *
+ * The breaker is reentrant per thread: a DAO method called from within another
+ * call on the same breaker (e.g. a recount inside an enrollment) runs as part of
+ * the outer call, without a second permit and without an outcome of its own.
+ *
+ * Every setting can be overridden per breaker, e.g. breaker.CourseDAO.openSeconds.
+ *
+ * Metrics per breaker: breaker.NAME.state (gauge: 0 closed, 1 half open, 2 open),
+ * breaker.NAME.opened, breaker.NAME.rejected (open), breaker.NAME.busy and breaker.NAME.slow.
+ */
+public class CircuitBreaker {
+    private static final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final int minimumCalls;
+    private final int failureRatePercent;
+    private final long slowCallNanos;
+    private final long openMillis;
+    private final Semaphore permits;
+    private final long maxWaitMillis;
+    // Set while the current thread runs a call through this breaker
+    private final ThreadLocal<Boolean> inCall = new ThreadLocal<>();
+
+    // Ring of the last outcomes (true = bad); guarded by this
+    private final boolean[] outcomes;
+    private int next;
+    private int calls;
+    private int bad;
+
+    private volatile State state = State.CLOSED;
+    private volatile long openedAt;
+    private boolean trialRunning;
+
+    /**
+     * Breaker state.
+     */
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private CircuitBreaker(String name) {
+        this.name = name;
+        this.outcomes = new boolean[Math.max(1, setting(name, "windowSize", 50))];
+        this.minimumCalls = Math.max(1, setting(name, "minimumCalls", 20));
+        this.failureRatePercent = setting(name, "failureRatePercent", 50);
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(setting(name, "slowCallMillis", 2000));
+        this.openMillis = TimeUnit.SECONDS.toMillis(setting(name, "openSeconds", 30));
+        this.permits = new Semaphore(Math.max(1, setting(name, "maxConcurrent", 20)));
+        this.maxWaitMillis = setting(name, "maxWaitMillis", 200);
+        MetricsRegistry.gauge("breaker." + name + ".state", () -> state.ordinal());
+    }
+
+    /**
+     * Get the breaker of a name, creating it on first use.
+     *
+     * @param name Breaker name, by convention the DAO's class name
+     * @return Breaker
+     */
+    public static CircuitBreaker forName(String name) {
+        return breakers.computeIfAbsent(name, CircuitBreaker::new);
+    }
+
+    /**
+     * Run a database call through the breaker.
+     *
+     * @param operation Call
+     * @param <T> Result type
+     * @return Result of the call
+     * @throws OpenException if the breaker is open
+     * @throws BusyException if too many calls are running
+     */
+    public <T> T call(Supplier<T> operation) {
+        if (inCall.get() != null) {
+            // Nested call: its outcome is the outer call's
+            return operation.get();
+        }
+        boolean trial = acquire();
+        inCall.set(Boolean.TRUE);
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            return operation.get();
+        } catch (RuntimeException e) {
+            // A call into another DAO rejected by its open breaker says nothing new about this database
+            failed = isDatabaseFailure(e) && !causedByOpenBreaker(e);
+            throw e;
+        } finally {
+            inCall.remove();
+            permits.release();
+            long nanos = System.nanoTime() - start;
+            if (nanos > slowCallNanos) {
+                MetricsRegistry.increment("breaker." + name + ".slow");
+                failed = true;
+            }
+            record(failed, trial);
+        }
+    }
+
+    /**
+     * Run a database call without a result through the breaker.
+     *
+     * @param operation Call
+     * @throws OpenException if the breaker is open
+     * @throws BusyException if too many calls are running
+     */
+    public void run(Runnable operation) {
+        call(() -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Whether calls are currently let through normally.
+     *
+     * @return true if the breaker is closed
+     */
+    public boolean isClosed() {
+        return state == State.CLOSED;
+    }
+
+    /**
+     * Whether an exception means the database is unreachable or overloaded, as
+     * opposed to a rejected request or a constraint violation. An open breaker
+     * counts as a database failure.
+     *
+     * @param e Exception thrown by a DAO
+     * @return true for connection, timeout and lock wait failures
+     */
+    public static boolean isDatabaseFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException || cause instanceof SQLIntegrityConstraintViolationException) {
+                return false;
+            }
+            if (cause instanceof OpenException || cause instanceof JDBCException || cause instanceof SQLException
+                    || cause instanceof TransactionException || cause instanceof QueryTimeoutException
+                    || cause instanceof LockTimeoutException || cause instanceof PessimisticLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean causedByOpenBreaker(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OpenException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Take a permit for a call.
+     *
+     * @return true if the call is the half-open trial
+     */
+    private boolean acquire() {
+        boolean trial = false;
+        if (state != State.CLOSED) {
+            synchronized (this) {
+                if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+                    state = State.HALF_OPEN;
+                }
+                if (state == State.HALF_OPEN && !trialRunning) {
+                    trialRunning = true;
+                    trial = true;
+                } else if (state != State.CLOSED) {
+                    MetricsRegistry.increment("breaker." + name + ".rejected");
+                    throw new OpenException();
+                }
+            }
+        }
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            MetricsRegistry.increment("breaker." + name + ".busy");
+            if (trial) {
+                synchronized (this) {
+                    trialRunning = false;
+                }
+            }
+            throw new BusyException();
+        }
+        return trial;
+    }
+
+    private synchronized void record(boolean failed, boolean trial) {
+        if (trial) {
+            trialRunning = false;
+            if (failed) {
+                open();
+            } else {
+                close();
+            }
+            return;
+        }
+        if (state != State.CLOSED) {
+            return;
+        }
+        if (calls == outcomes.length) {
+            bad -= outcomes[next] ? 1 : 0;
+        } else {
+            calls++;
+        }
+        outcomes[next] = failed;
+        bad += failed ? 1 : 0;
+        next = (next + 1) % outcomes.length;
+        if (calls >= minimumCalls && bad * 100 >= failureRatePercent * calls) {
+            open();
+        }
+    }
+
+    private void open() {
+        if (state != State.OPEN) {
+            MetricsRegistry.increment("breaker." + name + ".opened");
+            System.err.println("Circuit breaker " + name + " opened");
+        }
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        calls = 0;
+        bad = 0;
+        next = 0;
+        System.err.println("Circuit breaker " + name + " closed");
+    }
+
+    private static int setting(String name, String key, int defaultValue) {
+        return AppConfig.getInt("breaker." + name + "." + key, AppConfig.getInt("breaker." + key, defaultValue));
+    }
+
+    /**
+     * Thrown when a call finds breaker.maxConcurrent calls running and no slot frees up in time.
+     */
+    public static class BusyException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public BusyException() {
+            super("The service is busy right now and your request was not processed. Please try again.");
+        }
+    }
+
+    /**
+     * Thrown instead of calling the database while a breaker is open.
+     */
+    public static class OpenException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public OpenException() {
+            super("The service is temporarily unavailable and your request was not processed. "
+                    + "Please try again in a few minutes.");
+        }
+    }
+}
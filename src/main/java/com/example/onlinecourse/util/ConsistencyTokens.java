@@ -0,0 +1,90 @@
+package com.example.onlinecourse.util;
+
+/**
+ * Read-your-writes tokens.
+ * A session's token records when its student last wrote (enrolled, cancelled, paid);
+ * for a short window afterwards the student's reads in that session are routed to
+ * the primary so they see their own write even if the replicas have not applied it yet.
+ *
+ * The token is part of the replicated session state (StudentBean, encoded by
+ * SessionStateCodec), so it follows the session to whichever node serves the next
+ * request. ReadYourWritesFilter binds the session's token to the request thread;
+ * work outside a request (jobs, tools) has no token and reads as usual.
+ */
+public class ConsistencyTokens {
+    private static final long WINDOW_MILLIS = AppConfig.getLong("db.readYourWrites.windowMillis", 10000);
+    private static final ThreadLocal<Token> current = new ThreadLocal<>();
+
+    private ConsistencyTokens() {
+    }
+
+    /**
+     * Bind the token of the request's session to the current thread.
+     *
+     * @param token Session token, or null if the session has no logged-in student
+     */
+    public static void bind(Token token) {
+        if (token == null) {
+            current.remove();
+        } else {
+            current.set(token);
+        }
+    }
+
+    /**
+     * Remove the current thread's token at the end of a request.
+     */
+    public static void unbind() {
+        current.remove();
+    }
+
+    /**
+     * Record a write by a student in the token of the current session, if it is
+     * that student's session.
+     *
+     * @param studentId Student ID
+     */
+    public static void recordWrite(Long studentId) {
+        Token token = current.get();
+        if (token != null && token.studentId.equals(studentId)) {
+            token.lastWriteMillis = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Check whether a student's reads must go to the primary.
+     *
+     * @param studentId Student ID
+     * @return true if the current session's student is this student and wrote
+     *         within the read-your-writes window
+     */
+    public static boolean requiresPrimary(Long studentId) {
+        Token token = current.get();
+        return token != null && token.studentId.equals(studentId)
+                && System.currentTimeMillis() - token.lastWriteMillis <= WINDOW_MILLIS;
+    }
+
+    /**
+     * Last write of a session's student.
+     */
+    public static final class Token {
+        private final Long studentId;
+        private volatile long lastWriteMillis;
+
+        public Token(Long studentId, long lastWriteMillis) {
+            this.studentId = studentId;
+            this.lastWriteMillis = lastWriteMillis;
+        }
+
+        public Long getStudentId() {
+            return studentId;
+        }
+
+        /**
+         * @return Time of the last write in epoch milliseconds, 0 if none
+         */
+        public long getLastWriteMillis() {
+            return lastWriteMillis;
+        }
+    }
+}
@@ -6,12 +6,21 @@ import org.hibernate.boot.MetadataSources;
 import org.hibernate.boot.registry.StandardServiceRegistry;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Hibernate utility class for managing SessionFactory.
  * Provides singleton pattern with lazy initialization to prevent deployment failures.
+ * Writes always use the primary SessionFactory; read-only queries can be routed to
+ * read replicas configured with db.replica.urls (see application.properties).
  */
 public class HibernateUtil {
     private static SessionFactory sessionFactory;
+    private static ReplicaSet replicaSet;
+    private static volatile boolean replicasInitialized;
+    private static volatile List<SessionFactory> shardSessionFactories;
     private static final Object lock = new Object();
 
     /**
@@ -46,12 +55,148 @@ public class HibernateUtil {
         return sessionFactory;
     }
 
+    /**
+     * Get a SessionFactory for read-only queries that tolerate replication lag.
+     * Returns a healthy replica, or the primary if no replica is configured or in rotation.
+     *
+     * @return SessionFactory for reads
+     */
+    public static SessionFactory getReadSessionFactory() {
+        if (!replicasInitialized) {
+            synchronized (lock) {
+                if (!replicasInitialized) {
+                    replicaSet = buildReplicaSet();
+                    replicasInitialized = true;
+                }
+            }
+        }
+        SessionFactory replica = replicaSet != null ? replicaSet.pick() : null;
+        if (replica == null) {
+            MetricsRegistry.increment("db.reads.primary");
+            return getSessionFactory();
+        }
+        MetricsRegistry.increment("db.reads.replica");
+        return replica;
+    }
+
+    /**
+     * Get a SessionFactory for a student's own data.
+     * Routes to the primary right after the student wrote (read-your-writes),
+     * otherwise behaves like {@link #getReadSessionFactory()}.
+     *
+     * @param studentId Student whose data is read
+     * @return SessionFactory for reads
+     */
+    public static SessionFactory getReadSessionFactory(Long studentId) {
+        if (ConsistencyTokens.requiresPrimary(studentId)) {
+            MetricsRegistry.increment("db.reads.readYourWrites");
+            return getSessionFactory();
+        }
+        return getReadSessionFactory();
+    }
+
+    /**
+     * Build session factories for the configured read replicas.
+     *
+     * @return ReplicaSet, or null if no replicas are configured
+     */
+    private static ReplicaSet buildReplicaSet() {
+        String urls = AppConfig.get("db.replica.urls", "");
+        if (urls.isEmpty()) {
+            return null;
+        }
+        List<SessionFactory> factories = new ArrayList<>();
+        for (String url : urls.split(",")) {
+            try {
+                // Replicas are read-only: never let Hibernate alter their schema
+                factories.add(buildSessionFactory(url.trim(), "db.replica", "none"));
+            } catch (Exception e) {
+                System.err.println("Replica SessionFactory creation failed for " + url + ": " + e.getMessage());
+            }
+        }
+        if (factories.isEmpty()) {
+            return null;
+        }
+        return new ReplicaSet(factories,
+                AppConfig.getLong("db.replica.maxLagSeconds", 5),
+                AppConfig.getLong("db.replica.lagCheckIntervalMillis", 2000));
+    }
+
+    /**
+     * Get the SessionFactories of the enrollment/payment shards, in shard order.
+     * Configured with db.shard.urls; when no shards are configured the list holds
+     * only the primary SessionFactory.
+     *
+     * @return Shard SessionFactories
+     */
+    public static List<SessionFactory> getShardSessionFactories() {
+        if (shardSessionFactories == null) {
+            synchronized (lock) {
+                if (shardSessionFactories == null) {
+                    String urls = AppConfig.get("db.shard.urls", "");
+                    List<SessionFactory> factories = new ArrayList<>();
+                    if (urls.isEmpty()) {
+                        factories.add(getSessionFactory());
+                    } else {
+                        for (String url : urls.split(",")) {
+                            try {
+                                factories.add(buildSessionFactory(url.trim(), "db.shard", null));
+                            } catch (Exception e) {
+                                // A missing shard would silently misroute students, so fail hard
+                                throw new RuntimeException("Failed to create shard SessionFactory for " + url, e);
+                            }
+                        }
+                    }
+                    shardSessionFactories = Collections.unmodifiableList(factories);
+                }
+            }
+        }
+        return shardSessionFactories;
+    }
+
+    /**
+     * Build a SessionFactory from hibernate.cfg.xml for another database URL.
+     *
+     * @param url JDBC URL
+     * @param credentialsPrefix Settings prefix for optional username/password overrides
+     * @param hbm2ddl hbm2ddl.auto override, or null to keep the configured value
+     * @return SessionFactory
+     */
+    private static SessionFactory buildSessionFactory(String url, String credentialsPrefix, String hbm2ddl) {
+        StandardServiceRegistryBuilder builder = new StandardServiceRegistryBuilder()
+                .configure("hibernate.cfg.xml")
+                .applySetting("hibernate.connection.url", url);
+        if (hbm2ddl != null) {
+            builder.applySetting("hibernate.hbm2ddl.auto", hbm2ddl);
+        }
+        String username = AppConfig.get(credentialsPrefix + ".username", null);
+        if (username != null) {
+            builder.applySetting("hibernate.connection.username", username);
+            builder.applySetting("hibernate.connection.password", AppConfig.get(credentialsPrefix + ".password", ""));
+        }
+        return new MetadataSources(builder.build()).getMetadataBuilder().build()
+                .getSessionFactoryBuilder().build();
+    }
+
     /**
      * Close the SessionFactory.
      * Should be called when application shuts down.
      */
     public static void shutdown() {
         synchronized (lock) {
+            if (replicaSet != null) {
+                replicaSet.shutdown();
+                replicaSet = null;
+            }
+            replicasInitialized = false;
+            if (shardSessionFactories != null) {
+                for (SessionFactory shard : shardSessionFactories) {
+                    if (shard != sessionFactory) {
+                        shard.close();
+                    }
+                }
+                shardSessionFactories = null;
+            }
             if (sessionFactory != null) {
                 try {
                     sessionFactory.close();
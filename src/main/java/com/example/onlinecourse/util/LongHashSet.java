@@ -0,0 +1,183 @@
+package com.example.onlinecourse.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Compact set of primitive long values.
+ * Open addressing with linear probing over a single long[] table, so membership
+ * checks do not box and the set costs about 8-16 bytes per element.
+ * Not thread-safe.
+ */
+public class LongHashSet implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final long EMPTY = 0L;
+
+    private long[] table;
+    private boolean containsZero;
+    private int size;
+
+    public LongHashSet() {
+        this(8);
+    }
+
+    /**
+     * Create a set sized for an expected number of elements.
+     *
+     * @param expectedSize Expected number of elements
+     */
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.table = new long[capacity];
+    }
+
+    /**
+     * Add a value.
+     *
+     * @param value Value to add
+     * @return true if the value was not already present
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int mask = table.length - 1;
+        int index = slot(value, mask);
+        while (table[index] != EMPTY) {
+            if (table[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        table[index] = value;
+        size++;
+        if (size * 2 > table.length) {
+            resize(table.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Check whether a value is present.
+     *
+     * @param value Value to check
+     * @return true if present
+     */
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsZero;
+        }
+        int mask = table.length - 1;
+        int index = slot(value, mask);
+        while (table[index] != EMPTY) {
+            if (table[index] == value) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Remove a value.
+     *
+     * @param value Value to remove
+     * @return true if the value was present
+     */
+    public boolean remove(long value) {
+        if (value == EMPTY) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+        int mask = table.length - 1;
+        int index = slot(value, mask);
+        while (table[index] != EMPTY) {
+            if (table[index] == value) {
+                shiftBack(index, mask);
+                size--;
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(table, EMPTY);
+        containsZero = false;
+        size = 0;
+    }
+
+    /**
+     * Copy the values into an array (unordered).
+     *
+     * @return Values
+     */
+    public long[] toArray() {
+        long[] values = new long[size];
+        int i = 0;
+        if (containsZero) {
+            values[i++] = EMPTY;
+        }
+        for (long value : table) {
+            if (value != EMPTY) {
+                values[i++] = value;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Close the gap left by a removed slot so later probes still find their values.
+     */
+    private void shiftBack(int gap, int mask) {
+        int index = (gap + 1) & mask;
+        while (table[index] != EMPTY) {
+            int home = slot(table[index], mask);
+            // Move the value into the gap if its home slot is not between gap and index (cyclically)
+            if (((index - home) & mask) >= ((index - gap) & mask)) {
+                table[gap] = table[index];
+                gap = index;
+            }
+            index = (index + 1) & mask;
+        }
+        table[gap] = EMPTY;
+    }
+
+    private void resize(int capacity) {
+        long[] old = table;
+        table = new long[capacity];
+        int mask = capacity - 1;
+        for (long value : old) {
+            if (value != EMPTY) {
+                int index = slot(value, mask);
+                while (table[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                table[index] = value;
+            }
+        }
+    }
+
+    private static int slot(long value, int mask) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
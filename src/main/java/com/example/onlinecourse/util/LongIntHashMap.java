@@ -0,0 +1,183 @@
+package com.example.onlinecourse.util;
+
+/**
+ * Compact map from primitive long keys to int values, for counters keyed by ID.
+ * Open addressing with linear probing over parallel long[] and int[] tables, as
+ * in LongHashSet, so lookups and increments do not box.
+ * Not thread-safe.
+ */
+public class LongIntHashMap {
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private int[] values;
+    private boolean containsZero;
+    private int zeroValue;
+    private int size;
+
+    public LongIntHashMap() {
+        this(8);
+    }
+
+    /**
+     * Create a map sized for an expected number of entries.
+     *
+     * @param expectedSize Expected number of entries
+     */
+    public LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+    }
+
+    /**
+     * Get the value of a key.
+     *
+     * @param key Key
+     * @return Value, or 0 if the key is not present
+     */
+    public int get(long key) {
+        if (key == EMPTY) {
+            return containsZero ? zeroValue : 0;
+        }
+        int mask = keys.length - 1;
+        int index = slot(key, mask);
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return 0;
+    }
+
+    /**
+     * Add to the value of a key. A key whose value drops to 0 or below is removed.
+     *
+     * @param key Key
+     * @param delta Amount to add
+     * @return New value (0 if the key was removed)
+     */
+    public int addTo(long key, int delta) {
+        if (key == EMPTY) {
+            int value = (containsZero ? zeroValue : 0) + delta;
+            if (value > 0) {
+                size += containsZero ? 0 : 1;
+                containsZero = true;
+                zeroValue = value;
+                return value;
+            }
+            size -= containsZero ? 1 : 0;
+            containsZero = false;
+            zeroValue = 0;
+            return 0;
+        }
+        int mask = keys.length - 1;
+        int index = slot(key, mask);
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                int value = values[index] + delta;
+                if (value > 0) {
+                    values[index] = value;
+                    return value;
+                }
+                shiftBack(index, mask);
+                size--;
+                return 0;
+            }
+            index = (index + 1) & mask;
+        }
+        if (delta <= 0) {
+            return 0;
+        }
+        keys[index] = key;
+        values[index] = delta;
+        size++;
+        if (size * 2 > keys.length) {
+            resize(keys.length << 1);
+        }
+        return delta;
+    }
+
+    /**
+     * Add all entries of another map to this one.
+     *
+     * @param other Map to add
+     */
+    public void addAll(LongIntHashMap other) {
+        other.forEach(this::addTo);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Call a consumer for every entry (unordered).
+     *
+     * @param consumer Entry consumer
+     */
+    public void forEach(EntryConsumer consumer) {
+        if (containsZero) {
+            consumer.accept(EMPTY, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Close the gap left by a removed slot so later probes still find their keys.
+     */
+    private void shiftBack(int gap, int mask) {
+        int index = (gap + 1) & mask;
+        while (keys[index] != EMPTY) {
+            int home = slot(keys[index], mask);
+            if (((index - home) & mask) >= ((index - gap) & mask)) {
+                keys[gap] = keys[index];
+                values[gap] = values[index];
+                gap = index;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        values[gap] = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int index = slot(oldKeys[i], mask);
+                while (keys[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * Receives the entries of a LongIntHashMap.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, int value);
+    }
+}
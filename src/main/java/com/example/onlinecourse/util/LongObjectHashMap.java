@@ -0,0 +1,160 @@
+package com.example.onlinecourse.util;
+
+import java.util.function.LongFunction;
+
+/**
+ * Compact map from primitive long keys to objects, for rows keyed by ID.
+ * Open addressing with linear probing over parallel long[] and Object[] tables, as
+ * in LongIntHashMap, so lookups do not box. Entries are never removed.
+ * Not thread-safe.
+ *
+ * @param <V> Value type
+ */
+public class LongObjectHashMap<V> {
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private Object[] values;
+    private V zeroValue;
+    private int size;
+
+    public LongObjectHashMap() {
+        this(8);
+    }
+
+    /**
+     * Create a map sized for an expected number of entries.
+     *
+     * @param expectedSize Expected number of entries
+     */
+    public LongObjectHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+    }
+
+    /**
+     * Get the value of a key.
+     *
+     * @param key Key
+     * @return Value, or null if the key is not present
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == EMPTY) {
+            return zeroValue;
+        }
+        int mask = keys.length - 1;
+        int index = slot(key, mask);
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                return (V) values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Set the value of a key.
+     *
+     * @param key Key
+     * @param value Value, not null
+     */
+    public void put(long key, V value) {
+        if (key == EMPTY) {
+            size += zeroValue == null ? 1 : 0;
+            zeroValue = value;
+            return;
+        }
+        int mask = keys.length - 1;
+        int index = slot(key, mask);
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+        if (size * 2 > keys.length) {
+            resize(keys.length << 1);
+        }
+    }
+
+    /**
+     * Get the value of a key, creating and adding it first if the key is not present.
+     *
+     * @param key Key
+     * @param factory Creates the value for the key
+     * @return Value
+     */
+    public V computeIfAbsent(long key, LongFunction<V> factory) {
+        V value = get(key);
+        if (value == null) {
+            value = factory.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Call a consumer for every entry (unordered).
+     *
+     * @param consumer Entry consumer
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<V> consumer) {
+        if (zeroValue != null) {
+            consumer.accept(EMPTY, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                consumer.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int index = slot(oldKeys[i], mask);
+                while (keys[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * Receives the entries of a LongObjectHashMap.
+     *
+     * @param <V> Value type
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.onlinecourse.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Application-wide metrics registry.
+ * Holds named counters and gauges that can be read as a snapshot.
+ */
+public class MetricsRegistry {
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final Map<String, LongAccumulator> maxima = new ConcurrentHashMap<>();
+    private static final Map<String, Supplier<Number>> gauges = new ConcurrentHashMap<>();
+
+    private MetricsRegistry() {
+    }
+
+    /**
+     * Increment a counter by one.
+     *
+     * @param name Counter name
+     */
+    public static void increment(String name) {
+        add(name, 1);
+    }
+
+    /**
+     * Add a value to a counter.
+     *
+     * @param name Counter name
+     * @param value Value to add
+     */
+    public static void add(String name, long value) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(value);
+    }
+
+    /**
+     * Record a duration as a count and a total in milliseconds.
+     *
+     * @param name Timer name
+     * @param nanos Duration in nanoseconds
+     */
+    public static void recordTime(String name, long nanos) {
+        add(name + ".count", 1);
+        add(name + ".totalMillis", nanos / 1_000_000);
+    }
+
+    /**
+     * Record a sampled value (such as a size) as a count, a total and a maximum.
+     *
+     * @param name Metric name
+     * @param value Sampled value
+     */
+    public static void recordValue(String name, long value) {
+        add(name + ".count", 1);
+        add(name + ".total", value);
+        maxima.computeIfAbsent(name + ".max", k -> new LongAccumulator(Math::max, Long.MIN_VALUE)).accumulate(value);
+    }
+
+    /**
+     * Register a gauge that is evaluated when a snapshot is taken.
+     *
+     * @param name Gauge name
+     * @param supplier Value supplier
+     */
+    public static void gauge(String name, Supplier<Number> supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /**
+     * Get the current value of a counter.
+     *
+     * @param name Counter name
+     * @return Counter value, 0 if unknown
+     */
+    public static long getCount(String name) {
+        LongAdder adder = counters.get(name);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    /**
+     * Get all counters and gauges sorted by name.
+     *
+     * @return Metric name to value
+     */
+    public static Map<String, Number> snapshot() {
+        Map<String, Number> snapshot = new TreeMap<>();
+        counters.forEach((name, adder) -> snapshot.put(name, adder.sum()));
+        maxima.forEach((name, max) -> snapshot.put(name, max.get()));
+        gauges.forEach((name, supplier) -> {
+            try {
+                snapshot.put(name, supplier.get());
+            } catch (Exception e) {
+                snapshot.put(name, -1);
+            }
+        });
+        return snapshot;
+    }
+}
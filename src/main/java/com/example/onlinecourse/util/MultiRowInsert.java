@@ -0,0 +1,61 @@
+package com.example.onlinecourse.util;
+
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+
+/**
+ * Inserts many rows with multi-row INSERT statements on the session's connection.
+ * Hibernate cannot batch inserts of entities with IDENTITY keys, so bulk paths
+ * write rows through this instead: one statement per chunk of rows, inside the
+ * caller's transaction.
+ */
+public class MultiRowInsert {
+    private static final int ROWS_PER_STATEMENT = 500;
+
+    private MultiRowInsert() {
+    }
+
+    /**
+     * Insert rows into a table.
+     *
+     * @param session Session of the write transaction
+     * @param table Table name
+     * @param columns Column names
+     * @param rows Column values of each row, in column order
+     * @return Number of inserted rows
+     */
+    public static int insert(Session session, String table, String[] columns, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        String prefix = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ";
+        StringBuilder placeholder = new StringBuilder("(");
+        for (int i = 0; i < columns.length; i++) {
+            placeholder.append(i > 0 ? ", ?" : "?");
+        }
+        String rowPlaceholder = placeholder.append(')').toString();
+
+        int[] inserted = {0};
+        session.doWork(connection -> {
+            for (int from = 0; from < rows.size(); from += ROWS_PER_STATEMENT) {
+                List<Object[]> chunk = rows.subList(from, Math.min(rows.size(), from + ROWS_PER_STATEMENT));
+                StringBuilder sql = new StringBuilder(prefix);
+                for (int i = 0; i < chunk.size(); i++) {
+                    sql.append(i > 0 ? ", " : "").append(rowPlaceholder);
+                }
+                try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+                    int index = 1;
+                    for (Object[] row : chunk) {
+                        for (Object value : row) {
+                            statement.setObject(index++, value);
+                        }
+                    }
+                    inserted[0] += statement.executeUpdate();
+                }
+            }
+        });
+        return inserted[0];
+    }
+}
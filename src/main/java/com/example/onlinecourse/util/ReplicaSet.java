@@ -0,0 +1,141 @@
+package com.example.onlinecourse.util;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read replicas with lag-aware round-robin selection.
+ * A background task checks each replica's replication lag; replicas that lag more
+ * than the threshold, have stopped replicating or cannot be reached are taken out
+ * of rotation until a later check finds them healthy again.
+ */
+public class ReplicaSet {
+    private final List<Replica> replicas;
+    private final long maxLagSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService lagChecker;
+
+    /**
+     * Create a replica set and start lag checking.
+     *
+     * @param factories Session factories of the replicas
+     * @param maxLagSeconds Maximum replication lag of a replica in rotation
+     * @param checkIntervalMillis Lag check interval
+     */
+    public ReplicaSet(List<SessionFactory> factories, long maxLagSeconds, long checkIntervalMillis) {
+        this.replicas = new ArrayList<>();
+        for (int i = 0; i < factories.size(); i++) {
+            Replica replica = new Replica("replica-" + i, factories.get(i));
+            replicas.add(replica);
+            MetricsRegistry.gauge("db.replica." + i + ".lagSeconds", () -> replica.lagSeconds);
+            MetricsRegistry.gauge("db.replica." + i + ".inRotation", () -> replica.healthy ? 1 : 0);
+        }
+        this.maxLagSeconds = maxLagSeconds;
+        this.lagChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-lag-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lagChecker.scheduleWithFixedDelay(this::checkLag, 0, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Pick a healthy replica in round-robin order.
+     *
+     * @return Session factory of a replica, or null if none is in rotation
+     */
+    public SessionFactory pick() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica.sessionFactory;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stop lag checking and close the replica session factories.
+     */
+    public void shutdown() {
+        lagChecker.shutdownNow();
+        for (Replica replica : replicas) {
+            try {
+                replica.sessionFactory.close();
+            } catch (Exception e) {
+                System.err.println("Error closing " + replica.name + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void checkLag() {
+        for (Replica replica : replicas) {
+            long lag;
+            try {
+                lag = readLagSeconds(replica.sessionFactory);
+            } catch (Exception e) {
+                lag = -1;
+            }
+            replica.lagSeconds = lag;
+            boolean healthy = lag >= 0 && lag <= maxLagSeconds;
+            if (healthy != replica.healthy) {
+                System.err.println((healthy ? "Returning " : "Evicting ") + replica.name
+                        + " (lag " + (lag >= 0 ? lag + "s" : "unknown") + ")");
+                MetricsRegistry.increment(healthy ? "db.replica.restored" : "db.replica.evicted");
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    /**
+     * Read the replication lag of a replica.
+     *
+     * @return Lag in seconds, or -1 if the replica is not replicating
+     */
+    private static long readLagSeconds(SessionFactory sessionFactory) {
+        try (Session session = sessionFactory.openSession()) {
+            return session.doReturningWork(connection -> {
+                try {
+                    return lagFrom(connection.prepareStatement("SHOW REPLICA STATUS"), "Seconds_Behind_Source");
+                } catch (SQLException e) {
+                    // MySQL before 8.0.22
+                    return lagFrom(connection.prepareStatement("SHOW SLAVE STATUS"), "Seconds_Behind_Master");
+                }
+            });
+        }
+    }
+
+    private static long lagFrom(PreparedStatement statement, String column) throws SQLException {
+        try (PreparedStatement ps = statement; ResultSet rs = ps.executeQuery()) {
+            if (!rs.next()) {
+                return -1;
+            }
+            long lag = rs.getLong(column);
+            return rs.wasNull() ? -1 : lag;
+        }
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final SessionFactory sessionFactory;
+        private volatile boolean healthy;
+        private volatile long lagSeconds = -1;
+
+        private Replica(String name, SessionFactory sessionFactory) {
+            this.name = name;
+            this.sessionFactory = sessionFactory;
+        }
+    }
+}
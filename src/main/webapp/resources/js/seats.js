@@ -0,0 +1,67 @@
+/*
+ * Live seat counts.
+ * Elements marked with data-seat-course="<courseId>" and data-seat-field are
+ * updated from the /events/seats Server-Sent Events stream instead of reloading
+ * the page. Fields: left, enrolled, capacity, bar (width in %), badge.
+ */
+(function () {
+    var script = document.currentScript;
+    if (!window.EventSource || !script) {
+        return;
+    }
+    var contextPath = script.src.substring(0, script.src.indexOf('/jakarta.faces.resource/'));
+
+    function update(courseId, enrolled, capacity) {
+        var nodes = document.querySelectorAll('[data-seat-course="' + courseId + '"]');
+        var left = Math.max(0, capacity - enrolled);
+        for (var i = 0; i < nodes.length; i++) {
+            var node = nodes[i];
+            switch (node.getAttribute('data-seat-field')) {
+                case 'left':
+                    node.textContent = left;
+                    break;
+                case 'enrolled':
+                    node.textContent = enrolled;
+                    break;
+                case 'capacity':
+                    node.textContent = capacity;
+                    break;
+                case 'bar':
+                    node.style.width = (capacity > 0 ? Math.floor(enrolled * 100 / capacity) : 0) + '%';
+                    break;
+                case 'badge':
+                    node.className = 'badge ' + (left > 10 ? 'badge-success' : (left > 0 ? 'badge-warning' : 'badge-danger'));
+                    node.textContent = enrolled + '/' + capacity;
+                    break;
+            }
+        }
+    }
+
+    function connect() {
+        var ids = {};
+        var nodes = document.querySelectorAll('[data-seat-course]');
+        for (var i = 0; i < nodes.length; i++) {
+            ids[nodes[i].getAttribute('data-seat-course')] = true;
+        }
+        var courses = Object.keys(ids);
+        if (courses.length === 0) {
+            return;
+        }
+        // The browser reconnects on its own and the server then resends the current counts
+        var source = new EventSource(contextPath + '/events/seats?courses=' + courses.join(','));
+        source.addEventListener('seats', function (event) {
+            var counts = JSON.parse(event.data);
+            for (var courseId in counts) {
+                if (counts.hasOwnProperty(courseId)) {
+                    update(courseId, counts[courseId][0], counts[courseId][1]);
+                }
+            }
+        });
+    }
+
+    if (document.readyState === 'loading') {
+        document.addEventListener('DOMContentLoaded', connect);
+    } else {
+        connect();
+    }
+})();